@@ -1,14 +1,21 @@
 package io.github.qudtlib.maven.rdfio;
 
+import io.github.qudtlib.maven.rdfio.common.file.Compression;
+import io.github.qudtlib.maven.rdfio.common.file.ConcurrentRdfReader;
 import io.github.qudtlib.maven.rdfio.common.file.FileHelper;
+import io.github.qudtlib.maven.rdfio.common.file.NodeDictionary;
+import io.github.qudtlib.maven.rdfio.common.file.ParsedGraphCache;
+import io.github.qudtlib.maven.rdfio.common.file.PersistentParseCache;
+import io.github.qudtlib.maven.rdfio.common.file.RdfLoader;
+import io.github.qudtlib.maven.rdfio.common.log.ThreadRoutingLog;
 import io.github.qudtlib.maven.rdfio.filter.Graphs;
 import io.github.qudtlib.maven.rdfio.filter.GraphsHelper;
 import io.github.qudtlib.maven.rdfio.filter.Input;
 import java.io.*;
-import java.nio.charset.StandardCharsets;
-import java.nio.file.Files;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.ObjIntConsumer;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
@@ -21,9 +28,10 @@ import org.apache.jena.rdf.model.impl.StatementImpl;
 import org.apache.jena.riot.Lang;
 import org.apache.jena.riot.RDFDataMgr;
 import org.apache.jena.riot.RDFLanguages;
-import org.apache.jena.riot.RDFParser;
+import org.apache.jena.riot.RiotException;
 import org.apache.maven.plugin.AbstractMojo;
 import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.logging.Log;
 import org.apache.maven.plugins.annotations.Parameter;
 
 public abstract class AbstractRdfioMojo extends AbstractMojo {
@@ -31,6 +39,70 @@ public abstract class AbstractRdfioMojo extends AbstractMojo {
     @Parameter(defaultValue = "${project.basedir}", readonly = true)
     protected File basedir;
 
+    /**
+     * Maximum number of triples kept in the cache of parsed RDF files that is shared by all
+     * executions in the Maven session. Set to 0 to disable the cache.
+     */
+    @Parameter(property = "rdfio.parsedGraphCache.maxTriples")
+    protected Long parsedGraphCacheMaxTriples;
+
+    /** Directory of the on-disk cache of parsed RDF files. */
+    @Parameter(
+            property = "rdfio.parseCache.directory",
+            defaultValue = "${project.build.directory}/rdfio/parse-cache")
+    protected File parseCacheDirectory;
+
+    /** If <code>false</code>, parsed RDF files are not cached on disk. */
+    @Parameter(property = "rdfio.parseCache.persistent", defaultValue = "true")
+    protected boolean persistentParseCache = true;
+
+    /**
+     * Maximum size of the on-disk cache of parsed RDF files in megabytes. When it is exceeded, the
+     * least recently used entries are removed.
+     */
+    @Parameter(property = "rdfio.parseCache.maxSizeMB", defaultValue = "1024")
+    protected long parseCacheMaxSizeMB = PersistentParseCache.DEFAULT_MAX_SIZE_MB;
+
+    /**
+     * Maximum number of IRIs and literals kept in the dictionary that lets equal terms of all
+     * parsed RDF files share one instance. Set to 0 to disable the dictionary.
+     */
+    @Parameter(property = "rdfio.nodeDictionary.maxNodes")
+    protected Long nodeDictionaryMaxNodes;
+
+    /**
+     * Number of threads parsing input files concurrently. Defaults to the number of available
+     * processors; set to 1 to parse the files one after the other.
+     */
+    @Parameter(property = "rdfio.parserThreads")
+    protected Integer parserThreads;
+
+    private ThreadRoutingLog routingLog;
+
+    @Override
+    public void setLog(Log log) {
+        super.setLog(log);
+        this.routingLog = new ThreadRoutingLog(log);
+    }
+
+    /**
+     * Returns the log, which writes to the log bound to the current thread (see {@link
+     * ThreadRoutingLog#bind(Log)}), if any, so the output of tasks running concurrently can be
+     * collected separately.
+     */
+    @Override
+    public Log getLog() {
+        if (routingLog == null) {
+            routingLog = new ThreadRoutingLog(super.getLog());
+        }
+        return routingLog;
+    }
+
+    protected ThreadRoutingLog getRoutingLog() {
+        getLog();
+        return routingLog;
+    }
+
     protected void writeOutputToFile(
             String outputFile, Dataset dataset, List<String> graphs, String messageFormat)
             throws FileNotFoundException {
@@ -39,7 +111,7 @@ public abstract class AbstractRdfioMojo extends AbstractMojo {
             if (!folder.exists()) {
                 folder.mkdirs();
             }
-            Lang lang = RDFLanguages.resourceNameToLang(outputFile, Lang.TTL);
+            Lang lang = RdfLoader.lang(outputFile, Lang.TTL);
 
             if (RDFLanguages.isQuads(lang)) {
                 writeQuadsToFile(outputFile, dataset, graphs, lang);
@@ -55,8 +127,10 @@ public abstract class AbstractRdfioMojo extends AbstractMojo {
     }
 
     private void writeTriplesToFile(
-            String outputFile, Dataset dataset, List<String> graphs, Lang lang)
+            String outputFile, Dataset dataset, List<String> selectedGraphs, Lang lang)
             throws FileNotFoundException {
+        // the product's graph list must not be changed, it is used for every file
+        List<String> graphs = new ArrayList<>(selectedGraphs);
         String whichGraphs =
                 "graph selection "
                         + graphs.stream().collect(Collectors.joining("', '", "['", "']"))
@@ -71,7 +145,7 @@ public abstract class AbstractRdfioMojo extends AbstractMojo {
                                 "Writing union of %s RDF dataset to %s", whichGraphs, outputFile));
         Model toWrite = GraphsHelper.unionAll(dataset);
         deleteCarriageReturns(toWrite);
-        RDFDataMgr.write(new FileOutputStream(new File(basedir, outputFile)), toWrite, lang);
+        writeRdfFile(outputFile, out -> RDFDataMgr.write(out, toWrite, lang));
     }
 
     private void writeDefaultGraphToFile(String outputFile, Dataset dataset, Lang lang)
@@ -79,12 +153,13 @@ public abstract class AbstractRdfioMojo extends AbstractMojo {
         Model defaultGraph = dataset.getDefaultModel();
         getLog().info(String.format("Writing all triples to " + outputFile));
         deleteCarriageReturns(defaultGraph);
-        RDFDataMgr.write(new FileOutputStream(new File(basedir, outputFile)), defaultGraph, lang);
+        writeRdfFile(outputFile, out -> RDFDataMgr.write(out, defaultGraph, lang));
     }
 
     private void writeQuadsToFile(
-            String outputFile, Dataset dataset, List<String> graphs, Lang lang)
+            String outputFile, Dataset dataset, List<String> selectedGraphs, Lang lang)
             throws FileNotFoundException {
+        List<String> graphs = new ArrayList<>(selectedGraphs);
         String whichGraphs =
                 "graph selection "
                         + graphs.stream().collect(Collectors.joining("', '", "['", "']"))
@@ -97,21 +172,38 @@ public abstract class AbstractRdfioMojo extends AbstractMojo {
         GraphsHelper.retainSelected(dataset, graphs);
         getLog().info(String.format("Writing %s RDF dataset to %s", whichGraphs, outputFile));
         deleteCarriageReturns(dataset);
-        RDFDataMgr.write(new FileOutputStream(new File(basedir, outputFile)), dataset, lang);
+        writeRdfFile(outputFile, out -> RDFDataMgr.write(out, dataset, lang));
+    }
+
+    /** Writes the file, compressed if its name ends in a compression suffix. */
+    private void writeRdfFile(String outputFile, Consumer<OutputStream> writer)
+            throws FileNotFoundException {
+        File file = new File(basedir, outputFile);
+        try (OutputStream out = Compression.openOutputStream(file)) {
+            writer.accept(out);
+        } catch (FileNotFoundException e) {
+            throw e;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Error writing RDF file " + file, e);
+        }
     }
 
     private static void deleteCarriageReturns(Dataset dataset) {
         GraphsHelper.getAllModels(dataset).forEach(AbstractRdfioMojo::deleteCarriageReturns);
     }
 
-    private static void deleteCarriageReturns(Model model) {
+    /**
+     * Removes carriage returns from string literals. Only the statements containing them are
+     * replaced, so models without carriage returns are not changed.
+     */
+    protected static void deleteCarriageReturns(Model model) {
         Pattern containsR = Pattern.compile("\r", Pattern.MULTILINE);
+        List<Statement> oldStatements = new ArrayList<>();
         List<Statement> newStatements = new ArrayList<>();
         StmtIterator it = model.listStatements();
         while (it.hasNext()) {
             Statement s = it.nextStatement();
             RDFNode object = s.getObject();
-            boolean statementReplaced = false;
             if (object.isLiteral()) {
                 String stringValue;
                 try {
@@ -127,23 +219,24 @@ public abstract class AbstractRdfioMojo extends AbstractMojo {
                                                 stringValue, rdfDatatype);
                         Statement newStatement =
                                 new StatementImpl(s.getSubject(), s.getPredicate(), newObject);
+                        oldStatements.add(s);
                         newStatements.add(newStatement);
-                        statementReplaced = true;
                     }
                 } catch (Node.NotLiteral e) {
                     // that's ok - value is not a string
                 }
             }
-            if (!statementReplaced) {
-                newStatements.add(s);
-            }
         }
-        model.removeAll();
-        model.add(newStatements);
+        if (!oldStatements.isEmpty()) {
+            model.remove(oldStatements);
+            model.add(newStatements);
+        }
     }
 
     protected Dataset loadRdf(List<Input> inputs) throws MojoExecutionException {
         Dataset dataset = DatasetFactory.create();
+        List<String> graphNames = new ArrayList<>();
+        List<String> allFiles = new ArrayList<>();
         for (Input input : inputs) {
             String graphName = GraphsHelper.normalizeGraphName(input.getGraph());
             if (!Graphs.DEFAULT.getGraphName().equals(graphName)) {
@@ -151,11 +244,20 @@ public abstract class AbstractRdfioMojo extends AbstractMojo {
                     dataset.addNamedModel(graphName, ModelFactory.createDefaultModel());
                 }
             }
-            getLog().debug(String.format("Loading input data into graph %s", graphName));
             String[] files = FileHelper.getFilesForFileSelection(input, basedir);
-            getLog().debug(String.format("Found %d files for this input", files.length));
-            loadRdf(dataset, graphName, files);
+            getLog().debug(
+                            String.format(
+                                    "Found %d files for input into graph %s",
+                                    files.length, graphName));
+            for (String file : files) {
+                graphNames.add(graphName);
+                allFiles.add(file);
+            }
         }
+        // all files of all inputs are parsed together, and added in input order
+        parseFiles(
+                allFiles,
+                (parsed, i) -> addParsedFile(dataset, graphNames.get(i), allFiles.get(i), parsed));
         return dataset;
     }
 
@@ -165,8 +267,15 @@ public abstract class AbstractRdfioMojo extends AbstractMojo {
         debug("Loading data into graph " + GraphsHelper.normalizeGraphName(graph));
         Model model = GraphsHelper.getModel(dataset, graph);
         long sizeBefore = model.size();
-        for (String file : files) {
-            loadRdfFromFile(file, model);
+        if (files.length == 1) {
+            loadRdfFromFile(files[0], model);
+        } else {
+            parseFiles(
+                    List.of(files),
+                    (fileModel, i) -> {
+                        model.add(fileModel);
+                        model.setNsPrefixes(fileModel.getNsPrefixMap());
+                    });
         }
         long sizeAfter = model.size();
         debug(
@@ -174,6 +283,32 @@ public abstract class AbstractRdfioMojo extends AbstractMojo {
                 sizeAfter - sizeBefore, sizeBefore, sizeAfter);
     }
 
+    private void addParsedFile(Dataset dataset, String graph, String file, Model parsed) {
+        Model model = GraphsHelper.getModel(dataset, graph);
+        long sizeBefore = model.size();
+        model.add(parsed);
+        model.setNsPrefixes(parsed.getNsPrefixMap());
+        debug(
+                "Loaded %d triples from %s into graph %s",
+                model.size() - sizeBefore, file, GraphsHelper.normalizeGraphName(graph));
+    }
+
+    /**
+     * Parses the files concurrently into one model per file, which is passed to <code>consumer
+     * </code> in the order of <code>files</code> as soon as it has been parsed.
+     */
+    private void parseFiles(List<String> files, ObjIntConsumer<Model> consumer)
+            throws MojoExecutionException {
+        List<File> inFiles = files.stream().map(file -> new File(basedir, file)).toList();
+        int threads = parserThreads != null ? parserThreads : ConcurrentRdfReader.defaultThreads();
+        debug("Parsing %d files using up to %d threads", inFiles.size(), threads);
+        try {
+            ConcurrentRdfReader.read(inFiles, threads, consumer);
+        } catch (IOException | RiotException e) {
+            throw new MojoExecutionException("Error parsing RDF files: " + e.getMessage(), e);
+        }
+    }
+
     protected void loadRdf(Dataset dataset, String graph, String file)
             throws MojoExecutionException {
         debug("Loading data into graph " + GraphsHelper.normalizeGraphName(graph));
@@ -189,20 +324,35 @@ public abstract class AbstractRdfioMojo extends AbstractMojo {
     private void loadRdfFromFile(String file, Model model) throws MojoExecutionException {
         debug("Loading %s", file);
         File inFile = new File(basedir, file);
-        Lang lang = RDFLanguages.resourceNameToLang(inFile.getName(), Lang.TTL);
         try {
-            debug("RDF language: %s", lang);
-            String content = Files.readString(inFile.toPath());
-            debug("Content length: %d", content.length());
-            ByteArrayInputStream inputStream =
-                    new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
-            RDFParser.source(inputStream).lang(lang).parse(model);
-        } catch (IOException e) {
+            debug("RDF language: %s", RdfLoader.lang(inFile, Lang.TTL));
+            ParsedGraphCache.getInstance().read(inFile, model);
+        } catch (IOException | RiotException e) {
             throw new MojoExecutionException(
                     "Error parsing RDF file " + inFile.getAbsolutePath(), e);
         }
     }
 
+    /**
+     * Applies this execution's settings to the parse cache and the node dictionary, which are
+     * shared with the executions of other modules. Call {@link #releaseParsedGraphCache()} when the
+     * execution ends.
+     */
+    protected void configureParsedGraphCache() {
+        ParsedGraphCache.getInstance()
+                .configure(
+                        parsedGraphCacheMaxTriples,
+                        null,
+                        persistentParseCache ? parseCacheDirectory : null,
+                        parseCacheMaxSizeMB);
+        NodeDictionary.getInstance().configure(nodeDictionaryMaxNodes);
+    }
+
+    protected void releaseParsedGraphCache() {
+        ParsedGraphCache.getInstance().release();
+        NodeDictionary.getInstance().release();
+    }
+
     protected void debug(String pattern, Object... args) {
         if (getLog().isDebugEnabled()) {
             getLog().debug(String.format(pattern, args));
@@ -1,27 +1,39 @@
 package io.github.qudtlib.maven.rdfio;
 
+import io.github.qudtlib.maven.rdfio.common.file.FileFingerprints;
 import io.github.qudtlib.maven.rdfio.common.file.FileHelper;
 import io.github.qudtlib.maven.rdfio.common.file.FileSelection;
+import io.github.qudtlib.maven.rdfio.common.file.NodeDictionary;
+import io.github.qudtlib.maven.rdfio.common.file.RdfLoader;
 import io.github.qudtlib.maven.rdfio.common.sparql.SparqlHelper;
 import io.github.qudtlib.maven.rdfio.filter.Graphs;
 import io.github.qudtlib.maven.rdfio.filter.GraphsHelper;
 import io.github.qudtlib.maven.rdfio.filter.Input;
 import io.github.qudtlib.maven.rdfio.product.EachFile;
 import io.github.qudtlib.maven.rdfio.product.Product;
+import io.github.qudtlib.maven.rdfio.product.ProductStamps;
 import io.github.qudtlib.maven.rdfio.product.Products;
 import io.github.qudtlib.maven.rdfio.product.SingleFile;
 import java.io.File;
 import java.io.FileNotFoundException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.*;
 import java.util.stream.Collectors;
 import org.apache.jena.query.Dataset;
 import org.apache.jena.query.DatasetFactory;
 import org.apache.jena.rdf.model.Model;
+import org.apache.jena.rdf.model.ModelFactory;
+import org.apache.jena.sparql.graph.GraphReadOnly;
+import org.apache.maven.plugin.MojoExecution;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugin.MojoFailureException;
 import org.apache.maven.plugins.annotations.LifecyclePhase;
 import org.apache.maven.plugins.annotations.Mojo;
 import org.apache.maven.plugins.annotations.Parameter;
+import org.codehaus.plexus.util.xml.Xpp3Dom;
 
 @Mojo(name = "make", defaultPhase = LifecyclePhase.GENERATE_SOURCES)
 public class MakeMojo extends AbstractRdfioMojo {
@@ -36,30 +48,246 @@ public class MakeMojo extends AbstractRdfioMojo {
     @Parameter(required = true)
     private Products products;
 
+    @Parameter(defaultValue = "${mojoExecution}", readonly = true)
+    private MojoExecution mojoExecution;
+
+    /**
+     * If <code>true</code>, outputs are only made again if their input files, the product's
+     * configuration or the outputs themselves changed since they were last made. For <code>
+     * eachFile</code> products, this is decided for each file.
+     */
+    @Parameter(property = "rdfio.make.incremental", defaultValue = "true")
+    private boolean incremental = true;
+
+    /** Directory of the stamp files recording which outputs were made from which inputs. */
+    @Parameter(
+            property = "rdfio.make.stampDirectory",
+            defaultValue = "${project.build.directory}/rdfio/make")
+    private File stampDirectory;
+
+    /**
+     * File in which the content fingerprints of input files are stored, so that the up-to-date
+     * check does not read files that have not been modified since the last build.
+     */
+    @Parameter(
+            property = "rdfio.fingerprints.file",
+            defaultValue = "${project.build.directory}/rdfio/fingerprints.txt")
+    private File fingerprintsFile;
+
+    /**
+     * Number of threads making products and the files of <code>eachFile</code> products
+     * concurrently. Products are only made concurrently if none of them writes files the other
+     * reads or writes. The output of each file is logged in input order.
+     */
+    @Parameter(property = "rdfio.make.threads", defaultValue = "1")
+    private int threads = 1;
+
     @Override
     public void execute() throws MojoExecutionException, MojoFailureException {
         getLog().info("Making RDF files");
         SparqlHelper.registerNumericFunctions();
-        Dataset dataset = DatasetFactory.create();
-        FileSelection shaclFunctionFileSelection = products.getImportShaclFunctions();
-        Model shaclFunctionsModel = null;
-        if (shaclFunctionFileSelection != null) {
-            importShaclFunctions(shaclFunctionFileSelection, dataset);
-            shaclFunctionsModel =
-                    dataset.getNamedModel(Graphs.SHACL_FUNCTIONS_GRAPH.getGraphName());
-        }
-        for (Product product : products.getProducts()) {
-            try {
-                if (product instanceof SingleFile) {
-                    makeSingleFile((SingleFile) product, shaclFunctionsModel);
-                } else if (product instanceof EachFile) {
-                    makeEachFile((EachFile) product, shaclFunctionsModel);
+        configureParsedGraphCache();
+        try {
+            FileFingerprints fingerprints = new FileFingerprints(fingerprintsFile);
+            Dataset dataset = DatasetFactory.create();
+            FileSelection shaclFunctionFileSelection = products.getImportShaclFunctions();
+            Model shaclFunctionsModel = null;
+            String[] shaclFunctionFiles = new String[0];
+            if (shaclFunctionFileSelection != null) {
+                shaclFunctionFiles =
+                        FileHelper.getFilesForFileSelection(shaclFunctionFileSelection, basedir);
+                importShaclFunctions(shaclFunctionFileSelection, dataset);
+                shaclFunctionsModel =
+                        dataset.getNamedModel(Graphs.SHACL_FUNCTIONS_GRAPH.getGraphName());
+                if (threads > 1) {
+                    // shared by all concurrent tasks, which therefore must not change it
+                    deleteCarriageReturns(shaclFunctionsModel);
+                    shaclFunctionsModel =
+                            ModelFactory.createModelForGraph(
+                                    new GraphReadOnly(shaclFunctionsModel.getGraph()));
+                }
+            }
+            List<Product> productList = products.getProducts();
+            List<ProductStamps> allStamps = new ArrayList<>();
+            long bytesReadBefore = RdfLoader.getBytesRead();
+            long triplesReadBefore = RdfLoader.getTriplesRead();
+            try (MakeTasks tasks = new MakeTasks(threads, getRoutingLog())) {
+                for (int i = 0; i < productList.size(); i++) {
+                    Product product = productList.get(i);
+                    if (tasks.isConcurrent() && dependsOnEarlierProduct(productList, i)) {
+                        tasks.awaitAll();
+                    }
+                    ProductStamps stamps = makeProductStamps(i, shaclFunctionFiles, fingerprints);
+                    if (stamps != null) {
+                        allStamps.add(stamps);
+                    }
+                    try {
+                        if (product instanceof SingleFile singleFile) {
+                            Model functions = shaclFunctionsModel;
+                            tasks.submit(() -> makeSingleFile(singleFile, functions, stamps));
+                        } else if (product instanceof EachFile eachFile) {
+                            makeEachFile(eachFile, shaclFunctionsModel, stamps, tasks);
+                        }
+                    } catch (FileNotFoundException e) {
+                        throw new MojoFailureException(
+                                "Error making RDF file for product" + product.describe(), e);
+                    }
+                }
+                tasks.awaitAll();
+            } finally {
+                // all tasks have stopped: closing MakeTasks waits for them
+                allStamps.forEach(ProductStamps::write);
+                fingerprints.persist();
+                getLog().debug(
+                                "Parsed %d bytes, %d triples from RDF files; %d distinct IRIs and literals in the node dictionary"
+                                        .formatted(
+                                                RdfLoader.getBytesRead() - bytesReadBefore,
+                                                RdfLoader.getTriplesRead() - triplesReadBefore,
+                                                NodeDictionary.getInstance().size()));
+            }
+        } finally {
+            releaseParsedGraphCache();
+        }
+    }
+
+    /**
+     * Returns true if the product at <code>productIndex</code> reads or writes files that an
+     * earlier product writes, or writes files an earlier product reads. Paths are compared by the
+     * part of their patterns before the first wildcard, so this errs on the safe side.
+     */
+    private boolean dependsOnEarlierProduct(List<Product> productList, int productIndex) {
+        Product product = productList.get(productIndex);
+        List<String> reads = readPaths(product);
+        List<String> writes = writePaths(product);
+        for (Product earlier : productList.subList(0, productIndex)) {
+            List<String> earlierWrites = writePaths(earlier);
+            if (overlap(earlierWrites, reads)
+                    || overlap(earlierWrites, writes)
+                    || overlap(readPaths(earlier), writes)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static List<String> readPaths(Product product) {
+        List<Input> inputs =
+                product instanceof SingleFile singleFile
+                        ? singleFile.getInputs()
+                        : ((EachFile) product).getInputs();
+        return inputs.stream()
+                .flatMap(input -> input.getInclude().stream())
+                .flatMap(include -> Arrays.stream(FileHelper.splitPatterns(include)))
+                .toList();
+    }
+
+    private List<String> writePaths(Product product) {
+        if (product instanceof SingleFile singleFile) {
+            return singleFile.getOutputFile() == null
+                    ? List.of()
+                    : List.of(singleFile.getOutputFile());
+        }
+        EachFile eachFile = (EachFile) product;
+        if (eachFile.isReplaceInputFiles()) {
+            return readPaths(eachFile);
+        }
+        return List.of(
+                Optional.ofNullable(eachFile.getOutputDir()).orElse(getDefaultOutputDir()) + "/**");
+    }
+
+    private static boolean overlap(List<String> patterns, List<String> otherPatterns) {
+        for (String pattern : patterns) {
+            String prefix = staticPrefix(pattern);
+            for (String otherPattern : otherPatterns) {
+                String otherPrefix = staticPrefix(otherPattern);
+                if (prefix.startsWith(otherPrefix) || otherPrefix.startsWith(prefix)) {
+                    return true;
                 }
-            } catch (FileNotFoundException e) {
-                throw new MojoFailureException(
-                        "Error making RDF file for product" + product.describe(), e);
             }
         }
+        return false;
+    }
+
+    /** The part of the pattern before the first wildcard, or the whole path if it has none. */
+    private static String staticPrefix(String pattern) {
+        String path = pattern.trim().replace('\\', '/').replaceFirst("^(\\./)+", "");
+        int wildcard = path.indexOf('*');
+        if (path.indexOf('?') >= 0 && (wildcard < 0 || path.indexOf('?') < wildcard)) {
+            wildcard = path.indexOf('?');
+        }
+        return wildcard < 0 ? path : path.substring(0, wildcard);
+    }
+
+    /**
+     * Returns the stamps of the product at <code>productIndex</code>, or null if the up-to-date
+     * check is disabled or the product's configuration is not available.
+     */
+    private ProductStamps makeProductStamps(
+            int productIndex, String[] shaclFunctionFiles, FileFingerprints fingerprints) {
+        if (!incremental || mojoExecution == null || mojoExecution.getConfiguration() == null) {
+            return null;
+        }
+        Xpp3Dom productsDom = mojoExecution.getConfiguration().getChild("products");
+        if (productsDom == null) {
+            return null;
+        }
+        List<Xpp3Dom> productDoms =
+                Arrays.stream(productsDom.getChildren())
+                        .filter(
+                                child ->
+                                        child.getName().equals("singleFile")
+                                                || child.getName().equals("eachFile"))
+                        .toList();
+        if (productDoms.size() != products.getProducts().size()) {
+            return null;
+        }
+        Xpp3Dom productDom = productDoms.get(productIndex);
+        try {
+            MessageDigest digest = MessageDigest.getInstance("MD5");
+            if (mojoExecution.getMojoDescriptor() != null) {
+                digest.update(
+                        String.valueOf(
+                                        mojoExecution
+                                                .getMojoDescriptor()
+                                                .getPluginDescriptor()
+                                                .getVersion())
+                                .getBytes(StandardCharsets.UTF_8));
+            }
+            digest.update(productDom.toString().getBytes(StandardCharsets.UTF_8));
+            digest.update(getDefaultOutputDir().getBytes(StandardCharsets.UTF_8));
+            // files the filters and SHACL functions are read from
+            List<String> configurationFiles = new ArrayList<>(List.of(shaclFunctionFiles));
+            collectFilterFiles(productDom, configurationFiles);
+            for (String file : configurationFiles) {
+                File configurationFile = new File(basedir, file);
+                digest.update(file.getBytes(StandardCharsets.UTF_8));
+                if (configurationFile.isFile()) {
+                    digest.update(
+                            fingerprints
+                                    .fingerprint(configurationFile)
+                                    .getBytes(StandardCharsets.UTF_8));
+                }
+            }
+            String configurationHash = HexFormat.of().formatHex(digest.digest());
+            File stampFile =
+                    new File(
+                            stampDirectory,
+                            "%s-%d.txt".formatted(mojoExecution.getExecutionId(), productIndex));
+            return new ProductStamps(stampFile, basedir, configurationHash, fingerprints);
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException("Failed to calculate hash", e);
+        }
+    }
+
+    private static void collectFilterFiles(Xpp3Dom dom, List<String> files) {
+        for (Xpp3Dom child : dom.getChildren()) {
+            if ((child.getName().equals("sparqlUpdateFile")
+                            || child.getName().equals("sparqlSelectFile"))
+                    && child.getValue() != null) {
+                files.add(child.getValue().trim());
+            }
+            collectFilterFiles(child, files);
+        }
     }
 
     private void importShaclFunctions(
@@ -72,7 +300,8 @@ public class MakeMojo extends AbstractRdfioMojo {
                 targetDataset, Graphs.SHACL_FUNCTIONS_GRAPH.getGraphName(), getLog());
     }
 
-    private void makeSingleFile(SingleFile singleFileProduct, Model shaclFunctionsModel)
+    private void makeSingleFile(
+            SingleFile singleFileProduct, Model shaclFunctionsModel, ProductStamps stamps)
             throws MojoFailureException, FileNotFoundException, MojoExecutionException {
         singleFileProduct.setLog(getLog());
         getLog().info("Make RDF files configuration:");
@@ -86,6 +315,23 @@ public class MakeMojo extends AbstractRdfioMojo {
             getLog().info("Skip making RDF file " + singleFileProduct.getOutputFile());
             return;
         }
+        String inputHash = null;
+        if (stamps != null) {
+            List<Map.Entry<String, String>> graphsAndFiles = new ArrayList<>();
+            for (Input input : singleFileProduct.getInputs()) {
+                String graphName = GraphsHelper.normalizeGraphName(input.getGraph());
+                for (String inputFile : FileHelper.getFilesForFileSelection(input, basedir)) {
+                    graphsAndFiles.add(Map.entry(graphName, inputFile));
+                }
+            }
+            inputHash = stamps.inputHash(graphsAndFiles);
+            if (stamps.isUpToDate(singleFileProduct.getOutputFile(), inputHash)) {
+                getLog().info(
+                                "RDF file %s is up to date, not making it again"
+                                        .formatted(singleFileProduct.getOutputFile()));
+                return;
+            }
+        }
         debug("Loading data");
         Dataset dataset = loadRdf(singleFileProduct.getInputs());
         if (shaclFunctionsModel != null) {
@@ -97,6 +343,9 @@ public class MakeMojo extends AbstractRdfioMojo {
                 dataset,
                 singleFileProduct.getGraphs(),
                 "writing RDF data to %s");
+        if (stamps != null) {
+            stamps.record(singleFileProduct.getOutputFile(), inputHash);
+        }
     }
 
     private void writeSingleFileOutputConfiguration(SingleFile singleFileProduct) {
@@ -139,7 +388,11 @@ public class MakeMojo extends AbstractRdfioMojo {
         }
     }
 
-    private void makeEachFile(EachFile eachFileProduct, Model shaclFunctionsModel)
+    private void makeEachFile(
+            EachFile eachFileProduct,
+            Model shaclFunctionsModel,
+            ProductStamps stamps,
+            MakeTasks tasks)
             throws MojoFailureException, FileNotFoundException, MojoExecutionException {
         eachFileProduct.setLog(getLog());
         getLog().info("Make RDF files configuration:");
@@ -160,33 +413,97 @@ public class MakeMojo extends AbstractRdfioMojo {
             getLog().info("Skip making RDF file(s)");
             return;
         }
+        int upToDate = 0;
+        int total = 0;
+        // output files made by this product, and those of tasks that may still be running
+        Set<Path> madeOutputFiles = new HashSet<>();
+        Set<Path> pendingOutputFiles = new HashSet<>();
         for (Input input : eachFileProduct.getInputs()) {
+            String graphName = GraphsHelper.normalizeGraphName(input.getGraph());
             String[] inputFiles = FileHelper.getFilesForFileSelection(input, basedir);
             for (String inputFile : inputFiles) {
-                debug("Loading data");
-                Dataset dataset = DatasetFactory.create();
-                loadRdf(dataset, GraphsHelper.normalizeGraphName(input.getGraph()), inputFile);
-                if (shaclFunctionsModel != null) {
-                    dataset.addNamedModel(
-                            Graphs.SHACL_FUNCTIONS_GRAPH.getGraphName(), shaclFunctionsModel);
+                total++;
+                String outputFile =
+                        eachFileProduct.isReplaceInputFiles()
+                                ? inputFile
+                                : new File(outputDir, new File(inputFile).getName()).toString();
+                Path outputPath = new File(outputFile).getAbsoluteFile().toPath().normalize();
+                String inputHash =
+                        stamps == null
+                                ? null
+                                : stamps.inputHash(List.of(Map.entry(graphName, inputFile)));
+                // input files with the same name in different directories: the later one
+                // overwrites the output of the earlier one, as if they were made one by one
+                boolean overwritesOutput = madeOutputFiles.contains(outputPath);
+                if (!overwritesOutput
+                        && stamps != null
+                        && stamps.isUpToDate(outputFile, inputHash)) {
+                    debug("RDF file %s is up to date, not making it again", outputFile);
+                    upToDate++;
+                    continue;
                 }
-                eachFileProduct.process(dataset);
-                if (eachFileProduct.isReplaceInputFiles()) {
-                    writeOutputToFile(
-                            inputFile,
-                            dataset,
-                            eachFileProduct.getGraphs(),
-                            "writing RDF data back to input file %s");
-                } else {
-                    String outputFile =
-                            new File(outputDir, new File(inputFile).getName()).toString();
-                    writeOutputToFile(
-                            outputFile,
-                            dataset,
-                            eachFileProduct.getGraphs(),
-                            "writing RDF data to %s");
+                if (pendingOutputFiles.contains(outputPath)) {
+                    debug(
+                            "Waiting for the RDF files being made before making %s again",
+                            outputFile);
+                    tasks.awaitAll();
+                    pendingOutputFiles.clear();
                 }
+                madeOutputFiles.add(outputPath);
+                if (tasks.isConcurrent()) {
+                    pendingOutputFiles.add(outputPath);
+                }
+                tasks.submit(
+                        () ->
+                                makeFile(
+                                        eachFileProduct,
+                                        shaclFunctionsModel,
+                                        stamps,
+                                        graphName,
+                                        inputFile,
+                                        outputFile,
+                                        inputHash));
+            }
+        }
+        if (upToDate > 0) {
+            getLog().info(
+                            "%d of %d RDF files are up to date, not making them again"
+                                    .formatted(upToDate, total));
+        }
+    }
+
+    private void makeFile(
+            EachFile eachFileProduct,
+            Model shaclFunctionsModel,
+            ProductStamps stamps,
+            String graphName,
+            String inputFile,
+            String outputFile,
+            String inputHash)
+            throws MojoExecutionException, FileNotFoundException {
+        debug("Loading data");
+        Dataset dataset = DatasetFactory.create();
+        loadRdf(dataset, graphName, inputFile);
+        if (shaclFunctionsModel != null) {
+            dataset.addNamedModel(Graphs.SHACL_FUNCTIONS_GRAPH.getGraphName(), shaclFunctionsModel);
+        }
+        eachFileProduct.process(dataset);
+        if (eachFileProduct.isReplaceInputFiles()) {
+            writeOutputToFile(
+                    outputFile,
+                    dataset,
+                    eachFileProduct.getGraphs(),
+                    "writing RDF data back to input file %s");
+            if (stamps != null) {
+                // the next build reads what has just been written
+                inputHash = stamps.inputHash(List.of(Map.entry(graphName, inputFile)));
             }
+        } else {
+            writeOutputToFile(
+                    outputFile, dataset, eachFileProduct.getGraphs(), "writing RDF data to %s");
+        }
+        if (stamps != null) {
+            stamps.record(outputFile, inputHash);
         }
     }
 }
@@ -0,0 +1,161 @@
+package io.github.qudtlib.maven.rdfio;
+
+import io.github.qudtlib.maven.rdfio.common.log.BufferedLog;
+import io.github.qudtlib.maven.rdfio.common.log.ThreadRoutingLog;
+import java.io.FileNotFoundException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.MojoFailureException;
+
+/**
+ * Runs the tasks of the <code>make</code> goal - making a single file product or one file of an
+ * each file product - using up to <code>threads</code> threads.
+ *
+ * <p>With more than one thread, the output of each task is collected in a {@link BufferedLog} and
+ * written when the task and all tasks submitted before it have finished, so the log reads as if the
+ * tasks had been run one after the other. Output of the submitting thread is kept in order, too.
+ * With one thread, tasks are run when they are submitted.
+ */
+class MakeTasks implements AutoCloseable {
+
+    @FunctionalInterface
+    interface Task {
+        void run() throws MojoExecutionException, MojoFailureException, FileNotFoundException;
+    }
+
+    /** A task's result and log, or a segment of the submitting thread's log. */
+    private record Entry(Future<?> future, BufferedLog log) {}
+
+    private final ThreadRoutingLog log;
+    private final ExecutorService executor;
+    private final List<Entry> entries = new ArrayList<>();
+
+    MakeTasks(int threads, ThreadRoutingLog log) {
+        this.log = log;
+        this.executor = threads > 1 ? newExecutor(threads) : null;
+        if (executor != null) {
+            startSegment();
+        }
+    }
+
+    boolean isConcurrent() {
+        return executor != null;
+    }
+
+    /** Runs the task, or schedules it if tasks are run concurrently. */
+    void submit(Task task)
+            throws MojoExecutionException, MojoFailureException, FileNotFoundException {
+        if (executor == null) {
+            task.run();
+            return;
+        }
+        BufferedLog taskLog = new BufferedLog(log.getDefaultTarget());
+        Future<?> future =
+                executor.submit(
+                        () -> {
+                            log.bind(taskLog);
+                            try {
+                                task.run();
+                            } finally {
+                                log.unbind();
+                            }
+                            return null;
+                        });
+        entries.add(new Entry(future, taskLog));
+        startSegment();
+    }
+
+    /**
+     * Waits for all tasks submitted so far and writes their output. The first failure is thrown,
+     * after the output of all tasks has been written.
+     */
+    void awaitAll() throws MojoExecutionException, MojoFailureException {
+        if (executor == null) {
+            return;
+        }
+        Throwable failure = null;
+        for (Entry entry : entries) {
+            if (entry.future() != null) {
+                try {
+                    entry.future().get();
+                } catch (ExecutionException e) {
+                    if (failure == null) {
+                        failure = e.getCause();
+                        entries.forEach(MakeTasks::cancel);
+                    }
+                } catch (CancellationException e) {
+                    // cancelled after an earlier failure
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    failure = e;
+                }
+            }
+            entry.log().flush();
+        }
+        entries.clear();
+        startSegment();
+        if (failure instanceof MojoExecutionException mojoExecutionException) {
+            throw mojoExecutionException;
+        }
+        if (failure instanceof MojoFailureException mojoFailureException) {
+            throw mojoFailureException;
+        }
+        if (failure != null) {
+            throw new MojoExecutionException("Error making RDF files", failure);
+        }
+    }
+
+    private static void cancel(Entry entry) {
+        if (entry.future() != null) {
+            entry.future().cancel(false);
+        }
+    }
+
+    /** Collects the submitting thread's output after that of the tasks submitted so far. */
+    private void startSegment() {
+        BufferedLog segment = new BufferedLog(log.getDefaultTarget());
+        entries.add(new Entry(null, segment));
+        log.bind(segment);
+    }
+
+    /**
+     * Stops tasks that have not started yet, interrupts running ones and waits until they have
+     * stopped, so that no task writes files after the goal has finished. Then writes the output
+     * collected so far.
+     */
+    @Override
+    public void close() {
+        if (executor == null) {
+            return;
+        }
+        log.unbind();
+        executor.shutdownNow();
+        try {
+            executor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        entries.forEach(entry -> entry.log().flush());
+        entries.clear();
+    }
+
+    private static ExecutorService newExecutor(int threads) {
+        AtomicInteger threadCount = new AtomicInteger();
+        return Executors.newFixedThreadPool(
+                threads,
+                runnable -> {
+                    Thread thread =
+                            new Thread(runnable, "rdfio-make-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+}
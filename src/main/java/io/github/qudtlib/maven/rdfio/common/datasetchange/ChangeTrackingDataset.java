@@ -0,0 +1,290 @@
+package io.github.qudtlib.maven.rdfio.common.datasetchange;
+
+import static io.github.qudtlib.maven.rdfio.common.datasetchange.DatasetState.DEFAULT_GRAPH_NAME;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import org.apache.jena.graph.Graph;
+import org.apache.jena.graph.GraphUtil;
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.NodeFactory;
+import org.apache.jena.query.Dataset;
+import org.apache.jena.query.DatasetFactory;
+import org.apache.jena.sparql.core.DatasetGraph;
+import org.apache.jena.sparql.core.DatasetGraphFactory;
+import org.apache.jena.sparql.core.DatasetGraphMap;
+import org.apache.jena.sparql.graph.GraphFactory;
+
+/**
+ * Creates in-memory datasets whose graphs are {@link ChangeTrackingGraph}s, so that a {@link
+ * DatasetState} can be taken in time proportional to the number of graphs rather than the number of
+ * triples.
+ *
+ * <p>Looking up, creating and listing graphs is synchronized, so that steps working on different
+ * graphs can be executed concurrently.
+ */
+public class ChangeTrackingDataset {
+
+    public static Dataset create() {
+        return DatasetFactory.wrap(
+                new SynchronizedGraphMap(
+                        name ->
+                                new ChangeTrackingGraph(
+                                        DatasetGraphFactory.graphMakerNamedGraphMem.create(name))));
+    }
+
+    /**
+     * Creates a dataset like {@link #create()}, whose default graph is <code>defaultGraph</code>
+     * with the given size and hash.
+     */
+    public static Dataset create(Graph defaultGraph, long size, int hash) {
+        return DatasetFactory.wrap(
+                new SynchronizedGraphMap(
+                        name ->
+                                name == null
+                                        ? new ChangeTrackingGraph(defaultGraph, size, hash)
+                                        : new ChangeTrackingGraph(
+                                                DatasetGraphFactory.graphMakerNamedGraphMem.create(
+                                                        name))));
+    }
+
+    /**
+     * Creates a dataset containing the same graphs as <code>base</code>, which records all changes
+     * in {@link OverlayGraph}s instead of applying them to <code>base</code>. Use {@link
+     * #mergeOverlay(Dataset, Dataset)} to apply them later.
+     *
+     * <p>Several overlays of the same base can be used concurrently, as long as the base itself is
+     * not changed in the meantime.
+     */
+    public static Dataset createOverlay(Dataset base) {
+        return DatasetFactory.wrap(new OverlayGraphMap(base.asDatasetGraph()));
+    }
+
+    /**
+     * Returns the overlay graphs of a dataset created with {@link #createOverlay(Dataset)} by graph
+     * name ({@link DatasetState#DEFAULT_GRAPH_NAME} for the default graph), in the order in which
+     * they were first accessed.
+     */
+    public static Map<String, OverlayGraph> getOverlayGraphs(Dataset overlay) {
+        if (!(overlay.asDatasetGraph() instanceof OverlayGraphMap overlayGraphMap)) {
+            throw new IllegalArgumentException(
+                    "Dataset was not created with ChangeTrackingDataset.createOverlay()");
+        }
+        return overlayGraphMap.getOverlayGraphs();
+    }
+
+    /** Applies all changes recorded in the overlay dataset to the target dataset. */
+    public static void mergeOverlay(Dataset overlay, Dataset target) {
+        for (Map.Entry<String, OverlayGraph> entry : getOverlayGraphs(overlay).entrySet()) {
+            if (entry.getValue().hasChanges()) {
+                Graph targetGraph =
+                        entry.getKey().equals(DEFAULT_GRAPH_NAME)
+                                ? target.getDefaultModel().getGraph()
+                                : target.getNamedModel(entry.getKey()).getGraph();
+                entry.getValue().applyTo(targetGraph);
+            }
+        }
+    }
+
+    /**
+     * Replaces the named graph of the dataset by <code>graph</code>, whose size and hash are
+     * already known. If the dataset was created with {@link #create()} and does not contain the
+     * graph yet, <code>graph</code> itself becomes part of the dataset and is not read until it is
+     * used, so it can be loaded lazily. Otherwise, the dataset's graph is replaced by a copy of its
+     * triples.
+     */
+    public static void putGraph(
+            Dataset dataset, String graphName, Graph graph, long size, int hash) {
+        if (putNewGraph(dataset, graphName, graph, size, hash)) {
+            return;
+        }
+        Graph target = dataset.asDatasetGraph().getGraph(NodeFactory.createURI(graphName));
+        target.clear();
+        GraphUtil.addInto(target, graph);
+    }
+
+    /**
+     * Adds <code>graph</code> itself as the named graph of the dataset, with the given size and
+     * hash, if the dataset was created with {@link #create()} and does not contain the graph yet.
+     * The graph is not read until it is used. Returns false, leaving the dataset unchanged,
+     * otherwise.
+     */
+    public static boolean putNewGraph(
+            Dataset dataset, String graphName, Graph graph, long size, int hash) {
+        return dataset.asDatasetGraph() instanceof SynchronizedGraphMap graphMap
+                && !(graphMap instanceof OverlayGraphMap)
+                && graphMap.putNewGraph(
+                        NodeFactory.createURI(graphName),
+                        new ChangeTrackingGraph(graph, size, hash));
+    }
+
+    /**
+     * Like {@link #putNewGraph(Dataset, String, Graph, long, int)}, for a graph whose size and hash
+     * are not known yet. They are determined when the graph is first changed or its size is asked
+     * for, see {@link ChangeTrackingGraph#isTracked()}.
+     */
+    public static boolean putNewGraph(Dataset dataset, String graphName, Graph graph) {
+        return dataset.asDatasetGraph() instanceof SynchronizedGraphMap graphMap
+                && !(graphMap instanceof OverlayGraphMap)
+                && graphMap.putNewGraph(
+                        NodeFactory.createURI(graphName), ChangeTrackingGraph.untracked(graph));
+    }
+
+    private static class SynchronizedGraphMap extends DatasetGraphMap {
+        // DatasetGraphMap.containsGraph() is false for empty graphs, so this tracks which graphs
+        // there are, including empty ones
+        private final Set<Node> createdGraphs = new HashSet<>();
+        // graphs put in place of removed ones: DatasetGraphMap.removeGraph() only empties the
+        // graph, which stays in the map
+        private final Map<Node, Graph> replacedGraphs = new HashMap<>();
+        private Graph nextGraph = null;
+
+        SynchronizedGraphMap(DatasetGraphFactory.GraphMaker graphMaker) {
+            super(graphMaker);
+        }
+
+        /** Adds the graph, unless there is a graph of that name already. */
+        synchronized boolean putNewGraph(Node graphNode, Graph graph) {
+            if (createdGraphs.contains(graphNode)) {
+                return false;
+            }
+            nextGraph = graph;
+            try {
+                if (super.getGraph(graphNode) != graph) {
+                    replacedGraphs.put(graphNode, graph);
+                    createdGraphs.add(graphNode);
+                }
+            } finally {
+                nextGraph = null;
+            }
+            return true;
+        }
+
+        @Override
+        protected Graph getGraphCreate(Node graphNode) {
+            Graph graph = nextGraph != null ? nextGraph : super.getGraphCreate(graphNode);
+            createdGraphs.add(graphNode);
+            return graph;
+        }
+
+        @Override
+        public synchronized Graph getGraph(Node graphNode) {
+            Graph replaced = replacedGraphs.get(graphNode);
+            return replaced != null ? replaced : super.getGraph(graphNode);
+        }
+
+        @Override
+        public synchronized boolean containsGraph(Node graphNode) {
+            Graph replaced = replacedGraphs.get(graphNode);
+            return replaced != null ? !replaced.isEmpty() : super.containsGraph(graphNode);
+        }
+
+        @Override
+        public synchronized Iterator<Node> listGraphNodes() {
+            // materialize the list, so iterating it does not touch the map
+            Set<Node> graphNodes = new LinkedHashSet<>();
+            super.listGraphNodes().forEachRemaining(graphNodes::add);
+            replacedGraphs.forEach(
+                    (graphNode, graph) -> {
+                        if (!graph.isEmpty()) {
+                            graphNodes.add(graphNode);
+                        }
+                    });
+            return graphNodes.iterator();
+        }
+
+        @Override
+        public synchronized void removeGraph(Node graphName) {
+            super.removeGraph(graphName);
+            replacedGraphs.remove(graphName);
+            createdGraphs.remove(graphName);
+        }
+
+        @Override
+        public synchronized void clear() {
+            super.clear();
+            createdGraphs.clear();
+            replacedGraphs.clear();
+        }
+
+        @Override
+        public synchronized long size() {
+            return super.size();
+        }
+    }
+
+    private static class OverlayGraphMap extends SynchronizedGraphMap {
+        private final DatasetGraph base;
+        private final OverlayGraphMaker graphMaker;
+
+        OverlayGraphMap(DatasetGraph base) {
+            this(base, new OverlayGraphMaker(base));
+        }
+
+        private OverlayGraphMap(DatasetGraph base, OverlayGraphMaker graphMaker) {
+            super(graphMaker);
+            this.base = base;
+            this.graphMaker = graphMaker;
+        }
+
+        synchronized Map<String, OverlayGraph> getOverlayGraphs() {
+            return new LinkedHashMap<>(graphMaker.overlays);
+        }
+
+        @Override
+        public synchronized boolean containsGraph(Node graphNode) {
+            if (base.containsGraph(graphNode)) {
+                getGraph(graphNode);
+            }
+            return super.containsGraph(graphNode);
+        }
+
+        @Override
+        public synchronized Iterator<Node> listGraphNodes() {
+            // make sure there is an overlay for each graph of the base
+            base.listGraphNodes().forEachRemaining(this::getGraph);
+            return super.listGraphNodes();
+        }
+    }
+
+    private static class OverlayGraphMaker implements DatasetGraphFactory.GraphMaker {
+        private final DatasetGraph base;
+        private final Map<String, OverlayGraph> overlays = new LinkedHashMap<>();
+
+        OverlayGraphMaker(DatasetGraph base) {
+            this.base = base;
+        }
+
+        @Override
+        public Graph create(Node name) {
+            Graph baseGraph;
+            if (name == null) {
+                baseGraph = base.getDefaultGraph();
+            } else if (base.containsGraph(name)) {
+                baseGraph = base.getGraph(name);
+            } else {
+                baseGraph = GraphFactory.createGraphMem();
+            }
+            OverlayGraph overlay = new OverlayGraph(baseGraph);
+            overlays.put(
+                    name == null
+                            ? DEFAULT_GRAPH_NAME
+                            : name.isURI() ? name.getURI() : name.toString(),
+                    overlay);
+            if (baseGraph instanceof ChangeTrackingGraph trackingGraph
+                    && !trackingGraph.isTracked()) {
+                return ChangeTrackingGraph.untracked(overlay);
+            }
+            if (baseGraph instanceof ChangeTrackingGraph trackingGraph) {
+                return new ChangeTrackingGraph(
+                        overlay, trackingGraph.getTrackedSize(), trackingGraph.getTrackedHash());
+            }
+            return new ChangeTrackingGraph(overlay);
+        }
+    }
+}
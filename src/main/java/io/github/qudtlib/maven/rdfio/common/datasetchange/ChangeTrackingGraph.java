@@ -0,0 +1,273 @@
+package io.github.qudtlib.maven.rdfio.common.datasetchange;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import org.apache.jena.graph.Graph;
+import org.apache.jena.graph.GraphEvents;
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.Triple;
+import org.apache.jena.graph.impl.WrappedGraph;
+import org.apache.jena.mem.TrackingTripleIterator;
+import org.apache.jena.shared.PrefixMapping;
+import org.apache.jena.sparql.graph.GraphWrapper;
+import org.apache.jena.util.iterator.ExtendedIterator;
+
+/**
+ * Graph wrapper that keeps the graph's size and an order-independent hash (the sum of all triple
+ * hash codes) up to date as triples are added and removed, so that {@link DatasetState} does not
+ * have to scan the graph.
+ *
+ * <p>Additions and deletions are only counted if they actually change the size of the wrapped
+ * graph, so adding a triple that is already present does not change the hash.
+ *
+ * <p>The size and hash of a graph that is read lazily can be left unknown until the graph is first
+ * changed or its size is asked for, see {@link #isTracked()}. Until then, it is not considered
+ * empty.
+ *
+ * <p>The hash is only good enough to report changes. Whether the graph has changed at all is told
+ * by its modification stamp, which is unique among all tracking graphs and renewed on every change.
+ *
+ * <p>Its prefix mapping is synchronized on the graph, so prefixes can be read while another thread
+ * changes them.
+ *
+ * <p>The graph can be frozen, so that another thread can read its triples while it is changed:
+ * until the frozen triples are released, changes are recorded in an {@link OverlayGraph} on top of
+ * them.
+ */
+public class ChangeTrackingGraph extends WrappedGraph {
+    private static final AtomicLong modifications = new AtomicLong();
+    private final Content content;
+    private final PrefixMapping prefixMapping =
+            new SynchronizedPrefixMapping(this, () -> base.getPrefixMapping());
+    private long trackedSize;
+    private int trackedHash;
+    private boolean tracked = true;
+    private volatile long modificationStamp = modifications.incrementAndGet();
+    private OverlayGraph overlay = null;
+    private volatile boolean overlayReleased = false;
+
+    public ChangeTrackingGraph(Graph base) {
+        this(new Content(base));
+        this.trackedSize = base.size();
+        this.trackedHash = base.stream().mapToInt(Triple::hashCode).sum();
+    }
+
+    /** Creates a tracking graph for a base graph whose size and hash are already known. */
+    ChangeTrackingGraph(Graph base, long size, int hash) {
+        this(new Content(base));
+        this.trackedSize = size;
+        this.trackedHash = hash;
+    }
+
+    /**
+     * Creates a tracking graph for a base graph whose size and hash are not known yet. They are
+     * determined when the graph is first changed or its size is asked for.
+     */
+    static ChangeTrackingGraph untracked(Graph base) {
+        ChangeTrackingGraph graph = new ChangeTrackingGraph(new Content(base));
+        graph.tracked = false;
+        return graph;
+    }
+
+    private ChangeTrackingGraph(Content content) {
+        super(content);
+        this.content = content;
+    }
+
+    /** The graph's triples: the wrapped graph, or an overlay on top of it while it is frozen. */
+    private static class Content extends GraphWrapper {
+        private volatile Graph graph;
+
+        Content(Graph graph) {
+            super(null);
+            this.graph = graph;
+        }
+
+        @Override
+        public Graph get() {
+            return graph;
+        }
+    }
+
+    @Override
+    public PrefixMapping getPrefixMapping() {
+        return prefixMapping;
+    }
+
+    /** Returns the wrapped graph, or the overlay recording its changes while it is frozen. */
+    @Override
+    public Graph getWrapped() {
+        return content.get();
+    }
+
+    /**
+     * Freezes the graph's current triples and returns them. They are not changed until {@link
+     * #release()} is called, so they can be read by another thread in the meantime; changes to this
+     * graph are recorded in an {@link OverlayGraph} instead.
+     */
+    public synchronized Graph freeze() {
+        mergeReleasedOverlay();
+        if (overlay != null) {
+            throw new IllegalStateException("Graph is frozen already");
+        }
+        Graph frozen = content.get();
+        overlay = new OverlayGraph(frozen);
+        overlayReleased = false;
+        content.graph = overlay;
+        return frozen;
+    }
+
+    /**
+     * Releases the triples returned by {@link #freeze()}. The changes recorded since are applied to
+     * them with the next change of this graph.
+     */
+    public void release() {
+        overlayReleased = true;
+    }
+
+    private void mergeReleasedOverlay() {
+        if (overlay != null && overlayReleased) {
+            overlay.applyTo(overlay.getBase());
+            content.graph = overlay.getBase();
+            overlay = null;
+        }
+    }
+
+    /**
+     * Returns false if the graph's size and hash are not known yet. Asking for them reads the whole
+     * graph in that case.
+     */
+    public synchronized boolean isTracked() {
+        return tracked;
+    }
+
+    private void ensureTracked() {
+        if (!tracked) {
+            trackedSize = base.size();
+            trackedHash = base.stream().mapToInt(Triple::hashCode).sum();
+            tracked = true;
+        }
+    }
+
+    public synchronized long getTrackedSize() {
+        ensureTracked();
+        return trackedSize;
+    }
+
+    public synchronized int getTrackedHash() {
+        ensureTracked();
+        return trackedHash;
+    }
+
+    /**
+     * Returns a value that changes whenever the graph is changed. No other tracking graph ever has
+     * the same value, so a graph has not changed since a stamp was taken if the stamp is the same.
+     */
+    public long getModificationStamp() {
+        return modificationStamp;
+    }
+
+    private void modified() {
+        modificationStamp = modifications.incrementAndGet();
+    }
+
+    @Override
+    public synchronized int size() {
+        ensureTracked();
+        return (int) trackedSize;
+    }
+
+    /**
+     * A graph whose size is not known yet is taken to be non-empty without reading it, as datasets
+     * ask each graph whether it is empty when listing their graphs.
+     */
+    @Override
+    public synchronized boolean isEmpty() {
+        if (!tracked) {
+            return false;
+        }
+        return trackedSize == 0;
+    }
+
+    @Override
+    public void add(Triple t) {
+        performAdd(t);
+        getEventManager().notifyAddTriple(this, t);
+    }
+
+    @Override
+    public synchronized void performAdd(Triple t) {
+        mergeReleasedOverlay();
+        ensureTracked();
+        int sizeBefore = base.size();
+        base.add(t);
+        if (base.size() != sizeBefore) {
+            trackedSize++;
+            trackedHash += t.hashCode();
+            modified();
+        }
+    }
+
+    @Override
+    public void delete(Triple t) {
+        performDelete(t);
+        getEventManager().notifyDeleteTriple(this, t);
+    }
+
+    @Override
+    public synchronized void performDelete(Triple t) {
+        mergeReleasedOverlay();
+        ensureTracked();
+        int sizeBefore = base.size();
+        base.delete(t);
+        if (base.size() != sizeBefore) {
+            trackedSize--;
+            trackedHash -= t.hashCode();
+            modified();
+        }
+    }
+
+    @Override
+    public synchronized void clear() {
+        mergeReleasedOverlay();
+        base.clear();
+        trackedSize = 0;
+        trackedHash = 0;
+        tracked = true;
+        modified();
+        getEventManager().notifyEvent(this, GraphEvents.removeAll);
+    }
+
+    @Override
+    public void remove(Node s, Node p, Node o) {
+        List<Triple> toDelete = base.find(s, p, o).toList();
+        toDelete.forEach(this::performDelete);
+        getEventManager().notifyEvent(this, GraphEvents.remove(s, p, o));
+    }
+
+    @Override
+    public ExtendedIterator<Triple> find(Triple m) {
+        return trackingRemove(base.find(m));
+    }
+
+    @Override
+    public ExtendedIterator<Triple> find(Node s, Node p, Node o) {
+        return trackingRemove(base.find(s, p, o));
+    }
+
+    private ExtendedIterator<Triple> trackingRemove(ExtendedIterator<Triple> it) {
+        return new TrackingTripleIterator(it) {
+            @Override
+            public void remove() {
+                synchronized (ChangeTrackingGraph.this) {
+                    ensureTracked();
+                    super.remove();
+                    trackedSize--;
+                    trackedHash -= current.hashCode();
+                    modified();
+                }
+                getEventManager().notifyDeleteTriple(ChangeTrackingGraph.this, current);
+            }
+        };
+    }
+}
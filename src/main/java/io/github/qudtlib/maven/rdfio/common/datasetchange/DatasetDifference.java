@@ -6,6 +6,8 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Objects;
 import java.util.Set;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
 
 public record DatasetDifference(Set<GraphDifference> differences) {
     public static DatasetDifference of(DatasetState left, DatasetState right) {
@@ -37,16 +39,33 @@ public record DatasetDifference(Set<GraphDifference> differences) {
                 new GraphDifference(
                         graphName,
                         left.containsGraphName(graphName),
-                        left.getGraphSize(graphName),
+                        knownGraphSize(left, graphName),
                         right.containsGraphName(graphName),
-                        right.getGraphSize(graphName),
+                        knownGraphSize(right, graphName),
+                        // a graph whose size is still unknown cannot have been changed
                         Objects.equals(
-                                left.getGraphHash(graphName), right.getGraphHash(graphName))));
+                                        knownGraphSize(left, graphName),
+                                        knownGraphSize(right, graphName))
+                                && Objects.equals(
+                                        left.getGraphHash(graphName),
+                                        right.getGraphHash(graphName))));
+    }
+
+    private static Long knownGraphSize(DatasetState state, String graphName) {
+        return state.isGraphSizeKnown(graphName) ? state.getGraphSize(graphName) : null;
+    }
+
+    /** Returns a copy containing only the differences of graphs accepted by the filter. */
+    public DatasetDifference restrictTo(Predicate<String> graphNameFilter) {
+        return new DatasetDifference(
+                differences.stream()
+                        .filter(d -> graphNameFilter.test(d.name()))
+                        .collect(Collectors.toSet()));
     }
 
     public boolean isDifferent() {
         return !(differences.stream()
-                .allMatch(d -> d.graphsAreEqual() && d.sizeLeft() == d.sizeRight()));
+                .allMatch(d -> d.graphsAreEqual() && Objects.equals(d.sizeLeft(), d.sizeRight())));
     }
 
     public List<String> formatForChange() {
@@ -5,6 +5,8 @@ import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
+import org.apache.jena.graph.Graph;
+import org.apache.jena.graph.Triple;
 import org.apache.jena.query.Dataset;
 
 public class DatasetState {
@@ -12,36 +14,35 @@ public class DatasetState {
     private final Set<String> graphNames = new HashSet<>();
     private final Map<String, Long> graphSizes = new HashMap<>();
     private final Map<String, Integer> graphHashes = new HashMap<>();
+    private final Set<String> untrackedGraphNames = new HashSet<>();
 
+    /**
+     * Records size and hash of each graph in the dataset. Graphs of a dataset created with {@link
+     * ChangeTrackingDataset} are not scanned, their tracked values are used instead. Graphs whose
+     * size and hash are not known yet (see {@link ChangeTrackingGraph#isTracked()}) are not read,
+     * only their names are recorded.
+     */
     public DatasetState(Dataset dataset) {
         graphNames.addAll(PipelineHelper.getGraphList(dataset));
         for (String graphName : graphNames) {
-            graphSizes.put(graphName, dataset.getNamedModel(graphName).size());
-            graphHashes.put(
-                    graphName,
-                    dataset
-                            .getNamedModel(graphName)
-                            .listStatements()
-                            .mapWith(s -> s.hashCode())
-                            .toList()
-                            .stream()
-                            .mapToInt(x -> x)
-                            .sum());
+            recordGraph(graphName, dataset.getNamedModel(graphName).getGraph());
         }
-        graphSizes.put(DEFAULT_GRAPH_NAME, dataset.getDefaultModel().size());
-        graphHashes.put(
-                DEFAULT_GRAPH_NAME,
-                dataset
-                        .getDefaultModel()
-                        .listStatements()
-                        .mapWith(s -> s.hashCode())
-                        .toList()
-                        .stream()
-                        .mapToInt(x -> x)
-                        .sum());
+        recordGraph(DEFAULT_GRAPH_NAME, dataset.getDefaultModel().getGraph());
         graphNames.add(DEFAULT_GRAPH_NAME);
     }
 
+    private void recordGraph(String graphName, Graph graph) {
+        if (graph instanceof ChangeTrackingGraph trackingGraph && !trackingGraph.isTracked()) {
+            untrackedGraphNames.add(graphName);
+        } else if (graph instanceof ChangeTrackingGraph trackingGraph) {
+            graphSizes.put(graphName, trackingGraph.getTrackedSize());
+            graphHashes.put(graphName, trackingGraph.getTrackedHash());
+        } else {
+            graphSizes.put(graphName, (long) graph.size());
+            graphHashes.put(graphName, graph.stream().mapToInt(Triple::hashCode).sum());
+        }
+    }
+
     public Set<String> getGraphNames() {
         return graphNames;
     }
@@ -62,6 +63,11 @@ public class DatasetState {
         return 0;
     }
 
+    /** Returns false if the graph exists but its size and hash were not known. */
+    public boolean isGraphSizeKnown(String graphName) {
+        return !this.untrackedGraphNames.contains(graphName);
+    }
+
     public boolean containsGraphName(String graphName) {
         return this.graphNames.contains(graphName);
     }
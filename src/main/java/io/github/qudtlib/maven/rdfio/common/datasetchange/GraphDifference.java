@@ -1,11 +1,15 @@
 package io.github.qudtlib.maven.rdfio.common.datasetchange;
 
+/**
+ * Difference of a graph between two {@link DatasetState}s. A size is null if the graph's size was
+ * not known, because it had not been read yet.
+ */
 public record GraphDifference(
         String name,
         boolean existsInLeft,
-        long sizeLeft,
+        Long sizeLeft,
         boolean existsInRight,
-        long sizeRight,
+        Long sizeRight,
         boolean graphsAreEqual) {
 
     public String formatForChange() {
@@ -13,8 +17,10 @@ public record GraphDifference(
             if (existsInRight) {
                 if (graphsAreEqual) {
                     return "unchanged graph: %s".formatted(name);
+                } else if (sizeLeft == null || sizeRight == null) {
+                    return "  changed graph: %s  %s".formatted(name, formatSize(sizeRight));
                 } else {
-                    if (sizeLeft == sizeRight) {
+                    if (sizeLeft.equals(sizeRight)) {
                         return "  changed graph: %s  (same size)".formatted(name);
                     } else {
                         long diff = sizeRight - sizeLeft;
@@ -27,17 +33,22 @@ public record GraphDifference(
                     }
                 }
             } else {
-                return "  deleted graph: %s  had %d triple%s"
-                        .formatted(name, sizeLeft, Math.abs(sizeLeft) != 1 ? "s" : "");
+                return "  deleted graph: %s  had %s".formatted(name, formatSize(sizeLeft));
             }
         } else {
             if (existsInRight) {
-                return "      new graph: %s  %d triple%s"
-                        .formatted(name, sizeRight, Math.abs(sizeRight) != 1 ? "s" : "");
+                return "      new graph: %s  %s".formatted(name, formatSize(sizeRight));
             } else {
                 return "Mysterious graph %s exists neither in left nor in right - that's a bug"
                         .formatted(name);
             }
         }
     }
+
+    private static String formatSize(Long size) {
+        if (size == null) {
+            return "(not read yet)";
+        }
+        return "%d triple%s".formatted(size, Math.abs(size) != 1 ? "s" : "");
+    }
 }
@@ -0,0 +1,158 @@
+package io.github.qudtlib.maven.rdfio.common.datasetchange;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import org.apache.jena.graph.Graph;
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.NodeFactory;
+import org.apache.jena.graph.Triple;
+import org.apache.jena.riot.RiotException;
+import org.apache.jena.riot.out.NodeFmtLib;
+import org.apache.jena.riot.tokens.Token;
+import org.apache.jena.riot.tokens.TokenType;
+import org.apache.jena.riot.tokens.Tokenizer;
+import org.apache.jena.riot.tokens.TokenizerText;
+import org.apache.jena.sparql.graph.GraphFactory;
+
+/**
+ * The changes between two versions of a graph, written in the <a
+ * href="https://afs.github.io/rdf-patch/">RDF Patch</a> text format: one transaction containing a
+ * <code>D</code> (delete) record for each removed triple and an <code>A</code> (add) record for
+ * each added one.
+ *
+ * <p>Blank nodes are written as <code>&lt;_:label&gt;</code>, so applying a patch to a graph read
+ * from RDF Thrift, which keeps blank node labels, refers to the same blank nodes.
+ */
+public class GraphPatch {
+    private final Graph additions;
+    private final Graph deletions;
+
+    private GraphPatch(Graph additions, Graph deletions) {
+        this.additions = additions;
+        this.deletions = deletions;
+    }
+
+    /** Computes the patch that turns <code>base</code> into <code>target</code>. */
+    public static GraphPatch diff(Graph base, Graph target) {
+        Graph additions = GraphFactory.createGraphMem();
+        Graph deletions = GraphFactory.createGraphMem();
+        target.find()
+                .forEachRemaining(
+                        t -> {
+                            if (!base.contains(t)) {
+                                additions.add(t);
+                            }
+                        });
+        base.find()
+                .forEachRemaining(
+                        t -> {
+                            if (!target.contains(t)) {
+                                deletions.add(t);
+                            }
+                        });
+        return new GraphPatch(additions, deletions);
+    }
+
+    /** Creates the patch that deletes <code>deletions</code> and adds <code>additions</code>. */
+    public static GraphPatch of(Graph additions, Graph deletions) {
+        return new GraphPatch(additions, deletions);
+    }
+
+    public Graph getAdditions() {
+        return additions;
+    }
+
+    public Graph getDeletions() {
+        return deletions;
+    }
+
+    /** The number of records in the patch. */
+    public long size() {
+        return (long) additions.size() + deletions.size();
+    }
+
+    public void write(Writer out) throws IOException {
+        out.write("TX .\n");
+        for (Triple t : deletions.find().toList()) {
+            writeRecord(out, "D", t);
+        }
+        for (Triple t : additions.find().toList()) {
+            writeRecord(out, "A", t);
+        }
+        out.write("TC .\n");
+    }
+
+    private static void writeRecord(Writer out, String operation, Triple t) throws IOException {
+        out.write(operation);
+        out.write(' ');
+        out.write(format(t.getSubject()));
+        out.write(' ');
+        out.write(format(t.getPredicate()));
+        out.write(' ');
+        out.write(format(t.getObject()));
+        out.write(" .\n");
+    }
+
+    private static String format(Node node) {
+        if (node.isBlank()) {
+            return "<_:" + node.getBlankNodeLabel() + ">";
+        }
+        return NodeFmtLib.strNT(node);
+    }
+
+    /** Applies the patch read from <code>in</code> to the graph. */
+    public static void apply(InputStream in, Graph graph) {
+        Tokenizer tokenizer = TokenizerText.create().source(in).build();
+        List<Node> nodes = new ArrayList<>(3);
+        String operation = null;
+        while (tokenizer.hasNext()) {
+            Token token = tokenizer.next();
+            if (operation == null) {
+                if (!token.isWord()) {
+                    throw new RiotException("Expected an RDF Patch operation, got: " + token);
+                }
+                operation = token.getImage();
+            } else if (token.hasType(TokenType.DOT)) {
+                applyRecord(operation, nodes, graph);
+                operation = null;
+                nodes.clear();
+            } else {
+                nodes.add(toNode(token));
+            }
+        }
+        if (operation != null) {
+            throw new RiotException("Incomplete RDF Patch record: " + operation);
+        }
+    }
+
+    private static void applyRecord(String operation, List<Node> nodes, Graph graph) {
+        switch (operation) {
+            case "A", "D" -> {
+                if (nodes.size() != 3) {
+                    throw new RiotException(
+                            "Only triples are supported in graph patches, got: " + nodes);
+                }
+                Triple t = Triple.create(nodes.get(0), nodes.get(1), nodes.get(2));
+                if (operation.equals("A")) {
+                    graph.add(t);
+                } else {
+                    graph.delete(t);
+                }
+            }
+            case "H", "TX", "TC", "TA", "PA", "PD" -> {
+                // headers, transactions and prefixes do not change the graph's triples
+            }
+            default -> throw new RiotException("Unknown RDF Patch operation: " + operation);
+        }
+    }
+
+    private static Node toNode(Token token) {
+        if (token.hasType(TokenType.IRI) && token.getImage().startsWith("_:")) {
+            return NodeFactory.createBlankNode(token.getImage().substring(2));
+        }
+        return token.asNode();
+    }
+}
@@ -0,0 +1,105 @@
+package io.github.qudtlib.maven.rdfio.common.datasetchange;
+
+import org.apache.jena.graph.Graph;
+import org.apache.jena.graph.Triple;
+import org.apache.jena.graph.impl.GraphBase;
+import org.apache.jena.graph.impl.GraphPlain;
+import org.apache.jena.mem.TrackingTripleIterator;
+import org.apache.jena.shared.PrefixMapping;
+import org.apache.jena.shared.impl.PrefixMappingImpl;
+import org.apache.jena.util.iterator.ExtendedIterator;
+import org.apache.jena.util.iterator.WrappedIterator;
+
+/**
+ * Graph that records all changes in separate graphs of additions and deletions, leaving the base
+ * graph untouched. Unlike Jena's {@link org.apache.jena.graph.compose.Delta}, its size is known
+ * without scanning, which keeps wrapping it in a {@link ChangeTrackingGraph} cheap.
+ *
+ * <p>The base graph is only read, so several overlays of the same base graph can be used
+ * concurrently as long as the base graph is not changed.
+ */
+public class OverlayGraph extends GraphBase {
+    private final Graph base;
+    private final Graph plainBase;
+    private final Graph additions = GraphPlain.plain();
+    private final Graph deletions = GraphPlain.plain();
+
+    public OverlayGraph(Graph base) {
+        this.base = base;
+        this.plainBase = GraphPlain.plain(base);
+    }
+
+    public Graph getBase() {
+        return base;
+    }
+
+    /** Triples added to the overlay that are not in the base graph. */
+    public Graph getAdditions() {
+        return additions;
+    }
+
+    /** Triples of the base graph deleted in the overlay. */
+    public Graph getDeletions() {
+        return deletions;
+    }
+
+    public boolean hasChanges() {
+        return !additions.isEmpty() || !deletions.isEmpty();
+    }
+
+    /** Applies the deletions and additions to the target graph. */
+    public void applyTo(Graph target) {
+        deletions.find().forEachRemaining(target::delete);
+        additions.find().forEachRemaining(target::add);
+        if (!getPrefixMapping().samePrefixMappingAs(base.getPrefixMapping())) {
+            target.getPrefixMapping().setNsPrefixes(getPrefixMapping());
+        }
+    }
+
+    @Override
+    protected PrefixMapping createPrefixMapping() {
+        // prefixes are copied so setting them does not change the base graph
+        return new PrefixMappingImpl().setNsPrefixes(base.getPrefixMapping());
+    }
+
+    @Override
+    public void performAdd(Triple t) {
+        if (deletions.contains(t)) {
+            deletions.delete(t);
+        } else if (!plainBase.contains(t)) {
+            additions.add(t);
+        }
+    }
+
+    @Override
+    public void performDelete(Triple t) {
+        if (additions.contains(t)) {
+            additions.delete(t);
+        } else if (plainBase.contains(t)) {
+            deletions.add(t);
+        }
+    }
+
+    @Override
+    protected ExtendedIterator<Triple> graphBaseFind(Triple triplePattern) {
+        ExtendedIterator<Triple> fromBase = base.find(triplePattern);
+        if (!deletions.isEmpty()) {
+            fromBase = fromBase.filterDrop(deletions::contains);
+        }
+        // additions are copied, so they can be deleted while iterating
+        ExtendedIterator<Triple> result =
+                fromBase.andThen(
+                        WrappedIterator.create(additions.find(triplePattern).toList().iterator()));
+        return new TrackingTripleIterator(result) {
+            @Override
+            public void remove() {
+                performDelete(current);
+            }
+        };
+    }
+
+    @Override
+    protected int graphBaseSize() {
+        return base.size() - deletions.size() + additions.size();
+    }
+}
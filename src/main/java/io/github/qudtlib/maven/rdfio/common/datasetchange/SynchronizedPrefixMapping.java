@@ -0,0 +1,88 @@
+package io.github.qudtlib.maven.rdfio.common.datasetchange;
+
+import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.function.Supplier;
+import org.apache.jena.shared.PrefixMapping;
+import org.apache.jena.sparql.graph.PrefixMappingBase;
+
+/**
+ * Prefix mapping that accesses the prefix mapping of a graph while holding a lock, so that steps
+ * executed concurrently can read and change the prefixes of the same graph. Maps are returned as
+ * copies.
+ */
+class SynchronizedPrefixMapping extends PrefixMappingBase {
+    private final Object lock;
+    private final Supplier<PrefixMapping> prefixMapping;
+
+    SynchronizedPrefixMapping(Object lock, Supplier<PrefixMapping> prefixMapping) {
+        this.lock = lock;
+        this.prefixMapping = prefixMapping;
+    }
+
+    @Override
+    protected void add(String prefix, String uri) {
+        synchronized (lock) {
+            prefixMapping.get().setNsPrefix(prefix, uri);
+        }
+    }
+
+    @Override
+    protected void remove(String prefix) {
+        synchronized (lock) {
+            prefixMapping.get().removeNsPrefix(prefix);
+        }
+    }
+
+    @Override
+    protected void clear() {
+        synchronized (lock) {
+            prefixMapping.get().clearNsPrefixMap();
+        }
+    }
+
+    @Override
+    protected boolean isEmpty() {
+        synchronized (lock) {
+            return prefixMapping.get().hasNoMappings();
+        }
+    }
+
+    @Override
+    protected int size() {
+        synchronized (lock) {
+            return prefixMapping.get().numPrefixes();
+        }
+    }
+
+    @Override
+    protected String prefixToUri(String prefix) {
+        synchronized (lock) {
+            return prefixMapping.get().getNsPrefixURI(prefix);
+        }
+    }
+
+    @Override
+    protected String uriToPrefix(String uri) {
+        synchronized (lock) {
+            return prefixMapping.get().getNsURIPrefix(uri);
+        }
+    }
+
+    @Override
+    protected Map<String, String> asMap() {
+        return asMapCopy();
+    }
+
+    @Override
+    protected Map<String, String> asMapCopy() {
+        synchronized (lock) {
+            return prefixMapping.get().getNsPrefixMap();
+        }
+    }
+
+    @Override
+    protected void apply(BiConsumer<String, String> action) {
+        asMapCopy().forEach(action);
+    }
+}
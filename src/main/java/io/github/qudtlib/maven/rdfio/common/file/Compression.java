@@ -0,0 +1,79 @@
+package io.github.qudtlib.maven.rdfio.common.file;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import org.apache.commons.compress.compressors.bzip2.BZip2CompressorInputStream;
+import org.apache.commons.compress.compressors.bzip2.BZip2CompressorOutputStream;
+
+/**
+ * Compression of a file, determined by its name: <code>vocab.ttl.gz</code> is a gzip compressed
+ * Turtle file, <code>dump.nq.bz2</code> a bzip2 compressed N-Quads file. The language of such a
+ * file is determined by the name without the compression suffix (see {@link #stripSuffix(String)}).
+ */
+public enum Compression {
+    NONE(""),
+    GZIP(".gz"),
+    BZIP2(".bz2");
+
+    static final int BUFFER_SIZE = 1 << 16;
+
+    private final String suffix;
+
+    Compression(String suffix) {
+        this.suffix = suffix;
+    }
+
+    public static Compression of(File file) {
+        return of(file.getName());
+    }
+
+    public static Compression of(String fileName) {
+        String lower = fileName.toLowerCase();
+        if (lower.endsWith(GZIP.suffix)) {
+            return GZIP;
+        }
+        if (lower.endsWith(BZIP2.suffix)) {
+            return BZIP2;
+        }
+        return NONE;
+    }
+
+    /** Returns the file name without this compression's suffix. */
+    public String stripSuffix(String fileName) {
+        return fileName.substring(0, fileName.length() - suffix.length());
+    }
+
+    /** Returns a stream of the decompressed content of <code>in</code>. */
+    public InputStream decompress(InputStream in) throws IOException {
+        return switch (this) {
+            case NONE -> in;
+            case GZIP -> new GZIPInputStream(in, BUFFER_SIZE);
+            case BZIP2 -> new BZip2CompressorInputStream(in, true);
+        };
+    }
+
+    /**
+     * Opens the file for writing, compressed according to its name. Gzip compression uses one
+     * thread per processor for large outputs (see {@link ParallelGzipOutputStream}).
+     */
+    public static OutputStream openOutputStream(File file) throws IOException {
+        OutputStream out = new FileOutputStream(file);
+        return switch (of(file)) {
+            case NONE -> new BufferedOutputStream(out, BUFFER_SIZE);
+            case GZIP -> {
+                int threads = Runtime.getRuntime().availableProcessors();
+                yield threads > 1
+                        ? new ParallelGzipOutputStream(out, threads)
+                        : new GZIPOutputStream(out, BUFFER_SIZE);
+            }
+            case BZIP2 ->
+                    new BZip2CompressorOutputStream(new BufferedOutputStream(out, BUFFER_SIZE));
+        };
+    }
+}
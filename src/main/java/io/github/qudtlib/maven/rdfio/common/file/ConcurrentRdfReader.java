@@ -0,0 +1,109 @@
+package io.github.qudtlib.maven.rdfio.common.file;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.ObjIntConsumer;
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.rdf.model.ModelFactory;
+
+/**
+ * Parses RDF files concurrently, each into a model of its own, using the {@link ParsedGraphCache}.
+ * The models are passed on in the order of the files, so adding them to a target graph one after
+ * the other gives the same result as reading the files sequentially. Blank nodes of different files
+ * never clash, as each file gets fresh blank nodes.
+ *
+ * <p>Files are only parsed up to twice the number of threads ahead of the file passed on next, so
+ * the parsed models held at any time are bounded no matter how many files are read.
+ */
+public class ConcurrentRdfReader {
+
+    /** The default number of parser threads: one per available processor. */
+    public static int defaultThreads() {
+        return Runtime.getRuntime().availableProcessors();
+    }
+
+    /**
+     * Parses the files using up to <code>threads</code> threads and returns one model per file, in
+     * the order of <code>files</code>.
+     */
+    public static List<Model> read(List<File> files, int threads) throws IOException {
+        List<Model> models = new ArrayList<>();
+        read(files, threads, (model, index) -> models.add(model));
+        return models;
+    }
+
+    /**
+     * Parses the files using up to <code>threads</code> threads and passes each file's model and
+     * index to <code>consumer</code> in the order of <code>files</code>, as soon as the file and
+     * all files before it have been parsed.
+     */
+    public static void read(List<File> files, int threads, ObjIntConsumer<Model> consumer)
+            throws IOException {
+        if (files.size() <= 1 || threads <= 1) {
+            for (int i = 0; i < files.size(); i++) {
+                Model model;
+                try {
+                    model = readFile(files.get(i));
+                } catch (RuntimeException e) {
+                    throw new IOException("Error parsing RDF file " + files.get(i), e);
+                }
+                consumer.accept(model, i);
+            }
+            return;
+        }
+        int maxPending = 2 * threads;
+        ExecutorService executor = newExecutor(Math.min(threads, files.size()));
+        try {
+            Deque<Future<Model>> pending = new ArrayDeque<>();
+            int submitted = 0;
+            for (int i = 0; i < files.size(); i++) {
+                while (submitted < files.size() && submitted - i < maxPending) {
+                    File file = files.get(submitted++);
+                    pending.add(executor.submit(() -> readFile(file)));
+                }
+                Model model;
+                try {
+                    model = pending.removeFirst().get();
+                } catch (ExecutionException e) {
+                    if (e.getCause() instanceof IOException ioException) {
+                        throw ioException;
+                    }
+                    throw new IOException("Error parsing RDF file " + files.get(i), e.getCause());
+                }
+                consumer.accept(model, i);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while parsing RDF files", e);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static Model readFile(File file) throws IOException {
+        Model model = ModelFactory.createDefaultModel();
+        ParsedGraphCache.getInstance().read(file, model);
+        return model;
+    }
+
+    private static ExecutorService newExecutor(int threads) {
+        AtomicInteger threadCount = new AtomicInteger();
+        return Executors.newFixedThreadPool(
+                threads,
+                runnable -> {
+                    Thread thread =
+                            new Thread(runnable, "rdfio-parser-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+}
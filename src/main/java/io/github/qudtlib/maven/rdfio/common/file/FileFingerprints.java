@@ -0,0 +1,227 @@
+package io.github.qudtlib.maven.rdfio.common.file;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collection;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import org.apache.jena.riot.Lang;
+import org.apache.jena.riot.RiotException;
+import org.apache.jena.riot.system.StreamRDFLib;
+import org.apache.jena.sparql.core.DatasetGraph;
+import org.apache.jena.sparql.core.DatasetGraphFactory;
+
+/**
+ * Registry of content fingerprints (SHA-256 hashes) of files, used for calculating step hashes
+ * without reading unchanged files again.
+ *
+ * <p>A fingerprint is reused as long as the file's size and modification time are unchanged. To
+ * notice files changed within the resolution of the modification time, fingerprints taken shortly
+ * after the file was modified are not reused. The fingerprints can be stored in a file, so they
+ * survive the Maven session.
+ *
+ * <p>Each mojo execution has its own instance, stored in its own file, so executions of different
+ * modules running in parallel do not write each other's fingerprints. {@link #getInstance()} is
+ * only used for fingerprints that are not stored.
+ *
+ * <p>RDF files can also be fingerprinted semantically, using the {@link SemanticHash} of their data
+ * instead of their bytes, so that reformatting them does not change the fingerprint.
+ */
+public class FileFingerprints {
+    /** A fingerprint is only trusted if it was taken this long after the file was modified. */
+    private static final long MODIFICATION_TIME_RESOLUTION_MILLIS = 2000;
+
+    private static final String SEMANTIC_KEY_PREFIX = "semantic:";
+
+    private static final FileFingerprints INSTANCE = new FileFingerprints();
+
+    private record Entry(long size, long lastModified, long fingerprintedAt, String fingerprint) {
+        boolean matches(File file) {
+            return size == file.length()
+                    && lastModified == file.lastModified()
+                    && fingerprintedAt > lastModified + MODIFICATION_TIME_RESOLUTION_MILLIS;
+        }
+
+        static Entry parse(String line) {
+            String[] parts = line.split("\t", 5);
+            return new Entry(
+                    Long.parseLong(parts[0]),
+                    Long.parseLong(parts[1]),
+                    Long.parseLong(parts[2]),
+                    parts[3]);
+        }
+
+        String format(String path) {
+            return "%d\t%d\t%d\t%s\t%s"
+                    .formatted(size, lastModified, fingerprintedAt, fingerprint, path);
+        }
+    }
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final File persistentFile;
+    private volatile boolean changed = false;
+    private final AtomicLong reads = new AtomicLong();
+
+    /** Creates fingerprints that are not stored. */
+    public FileFingerprints() {
+        this(null);
+    }
+
+    /**
+     * Creates fingerprints stored in <code>persistentFile</code>, starting with the fingerprints
+     * stored there. Use {@link #persist()} to store them.
+     */
+    public FileFingerprints(File persistentFile) {
+        this.persistentFile = persistentFile;
+        if (persistentFile == null || !persistentFile.isFile()) {
+            return;
+        }
+        try {
+            for (String line :
+                    Files.readAllLines(persistentFile.toPath(), StandardCharsets.UTF_8)) {
+                String[] parts = line.split("\t", 5);
+                if (parts.length == 5) {
+                    entries.putIfAbsent(parts[4], Entry.parse(line));
+                }
+            }
+        } catch (IOException | NumberFormatException e) {
+            // the stored fingerprints only save time, files are read again
+        }
+    }
+
+    /** Returns the shared instance for fingerprints that are not stored. */
+    public static FileFingerprints getInstance() {
+        return INSTANCE;
+    }
+
+    /** Stores the fingerprints in the persistent file, if one is set and anything changed. */
+    public synchronized void persist() {
+        if (persistentFile == null || !changed) {
+            return;
+        }
+        String content =
+                entries.entrySet().stream()
+                        .map(e -> e.getValue().format(e.getKey()))
+                        .sorted()
+                        .collect(Collectors.joining("\n", "", "\n"));
+        Path target = persistentFile.toPath();
+        try {
+            Files.createDirectories(target.toAbsolutePath().getParent());
+            Path tmp =
+                    Files.createTempFile(
+                            target.toAbsolutePath().getParent(),
+                            target.getFileName().toString(),
+                            ".tmp");
+            try {
+                Files.writeString(tmp, content, StandardCharsets.UTF_8);
+                try {
+                    Files.move(
+                            tmp,
+                            target,
+                            StandardCopyOption.ATOMIC_MOVE,
+                            StandardCopyOption.REPLACE_EXISTING);
+                } catch (AtomicMoveNotSupportedException e) {
+                    Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING);
+                }
+            } finally {
+                Files.deleteIfExists(tmp);
+            }
+            changed = false;
+        } catch (IOException e) {
+            // the stored fingerprints only save time, failing to write them must not fail the build
+        }
+    }
+
+    /** Returns the fingerprint of the file's content, reading it only if it may have changed. */
+    public String fingerprint(File file) throws FileAccessException {
+        return fingerprint(file, false);
+    }
+
+    /**
+     * Returns the fingerprint of the file's content, or, if <code>semantic</code> is true and the
+     * file is an RDF file, of its data.
+     */
+    public String fingerprint(File file, boolean semantic) throws FileAccessException {
+        Lang lang = semantic ? RdfLoader.lang(file, null) : null;
+        String key = file.getAbsoluteFile().toPath().normalize().toString();
+        if (lang != null) {
+            key = SEMANTIC_KEY_PREFIX + key;
+        }
+        Entry entry = entries.get(key);
+        if (entry != null && entry.matches(file)) {
+            return entry.fingerprint();
+        }
+        long size = file.length();
+        long lastModified = file.lastModified();
+        long fingerprintedAt = System.currentTimeMillis();
+        String fingerprint =
+                lang != null ? readSemanticFingerprint(file, lang) : readFingerprint(file);
+        entries.put(key, new Entry(size, lastModified, fingerprintedAt, fingerprint));
+        changed = true;
+        return fingerprint;
+    }
+
+    /** Fingerprints the existing files among <code>files</code> concurrently. */
+    public void fingerprintAll(Collection<File> files, boolean semantic)
+            throws FileAccessException {
+        List<File> existing = files.stream().distinct().filter(File::isFile).toList();
+        if (existing.size() == 1) {
+            fingerprint(existing.get(0), semantic);
+        } else if (existing.size() > 1) {
+            existing.parallelStream().forEach(file -> fingerprint(file, semantic));
+        }
+    }
+
+    /** Number of files read for fingerprinting since the JVM was started. */
+    public long getReads() {
+        return reads.get();
+    }
+
+    private String readSemanticFingerprint(File file, Lang lang) {
+        DatasetGraph dataset = DatasetGraphFactory.create();
+        try {
+            // parsed like the file is loaded, so relative IRIs resolve to the same data
+            RdfLoader.read(file, lang, StreamRDFLib.dataset(dataset));
+        } catch (IOException e) {
+            throw new FileAccessException("Cannot read file " + file.getAbsolutePath(), e);
+        } catch (RiotException e) {
+            // not valid RDF after all: fall back to the file's bytes, the step will report the
+            // error
+            return readFingerprint(file);
+        }
+        reads.incrementAndGet();
+        return SemanticHash.of(dataset);
+    }
+
+    private String readFingerprint(File file) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+        byte[] buffer = new byte[64 * 1024];
+        try (InputStream in = Files.newInputStream(file.toPath())) {
+            int read;
+            while ((read = in.read(buffer)) > 0) {
+                digest.update(buffer, 0, read);
+            }
+        } catch (IOException e) {
+            throw new FileAccessException("Cannot read file " + file.getAbsolutePath(), e);
+        }
+        reads.incrementAndGet();
+        return HexFormat.of().formatHex(digest.digest());
+    }
+}
@@ -0,0 +1,143 @@
+package io.github.qudtlib.maven.rdfio.common.file;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.Triple;
+import org.apache.jena.riot.system.StreamRDF;
+import org.apache.jena.riot.system.StreamRDFWrapper;
+import org.apache.jena.sparql.core.Quad;
+
+/**
+ * Dictionary of the IRIs and literals parsed from RDF files, so that equal terms of all files and
+ * graphs loaded by a mojo execution share one {@link Node} instance. Vocabularies loaded into
+ * several graphs and terms repeated across files then take memory only once. Executions of
+ * different modules may run in parallel and share the dictionary: it is cleared when the last of
+ * them ends, so its terms are not kept alive for the rest of the Maven session, and the next
+ * execution starts with room for its own terms.
+ *
+ * <p>The dictionary holds at most {@link #getMaxNodes()} nodes; once it is full, further terms are
+ * still looked up, but no longer added. Blank nodes are never interned, as they are local to the
+ * file they are parsed from. A limit of 0 disables the dictionary.
+ */
+public class NodeDictionary {
+    public static final long DEFAULT_MAX_NODES = 2_000_000;
+
+    private static final NodeDictionary INSTANCE = new NodeDictionary(DEFAULT_MAX_NODES);
+
+    private final ConcurrentHashMap<Node, Node> nodes = new ConcurrentHashMap<>();
+    private final AtomicLong hits = new AtomicLong();
+    private volatile long maxNodes;
+    private int executions = 0;
+
+    public NodeDictionary(long maxNodes) {
+        this.maxNodes = maxNodes;
+    }
+
+    public static NodeDictionary getInstance() {
+        return INSTANCE;
+    }
+
+    public long getMaxNodes() {
+        return maxNodes;
+    }
+
+    /** Sets the limit; 0 disables the dictionary and drops its nodes. */
+    public void setMaxNodes(long maxNodes) {
+        this.maxNodes = maxNodes;
+        if (maxNodes <= 0) {
+            clear();
+        }
+    }
+
+    /**
+     * Applies the limit of a mojo execution, which calls {@link #release()} when it ends. While
+     * other executions are running, the limit is only raised, so their terms are not dropped.
+     *
+     * @param maxNodes the new limit, or <code>null</code> to keep the current one
+     */
+    public synchronized void configure(Long maxNodes) {
+        boolean shared = executions++ > 0;
+        if (maxNodes != null && (!shared || maxNodes > this.maxNodes)) {
+            setMaxNodes(maxNodes);
+        }
+    }
+
+    /** Ends a mojo execution, clearing the dictionary if no other execution is running. */
+    public synchronized void release() {
+        if (executions > 0 && --executions == 0) {
+            clear();
+        }
+    }
+
+    public boolean isEnabled() {
+        return maxNodes > 0;
+    }
+
+    public long size() {
+        return nodes.mappingCount();
+    }
+
+    /** Number of terms that were replaced by an equal node from the dictionary. */
+    public long getHits() {
+        return hits.get();
+    }
+
+    public void clear() {
+        nodes.clear();
+    }
+
+    /** Returns the dictionary's node equal to <code>node</code>, adding it if there is none. */
+    public Node intern(Node node) {
+        if (node == null || !(node.isURI() || node.isLiteral()) || !isEnabled()) {
+            return node;
+        }
+        Node known = nodes.get(node);
+        if (known != null) {
+            if (known != node) {
+                hits.incrementAndGet();
+            }
+            return known;
+        }
+        if (nodes.mappingCount() >= maxNodes) {
+            return node;
+        }
+        known = nodes.putIfAbsent(node, node);
+        return known != null ? known : node;
+    }
+
+    /**
+     * Returns a stream that interns the nodes of all triples and quads before sending them to
+     * <code>target</code>, or <code>target</code> itself if the dictionary is disabled.
+     */
+    public StreamRDF interning(StreamRDF target) {
+        return isEnabled() ? new InterningStreamRDF(target) : target;
+    }
+
+    private Triple intern(Triple triple) {
+        Node s = intern(triple.getSubject());
+        Node p = intern(triple.getPredicate());
+        Node o = intern(triple.getObject());
+        if (s == triple.getSubject() && p == triple.getPredicate() && o == triple.getObject()) {
+            return triple;
+        }
+        return Triple.create(s, p, o);
+    }
+
+    private class InterningStreamRDF extends StreamRDFWrapper {
+        InterningStreamRDF(StreamRDF target) {
+            super(target);
+        }
+
+        @Override
+        public void triple(Triple triple) {
+            super.triple(intern(triple));
+        }
+
+        @Override
+        public void quad(Quad quad) {
+            Triple triple = intern(quad.asTriple());
+            super.quad(Quad.create(intern(quad.getGraph()), triple));
+        }
+    }
+}
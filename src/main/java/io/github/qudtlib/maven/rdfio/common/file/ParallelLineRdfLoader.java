@@ -0,0 +1,224 @@
+package io.github.qudtlib.maven.rdfio.common.file;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.jena.graph.Triple;
+import org.apache.jena.riot.Lang;
+import org.apache.jena.riot.RDFParser;
+import org.apache.jena.riot.RiotException;
+import org.apache.jena.riot.lang.LabelToNode;
+import org.apache.jena.riot.system.StreamRDF;
+import org.apache.jena.riot.system.StreamRDFBase;
+import org.apache.jena.sparql.core.Quad;
+
+/**
+ * Loads large N-Triples and N-Quads files using several threads. As every line of these formats is
+ * a complete statement, the memory-mapped file is split into chunks at line boundaries, the chunks
+ * are parsed in parallel and their statements are sent to the target in file order. At most twice
+ * as many chunks as there are threads are parsed ahead of the chunk sent next, so the statements
+ * held in memory are bounded no matter how large the file is.
+ *
+ * <p>All chunks of a file share one blank node scope, so a blank node label used in several chunks
+ * denotes the same node, just as if the file had been parsed in one go.
+ */
+public class ParallelLineRdfLoader {
+    /** Smaller files are parsed by a single parser, as splitting them does not pay off. */
+    static final long MIN_FILE_SIZE = 16L << 20;
+
+    static final int CHUNK_SIZE = 8 << 20;
+
+    /** Returns true if the file is loaded by this loader rather than a single parser. */
+    public static boolean isApplicable(File file, Lang lang, int threads) {
+        return threads > 1
+                && Compression.of(file) == Compression.NONE
+                && (Lang.NTRIPLES.equals(lang) || Lang.NQUADS.equals(lang))
+                && file.length() >= MIN_FILE_SIZE;
+    }
+
+    /**
+     * Parses the file with up to <code>threads</code> threads and sends its statements to the
+     * target in file order.
+     */
+    public static void read(File file, Lang lang, StreamRDF target, int threads)
+            throws IOException {
+        read(file, lang, target, threads, CHUNK_SIZE);
+    }
+
+    /**
+     * As {@link #read(File, Lang, StreamRDF, int)}, splitting the file into the given chunk size.
+     */
+    public static void read(File file, Lang lang, StreamRDF target, int threads, int chunkSize)
+            throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            List<long[]> chunks = split(channel, chunkSize);
+            UUID blankNodeScope = UUID.randomUUID();
+            int maxPending = 2 * Math.max(1, threads);
+            ExecutorService executor = newExecutor(Math.max(1, Math.min(threads, chunks.size())));
+            try {
+                Deque<Future<Chunk>> pending = new ArrayDeque<>();
+                int submitted = 0;
+                target.start();
+                for (int i = 0; i < chunks.size(); i++) {
+                    while (submitted < chunks.size() && submitted - i < maxPending) {
+                        long[] chunk = chunks.get(submitted++);
+                        MappedByteBuffer buffer =
+                                channel.map(FileChannel.MapMode.READ_ONLY, chunk[0], chunk[1]);
+                        pending.add(
+                                executor.submit(
+                                        () -> parse(buffer, lang, blankNodeScope, chunk[0], file)));
+                    }
+                    Chunk chunk = get(pending.removeFirst());
+                    chunk.triples().forEach(target::triple);
+                    chunk.quads().forEach(target::quad);
+                }
+                target.finish();
+            } finally {
+                executor.shutdownNow();
+            }
+        }
+    }
+
+    /** The parsed statements of a chunk; only one of the lists is used, depending on the format. */
+    private record Chunk(List<Triple> triples, List<Quad> quads) {}
+
+    private static Chunk parse(
+            ByteBuffer buffer, Lang lang, UUID blankNodeScope, long offset, File file) {
+        Chunk chunk = new Chunk(new ArrayList<>(), new ArrayList<>());
+        try {
+            RDFParser.source(new ByteBufferInputStream(buffer))
+                    .lang(lang)
+                    .labelToNode(LabelToNode.createScopeByDocumentHash(blankNodeScope))
+                    .parse(
+                            new StreamRDFBase() {
+                                @Override
+                                public void triple(Triple triple) {
+                                    chunk.triples().add(triple);
+                                }
+
+                                @Override
+                                public void quad(Quad quad) {
+                                    chunk.quads().add(quad);
+                                }
+                            });
+        } catch (RiotException e) {
+            // line numbers are counted from the start of the chunk
+            throw new RiotException(
+                    "Error parsing %s in the chunk starting at byte %d: %s"
+                            .formatted(file, offset, e.getMessage()),
+                    e);
+        }
+        return chunk;
+    }
+
+    /**
+     * Splits the file into chunks of about <code>chunkSize</code> bytes, each ending after a
+     * newline or at the end of the file. Returns the offset and length of each chunk.
+     */
+    private static List<long[]> split(FileChannel channel, int chunkSize) throws IOException {
+        long size = channel.size();
+        List<long[]> chunks = new ArrayList<>();
+        ByteBuffer lookahead = ByteBuffer.allocate(1 << 16);
+        long start = 0;
+        while (start < size) {
+            long end = Math.min(size, start + chunkSize);
+            while (end < size) {
+                lookahead.clear();
+                int read = channel.read(lookahead, end);
+                int newline = indexOfNewline(lookahead, read);
+                if (newline >= 0) {
+                    end += newline + 1;
+                    break;
+                }
+                end += read;
+            }
+            end = Math.min(end, size);
+            chunks.add(new long[] {start, end - start});
+            start = end;
+        }
+        return chunks;
+    }
+
+    private static int indexOfNewline(ByteBuffer buffer, int length) {
+        for (int i = 0; i < length; i++) {
+            if (buffer.get(i) == '\n') {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static Chunk get(Future<Chunk> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while parsing RDF", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IOException(e.getCause());
+        }
+    }
+
+    private static ExecutorService newExecutor(int threads) {
+        AtomicInteger threadCount = new AtomicInteger();
+        return Executors.newFixedThreadPool(
+                threads,
+                runnable -> {
+                    Thread thread =
+                            new Thread(
+                                    runnable,
+                                    "rdfio-chunk-parser-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    /** Reads a (memory-mapped) buffer without copying it to the heap first. */
+    private static class ByteBufferInputStream extends InputStream {
+        private final ByteBuffer buffer;
+
+        ByteBufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xff : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (len == 0) {
+                return 0;
+            }
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+            int n = Math.min(len, buffer.remaining());
+            buffer.get(b, off, n);
+            return n;
+        }
+
+        @Override
+        public int available() {
+            return buffer.remaining();
+        }
+    }
+}
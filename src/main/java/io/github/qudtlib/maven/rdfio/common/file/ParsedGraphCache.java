@@ -0,0 +1,515 @@
+package io.github.qudtlib.maven.rdfio.common.file;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import org.apache.jena.graph.Graph;
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.NodeFactory;
+import org.apache.jena.graph.Triple;
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.riot.Lang;
+import org.apache.jena.riot.system.StreamRDFBase;
+import org.apache.jena.sparql.core.Quad;
+import org.apache.jena.sparql.graph.GraphFactory;
+
+/**
+ * JVM-wide cache of parsed RDF files, so that files read by several steps, pipelines, executions or
+ * modules of the same Maven session are parsed only once.
+ *
+ * <p>Entries are keyed by the file's canonical path, size and modification time, so a file that
+ * changes is parsed again. The cached graphs are never handed out: reading a file copies its
+ * triples and prefixes into the target model. Blank nodes get fresh labels on each copy, so reading
+ * a cached file behaves exactly like parsing it again.
+ *
+ * <p>Files that are not in memory are read from the {@link PersistentParseCache}, if one is set.
+ *
+ * <p>The cache holds at most {@link #getMaxTriples()} triples; the least recently used files are
+ * evicted first. Files with more triples than that are not cached: once a file turns out to be
+ * larger while it is parsed, the rest of it is parsed straight into the target model, and it is
+ * always parsed that way afterwards. A limit of 0 disables the cache, including the persistent one.
+ *
+ * <p>Files can be parsed ahead of their first read with {@link #prefetch(File)}. Prefetched files
+ * that have not been read yet hold at most {@link #getMaxPrefetchedTriples()} triples. A file that
+ * is being parsed is not parsed a second time: a concurrent read waits for the parse to finish.
+ */
+public class ParsedGraphCache {
+    public static final long DEFAULT_MAX_TRIPLES = 5_000_000;
+
+    public static final long DEFAULT_MAX_PREFETCHED_TRIPLES = 1_000_000;
+
+    private static final ParsedGraphCache INSTANCE = new ParsedGraphCache(DEFAULT_MAX_TRIPLES);
+
+    private record Key(String canonicalPath, long size, long lastModified) {
+        static Key of(File file) throws IOException {
+            return new Key(file.getCanonicalPath(), file.length(), file.lastModified());
+        }
+    }
+
+    private record Entry(Graph graph, boolean hasBlankNodes) {}
+
+    private final Map<Key, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final Map<Key, CompletableFuture<Entry>> parsing = new HashMap<>();
+    private final Set<Key> prefetched = new HashSet<>();
+    private final Set<Key> tooLarge = new HashSet<>();
+    private long maxTriples;
+    private long cachedTriples = 0;
+    private long maxPrefetchedTriples = DEFAULT_MAX_PREFETCHED_TRIPLES;
+    private long prefetchedTriples = 0;
+    private long hits = 0;
+    private long misses = 0;
+    private long prefetches = 0;
+    private long prefetchHits = 0;
+    private PersistentParseCache persistentCache = null;
+    private int executions = 0;
+
+    public ParsedGraphCache(long maxTriples) {
+        this.maxTriples = maxTriples;
+    }
+
+    public static ParsedGraphCache getInstance() {
+        return INSTANCE;
+    }
+
+    public synchronized long getMaxTriples() {
+        return maxTriples;
+    }
+
+    public synchronized void setMaxTriples(long maxTriples) {
+        if (maxTriples > this.maxTriples) {
+            tooLarge.clear();
+        }
+        this.maxTriples = maxTriples;
+        evict();
+    }
+
+    public synchronized long getMaxPrefetchedTriples() {
+        return maxPrefetchedTriples;
+    }
+
+    /** Sets the prefetch budget; 0 disables prefetching. */
+    public synchronized void setMaxPrefetchedTriples(long maxPrefetchedTriples) {
+        this.maxPrefetchedTriples = maxPrefetchedTriples;
+        notifyAll();
+    }
+
+    public synchronized boolean isPrefetchEnabled() {
+        return maxTriples > 0 && maxPrefetchedTriples > 0;
+    }
+
+    public synchronized PersistentParseCache getPersistentCache() {
+        return persistentCache;
+    }
+
+    /**
+     * Sets the on-disk cache used for files that are not in memory, or <code>null</code> to always
+     * parse them.
+     */
+    public synchronized void setPersistentCache(PersistentParseCache persistentCache) {
+        this.persistentCache = persistentCache;
+    }
+
+    /**
+     * Applies the settings of a mojo execution, which calls {@link #release()} when it ends. The
+     * cache is shared by the executions of all modules, which may run in parallel. While other
+     * executions are running, the settings are only widened, so they keep the cache they are
+     * reading files with.
+     *
+     * @param maxTriples the new triple limit, or <code>null</code> to keep the current one
+     * @param maxPrefetchedTriples the new prefetch budget, or <code>null</code> to keep the current
+     *     one
+     * @param persistentCacheDirectory the directory of the on-disk cache, or <code>null</code> to
+     *     disable it
+     * @param persistentCacheMaxSizeMB the maximum size of the on-disk cache in megabytes
+     */
+    public synchronized void configure(
+            Long maxTriples,
+            Long maxPrefetchedTriples,
+            File persistentCacheDirectory,
+            long persistentCacheMaxSizeMB) {
+        boolean shared = executions++ > 0;
+        if (maxTriples != null && (!shared || maxTriples > this.maxTriples)) {
+            setMaxTriples(maxTriples);
+        }
+        if (maxPrefetchedTriples != null
+                && (!shared || maxPrefetchedTriples > this.maxPrefetchedTriples)) {
+            setMaxPrefetchedTriples(maxPrefetchedTriples);
+        }
+        if (persistentCacheDirectory == null) {
+            if (!shared) {
+                setPersistentCache(null);
+            }
+        } else if (!shared || persistentCache == null) {
+            setPersistentCache(
+                    new PersistentParseCache(
+                            persistentCacheDirectory, persistentCacheMaxSizeMB * 1024 * 1024));
+        }
+    }
+
+    /** Ends a mojo execution started with {@link #configure(Long, Long, File, long)}. */
+    public synchronized void release() {
+        if (executions > 0) {
+            executions--;
+        }
+    }
+
+    public synchronized long getCachedTriples() {
+        return cachedTriples;
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    /** Number of files added to the cache by {@link #prefetch(File)}. */
+    public synchronized long getPrefetches() {
+        return prefetches;
+    }
+
+    /** Number of prefetched files that were read afterwards. */
+    public synchronized long getPrefetchHits() {
+        return prefetchHits;
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+        cachedTriples = 0;
+        prefetched.clear();
+        prefetchedTriples = 0;
+        tooLarge.clear();
+        notifyAll();
+    }
+
+    /**
+     * Reads the RDF file into the model, using the cached graph if the file has been parsed before.
+     * The language is determined from the file name, defaulting to Turtle.
+     */
+    public void read(File file, Model model) throws IOException {
+        Key key = Key.of(file);
+        if (bypassesCache(key)) {
+            RdfLoader.read(file, model.getGraph());
+            return;
+        }
+        Entry entry = lookup(key);
+        if (entry == null) {
+            entry = parseOnce(key, file, model.getGraph());
+        }
+        if (entry != null) {
+            copyInto(entry, model.getGraph());
+            model.setNsPrefixes(entry.graph().getPrefixMapping().getNsPrefixMap());
+        }
+    }
+
+    /**
+     * Returns true if the file is parsed without the cache. Only files too large for the cache are
+     * counted as misses, not reads while the cache is disabled.
+     */
+    private synchronized boolean bypassesCache(Key key) {
+        if (maxTriples <= 0) {
+            return true;
+        }
+        if (!tooLarge.contains(key)) {
+            return false;
+        }
+        misses++;
+        return true;
+    }
+
+    /**
+     * Parses the file into the cache before it is read, unless it is cached or being parsed
+     * already, or prefetching is disabled. Returns true if the file was added to the cache; a file
+     * that does not fit into the remaining prefetch budget is parsed, but not kept.
+     */
+    public boolean prefetch(File file) throws IOException {
+        Key key = Key.of(file);
+        synchronized (this) {
+            if (!isPrefetchEnabled() || entries.containsKey(key) || tooLarge.contains(key)) {
+                return false;
+            }
+        }
+        parseOnce(key, file, null);
+        synchronized (this) {
+            return prefetched.contains(key);
+        }
+    }
+
+    /**
+     * Waits until the prefetched files that have not been read yet take less than the prefetch
+     * budget.
+     */
+    public synchronized void awaitPrefetchBudget() throws InterruptedException {
+        while (maxPrefetchedTriples > 0 && prefetchedTriples >= maxPrefetchedTriples) {
+            wait();
+        }
+    }
+
+    private synchronized Entry lookup(Key key) {
+        Entry entry = entries.get(key);
+        if (entry != null) {
+            hits++;
+            markRead(key, entry);
+        } else {
+            misses++;
+        }
+        return entry;
+    }
+
+    /**
+     * Parses the file and stores it, or, if another thread is parsing it already, waits for that
+     * parse. <code>target</code> is the graph the file is read into, or <code>null</code> for a
+     * prefetch, which does not wait. Returns <code>null</code> if the file is not cached: then it
+     * has been parsed into <code>target</code> directly.
+     */
+    private Entry parseOnce(Key key, File file, Graph target) throws IOException {
+        CompletableFuture<Entry> own = new CompletableFuture<>();
+        CompletableFuture<Entry> running;
+        synchronized (this) {
+            running = parsing.putIfAbsent(key, own);
+        }
+        if (running != null) {
+            if (target == null) {
+                return null;
+            }
+            Entry entry = await(running);
+            if (entry == null) {
+                RdfLoader.read(file, target);
+                return null;
+            }
+            synchronized (this) {
+                markRead(key, entry);
+            }
+            return entry;
+        }
+        try {
+            Entry entry = parse(file, target);
+            if (entry != null) {
+                store(key, entry, target == null);
+            } else {
+                synchronized (this) {
+                    tooLarge.add(key);
+                }
+            }
+            own.complete(entry);
+            return entry;
+        } catch (IOException | RuntimeException e) {
+            own.completeExceptionally(e);
+            throw e;
+        } finally {
+            synchronized (this) {
+                parsing.remove(key);
+            }
+        }
+    }
+
+    private static Entry await(CompletableFuture<Entry> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for RDF file to be parsed", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException ioException) {
+                throw ioException;
+            }
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IOException(e.getCause());
+        }
+    }
+
+    private synchronized void store(Key key, Entry entry, boolean prefetch) {
+        // outdated versions of the file are of no use any more
+        Iterator<Map.Entry<Key, Entry>> it = entries.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<Key, Entry> existing = it.next();
+            if (existing.getKey().canonicalPath().equals(key.canonicalPath())) {
+                cachedTriples -= existing.getValue().graph().size();
+                release(existing.getKey(), existing.getValue());
+                it.remove();
+            }
+        }
+        long size = entry.graph().size();
+        if (maxTriples <= 0 || size > maxTriples) {
+            return;
+        }
+        if (prefetch && prefetchedTriples + size > maxPrefetchedTriples) {
+            return;
+        }
+        entries.put(key, entry);
+        cachedTriples += size;
+        if (prefetch) {
+            prefetched.add(key);
+            prefetchedTriples += size;
+            prefetches++;
+        }
+        evict();
+    }
+
+    private synchronized void evict() {
+        Iterator<Map.Entry<Key, Entry>> it = entries.entrySet().iterator();
+        while (cachedTriples > maxTriples && it.hasNext()) {
+            Map.Entry<Key, Entry> evicted = it.next();
+            cachedTriples -= evicted.getValue().graph().size();
+            release(evicted.getKey(), evicted.getValue());
+            it.remove();
+        }
+    }
+
+    private synchronized void markRead(Key key, Entry entry) {
+        if (release(key, entry)) {
+            prefetchHits++;
+        }
+    }
+
+    /** Releases the prefetch budget taken by the file, if it was prefetched and not read yet. */
+    private synchronized boolean release(Key key, Entry entry) {
+        if (!prefetched.remove(key)) {
+            return false;
+        }
+        prefetchedTriples -= entry.graph().size();
+        notifyAll();
+        return true;
+    }
+
+    /**
+     * Parses the file into a new graph, or returns <code>null</code> if it has more triples than
+     * the cache can hold. In that case the file has been parsed into <code>target</code>, or, for a
+     * prefetch without target, parsing has been stopped.
+     */
+    private Entry parse(File file, Graph target) throws IOException {
+        LimitedGraphStream stream = new LimitedGraphStream(getMaxTriples(), target);
+        PersistentParseCache persistentCache = getPersistentCache();
+        try {
+            if (persistentCache != null) {
+                Graph cached = persistentCache.parse(file, stream, stream::getGraph);
+                if (cached != null) {
+                    return fromPersistentCache(cached, target);
+                }
+            } else {
+                RdfLoader.read(file, RdfLoader.lang(file, Lang.TTL), stream);
+            }
+        } catch (TooLargeException e) {
+            return null;
+        }
+        Graph graph = stream.getGraph();
+        return graph == null ? null : new Entry(graph, stream.hasBlankNodes);
+    }
+
+    /** Makes an entry of a graph read from the persistent cache, if it fits into the cache. */
+    private Entry fromPersistentCache(Graph cached, Graph target) {
+        if (cached.size() > getMaxTriples()) {
+            if (target != null) {
+                cached.find().forEachRemaining(target::add);
+                target.getPrefixMapping().setNsPrefixes(cached.getPrefixMapping());
+            }
+            return null;
+        }
+        boolean hasBlankNodes =
+                cached.stream().anyMatch(t -> t.getSubject().isBlank() || t.getObject().isBlank());
+        return new Entry(cached, hasBlankNodes);
+    }
+
+    private static class TooLargeException extends RuntimeException {
+        TooLargeException() {
+            super("RDF file is too large for the cache", null, false, false);
+        }
+    }
+
+    /**
+     * Collects the parsed triples in a graph, until there are more than <code>limit</code>: then
+     * they are moved to the target, and the rest of the file is sent straight there. Without a
+     * target, parsing is stopped.
+     */
+    private static class LimitedGraphStream extends StreamRDFBase {
+        private final long limit;
+        private final Graph target;
+        private Graph graph = GraphFactory.createDefaultGraph();
+        private long count = 0;
+        private boolean hasBlankNodes = false;
+
+        LimitedGraphStream(long limit, Graph target) {
+            this.limit = limit;
+            this.target = target;
+        }
+
+        /** The parsed graph, or <code>null</code> if the file was too large. */
+        Graph getGraph() {
+            return graph;
+        }
+
+        @Override
+        public void triple(Triple triple) {
+            if (graph == null) {
+                target.add(triple);
+                return;
+            }
+            if (++count > limit) {
+                overflow();
+                target.add(triple);
+                return;
+            }
+            hasBlankNodes |= triple.getSubject().isBlank() || triple.getObject().isBlank();
+            graph.add(triple);
+        }
+
+        @Override
+        public void quad(Quad quad) {
+            // like reading the file into a graph: only the default graph
+            if (quad.isTriple() || quad.isDefaultGraph()) {
+                triple(quad.asTriple());
+            }
+        }
+
+        @Override
+        public void prefix(String prefix, String iri) {
+            (graph != null ? graph : target).getPrefixMapping().setNsPrefix(prefix, iri);
+        }
+
+        private void overflow() {
+            if (target == null) {
+                graph = null;
+                throw new TooLargeException();
+            }
+            // blank nodes of a parse are not shared with any other graph, so no relabelling
+            graph.find().forEachRemaining(target::add);
+            target.getPrefixMapping().setNsPrefixes(graph.getPrefixMapping());
+            graph = null;
+        }
+    }
+
+    private static void copyInto(Entry entry, Graph target) {
+        if (!entry.hasBlankNodes()) {
+            entry.graph().find().forEachRemaining(target::add);
+            return;
+        }
+        Map<Node, Node> blankNodes = new HashMap<>();
+        entry.graph()
+                .find()
+                .forEachRemaining(
+                        t ->
+                                target.add(
+                                        Triple.create(
+                                                relabel(t.getSubject(), blankNodes),
+                                                t.getPredicate(),
+                                                relabel(t.getObject(), blankNodes))));
+    }
+
+    private static Node relabel(Node node, Map<Node, Node> blankNodes) {
+        if (!node.isBlank()) {
+            return node;
+        }
+        return blankNodes.computeIfAbsent(node, n -> NodeFactory.createBlankNode());
+    }
+}
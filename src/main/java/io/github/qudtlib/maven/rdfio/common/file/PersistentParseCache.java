@@ -0,0 +1,230 @@
+package io.github.qudtlib.maven.rdfio.common.file;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.apache.jena.graph.Graph;
+import org.apache.jena.irix.IRIs;
+import org.apache.jena.riot.Lang;
+import org.apache.jena.riot.RDFDataMgr;
+import org.apache.jena.riot.RDFFormat;
+import org.apache.jena.riot.RDFParser;
+import org.apache.jena.riot.system.StreamRDF;
+import org.apache.jena.riot.system.StreamRDFLib;
+import org.apache.jena.sparql.graph.GraphFactory;
+
+/**
+ * On-disk cache of parsed RDF files. Each parsed file is stored as RDF Thrift (a binary encoding
+ * that is much faster to read than Turtle or RDF/XML), including its prefixes, under the SHA-256
+ * hash of its content. Identical files therefore share one entry, regardless of their path, and a
+ * changed file is simply parsed again. The content hash is taken from {@link FileFingerprints}, so
+ * unchanged files are not read for looking up their entry.
+ *
+ * <p>Entries are written atomically, so several builds can use the same directory. An entry that
+ * cannot be read is deleted and the file is parsed again. When the cache grows beyond its maximum
+ * size, the least recently used entries are removed. The size of the cache is only determined by
+ * listing the directory when the first entry is stored and when the entries stored since then may
+ * have exceeded the maximum size.
+ */
+public class PersistentParseCache {
+    /** Changing this invalidates all existing entries, e.g. if the way files are parsed changes. */
+    private static final String FORMAT_VERSION = "1";
+
+    private static final String SUFFIX = ".rt";
+
+    public static final long DEFAULT_MAX_SIZE_MB = 1024;
+
+    private final File directory;
+    private final long maxSizeBytes;
+
+    /** Size of the entries as of the last listing plus the entries stored since, or -1. */
+    private long knownSizeBytes = -1;
+
+    public PersistentParseCache(File directory) {
+        this(directory, DEFAULT_MAX_SIZE_MB * 1024 * 1024);
+    }
+
+    public PersistentParseCache(File directory, long maxSizeBytes) {
+        this.directory = directory;
+        this.maxSizeBytes = maxSizeBytes;
+    }
+
+    public File getDirectory() {
+        return directory;
+    }
+
+    public long getMaxSizeBytes() {
+        return maxSizeBytes;
+    }
+
+    /** Returns the parsed graph, from the cache if the file's content has been parsed before. */
+    public Graph parse(File file) throws IOException {
+        Graph graph = GraphFactory.createDefaultGraph();
+        Graph cached = parse(file, StreamRDFLib.graph(graph), () -> graph);
+        return cached != null ? cached : graph;
+    }
+
+    /**
+     * Returns the cached graph if the file's content has been parsed before. Otherwise, parses the
+     * file into <code>target</code>, stores the graph returned by <code>parsed</code> afterwards
+     * (unless it is <code>null</code>) and returns <code>null</code>.
+     */
+    public Graph parse(File file, StreamRDF target, Supplier<Graph> parsed) throws IOException {
+        Lang lang = RdfLoader.lang(file, Lang.TTL);
+        Path entry = entryPath(contentHash(file, lang));
+        if (Files.isRegularFile(entry)) {
+            Graph cached = GraphFactory.createDefaultGraph();
+            try (InputStream in =
+                    new BufferedInputStream(Files.newInputStream(entry), RdfLoader.BUFFER_SIZE)) {
+                RDFParser.source(in)
+                        .lang(Lang.RDFTHRIFT)
+                        .parse(NodeDictionary.getInstance().interning(StreamRDFLib.graph(cached)));
+                touch(entry);
+                return cached;
+            } catch (Exception e) {
+                // damaged or incompatible entry: parse again and replace it
+                Files.deleteIfExists(entry);
+            }
+        }
+        RdfLoader.read(file, lang, target);
+        Graph graph = parsed.get();
+        if (graph != null) {
+            try {
+                store(entry, graph);
+                stored(entry);
+            } catch (IOException e) {
+                // the cache only saves time, failing to write it must not fail the build
+            }
+        }
+        return null;
+    }
+
+    private Path entryPath(String hash) {
+        return directory.toPath().resolve(hash.substring(0, 2)).resolve(hash + SUFFIX);
+    }
+
+    private static String contentHash(File file, Lang lang) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+        String fingerprint;
+        try {
+            fingerprint = FileFingerprints.getInstance().fingerprint(file);
+        } catch (FileAccessException e) {
+            throw new IOException(e.getMessage(), e.getCause());
+        }
+        digest.update(FORMAT_VERSION.getBytes(StandardCharsets.UTF_8));
+        digest.update(lang.getName().getBytes(StandardCharsets.UTF_8));
+        // relative IRIs are resolved against the system base
+        digest.update(IRIs.getBaseStr().getBytes(StandardCharsets.UTF_8));
+        digest.update(fingerprint.getBytes(StandardCharsets.UTF_8));
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    private static void store(Path entry, Graph graph) throws IOException {
+        Files.createDirectories(entry.getParent());
+        Path tmp = Files.createTempFile(entry.getParent(), entry.getFileName().toString(), ".tmp");
+        try {
+            try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(tmp))) {
+                RDFDataMgr.write(out, graph, RDFFormat.RDF_THRIFT);
+            }
+            try {
+                Files.move(tmp, entry, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tmp, entry, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    /**
+     * Adds the size of the new <code>entry</code> to the known size of the cache and evicts entries
+     * if that exceeds the maximum size. Entries stored by other builds are only noticed then.
+     */
+    private synchronized void stored(Path entry) throws IOException {
+        if (knownSizeBytes >= 0) {
+            knownSizeBytes += size(entry);
+            if (knownSizeBytes <= maxSizeBytes) {
+                return;
+            }
+        }
+        knownSizeBytes = evict(entry);
+    }
+
+    /**
+     * Removes the least recently used entries, except <code>keep</code>, until the cache is no
+     * larger than its maximum size, and returns the size of the remaining entries.
+     */
+    private long evict(Path keep) throws IOException {
+        List<Path> entries;
+        try (Stream<Path> files = Files.walk(directory.toPath())) {
+            entries =
+                    files.filter(file -> file.toString().endsWith(SUFFIX))
+                            .filter(Files::isRegularFile)
+                            .collect(Collectors.toCollection(ArrayList::new));
+        }
+        long totalSize = entries.stream().mapToLong(PersistentParseCache::size).sum();
+        if (totalSize <= maxSizeBytes) {
+            return totalSize;
+        }
+        entries.sort(Comparator.comparing(PersistentParseCache::lastModified));
+        for (Path entry : entries) {
+            if (totalSize <= maxSizeBytes) {
+                break;
+            }
+            if (entry.equals(keep)) {
+                continue;
+            }
+            long size = size(entry);
+            Files.deleteIfExists(entry);
+            totalSize -= size;
+        }
+        return totalSize;
+    }
+
+    private static void touch(Path file) {
+        try {
+            Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+        } catch (IOException e) {
+            // only affects the order of eviction
+        }
+    }
+
+    private static long size(Path file) {
+        try {
+            return Files.size(file);
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    private static FileTime lastModified(Path file) {
+        try {
+            return Files.getLastModifiedTime(file);
+        } catch (IOException e) {
+            return FileTime.fromMillis(0);
+        }
+    }
+}
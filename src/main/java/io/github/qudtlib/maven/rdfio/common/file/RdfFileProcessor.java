@@ -2,17 +2,13 @@ package io.github.qudtlib.maven.rdfio.common.file;
 
 import io.github.qudtlib.maven.rdfio.pipeline.support.PipelineConfigurationExeception;
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
-import java.nio.file.Files;
 import java.security.MessageDigest;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import org.apache.jena.rdf.model.Model;
-import org.apache.jena.riot.Lang;
-import org.apache.jena.riot.RDFDataMgr;
 import org.apache.maven.plugin.MojoExecutionException;
 
 public class RdfFileProcessor {
@@ -36,28 +32,50 @@ public class RdfFileProcessor {
 
     public static void loadRdfFiles(List<File> files, Model model) throws MojoExecutionException {
         for (File file : files) {
-            try (FileInputStream fis = new FileInputStream(file)) {
-                RDFDataMgr.read(
-                        model, fis, RDFDataMgr.determineLang(file.getName(), null, Lang.TTL));
+            try {
+                RdfLoader.read(file, model.getGraph());
             } catch (IOException e) {
                 throw new MojoExecutionException("Failed to load RDF file: " + file, e);
             }
         }
     }
 
-    public static void updateHashWithFiles(List<File> files, MessageDigest digest) {
-        for (File file : files) {
-            if (file.exists()) {
-                digest.update(file.getPath().getBytes(StandardCharsets.UTF_8));
-                try {
-                    digest.update(Files.readAllBytes(file.toPath()));
-                } catch (IOException e) {
-                    throw new PipelineConfigurationExeception(
-                            "Error updating hash with content of file %s"
-                                    .formatted(file.getAbsolutePath()),
-                            e);
+    public static void updateHashWithFiles(
+            List<File> files, File baseDir, FileFingerprints fingerprints, MessageDigest digest) {
+        updateHashWithFiles(files, baseDir, fingerprints, digest, false);
+    }
+
+    /**
+     * Adds the paths and content fingerprints of the existing files to the digest. The paths are
+     * taken relative to <code>baseDir</code>, so the hash is the same wherever the project is
+     * checked out. The files are only read if they changed since they were last fingerprinted in
+     * <code>fingerprints</code>. If <code>semantic</code> is true, RDF files are fingerprinted by
+     * their data instead of their bytes.
+     */
+    public static void updateHashWithFiles(
+            List<File> files,
+            File baseDir,
+            FileFingerprints fingerprints,
+            MessageDigest digest,
+            boolean semantic) {
+        try {
+            fingerprints.fingerprintAll(files, semantic);
+            File canonicalBaseDir = baseDir.getCanonicalFile();
+            for (File file : files) {
+                if (file.exists()) {
+                    digest.update(
+                            FileHelper.relativizeAsUnixStyle(
+                                            canonicalBaseDir, file.getCanonicalFile())
+                                    .getBytes(StandardCharsets.UTF_8));
+                    digest.update(
+                            fingerprints
+                                    .fingerprint(file, semantic)
+                                    .getBytes(StandardCharsets.UTF_8));
                 }
             }
+        } catch (FileAccessException | IOException e) {
+            throw new PipelineConfigurationExeception(
+                    "Error updating hash with content of files: " + e.getMessage(), e);
         }
     }
 }
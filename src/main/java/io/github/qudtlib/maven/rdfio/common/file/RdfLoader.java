@@ -0,0 +1,171 @@
+package io.github.qudtlib.maven.rdfio.common.file;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.concurrent.atomic.AtomicLong;
+import org.apache.jena.graph.Graph;
+import org.apache.jena.graph.Triple;
+import org.apache.jena.riot.Lang;
+import org.apache.jena.riot.RDFLanguages;
+import org.apache.jena.riot.RDFParser;
+import org.apache.jena.riot.system.StreamRDF;
+import org.apache.jena.riot.system.StreamRDFLib;
+import org.apache.jena.riot.system.StreamRDFWrapper;
+import org.apache.jena.sparql.core.DatasetGraph;
+import org.apache.jena.sparql.core.Quad;
+
+/**
+ * Streams RDF files into graphs and datasets. The files are read through NIO channels with a large
+ * buffer and parsed straight into the target, so no copy of the file's content is held in memory.
+ * Compressed files are decompressed while they are read. IRIs and literals are interned in the
+ * {@link NodeDictionary}.
+ *
+ * <p>The number of bytes and triples (or quads) read by all loads of the JVM are counted, so memory
+ * and I/O behaviour on large inputs can be observed (see {@link #getBytesRead()}, {@link
+ * #getTriplesRead()}).
+ */
+public class RdfLoader {
+    static final int BUFFER_SIZE = 1 << 17;
+
+    private static final AtomicLong bytesRead = new AtomicLong();
+    private static final AtomicLong triplesRead = new AtomicLong();
+
+    /** Reads the triples of the file into the graph. The language defaults to Turtle. */
+    public static void read(File file, Graph graph) throws IOException {
+        read(file, lang(file, Lang.TTL), StreamRDFLib.graph(graph));
+    }
+
+    /** Reads the quads of the file into the dataset. The language defaults to TriG. */
+    public static void read(File file, DatasetGraph dataset) throws IOException {
+        read(file, lang(file, Lang.TRIG), StreamRDFLib.dataset(dataset));
+    }
+
+    /**
+     * Parses the file in the given language, sending its content to <code>target</code>. Large
+     * N-Triples and N-Quads files are memory-mapped and parsed by several threads (see {@link
+     * ParallelLineRdfLoader}).
+     */
+    public static void read(File file, Lang lang, StreamRDF target) throws IOException {
+        int threads = ConcurrentRdfReader.defaultThreads();
+        if (ParallelLineRdfLoader.isApplicable(file, lang, threads)) {
+            CountingStreamRDF counting =
+                    new CountingStreamRDF(NodeDictionary.getInstance().interning(target));
+            try {
+                ParallelLineRdfLoader.read(file, lang, counting, threads);
+            } finally {
+                bytesRead.addAndGet(file.length());
+                triplesRead.addAndGet(counting.count);
+            }
+            return;
+        }
+        try (InputStream in = open(file)) {
+            parse(in, lang, target);
+        }
+    }
+
+    /**
+     * Parses the stream in the given language, sending its content to <code>target</code>. The
+     * stream is not closed.
+     */
+    public static void parse(InputStream in, Lang lang, StreamRDF target) {
+        CountingStreamRDF counting =
+                new CountingStreamRDF(NodeDictionary.getInstance().interning(target));
+        try {
+            RDFParser.source(in).lang(lang).parse(counting);
+        } finally {
+            triplesRead.addAndGet(counting.count);
+        }
+    }
+
+    /**
+     * Opens the file for reading through a buffered NIO channel that counts the bytes read. Gzip
+     * and bzip2 compressed files are decompressed according to their name (see {@link
+     * Compression}).
+     */
+    public static InputStream open(File file) throws IOException {
+        InputStream in =
+                new BufferedInputStream(
+                        new CountingInputStream(Files.newInputStream(file.toPath())), BUFFER_SIZE);
+        return Compression.of(file).decompress(in);
+    }
+
+    /** The language of the file according to its name, or <code>defaultLang</code>. */
+    public static Lang lang(File file, Lang defaultLang) {
+        return lang(file.getName(), defaultLang);
+    }
+
+    /**
+     * The language of the file according to its name without compression suffix, or <code>
+     * defaultLang</code>.
+     */
+    public static Lang lang(String fileName, Lang defaultLang) {
+        return RDFLanguages.resourceNameToLang(
+                Compression.of(fileName).stripSuffix(fileName), defaultLang);
+    }
+
+    /** Number of bytes read from RDF files by this JVM. */
+    public static long getBytesRead() {
+        return bytesRead.get();
+    }
+
+    /** Number of triples and quads parsed from RDF files by this JVM. */
+    public static long getTriplesRead() {
+        return triplesRead.get();
+    }
+
+    private static class CountingInputStream extends FilterInputStream {
+        CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                bytesRead.incrementAndGet();
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n > 0) {
+                bytesRead.addAndGet(n);
+            }
+            return n;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(n);
+            bytesRead.addAndGet(skipped);
+            return skipped;
+        }
+    }
+
+    /** Counts locally and adds to the JVM-wide counter once, when parsing is done. */
+    private static class CountingStreamRDF extends StreamRDFWrapper {
+        private long count;
+
+        CountingStreamRDF(StreamRDF target) {
+            super(target);
+        }
+
+        @Override
+        public void triple(Triple triple) {
+            count++;
+            super.triple(triple);
+        }
+
+        @Override
+        public void quad(Quad quad) {
+            count++;
+            super.quad(quad);
+        }
+    }
+}
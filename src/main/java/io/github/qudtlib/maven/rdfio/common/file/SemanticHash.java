@@ -0,0 +1,167 @@
+package io.github.qudtlib.maven.rdfio.common.file;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Supplier;
+import org.apache.jena.graph.Graph;
+import org.apache.jena.graph.Node;
+import org.apache.jena.riot.out.NodeFmtLib;
+import org.apache.jena.sparql.core.DatasetGraph;
+import org.apache.jena.sparql.core.DatasetGraphFactory;
+import org.apache.jena.sparql.core.Quad;
+
+/**
+ * Order-independent hash of the quads of a dataset, which does not depend on the serialization the
+ * data was read from: formatting, statement order, prefixes and blank node labels do not change it.
+ *
+ * <p>Each quad is hashed separately and the hashes are added up. Blank nodes are replaced by a hash
+ * of their surroundings, which is refined in rounds (the neighbours' hashes of the previous round
+ * are included) until it no longer distinguishes more blank nodes. Blank nodes that cannot be told
+ * apart this way, e.g. in highly symmetric structures, may produce the same hash for graphs that
+ * are not isomorphic.
+ */
+public class SemanticHash {
+    private static final int MAX_ROUNDS = 32;
+
+    private final MessageDigest digest;
+
+    private SemanticHash() {
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    public static String of(DatasetGraph dataset) {
+        return new SemanticHash().hash(dataset::find);
+    }
+
+    public static String of(Graph graph) {
+        return of(DatasetGraphFactory.wrap(graph));
+    }
+
+    /**
+     * Hashes the quads, which are streamed rather than collected: once if there are no blank nodes,
+     * otherwise once more for each round of refining the blank node hashes.
+     */
+    private String hash(Supplier<Iterator<Quad>> quads) {
+        Map<Node, Hash> blankNodes = new HashMap<>();
+        Hash total = Hash.ZERO;
+        long count = 0;
+        for (Iterator<Quad> it = quads.get(); it.hasNext(); ) {
+            Quad quad = it.next();
+            if (quad.getSubject().isBlank()) {
+                blankNodes.put(quad.getSubject(), Hash.ZERO);
+            }
+            if (quad.getObject().isBlank()) {
+                blankNodes.put(quad.getObject(), Hash.ZERO);
+            }
+            total = total.plus(hash(quad, blankNodes));
+            count++;
+        }
+        if (blankNodes.isEmpty()) {
+            return total + "-" + count;
+        }
+        int distinct = 1;
+        for (int round = 0; round < MAX_ROUNDS; round++) {
+            Map<Node, Hash> neighbourhoods = new HashMap<>();
+            for (Iterator<Quad> it = quads.get(); it.hasNext(); ) {
+                Quad quad = it.next();
+                if (quad.getSubject().isBlank()) {
+                    neighbourhoods.merge(
+                            quad.getSubject(),
+                            hash(
+                                    "out",
+                                    term(quad.getGraph(), blankNodes),
+                                    term(quad.getPredicate(), blankNodes),
+                                    term(quad.getObject(), blankNodes)),
+                            Hash::plus);
+                }
+                if (quad.getObject().isBlank()) {
+                    neighbourhoods.merge(
+                            quad.getObject(),
+                            hash(
+                                    "in",
+                                    term(quad.getGraph(), blankNodes),
+                                    term(quad.getPredicate(), blankNodes),
+                                    term(quad.getSubject(), blankNodes)),
+                            Hash::plus);
+                }
+            }
+            Map<Node, Hash> refined = new HashMap<>();
+            Set<Hash> distinctHashes = new HashSet<>();
+            for (Map.Entry<Node, Hash> entry : blankNodes.entrySet()) {
+                Hash hash =
+                        hash(
+                                entry.getValue().toString(),
+                                neighbourhoods.get(entry.getKey()).toString());
+                refined.put(entry.getKey(), hash);
+                distinctHashes.add(hash);
+            }
+            blankNodes = refined;
+            if (distinctHashes.size() <= distinct && round > 0) {
+                break;
+            }
+            distinct = distinctHashes.size();
+        }
+        total = Hash.ZERO;
+        for (Iterator<Quad> it = quads.get(); it.hasNext(); ) {
+            total = total.plus(hash(it.next(), blankNodes));
+        }
+        return total + "-" + count;
+    }
+
+    private Hash hash(Quad quad, Map<Node, Hash> blankNodes) {
+        return hash(
+                term(quad.getGraph(), blankNodes),
+                term(quad.getSubject(), blankNodes),
+                term(quad.getPredicate(), blankNodes),
+                term(quad.getObject(), blankNodes));
+    }
+
+    private static String term(Node node, Map<Node, Hash> blankNodes) {
+        if (node == null || Quad.isDefaultGraph(node)) {
+            return "";
+        }
+        if (node.isBlank()) {
+            Hash hash = blankNodes.get(node);
+            return "_:" + (hash == null ? "" : hash.toString());
+        }
+        return NodeFmtLib.strNT(node);
+    }
+
+    private Hash hash(String... parts) {
+        digest.reset();
+        for (String part : parts) {
+            digest.update(part.getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+        }
+        ByteBuffer bytes = ByteBuffer.wrap(digest.digest());
+        return new Hash(bytes.getLong(), bytes.getLong());
+    }
+
+    /** 128 bits of a SHA-256 hash, which can be added up in any order. */
+    private record Hash(long high, long low) {
+        static final Hash ZERO = new Hash(0, 0);
+
+        Hash plus(Hash other) {
+            long sumLow = low + other.low;
+            long carry = Long.compareUnsigned(sumLow, low) < 0 ? 1 : 0;
+            return new Hash(high + other.high + carry, sumLow);
+        }
+
+        @Override
+        public String toString() {
+            return HexFormat.of().toHexDigits(high) + HexFormat.of().toHexDigits(low);
+        }
+    }
+}
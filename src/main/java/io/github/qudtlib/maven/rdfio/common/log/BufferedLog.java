@@ -0,0 +1,117 @@
+package io.github.qudtlib.maven.rdfio.common.log;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Consumer;
+import org.apache.maven.plugin.logging.Log;
+
+/**
+ * Log that collects all messages and writes them to a target log when {@link #flush()} is called.
+ * Used for steps that run concurrently, so their output can be written in pipeline order.
+ */
+public class BufferedLog implements Log {
+    private final Log target;
+    private final List<Consumer<Log>> entries = new ArrayList<>();
+
+    public BufferedLog(Log target) {
+        Objects.requireNonNull(target);
+        this.target = target;
+    }
+
+    /** Writes all messages collected so far to the target log. */
+    public void flush() {
+        List<Consumer<Log>> toWrite;
+        synchronized (entries) {
+            toWrite = new ArrayList<>(entries);
+            entries.clear();
+        }
+        toWrite.forEach(entry -> entry.accept(target));
+    }
+
+    private void add(Consumer<Log> entry) {
+        synchronized (entries) {
+            entries.add(entry);
+        }
+    }
+
+    @Override
+    public boolean isDebugEnabled() {
+        return target.isDebugEnabled();
+    }
+
+    @Override
+    public void debug(CharSequence content) {
+        add(log -> log.debug(content));
+    }
+
+    @Override
+    public void debug(CharSequence content, Throwable error) {
+        add(log -> log.debug(content, error));
+    }
+
+    @Override
+    public void debug(Throwable error) {
+        add(log -> log.debug(error));
+    }
+
+    @Override
+    public boolean isInfoEnabled() {
+        return target.isInfoEnabled();
+    }
+
+    @Override
+    public void info(CharSequence content) {
+        add(log -> log.info(content));
+    }
+
+    @Override
+    public void info(CharSequence content, Throwable error) {
+        add(log -> log.info(content, error));
+    }
+
+    @Override
+    public void info(Throwable error) {
+        add(log -> log.info(error));
+    }
+
+    @Override
+    public boolean isWarnEnabled() {
+        return target.isWarnEnabled();
+    }
+
+    @Override
+    public void warn(CharSequence content) {
+        add(log -> log.warn(content));
+    }
+
+    @Override
+    public void warn(CharSequence content, Throwable error) {
+        add(log -> log.warn(content, error));
+    }
+
+    @Override
+    public void warn(Throwable error) {
+        add(log -> log.warn(error));
+    }
+
+    @Override
+    public boolean isErrorEnabled() {
+        return target.isErrorEnabled();
+    }
+
+    @Override
+    public void error(CharSequence content) {
+        add(log -> log.error(content));
+    }
+
+    @Override
+    public void error(CharSequence content, Throwable error) {
+        add(log -> log.error(content, error));
+    }
+
+    @Override
+    public void error(Throwable error) {
+        add(log -> log.error(error));
+    }
+}
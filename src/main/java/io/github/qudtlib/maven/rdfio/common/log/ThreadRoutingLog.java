@@ -0,0 +1,118 @@
+package io.github.qudtlib.maven.rdfio.common.log;
+
+import java.util.Objects;
+import org.apache.maven.plugin.logging.Log;
+
+/**
+ * Log that writes to the log bound to the current thread, or to its default target if none is
+ * bound. Used where a log is shared by objects that are used by several threads at once, so each
+ * thread's output can be collected separately, e.g. in a {@link BufferedLog}.
+ */
+public class ThreadRoutingLog implements Log {
+    private final Log defaultTarget;
+    private final ThreadLocal<Log> boundTarget = new ThreadLocal<>();
+
+    public ThreadRoutingLog(Log defaultTarget) {
+        Objects.requireNonNull(defaultTarget);
+        this.defaultTarget = defaultTarget;
+    }
+
+    public Log getDefaultTarget() {
+        return defaultTarget;
+    }
+
+    /** Routes the output of the current thread to <code>target</code> until {@link #unbind()}. */
+    public void bind(Log target) {
+        boundTarget.set(target);
+    }
+
+    /** Routes the output of the current thread to the default target again. */
+    public void unbind() {
+        boundTarget.remove();
+    }
+
+    private Log target() {
+        Log target = boundTarget.get();
+        return target != null ? target : defaultTarget;
+    }
+
+    @Override
+    public boolean isDebugEnabled() {
+        return target().isDebugEnabled();
+    }
+
+    @Override
+    public void debug(CharSequence content) {
+        target().debug(content);
+    }
+
+    @Override
+    public void debug(CharSequence content, Throwable error) {
+        target().debug(content, error);
+    }
+
+    @Override
+    public void debug(Throwable error) {
+        target().debug(error);
+    }
+
+    @Override
+    public boolean isInfoEnabled() {
+        return target().isInfoEnabled();
+    }
+
+    @Override
+    public void info(CharSequence content) {
+        target().info(content);
+    }
+
+    @Override
+    public void info(CharSequence content, Throwable error) {
+        target().info(content, error);
+    }
+
+    @Override
+    public void info(Throwable error) {
+        target().info(error);
+    }
+
+    @Override
+    public boolean isWarnEnabled() {
+        return target().isWarnEnabled();
+    }
+
+    @Override
+    public void warn(CharSequence content) {
+        target().warn(content);
+    }
+
+    @Override
+    public void warn(CharSequence content, Throwable error) {
+        target().warn(content, error);
+    }
+
+    @Override
+    public void warn(Throwable error) {
+        target().warn(error);
+    }
+
+    @Override
+    public boolean isErrorEnabled() {
+        return target().isErrorEnabled();
+    }
+
+    @Override
+    public void error(CharSequence content) {
+        target().error(content);
+    }
+
+    @Override
+    public void error(CharSequence content, Throwable error) {
+        target().error(content, error);
+    }
+
+    @Override
+    public void error(Throwable error) {
+        target().error(error);
+    }
+}
@@ -3,6 +3,7 @@ package io.github.qudtlib.maven.rdfio.common.sparql;
 import static io.github.qudtlib.maven.rdfio.filter.GraphsHelper.getAllModels;
 
 import io.github.qudtlib.maven.rdfio.common.RDFIO;
+import io.github.qudtlib.maven.rdfio.common.datasetchange.ChangeTrackingDataset;
 import io.github.qudtlib.maven.rdfio.common.sparql.function.DecimalDiv;
 import io.github.qudtlib.maven.rdfio.common.sparql.function.DecimalPow;
 import io.github.qudtlib.maven.rdfio.common.sparql.function.DecimalPrecision;
@@ -37,6 +38,11 @@ public class SparqlHelper {
         return prefixes.trim().isBlank() ? update : prefixes + "\n" + update;
     }
 
+    /**
+     * Adds the prefixes of all graphs of the dataset. Each graph's prefixes are copied at once; the
+     * graphs of a {@link ChangeTrackingDataset} synchronize this with steps executed concurrently
+     * that change them.
+     */
     public static String addPrefixes(String sparql, Dataset dataset) {
         String prefixes =
                 getAllModels(dataset).stream()
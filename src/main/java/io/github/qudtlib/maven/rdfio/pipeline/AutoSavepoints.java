@@ -0,0 +1,338 @@
+package io.github.qudtlib.maven.rdfio.pipeline;
+
+import io.github.qudtlib.maven.rdfio.common.file.FileAccessException;
+import io.github.qudtlib.maven.rdfio.pipeline.step.SavepointStep;
+import io.github.qudtlib.maven.rdfio.pipeline.step.Step;
+import io.github.qudtlib.maven.rdfio.pipeline.step.support.SavepointCosts;
+import io.github.qudtlib.maven.rdfio.pipeline.step.support.SavepointCosts.Measurement;
+import io.github.qudtlib.maven.rdfio.pipeline.step.support.StepMeasurement;
+import io.github.qudtlib.maven.rdfio.pipeline.support.ConfigurationParseException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.codehaus.plexus.util.xml.Xpp3Dom;
+
+/**
+ * Places savepoints automatically after the steps whose results are expensive to compute compared
+ * to saving and loading the dataset.
+ *
+ * <p>The duration of each step and the size of the dataset after it are recorded in every run. In
+ * the next run, the durations of the steps since the last savepoint are added up, and a savepoint
+ * is placed after a step if this sum exceeds the estimated cost of the savepoint, which grows with
+ * the size of the dataset, by more than <code>costRatio</code>. If that happens more than <code>
+ * maxSavepoints</code> times, the savepoints saving the most time are kept.
+ *
+ * <p>The cost of a savepoint is estimated from how long writing and loading savepoints took per
+ * triple in previous runs (see {@link SavepointCosts}), which is recorded along with the steps'
+ * measurements. Until a savepoint has been loaded, loading is assumed to take as long as writing,
+ * and until one has been written, fixed estimates are used.
+ *
+ * <p>Automatic savepoints do not change the hashes of the steps after them (see {@link
+ * SavepointStep#isAutomatic()}), so moving them does not invalidate the pipeline's other
+ * savepoints.
+ */
+public class AutoSavepoints {
+    public static final double DEFAULT_COST_RATIO = 5.0;
+    public static final int DEFAULT_MAX_SAVEPOINTS = 3;
+
+    /** Cost of saving and later loading a savepoint of an empty dataset, until one is measured. */
+    static final double SAVEPOINT_BASE_COST_MILLIS = 100;
+
+    /** Cost of saving and later loading one triple of a savepoint, until one is measured. */
+    static final double SAVEPOINT_COST_MILLIS_PER_TRIPLE = 0.002;
+
+    private static final String STATISTICS_FILE = "step-statistics.txt";
+
+    /** Labels of the lines of the statistics file recording the cost of savepoints. */
+    static final String SAVEPOINT_WRITES = "savepoint-writes";
+
+    static final String SAVEPOINT_LOADS = "savepoint-loads";
+
+    private double costRatio = DEFAULT_COST_RATIO;
+    private int maxSavepoints = DEFAULT_MAX_SAVEPOINTS;
+
+    /** A step's measurement in previous runs, identified by its index in the pipeline. */
+    record RecordedMeasurement(String elementName, StepMeasurement measurement) {}
+
+    private record Candidate(int stepIndex, double savedMillis) {}
+
+    public double getCostRatio() {
+        return costRatio;
+    }
+
+    public void setCostRatio(double costRatio) {
+        this.costRatio = costRatio;
+    }
+
+    public int getMaxSavepoints() {
+        return maxSavepoints;
+    }
+
+    public void setMaxSavepoints(int maxSavepoints) {
+        this.maxSavepoints = maxSavepoints;
+    }
+
+    /**
+     * Returns the steps of the pipeline with automatic savepoints inserted where the measurements
+     * of previous runs suggest them.
+     */
+    public List<Step> placeSavepoints(List<Step> steps, PipelineState state) {
+        List<RecordedMeasurement> measurements = readStatistics(state);
+        Map<String, Measurement> savepointCosts = readSavepointCosts(state);
+        List<Candidate> candidates = new ArrayList<>();
+        double accumulatedMillis = 0;
+        for (int i = 0; i < steps.size(); i++) {
+            Step step = steps.get(i);
+            if (step instanceof SavepointStep) {
+                accumulatedMillis = 0;
+                continue;
+            }
+            StepMeasurement measurement = findMeasurement(measurements, i, step);
+            if (measurement == null) {
+                continue;
+            }
+            accumulatedMillis += measurement.durationMillis();
+            boolean nextIsSavepoint =
+                    i + 1 < steps.size() && steps.get(i + 1) instanceof SavepointStep;
+            double savepointCost = savepointCost(measurement.datasetSize(), savepointCosts);
+            if (!nextIsSavepoint && accumulatedMillis > costRatio * savepointCost) {
+                candidates.add(new Candidate(i, accumulatedMillis - savepointCost));
+                accumulatedMillis = 0;
+            }
+        }
+        Set<Integer> placedAfter = new HashSet<>();
+        candidates.stream()
+                .sorted(Comparator.comparingDouble(Candidate::savedMillis).reversed())
+                .limit(maxSavepoints)
+                .forEach(candidate -> placedAfter.add(candidate.stepIndex()));
+        List<Step> result = new ArrayList<>();
+        for (int i = 0; i < steps.size(); i++) {
+            result.add(steps.get(i));
+            if (placedAfter.contains(i)) {
+                SavepointStep savepoint = new SavepointStep();
+                savepoint.setId("auto%03d".formatted(i + 1));
+                savepoint.setAutomatic(true);
+                result.add(savepoint);
+                state.log()
+                        .info(
+                                "Placing automatic <savepoint> '%s' after step %d/%d (<%s>)"
+                                        .formatted(
+                                                savepoint.getId(),
+                                                i + 1,
+                                                steps.size(),
+                                                steps.get(i).getElementName()));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Estimates the cost of saving and later loading a savepoint of a dataset with <code>
+     * datasetSize</code> triples.
+     */
+    static double savepointCost(long datasetSize, Map<String, Measurement> savepointCosts) {
+        Measurement writes = savepointCosts.get(SAVEPOINT_WRITES);
+        if (writes == null) {
+            return SAVEPOINT_BASE_COST_MILLIS + datasetSize * SAVEPOINT_COST_MILLIS_PER_TRIPLE;
+        }
+        Measurement loads = savepointCosts.getOrDefault(SAVEPOINT_LOADS, writes);
+        return datasetSize * (writes.millisPerTriple() + loads.millisPerTriple());
+    }
+
+    /**
+     * Records the measurements of the steps executed in this run. Steps that were not executed,
+     * e.g. because the pipeline was resumed at a savepoint, keep their previous measurements.
+     * Durations are averaged with the previous run's, so a single slow or fast run does not move
+     * the savepoints. The same applies to the savepoints written and loaded in this run.
+     */
+    public void recordStatistics(List<Step> steps, PipelineState state) {
+        List<RecordedMeasurement> previous = readStatistics(state);
+        StringBuilder content = new StringBuilder();
+        for (int i = 0; i < steps.size(); i++) {
+            Step step = steps.get(i);
+            StepMeasurement previousMeasurement = findMeasurement(previous, i, step);
+            StepMeasurement measurement = state.getStepMeasurement(step);
+            if (measurement != null && previousMeasurement != null) {
+                measurement =
+                        new StepMeasurement(
+                                (measurement.durationMillis()
+                                                + previousMeasurement.durationMillis())
+                                        / 2,
+                                measurement.datasetSize());
+            } else if (measurement == null) {
+                measurement = previousMeasurement;
+            }
+            if (measurement != null) {
+                content.append(
+                        "%d\t%s\t%d\t%d\n"
+                                .formatted(
+                                        i,
+                                        step.getElementName(),
+                                        measurement.durationMillis(),
+                                        measurement.datasetSize()));
+            }
+        }
+        Map<String, Measurement> previousCosts = readSavepointCosts(state);
+        SavepointCosts costs = state.getSavepointCache().getCosts();
+        appendSavepointCost(
+                content, SAVEPOINT_WRITES, costs.getWrites(), previousCosts.get(SAVEPOINT_WRITES));
+        appendSavepointCost(
+                content, SAVEPOINT_LOADS, costs.getLoads(), previousCosts.get(SAVEPOINT_LOADS));
+        File file = statisticsFile(state);
+        try {
+            Files.createDirectories(file.getAbsoluteFile().getParentFile().toPath());
+            Files.writeString(file.toPath(), content, StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new FileAccessException("Cannot write " + file.getAbsolutePath(), e);
+        }
+    }
+
+    private static void appendSavepointCost(
+            StringBuilder content, String label, Measurement measurement, Measurement previous) {
+        if (measurement != null && previous != null) {
+            measurement =
+                    new Measurement(
+                            (measurement.durationMillis() + previous.durationMillis()) / 2,
+                            (measurement.triples() + previous.triples()) / 2);
+        } else if (measurement == null) {
+            measurement = previous;
+        }
+        if (measurement != null) {
+            content.append(
+                    "%s\t%d\t%d\n"
+                            .formatted(label, measurement.durationMillis(), measurement.triples()));
+        }
+    }
+
+    private static StepMeasurement findMeasurement(
+            List<RecordedMeasurement> measurements, int index, Step step) {
+        if (index >= measurements.size() || measurements.get(index) == null) {
+            return null;
+        }
+        RecordedMeasurement recorded = measurements.get(index);
+        // the pipeline has been changed since the measurement
+        if (!recorded.elementName().equals(step.getElementName())) {
+            return null;
+        }
+        return recorded.measurement();
+    }
+
+    static List<RecordedMeasurement> readStatistics(PipelineState state) {
+        File file = statisticsFile(state);
+        List<RecordedMeasurement> measurements = new ArrayList<>();
+        if (!file.isFile()) {
+            return measurements;
+        }
+        try {
+            for (String line : Files.readAllLines(file.toPath(), StandardCharsets.UTF_8)) {
+                String[] parts = line.split("\t");
+                if (parts.length != 4) {
+                    continue;
+                }
+                int index = Integer.parseInt(parts[0]);
+                while (measurements.size() <= index) {
+                    measurements.add(null);
+                }
+                measurements.set(
+                        index,
+                        new RecordedMeasurement(
+                                parts[1],
+                                new StepMeasurement(
+                                        Long.parseLong(parts[2]), Long.parseLong(parts[3]))));
+            }
+        } catch (IOException | NumberFormatException e) {
+            // the statistics only affect the placement of savepoints
+            return new ArrayList<>();
+        }
+        return measurements;
+    }
+
+    /** Reads the recorded cost of savepoints, by the labels of their lines. */
+    static Map<String, Measurement> readSavepointCosts(PipelineState state) {
+        File file = statisticsFile(state);
+        Map<String, Measurement> costs = new HashMap<>();
+        if (!file.isFile()) {
+            return costs;
+        }
+        try {
+            for (String line : Files.readAllLines(file.toPath(), StandardCharsets.UTF_8)) {
+                String[] parts = line.split("\t");
+                if (parts.length != 3
+                        || !(parts[0].equals(SAVEPOINT_WRITES)
+                                || parts[0].equals(SAVEPOINT_LOADS))) {
+                    continue;
+                }
+                Measurement measurement =
+                        new Measurement(Long.parseLong(parts[1]), Long.parseLong(parts[2]));
+                if (measurement.triples() > 0) {
+                    costs.put(parts[0], measurement);
+                }
+            }
+        } catch (IOException | NumberFormatException e) {
+            // the statistics only affect the placement of savepoints
+            return new HashMap<>();
+        }
+        return costs;
+    }
+
+    private static File statisticsFile(PipelineState state) {
+        return state.getPipelineWorkDir().subFile(STATISTICS_FILE).resolve();
+    }
+
+    public static AutoSavepoints parse(Xpp3Dom config) throws ConfigurationParseException {
+        AutoSavepoints autoSavepoints = new AutoSavepoints();
+        Xpp3Dom costRatioDom = config.getChild("costRatio");
+        if (costRatioDom != null && costRatioDom.getValue() != null) {
+            try {
+                autoSavepoints.setCostRatio(Double.parseDouble(costRatioDom.getValue().trim()));
+            } catch (NumberFormatException e) {
+                autoSavepoints.setCostRatio(-1);
+            }
+            if (!(autoSavepoints.getCostRatio() > 0)) {
+                throw new ConfigurationParseException(
+                        config,
+                        "Invalid value for <costRatio>: '%s'.\n%s"
+                                .formatted(costRatioDom.getValue(), usage()));
+            }
+        }
+        Xpp3Dom maxSavepointsDom = config.getChild("maxSavepoints");
+        if (maxSavepointsDom != null && maxSavepointsDom.getValue() != null) {
+            try {
+                autoSavepoints.setMaxSavepoints(
+                        Integer.parseInt(maxSavepointsDom.getValue().trim()));
+            } catch (NumberFormatException e) {
+                autoSavepoints.setMaxSavepoints(-1);
+            }
+            if (autoSavepoints.getMaxSavepoints() < 0) {
+                throw new ConfigurationParseException(
+                        config,
+                        "Invalid value for <maxSavepoints>: '%s'.\n%s"
+                                .formatted(maxSavepointsDom.getValue(), usage()));
+            }
+        }
+        return autoSavepoints;
+    }
+
+    public static String usage() {
+        return """
+                Usage: Provide an <autoSavepoints> element in the <pipeline> with optional
+                       <costRatio> and <maxSavepoints>.
+                    - <costRatio>: a savepoint is placed after a step if computing the dataset
+                                   since the last savepoint took this many times longer than
+                                   saving and loading it is estimated to take (default: 5)
+                    - <maxSavepoints>: maximum number of automatic savepoints (default: 3)
+                Example:
+                <autoSavepoints>
+                    <costRatio>10</costRatio>
+                    <maxSavepoints>2</maxSavepoints>
+                </autoSavepoints>""";
+    }
+}
@@ -1,49 +1,89 @@
 package io.github.qudtlib.maven.rdfio.pipeline;
 
+import io.github.qudtlib.maven.rdfio.common.datasetchange.GraphPatch;
+import io.github.qudtlib.maven.rdfio.common.file.Compression;
+import io.github.qudtlib.maven.rdfio.common.file.ConcurrentRdfReader;
 import io.github.qudtlib.maven.rdfio.common.file.FileAccessException;
 import io.github.qudtlib.maven.rdfio.common.file.FileHelper;
 import io.github.qudtlib.maven.rdfio.common.file.FileSelection;
 import io.github.qudtlib.maven.rdfio.common.file.ForbiddenFilePathException;
+import io.github.qudtlib.maven.rdfio.common.file.ParsedGraphCache;
+import io.github.qudtlib.maven.rdfio.common.file.RdfLoader;
 import io.github.qudtlib.maven.rdfio.common.file.RelativePath;
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.security.MessageDigest;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.ObjIntConsumer;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import org.apache.jena.graph.Graph;
 import org.apache.jena.query.Dataset;
 import org.apache.jena.rdf.model.Model;
-import org.apache.jena.rdf.model.ModelFactory;
 import org.apache.jena.riot.Lang;
 import org.apache.jena.riot.RDFDataMgr;
-import org.apache.jena.riot.RDFLanguages;
+import org.apache.jena.riot.RDFFormat;
+import org.apache.jena.riot.system.StreamRDF;
+import org.apache.jena.riot.system.StreamRDFLib;
+import org.apache.jena.riot.system.StreamRDFWriter;
 import org.apache.maven.plugin.MojoExecutionException;
 
 public class FileAccess {
+    private static final int STREAM_BUFFER_SIZE = 1 << 16;
 
     public static void readRdf(RelativePath path, Model model, PipelineState state)
             throws FileAccessException {
         File file = validatePath(path, state);
         FileHelper.ensureFilesExist(List.of(file), "input");
         state.log().debug("Reading RDF from: " + file.getAbsolutePath());
-        try (FileInputStream fis = new FileInputStream(file)) {
-            RDFDataMgr.read(model, fis, RDFDataMgr.determineLang(file.getName(), null, Lang.TTL));
+        try {
+            ParsedGraphCache.getInstance().read(file, model);
         } catch (Exception e) {
             throw new FileAccessException("Failed to read RDF file: " + file, e);
         }
     }
 
+    /**
+     * Parses the files concurrently, each into a new model, and passes the models to <code>
+     * consumer</code> in the order of <code>paths</code> as soon as they have been parsed, together
+     * with their index. Only a bounded number of parsed models is held at a time.
+     */
+    public static void readRdfConcurrently(
+            List<RelativePath> paths, PipelineState state, ObjIntConsumer<Model> consumer)
+            throws FileAccessException {
+        List<File> files = new ArrayList<>();
+        for (RelativePath path : paths) {
+            files.add(validatePath(path, state));
+        }
+        FileHelper.ensureFilesExist(files, "input");
+        state.log().debug("Reading RDF from %d files concurrently".formatted(files.size()));
+        try {
+            ConcurrentRdfReader.read(files, ConcurrentRdfReader.defaultThreads(), consumer);
+        } catch (IOException e) {
+            throw new FileAccessException("Failed to read RDF files: " + e.getMessage(), e);
+        }
+    }
+
     public static void readRdf(RelativePath path, Dataset dataset, PipelineState state)
             throws FileAccessException {
         File file = validatePath(path, state);
         FileHelper.ensureFilesExist(List.of(file), "input");
         state.log().debug("Reading RDF from: " + file.getAbsolutePath());
-        try (FileInputStream fis = new FileInputStream(file)) {
-            RDFDataMgr.read(
-                    dataset, fis, RDFDataMgr.determineLang(file.getName(), null, Lang.TRIG));
+        try {
+            RdfLoader.read(file, dataset.asDatasetGraph());
         } catch (Exception e) {
             throw new FileAccessException("Failed to read RDF file: " + file, e);
         }
@@ -53,12 +93,8 @@ public class FileAccess {
             throws FileAccessException {
         for (RelativePath path : paths) {
             File file = validatePath(path, state);
-            try (FileInputStream fis = new FileInputStream(file)) {
-                Model newModel = ModelFactory.createDefaultModel();
-                RDFDataMgr.read(
-                        model, fis, RDFDataMgr.determineLang(file.getName(), null, Lang.TTL));
-                model.add(newModel);
-                model.setNsPrefixes(newModel.getNsPrefixMap());
+            try {
+                ParsedGraphCache.getInstance().read(file, model);
             } catch (Exception e) {
                 throw new FileAccessException("Failed to load RDF file: " + path, e);
             }
@@ -68,7 +104,7 @@ public class FileAccess {
     public static void writeRdf(RelativePath path, Dataset dataset, PipelineState state)
             throws FileAccessException {
         File file = validatePath(path, state);
-        Lang lang = RDFLanguages.resourceNameToLang(file.getName(), Lang.TTL);
+        Lang lang = RdfLoader.lang(file, Lang.TTL);
         File parentDir = file.getParentFile();
         if (parentDir != null && !parentDir.exists()) {
             parentDir.mkdirs();
@@ -81,24 +117,202 @@ public class FileAccess {
         }
         dataset.getPrefixMapping().setNsPrefixes(dataset.getDefaultModel());
         state.log().debug("Writing RDF dataset to: " + file.getAbsolutePath());
-        try (FileOutputStream fos = new FileOutputStream(file)) {
-            RDFDataMgr.write(fos, dataset, lang);
+        try (OutputStream out = Compression.openOutputStream(file)) {
+            RDFDataMgr.write(out, dataset, lang);
+        } catch (Exception e) {
+            throw new FileAccessException("Failed to write RDF file: " + file, e);
+        }
+    }
+
+    /**
+     * Writes the dataset as a stream of quads, without building any intermediate structures. The
+     * format must be a streaming format (see {@link StreamRDFWriter}).
+     */
+    public static void writeRdfStream(
+            RelativePath path, Dataset dataset, RDFFormat format, boolean gzip, PipelineState state)
+            throws FileAccessException {
+        writeStream(
+                path,
+                format,
+                gzip,
+                state,
+                stream -> {
+                    collectPrefixes(dataset).forEach(stream::prefix);
+                    dataset.asDatasetGraph().find().forEachRemaining(stream::quad);
+                });
+    }
+
+    /**
+     * Writes the graph as a stream of triples, like {@link #writeRdfStream(RelativePath, Dataset,
+     * RDFFormat, boolean, PipelineState)}.
+     */
+    public static void writeRdfStream(
+            RelativePath path, Graph graph, RDFFormat format, boolean gzip, PipelineState state)
+            throws FileAccessException {
+        writeStream(
+                path,
+                format,
+                gzip,
+                state,
+                stream -> {
+                    graph.getPrefixMapping().getNsPrefixMap().forEach(stream::prefix);
+                    graph.find().forEachRemaining(stream::triple);
+                });
+    }
+
+    private static void writeStream(
+            RelativePath path,
+            RDFFormat format,
+            boolean gzip,
+            PipelineState state,
+            Consumer<StreamRDF> content)
+            throws FileAccessException {
+        File file = validatePath(path, state);
+        File parentDir = file.getParentFile();
+        if (parentDir != null && !parentDir.exists()) {
+            parentDir.mkdirs();
+        }
+        state.log().debug("Writing RDF stream to: " + file.getAbsolutePath());
+        try (OutputStream out = openOutputStream(file, gzip)) {
+            StreamRDF stream = StreamRDFWriter.getWriterStream(out, format);
+            stream.start();
+            content.accept(stream);
+            stream.finish();
         } catch (Exception e) {
             throw new FileAccessException("Failed to write RDF file: " + file, e);
         }
     }
 
+    /** Reads the quads of the file directly into the dataset. */
+    public static void readRdfStream(
+            RelativePath path, Dataset dataset, Lang lang, boolean gzip, PipelineState state)
+            throws FileAccessException {
+        readStream(path, lang, gzip, state, StreamRDFLib.dataset(dataset.asDatasetGraph()));
+    }
+
+    /** Reads the triples of the file directly into the graph. */
+    public static void readRdfStream(
+            RelativePath path, Graph graph, Lang lang, boolean gzip, PipelineState state)
+            throws FileAccessException {
+        readStream(path, lang, gzip, state, StreamRDFLib.graph(graph));
+    }
+
+    private static void readStream(
+            RelativePath path, Lang lang, boolean gzip, PipelineState state, StreamRDF target)
+            throws FileAccessException {
+        File file = validatePath(path, state);
+        FileHelper.ensureFilesExist(List.of(file), "input");
+        state.log().debug("Reading RDF stream from: " + file.getAbsolutePath());
+        try {
+            if (gzip) {
+                try (InputStream in = openInputStream(file, true)) {
+                    RdfLoader.parse(in, lang, target);
+                }
+            } else {
+                RdfLoader.read(file, lang, target);
+            }
+        } catch (Exception e) {
+            throw new FileAccessException("Failed to read RDF file: " + file, e);
+        }
+    }
+
+    /**
+     * Copies the file's bytes to the target file, replacing it if it exists. Nothing is done if
+     * both are the same file.
+     */
+    public static void copy(RelativePath source, RelativePath target, PipelineState state)
+            throws FileAccessException {
+        File sourceFile = validatePath(source, state);
+        File targetFile = validatePath(target, state);
+        if (sourceFile
+                .getAbsoluteFile()
+                .toPath()
+                .normalize()
+                .equals(targetFile.getAbsoluteFile().toPath().normalize())) {
+            state.log().debug("Not copying file %s onto itself".formatted(sourceFile));
+            return;
+        }
+        state.log()
+                .debug(
+                        "Copying file %s to %s"
+                                .formatted(
+                                        sourceFile.getAbsolutePath(),
+                                        targetFile.getAbsolutePath()));
+        try {
+            Files.copy(
+                    sourceFile.toPath(), targetFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        } catch (Exception e) {
+            throw new FileAccessException(
+                    "Failed to copy file %s to %s".formatted(sourceFile, targetFile), e);
+        }
+    }
+
+    public static void writeRdfPatch(
+            RelativePath path, GraphPatch patch, boolean gzip, PipelineState state)
+            throws FileAccessException {
+        File file = validatePath(path, state);
+        state.log().debug("Writing RDF patch to: " + file.getAbsolutePath());
+        try (Writer out =
+                new OutputStreamWriter(openOutputStream(file, gzip), StandardCharsets.UTF_8)) {
+            patch.write(out);
+        } catch (Exception e) {
+            throw new FileAccessException("Failed to write RDF patch: " + file, e);
+        }
+    }
+
+    /** Applies the RDF patch in the file to the graph. */
+    public static void applyRdfPatch(
+            RelativePath path, Graph graph, boolean gzip, PipelineState state)
+            throws FileAccessException {
+        File file = validatePath(path, state);
+        FileHelper.ensureFilesExist(List.of(file), "input");
+        state.log().debug("Applying RDF patch from: " + file.getAbsolutePath());
+        try (InputStream in = openInputStream(file, gzip)) {
+            GraphPatch.apply(in, graph);
+        } catch (Exception e) {
+            throw new FileAccessException("Failed to apply RDF patch: " + file, e);
+        }
+    }
+
+    private static OutputStream openOutputStream(File file, boolean gzip) throws IOException {
+        // files named *.gz are compressed anyway
+        OutputStream out = Compression.openOutputStream(file);
+        return gzip && Compression.of(file) != Compression.GZIP
+                ? new GZIPOutputStream(out, STREAM_BUFFER_SIZE)
+                : out;
+    }
+
+    private static InputStream openInputStream(File file, boolean gzip) throws IOException {
+        // files named *.gz are decompressed anyway
+        InputStream in = RdfLoader.open(file);
+        return gzip && Compression.of(file) != Compression.GZIP
+                ? new GZIPInputStream(in, STREAM_BUFFER_SIZE)
+                : in;
+    }
+
+    /** The prefixes of the dataset and all its graphs, as the TriG writer would use them. */
+    private static Map<String, String> collectPrefixes(Dataset dataset) {
+        Map<String, String> prefixes = new LinkedHashMap<>();
+        Iterator<String> it = dataset.listNames();
+        while (it.hasNext()) {
+            prefixes.putAll(dataset.getNamedModel(it.next()).getNsPrefixMap());
+        }
+        prefixes.putAll(dataset.getDefaultModel().getNsPrefixMap());
+        prefixes.putAll(dataset.getPrefixMapping().getNsPrefixMap());
+        return prefixes;
+    }
+
     public static void writeRdf(RelativePath path, Model model, PipelineState state)
             throws FileAccessException {
         File file = validatePath(path, state);
-        Lang lang = RDFLanguages.resourceNameToLang(file.getName(), Lang.TTL);
+        Lang lang = RdfLoader.lang(file, Lang.TTL);
         File parentDir = file.getParentFile();
         if (parentDir != null && !parentDir.exists()) {
             parentDir.mkdirs();
         }
         state.log().debug("Writing RDF model to: " + file.getAbsolutePath());
-        try (FileOutputStream fos = new FileOutputStream(file)) {
-            RDFDataMgr.write(fos, model, lang);
+        try (OutputStream out = Compression.openOutputStream(file)) {
+            RDFDataMgr.write(out, model, lang);
         } catch (Exception e) {
             throw new FileAccessException("Failed to write RDF file: " + file, e);
         }
@@ -202,7 +416,10 @@ public class FileAccess {
         for (RelativePath path : paths) {
             if (path.exists()) {
                 digest.update(path.getRelativePath().getBytes(StandardCharsets.UTF_8));
-                digest.update(readText(path, state).getBytes(StandardCharsets.UTF_8));
+                digest.update(
+                        state.getFileFingerprints()
+                                .fingerprint(validatePath(path, state), state.isSemanticHashing())
+                                .getBytes(StandardCharsets.UTF_8));
             }
         }
     }
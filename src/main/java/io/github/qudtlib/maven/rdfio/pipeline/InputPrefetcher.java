@@ -0,0 +1,129 @@
+package io.github.qudtlib.maven.rdfio.pipeline;
+
+import io.github.qudtlib.maven.rdfio.common.file.ParsedGraphCache;
+import io.github.qudtlib.maven.rdfio.common.file.RelativePath;
+import io.github.qudtlib.maven.rdfio.pipeline.step.Step;
+import io.github.qudtlib.maven.rdfio.pipeline.step.support.InputsComponent;
+import io.github.qudtlib.maven.rdfio.pipeline.step.support.StepDependencies;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Parses the RDF input files of upcoming steps (their <code>&lt;file&gt;</code> and <code>
+ * &lt;files&gt;</code> inputs) into the {@link ParsedGraphCache} on a background thread, while the
+ * preceding steps are executed. The files are prefetched in step order; prefetching pauses while
+ * the prefetched files that have not been read yet take up the cache's prefetch budget.
+ *
+ * <p>Files written by a preceding step are not prefetched, nor are paths containing variables.
+ * Prefetching stops at a barrier step, whose effects are unknown, and is resumed once the barrier
+ * has been executed. A file that cannot be prefetched is simply read by its step, which then
+ * reports any error.
+ */
+public class InputPrefetcher implements AutoCloseable {
+    private final PipelineState state;
+    private final ExecutorService executor;
+
+    public InputPrefetcher(PipelineState state) {
+        this.state = state;
+        this.executor =
+                Executors.newSingleThreadExecutor(
+                        runnable -> {
+                            Thread thread = new Thread(runnable, "rdfio-prefetch-1");
+                            thread.setDaemon(true);
+                            return thread;
+                        });
+    }
+
+    /**
+     * Submits the input files of the steps for prefetching. <code>steps</code> are the steps that
+     * are yet to be executed, in pipeline order. The first of them is executed right away and reads
+     * its inputs itself, so only the files it writes are taken into account.
+     */
+    public void prefetch(List<Step> steps) {
+        if (!ParsedGraphCache.getInstance().isPrefetchEnabled()) {
+            return;
+        }
+        List<File> files = getPrefetchableFiles(steps);
+        state.log().debug("Prefetching up to %d input files".formatted(files.size()));
+        for (File file : files) {
+            executor.submit(() -> prefetch(file));
+        }
+    }
+
+    List<File> getPrefetchableFiles(List<Step> steps) {
+        Set<File> files = new LinkedHashSet<>();
+        List<StepDependencies> preceding = new ArrayList<>();
+        for (int i = 0; i < steps.size(); i++) {
+            StepDependencies dependencies = getDependencies(steps.get(i));
+            if (dependencies == null || dependencies.isBarrier()) {
+                // the files written from here on are not known
+                break;
+            }
+            // the first step reads its inputs right away
+            List<InputsComponent<?>> parsedInputs =
+                    i == 0 ? List.of() : dependencies.getParsedInputs();
+            for (InputsComponent<?> inputs : parsedInputs) {
+                for (RelativePath path : inputPaths(inputs)) {
+                    String relativePath = path.getRelativePath();
+                    if (!relativePath.contains("${")
+                            && preceding.stream().noneMatch(d -> d.mayWriteFile(relativePath))) {
+                        files.add(path.resolve());
+                    }
+                }
+            }
+            preceding.add(dependencies);
+        }
+        return new ArrayList<>(files);
+    }
+
+    /**
+     * Returns true if prefetching stops at the step, because it is a barrier or its dependencies
+     * cannot be determined before it is executed.
+     */
+    public boolean isBarrier(Step step) {
+        StepDependencies dependencies = getDependencies(step);
+        return dependencies == null || dependencies.isBarrier();
+    }
+
+    private StepDependencies getDependencies(Step step) {
+        try {
+            return step.getDependencies(state);
+        } catch (RuntimeException e) {
+            // the step's dependencies are determined when it is executed
+            return null;
+        }
+    }
+
+    private List<RelativePath> inputPaths(InputsComponent<?> inputs) {
+        try {
+            return inputs.getAllInputPathsWithoutResolvingVariables(state);
+        } catch (RuntimeException e) {
+            return List.of();
+        }
+    }
+
+    private static void prefetch(File file) {
+        ParsedGraphCache cache = ParsedGraphCache.getInstance();
+        try {
+            cache.awaitPrefetchBudget();
+            if (file.isFile()) {
+                cache.prefetch(file);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            // the step reads the file again and reports the error
+        }
+    }
+
+    /** Stops prefetching; files that have been prefetched stay in the cache. */
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+}
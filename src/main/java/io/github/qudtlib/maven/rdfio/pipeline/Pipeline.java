@@ -1,6 +1,7 @@
 package io.github.qudtlib.maven.rdfio.pipeline;
 
 import io.github.qudtlib.maven.rdfio.pipeline.step.*;
+import io.github.qudtlib.maven.rdfio.pipeline.step.support.SavepointFormat;
 import io.github.qudtlib.maven.rdfio.pipeline.support.ConfigurationParseException;
 import java.io.File;
 import java.util.ArrayList;
@@ -18,6 +19,16 @@ public class Pipeline {
 
     private File baseDir;
 
+    private int threads = 1;
+
+    private SavepointFormat savepointFormat = SavepointFormat.DEFAULT;
+
+    private boolean semanticHashing = false;
+
+    private boolean memoizeSteps = false;
+
+    private AutoSavepoints autoSavepoints = null;
+
     private List<Step> steps = new ArrayList<>();
 
     public void addAddStep(AddStep step) {
@@ -92,6 +103,47 @@ public class Pipeline {
         this.baseDir = baseDir;
     }
 
+    public int getThreads() {
+        return threads;
+    }
+
+    public void setThreads(int threads) {
+        this.threads = threads;
+    }
+
+    public boolean isSemanticHashing() {
+        return semanticHashing;
+    }
+
+    public void setSemanticHashing(boolean semanticHashing) {
+        this.semanticHashing = semanticHashing;
+    }
+
+    /** Returns the configuration of automatic savepoints, or null if they are not enabled. */
+    public AutoSavepoints getAutoSavepoints() {
+        return autoSavepoints;
+    }
+
+    public void setAutoSavepoints(AutoSavepoints autoSavepoints) {
+        this.autoSavepoints = autoSavepoints;
+    }
+
+    public boolean isMemoizeSteps() {
+        return memoizeSteps;
+    }
+
+    public void setMemoizeSteps(boolean memoizeSteps) {
+        this.memoizeSteps = memoizeSteps;
+    }
+
+    public SavepointFormat getSavepointFormat() {
+        return savepointFormat;
+    }
+
+    public void setSavepointFormat(SavepointFormat savepointFormat) {
+        this.savepointFormat = savepointFormat;
+    }
+
     public List<Step> getSteps() {
         return steps;
     }
@@ -147,6 +199,34 @@ public class Pipeline {
                         ? new File(baseDirDom.getValue().trim())
                         : defaultBaseDir);
 
+        Xpp3Dom threadsDom = config.getChild("threads");
+        if (threadsDom != null && threadsDom.getValue() != null) {
+            pipeline.setThreads(parseThreads(threadsDom.getValue(), config));
+        }
+
+        Xpp3Dom savepointFormatDom = config.getChild("savepointFormat");
+        if (savepointFormatDom != null && savepointFormatDom.getValue() != null) {
+            pipeline.setSavepointFormat(
+                    parseSavepointFormat(savepointFormatDom.getValue(), config));
+        }
+
+        Xpp3Dom semanticHashingDom = config.getChild("semanticHashing");
+        pipeline.setSemanticHashing(
+                semanticHashingDom != null
+                        && semanticHashingDom.getValue() != null
+                        && Boolean.parseBoolean(semanticHashingDom.getValue().trim()));
+
+        Xpp3Dom memoizeStepsDom = config.getChild("memoizeSteps");
+        pipeline.setMemoizeSteps(
+                memoizeStepsDom != null
+                        && memoizeStepsDom.getValue() != null
+                        && Boolean.parseBoolean(memoizeStepsDom.getValue().trim()));
+
+        Xpp3Dom autoSavepointsDom = config.getChild("autoSavepoints");
+        if (autoSavepointsDom != null) {
+            pipeline.setAutoSavepoints(AutoSavepoints.parse(autoSavepointsDom));
+        }
+
         List<Step> steps = new ArrayList<>();
         Xpp3Dom stepsDom = config.getChild("steps");
         if (stepsDom != null) {
@@ -160,6 +240,36 @@ public class Pipeline {
         return pipeline;
     }
 
+    static int parseThreads(String value, Xpp3Dom config) {
+        try {
+            int threads = Integer.parseInt(value.trim());
+            if (threads < 1) {
+                throw new NumberFormatException();
+            }
+            return threads;
+        } catch (NumberFormatException e) {
+            throw new ConfigurationParseException(
+                    config,
+                    """
+                            Invalid value for <threads>: '%s'.
+                            Usage: Specify a positive integer, e.g. <threads>4</threads>"""
+                            .formatted(value));
+        }
+    }
+
+    static SavepointFormat parseSavepointFormat(String value, Xpp3Dom config) {
+        try {
+            return SavepointFormat.forName(value);
+        } catch (IllegalArgumentException e) {
+            throw new ConfigurationParseException(
+                    config,
+                    """
+                            Invalid value for <savepointFormat>: '%s'.
+                            Usage: Specify one of %s, e.g. <savepointFormat>trig</savepointFormat>"""
+                            .formatted(value, SavepointFormat.names()));
+        }
+    }
+
     public static Step parseStep(
             Xpp3Dom config,
             Xpp3Dom stepDom,
@@ -234,7 +344,8 @@ public class Pipeline {
                             be populated, changed, and written to files.
 
                             Usage: Provide a <pipeline> element with required <id> and <steps> and optional
-                                   <metadataGraph>, <forceRun>, and <baseDir>.
+                                   <metadataGraph>, <forceRun>, <baseDir>, <threads>, <savepointFormat>, <semanticHashing>,
+                                   <memoizeSteps> and <autoSavepoints>.
                                     - <metagdataGraph>: the graph in the dataset where metadata (eg which graph
                                                         corresponds to which file) is stored
                                     - <forceRun>: if the pipeline has <savepoints>, the pipeline will check if
@@ -242,6 +353,22 @@ public class Pipeline {
                                                    <forceRun>true</forceRun> will disable savepoints.
                                     - <baseDir>: the base directory that the pipeline will use. No files can be read or
                                                  written outside of the baseDir.
+                                    - <threads>: number of threads used for executing steps (default: 1). Steps
+                                                 whose graphs and files don't overlap with those of
+                                                 the steps before them are executed concurrently.
+                                    - <savepointFormat>: file format of the savepoints' data: 'thrift' (binary,
+                                                 the default), 'thrift-gzip' (binary, compressed), or
+                                                 'trig' (human-readable, but much slower)
+                                    - <semanticHashing>: if true, RDF input files are hashed by their data
+                                                 rather than their bytes, so reformatting or reordering
+                                                 them does not invalidate savepoints (default: false)
+                                    - <memoizeSteps>: if true, the results of <sparqlUpdate>, <sparqlQuery> and
+                                                 <shaclInfer> steps are stored and reused as long as the
+                                                 graphs and files they read are unchanged (default: false)
+                                    - <autoSavepoints>: place savepoints automatically after steps that take
+                                                 long to compute compared to saving the dataset, as measured
+                                                 in previous runs. Optional children: <costRatio> (default: 5)
+                                                 and <maxSavepoints> (default: 3)
                                     - <steps>: one of
                                         <add>: add data to a graph (or to the default graph)
                                         <write>: write graph(s) to a file (or files)
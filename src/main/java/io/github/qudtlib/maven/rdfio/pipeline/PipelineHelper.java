@@ -67,7 +67,7 @@ public class PipelineHelper {
         return result;
     }
 
-    private static String wildcardToRegex(String wildcard) {
+    public static String wildcardToRegex(String wildcard) {
         StringBuilder regex = new StringBuilder();
         regex.append("^"); // Start of string
         for (int i = 0; i < wildcard.length(); i++) {
@@ -139,12 +139,7 @@ public class PipelineHelper {
     }
 
     public static String serializeMessageDigest(MessageDigest digest) {
-        byte[] hashBytes = digest.digest();
-        StringBuilder sb = new StringBuilder();
-        for (byte b : hashBytes) {
-            sb.append(String.format("%02x", b));
-        }
-        return sb.toString();
+        return HexFormat.of().formatHex(digest.digest());
     }
 
     public static void bindGraphToFileIfUnbound(
@@ -275,6 +270,45 @@ public class PipelineHelper {
           into graph: %s"""
                                 .formatted(inputPath.getRelativePath(), targetGraph));
         FileAccess.readRdf(inputPath, model, state);
+        bindLoadedGraph(dataset, state, inputPath, targetGraph, associateGraphWithFile);
+    }
+
+    /**
+     * Adds the triples and prefixes of a file that has already been parsed into <code>parsed
+     * </code> to the target graph, binding the graph like {@link #readFileToGraph(Dataset,
+     * PipelineState, RelativePath, String, boolean)}.
+     */
+    public static void addParsedFileToGraph(
+            Dataset dataset,
+            PipelineState state,
+            RelativePath inputPath,
+            Model parsed,
+            String targetGraph,
+            boolean associateGraphWithFile) {
+        Model model;
+        if (targetGraph == null) {
+            model = dataset.getDefaultModel();
+        } else {
+            model = dataset.getNamedModel(targetGraph);
+        }
+        state.log()
+                .debug(
+                        """
+         Adding parsed
+                file: %s
+          into graph: %s"""
+                                .formatted(inputPath.getRelativePath(), targetGraph));
+        model.add(parsed);
+        model.setNsPrefixes(parsed.getNsPrefixMap());
+        bindLoadedGraph(dataset, state, inputPath, targetGraph, associateGraphWithFile);
+    }
+
+    private static void bindLoadedGraph(
+            Dataset dataset,
+            PipelineState state,
+            RelativePath inputPath,
+            String targetGraph,
+            boolean associateGraphWithFile) {
         if (targetGraph != null) {
             if (associateGraphWithFile) {
                 bindGraphToFileIfUnbound(dataset, state, inputPath, targetGraph);
@@ -1,17 +1,24 @@
 package io.github.qudtlib.maven.rdfio.pipeline;
 
 import io.github.qudtlib.maven.rdfio.common.RDFIO;
+import io.github.qudtlib.maven.rdfio.common.datasetchange.ChangeTrackingDataset;
+import io.github.qudtlib.maven.rdfio.common.file.FileFingerprints;
+import io.github.qudtlib.maven.rdfio.common.file.NodeDictionary;
+import io.github.qudtlib.maven.rdfio.common.file.ParsedGraphCache;
+import io.github.qudtlib.maven.rdfio.common.file.PersistentParseCache;
+import io.github.qudtlib.maven.rdfio.common.file.RdfFileProcessor;
+import io.github.qudtlib.maven.rdfio.common.file.RdfLoader;
 import io.github.qudtlib.maven.rdfio.common.file.RelativePath;
 import io.github.qudtlib.maven.rdfio.common.sparql.SparqlHelper;
 import io.github.qudtlib.maven.rdfio.pipeline.step.SavepointStep;
 import io.github.qudtlib.maven.rdfio.pipeline.step.Step;
 import io.github.qudtlib.maven.rdfio.pipeline.step.support.ParsingHelper;
+import io.github.qudtlib.maven.rdfio.pipeline.step.support.SavepointStore;
 import io.github.qudtlib.maven.rdfio.pipeline.support.ConfigurationParseException;
 import java.io.File;
 import java.util.*;
 import java.util.stream.Collectors;
 import org.apache.jena.query.Dataset;
-import org.apache.jena.query.DatasetFactory;
 import org.apache.maven.model.Plugin;
 import org.apache.maven.model.PluginExecution;
 import org.apache.maven.plugin.AbstractMojo;
@@ -51,6 +58,114 @@ public class PipelineMojo extends AbstractMojo {
     @Parameter(property = "rdfio.pipeline.resumeAtSavepointId")
     private String resumeAtSavepointId;
 
+    /**
+     * Number of threads used for executing pipeline steps. Overrides the pipeline's <code>threads
+     * </code> configuration.
+     */
+    @Parameter(property = "rdfio.pipeline.threads")
+    private Integer threads;
+
+    /**
+     * File format of the savepoints' data: <code>thrift</code>, <code>thrift-gzip</code> or <code>
+     * trig</code>. Overrides the pipeline's <code>savepointFormat</code> configuration.
+     */
+    @Parameter(property = "rdfio.pipeline.savepointFormat")
+    private String savepointFormat;
+
+    /**
+     * If <code>true</code>, RDF input files are hashed by their data rather than their bytes, so
+     * reformatting them does not invalidate savepoints. Overrides the pipeline's <code>
+     * semanticHashing</code> configuration.
+     */
+    @Parameter(property = "rdfio.pipeline.semanticHashing")
+    private Boolean semanticHashing;
+
+    /**
+     * If <code>true</code>, the results of deterministic steps are stored and reused as long as the
+     * graphs and files they read are unchanged. Overrides the pipeline's <code>memoizeSteps</code>
+     * configuration.
+     */
+    @Parameter(property = "rdfio.pipeline.memoizeSteps")
+    private Boolean memoizeSteps;
+
+    /**
+     * If <code>false</code>, no savepoints are placed automatically, even if the pipeline has an
+     * <code>autoSavepoints</code> configuration.
+     */
+    @Parameter(property = "rdfio.pipeline.autoSavepoints")
+    private Boolean autoSavepoints;
+
+    /**
+     * Maximum number of triples kept in the cache of parsed RDF files that is shared by all
+     * executions in the Maven session. Set to 0 to disable the cache.
+     */
+    @Parameter(property = "rdfio.parsedGraphCache.maxTriples")
+    private Long parsedGraphCacheMaxTriples;
+
+    /** Directory of the on-disk cache of parsed RDF files. */
+    @Parameter(
+            property = "rdfio.parseCache.directory",
+            defaultValue = "${project.build.directory}/rdfio/parse-cache")
+    private File parseCacheDirectory;
+
+    /** If <code>false</code>, parsed RDF files are not cached on disk. */
+    @Parameter(property = "rdfio.parseCache.persistent", defaultValue = "true")
+    private boolean persistentParseCache = true;
+
+    /**
+     * Maximum size of the on-disk cache of parsed RDF files in megabytes. When it is exceeded, the
+     * least recently used entries are removed.
+     */
+    @Parameter(property = "rdfio.parseCache.maxSizeMB", defaultValue = "1024")
+    private long parseCacheMaxSizeMB = PersistentParseCache.DEFAULT_MAX_SIZE_MB;
+
+    /**
+     * Maximum number of IRIs and literals kept in the dictionary that lets equal terms of all
+     * parsed RDF files share one instance. Set to 0 to disable the dictionary.
+     */
+    @Parameter(property = "rdfio.nodeDictionary.maxNodes")
+    private Long nodeDictionaryMaxNodes;
+
+    /**
+     * Maximum number of triples of the input files parsed in the background for upcoming steps,
+     * that have not been read yet. Set to 0 to disable prefetching.
+     */
+    @Parameter(property = "rdfio.pipeline.prefetchMaxTriples")
+    private Long prefetchMaxTriples;
+
+    /**
+     * Directory in which savepoints are shared by all builds, e.g. <code>
+     * ${user.home}/.m2/rdfio/savepoints</code>. Savepoints saved there survive <code>mvn clean
+     * </code> and are reused by any pipeline reaching a savepoint with the same hash. If not set,
+     * savepoints are only kept in the build directory.
+     */
+    @Parameter(property = "rdfio.savepointStore.directory")
+    private File savepointStoreDirectory;
+
+    /**
+     * Maximum size of the savepoint store in megabytes. When it is exceeded, the least recently
+     * used savepoints are removed.
+     */
+    @Parameter(property = "rdfio.savepointStore.maxSizeMB", defaultValue = "10240")
+    private long savepointStoreMaxSizeMB = SavepointStore.DEFAULT_MAX_SIZE_MB;
+
+    /**
+     * File in which the content fingerprints of input files are stored, so that step hashes can be
+     * calculated without reading files that have not been modified since the last build.
+     */
+    @Parameter(
+            property = "rdfio.fingerprints.file",
+            defaultValue = "${project.build.directory}/rdfio/fingerprints.txt")
+    private File fingerprintsFile;
+
+    /**
+     * If <code>true</code>, the pipeline is skipped if its hash is the same as in the last
+     * successful run and all files it wrote then are unchanged. Checking this only requires
+     * fingerprints of the input files, which are usually known already.
+     */
+    @Parameter(property = "rdfio.pipeline.upToDateCheck", defaultValue = "true")
+    private boolean upToDateCheck = true;
+
     private Xpp3Dom configuration;
 
     private Pipeline pipeline;
@@ -78,6 +193,14 @@ public class PipelineMojo extends AbstractMojo {
 
     @Override
     public void execute() throws MojoExecutionException {
+        // shared with the executions of other modules until released below
+        ParsedGraphCache.getInstance()
+                .configure(
+                        parsedGraphCacheMaxTriples,
+                        prefetchMaxTriples,
+                        persistentParseCache ? parseCacheDirectory : null,
+                        parseCacheMaxSizeMB);
+        NodeDictionary.getInstance().configure(nodeDictionaryMaxNodes);
         try {
             if (pipeline == null) {
                 parseConfiguration();
@@ -86,6 +209,10 @@ public class PipelineMojo extends AbstractMojo {
                 throw new MojoExecutionException("Pipeline configuration is required");
             }
             SparqlHelper.registerNumericFunctions();
+            long bytesReadBefore = RdfLoader.getBytesRead();
+            long triplesReadBefore = RdfLoader.getTriplesRead();
+            long prefetchesBefore = ParsedGraphCache.getInstance().getPrefetches();
+            long prefetchHitsBefore = ParsedGraphCache.getInstance().getPrefetchHits();
             // Apply forceRun from Maven property
             // set it to anything else than 'false', including nothing, force is activated
             if (forceRun != null) {
@@ -125,7 +252,7 @@ public class PipelineMojo extends AbstractMojo {
                     }
                 }
             }
-            dataset = DatasetFactory.create();
+            dataset = ChangeTrackingDataset.create();
             PipelineState state =
                     new PipelineState(
                             pipeline.getId(),
@@ -135,19 +262,52 @@ public class PipelineMojo extends AbstractMojo {
                             pipeline.getMetadataGraph(),
                             null);
             updatePipelineState(state, project);
+            state.setFileFingerprints(new FileFingerprints(fingerprintsFile));
+            state.getSavepointCache()
+                    .setFormat(
+                            savepointFormat != null
+                                    ? Pipeline.parseSavepointFormat(savepointFormat, configuration)
+                                    : pipeline.getSavepointFormat());
+            if (savepointStoreDirectory != null) {
+                state.getSavepointCache()
+                        .setStore(
+                                new SavepointStore(
+                                        savepointStoreDirectory.toPath(),
+                                        savepointStoreMaxSizeMB * 1024 * 1024));
+            }
+            state.setSemanticHashing(
+                    semanticHashing != null ? semanticHashing : pipeline.isSemanticHashing());
+            state.setMemoizeSteps(memoizeSteps != null ? memoizeSteps : pipeline.isMemoizeSteps());
             state.setAllowLoadingFromSavepoint(!pipeline.isForceRun());
+            List<Step> steps = pipeline.getSteps();
+            boolean useAutoSavepoints =
+                    pipeline.getAutoSavepoints() != null && !Boolean.FALSE.equals(autoSavepoints);
+            if (useAutoSavepoints) {
+                steps = pipeline.getAutoSavepoints().placeSavepoints(steps, state);
+            }
 
             int startIndex = -1;
             List<String> stepHashes = new ArrayList<>();
+            UpToDateRecord upToDateRecord = new UpToDateRecord(state);
 
             if (!pipeline.isForceRun()) {
                 // Compute hashes for all steps
+                fingerprintInputFiles(state);
                 String previousHash = "";
-                for (Step step : pipeline.getSteps()) {
+                for (Step step : steps) {
                     String hash = step.calculateHash(previousHash, state);
                     stepHashes.add(hash);
                     previousHash = hash;
                 }
+                state.getFileFingerprints().persist();
+                if (upToDateCheck
+                        && !stepHashes.isEmpty()
+                        && upToDateRecord.isUpToDate(stepHashes.get(stepHashes.size() - 1))) {
+                    getLog().info(
+                                    "Pipeline '%s' is up to date: its inputs and outputs are unchanged since the last run, skipping it"
+                                            .formatted(pipeline.getId()));
+                    return;
+                }
                 if (resumeAtSavepointId != null) {
                     String[] savepointIdsArr = resumeAtSavepointId.split(",");
                     Set<String> savepointIds =
@@ -167,8 +327,8 @@ public class PipelineMojo extends AbstractMojo {
 
                     int resumeSavepointIndex = -1;
                     SavepointStep resumeSavepoint = null;
-                    for (int i = 0; i < pipeline.getSteps().size(); i++) {
-                        Step step = pipeline.getSteps().get(i);
+                    for (int i = 0; i < steps.size(); i++) {
+                        Step step = steps.get(i);
                         if (step instanceof SavepointStep) {
                             if (savepointIds.contains(((SavepointStep) step).getId())) {
                                 resumeSavepoint = (SavepointStep) step;
@@ -184,7 +344,7 @@ public class PipelineMojo extends AbstractMojo {
                                                     .formatted(
                                                             resumeAtSavepointId,
                                                             resumeSavepointIndex,
-                                                            pipeline.getSteps().size()));
+                                                            steps.size()));
                         }
                         if (resumeSavepoint.isValid(state, stepHashes.get(resumeSavepointIndex))) {
                             getLog().info(
@@ -192,7 +352,7 @@ public class PipelineMojo extends AbstractMojo {
                                                     .formatted(
                                                             resumeAtSavepointId,
                                                             resumeSavepointIndex,
-                                                            pipeline.getSteps().size()));
+                                                            steps.size()));
                             startIndex = resumeSavepointIndex;
                         } else {
                             getLog().info(
@@ -200,7 +360,7 @@ public class PipelineMojo extends AbstractMojo {
                                                     .formatted(
                                                             resumeAtSavepointId,
                                                             resumeSavepointIndex,
-                                                            pipeline.getSteps().size()));
+                                                            steps.size()));
                         }
                     } else {
                         getLog().warn(
@@ -212,8 +372,8 @@ public class PipelineMojo extends AbstractMojo {
                 // if user-provided resumeAtSavepointId was invalid
                 if (startIndex == -1) {
                     // Check savepoints in reverse order
-                    for (int i = pipeline.getSteps().size() - 1; i >= 0; i--) {
-                        Step step = pipeline.getSteps().get(i);
+                    for (int i = steps.size() - 1; i >= 0; i--) {
+                        Step step = steps.get(i);
                         if (step instanceof SavepointStep savepoint) {
                             if (savepoint.isValid(state, stepHashes.get(i))) {
                                 startIndex = i; // Start with the valid savepoint
@@ -222,9 +382,9 @@ public class PipelineMojo extends AbstractMojo {
                                                         .formatted(
                                                                 savepoint.getId(),
                                                                 (i + 1),
-                                                                pipeline.getSteps().size(),
+                                                                steps.size(),
                                                                 pipeline.getId()));
-                                if (i + 1 < pipeline.getSteps().size()) {
+                                if (i + 1 < steps.size()) {
                                     getLog().info("Resuming pipeline at savepoint");
                                 } else {
                                     getLog().info(
@@ -250,17 +410,76 @@ public class PipelineMojo extends AbstractMojo {
             } else {
                 previousHash = stepHashes.get(startIndex - 1);
             }
-            for (int i = startIndex; i < pipeline.getSteps().size(); i++) {
-                Step step = pipeline.getSteps().get(i);
-                state.setPreviousStepHash(previousHash);
-                previousHash = step.calculateHash(previousHash, state);
-                step.executeAndWrapException(dataset, state);
+            int stepThreads = threads != null ? threads : pipeline.getThreads();
+            if (stepThreads > 1) {
+                getLog().info(
+                                "Executing independent steps concurrently, using up to %d threads"
+                                        .formatted(stepThreads));
             }
+            upToDateRecord.invalidate();
+            try (StepScheduler scheduler = new StepScheduler(dataset, state, stepThreads);
+                    InputPrefetcher prefetcher = new InputPrefetcher(state)) {
+                prefetcher.prefetch(steps.subList(startIndex, steps.size()));
+                for (int i = startIndex; i < steps.size(); i++) {
+                    previousHash = scheduler.execute(steps.get(i), previousHash);
+                    // a barrier has finished once it returns, so prefetching can resume
+                    if (i + 1 < steps.size() && prefetcher.isBarrier(steps.get(i))) {
+                        prefetcher.prefetch(steps.subList(i + 1, steps.size()));
+                    }
+                }
+                scheduler.awaitAll();
+            } finally {
+                // savepoints are written in the background
+                state.getSavepointCache().awaitPendingSave();
+            }
+            if (useAutoSavepoints) {
+                pipeline.getAutoSavepoints().recordStatistics(pipeline.getSteps(), state);
+            }
+            // a resumed run does not know the files written by the steps it skipped
+            if (upToDateCheck && startIndex == 0) {
+                upToDateRecord.record(previousHash, state.getOutputFiles());
+                state.getFileFingerprints().persist();
+            }
+            getLog().debug(
+                            "Parsed %d bytes, %d triples from RDF files; %d distinct IRIs and literals in the node dictionary"
+                                    .formatted(
+                                            RdfLoader.getBytesRead() - bytesReadBefore,
+                                            RdfLoader.getTriplesRead() - triplesReadBefore,
+                                            NodeDictionary.getInstance().size()));
+            getLog().debug(
+                            "Prefetched %d input files in the background, %d of them were read by steps"
+                                    .formatted(
+                                            ParsedGraphCache.getInstance().getPrefetches()
+                                                    - prefetchesBefore,
+                                            ParsedGraphCache.getInstance().getPrefetchHits()
+                                                    - prefetchHitsBefore));
         } catch (Throwable throwable) {
             throw new MojoExecutionException("Error executing PipelineMojo", throwable);
+        } finally {
+            ParsedGraphCache.getInstance().release();
+            NodeDictionary.getInstance().release();
         }
     }
 
+    /**
+     * Fingerprints the files read by the steps concurrently, so calculating the step hashes does
+     * not have to read them one after the other.
+     */
+    private void fingerprintInputFiles(PipelineState state) {
+        List<File> files = new ArrayList<>();
+        for (Step step : pipeline.getSteps()) {
+            try {
+                step.getDependencies(state).getReadFiles().stream()
+                        .filter(file -> !file.contains("*") && !file.contains("${"))
+                        .map(file -> RdfFileProcessor.resolveFile(state.getBaseDir(), file))
+                        .forEach(files::add);
+            } catch (RuntimeException e) {
+                // the files are fingerprinted when the step's hash is calculated
+            }
+        }
+        state.getFileFingerprints().fingerprintAll(files, state.isSemanticHashing());
+    }
+
     private void updatePipelineState(PipelineState state, MavenProject project) {
         if (project == null) {
             return;
@@ -334,6 +553,18 @@ public class PipelineMojo extends AbstractMojo {
         this.workBaseDir = workBaseDir;
     }
 
+    public void setThreads(Integer threads) {
+        this.threads = threads;
+    }
+
+    public void setPrefetchMaxTriples(Long prefetchMaxTriples) {
+        this.prefetchMaxTriples = prefetchMaxTriples;
+    }
+
+    public void setUpToDateCheck(boolean upToDateCheck) {
+        this.upToDateCheck = upToDateCheck;
+    }
+
     public void setConfiguration(Xpp3Dom configuration) {
         this.configuration = configuration;
     }
@@ -2,22 +2,38 @@ package io.github.qudtlib.maven.rdfio.pipeline;
 
 import io.github.qudtlib.maven.rdfio.common.LogHelper;
 import io.github.qudtlib.maven.rdfio.common.RDFIO;
+import io.github.qudtlib.maven.rdfio.common.datasetchange.GraphPatch;
 import io.github.qudtlib.maven.rdfio.common.file.*;
 import io.github.qudtlib.maven.rdfio.common.log.StdoutLog;
 import io.github.qudtlib.maven.rdfio.pipeline.step.Step;
+import io.github.qudtlib.maven.rdfio.pipeline.step.support.FileGraph;
 import io.github.qudtlib.maven.rdfio.pipeline.step.support.GraphSelection;
 import io.github.qudtlib.maven.rdfio.pipeline.step.support.SavepointCache;
+import io.github.qudtlib.maven.rdfio.pipeline.step.support.StepMeasurement;
+import io.github.qudtlib.maven.rdfio.pipeline.step.support.StepResultCache;
 import io.github.qudtlib.maven.rdfio.pipeline.support.VariableResolver;
 import java.io.File;
+import java.nio.file.Path;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Predicate;
+import org.apache.jena.graph.Graph;
 import org.apache.jena.query.Dataset;
 import org.apache.jena.rdf.model.Model;
+import org.apache.jena.riot.Lang;
+import org.apache.jena.riot.RDFFormat;
 import org.apache.maven.plugin.logging.Log;
 
 public class PipelineState {
     private final Logger logger;
+    private final PipelineState root;
     private SavepointCache savepointCache;
+    private StepResultCache stepResultCache;
+    private FileFingerprints fileFingerprints = new FileFingerprints();
+    private boolean memoizeSteps = false;
     private boolean allowLoadingFromSavepoint = true;
+    private boolean semanticHashing = false;
     private String metadataGraph;
     private String shaclFunctionsGraph;
     private File baseDir;
@@ -31,6 +47,11 @@ public class PipelineState {
     private String defaultShaclLogSeverity = null;
     private String defaultShaclFailSeverity = null;
     private int indentLevel = 0;
+    private Predicate<String> reportedGraphChanges = graphName -> true;
+    private Set<RelativePath> outputFiles = ConcurrentHashMap.newKeySet();
+    private Map<Path, List<FileGraph>> lazyGraphs = new ConcurrentHashMap<>();
+    private Map<Step, StepMeasurement> stepMeasurements =
+            Collections.synchronizedMap(new IdentityHashMap<>());
 
     public PipelineState(
             String pipelineId,
@@ -47,6 +68,7 @@ public class PipelineState {
         this.pipelineWorkDir = pipelinesWorkDir.subDir(pipelineId);
         this.pipelineId = pipelineId;
         this.savepointCache = new SavepointCache(this.pipelineWorkDir.subDir("savepoints"));
+        this.stepResultCache = new StepResultCache(this.pipelineWorkDir.subDir("step-results"));
         this.log = Optional.ofNullable(log).orElse(new StdoutLog());
         this.metadataGraph =
                 Optional.ofNullable(metadataGraph).orElse(RDFIO.metadataGraph.toString());
@@ -56,12 +78,83 @@ public class PipelineState {
         this.files = new Files();
         this.variables = new PipelineState.Variables();
         this.logger = new PipelineState.Logger();
+        this.root = this;
+    }
+
+    /**
+     * Creates a state for executing a step concurrently with others. It shares everything with this
+     * state except for the log, the list of preceding steps, and the indent level, so the step's
+     * output can be written in pipeline order later.
+     */
+    public PipelineState fork(Log log) {
+        return new PipelineState(this, log);
+    }
+
+    private PipelineState(PipelineState parent, Log log) {
+        this.baseDir = parent.baseDir;
+        this.pipelineWorkDir = parent.pipelineWorkDir;
+        this.pipelineId = parent.pipelineId;
+        this.savepointCache = parent.savepointCache;
+        this.stepResultCache = parent.stepResultCache;
+        this.fileFingerprints = parent.fileFingerprints;
+        this.memoizeSteps = parent.memoizeSteps;
+        this.allowLoadingFromSavepoint = parent.allowLoadingFromSavepoint;
+        this.semanticHashing = parent.semanticHashing;
+        this.log = Optional.ofNullable(log).orElse(parent.log);
+        this.metadataGraph = parent.metadataGraph;
+        this.shaclFunctionsGraph = parent.shaclFunctionsGraph;
+        this.previousStepHash = parent.previousStepHash;
+        this.defaultShaclLogSeverity = parent.defaultShaclLogSeverity;
+        this.defaultShaclFailSeverity = parent.defaultShaclFailSeverity;
+        this.indentLevel = parent.indentLevel;
+        this.stepDefinitions = parent.stepDefinitions;
+        this.outputFiles = parent.outputFiles;
+        this.lazyGraphs = parent.lazyGraphs;
+        this.stepMeasurements = parent.stepMeasurements;
+        this.precedingSteps = new ArrayList<>(parent.precedingSteps);
+        this.files = new Files();
+        this.variables = new PipelineState.Variables();
+        this.logger = new PipelineState.Logger();
+        this.root = parent.root;
+    }
+
+    /**
+     * Returns the state all forks of this state were created from, or this state if it is not a
+     * fork. Its log is written immediately, so it can be used after a forked step has finished.
+     */
+    public PipelineState getRoot() {
+        return root;
     }
 
     public SavepointCache getSavepointCache() {
         return savepointCache;
     }
 
+    public StepResultCache getStepResultCache() {
+        return stepResultCache;
+    }
+
+    /** Returns the fingerprints of the files read by this execution. */
+    public FileFingerprints getFileFingerprints() {
+        return fileFingerprints;
+    }
+
+    public void setFileFingerprints(FileFingerprints fileFingerprints) {
+        this.fileFingerprints = fileFingerprints;
+    }
+
+    /**
+     * If true, the results of deterministic steps are stored and reused when the steps are executed
+     * with the same inputs again.
+     */
+    public boolean isMemoizeSteps() {
+        return memoizeSteps;
+    }
+
+    public void setMemoizeSteps(boolean memoizeSteps) {
+        this.memoizeSteps = memoizeSteps;
+    }
+
     public boolean isAllowLoadingFromSavepoint() {
         return allowLoadingFromSavepoint;
     }
@@ -70,6 +163,15 @@ public class PipelineState {
         this.allowLoadingFromSavepoint = allowLoadingFromSavepoint;
     }
 
+    /** If true, step hashes include the data of RDF input files rather than their bytes. */
+    public boolean isSemanticHashing() {
+        return semanticHashing;
+    }
+
+    public void setSemanticHashing(boolean semanticHashing) {
+        this.semanticHashing = semanticHashing;
+    }
+
     public String getMetadataGraph() {
         return metadataGraph;
     }
@@ -98,6 +200,66 @@ public class PipelineState {
         this.previousStepHash = previousStepHash;
     }
 
+    /**
+     * Filter for the graph changes reported after each step. Steps executed concurrently only
+     * report changes to the graphs they may write, as the others may have been changed by another
+     * step in the meantime.
+     */
+    public Predicate<String> getReportedGraphChanges() {
+        return reportedGraphChanges;
+    }
+
+    public void setReportedGraphChanges(Predicate<String> reportedGraphChanges) {
+        this.reportedGraphChanges = reportedGraphChanges;
+    }
+
+    /**
+     * The files written by the pipeline's steps so far, not including the files the pipeline uses
+     * internally, such as savepoints.
+     */
+    public Set<RelativePath> getOutputFiles() {
+        return outputFiles;
+    }
+
+    /** Records how long the step took and the size of the dataset after it. */
+    public void recordStepMeasurement(Step step, StepMeasurement measurement) {
+        stepMeasurements.put(step, measurement);
+    }
+
+    /** Returns the step's measurement in this run, or null if it has not been executed. */
+    public StepMeasurement getStepMeasurement(Step step) {
+        return stepMeasurements.get(step);
+    }
+
+    /**
+     * Records a graph that is read from its file when it is first used. If the pipeline is about to
+     * overwrite or delete the file before that, the graph is read first (see {@link
+     * #loadLazyGraphs(RelativePath)}), so it has the content the file had when it was added.
+     */
+    public void addLazyGraph(FileGraph graph) {
+        lazyGraphs
+                .computeIfAbsent(normalize(graph.getPath()), path -> new CopyOnWriteArrayList<>())
+                .add(graph);
+    }
+
+    /** Reads the lazily added graphs of the file, which is about to be overwritten or deleted. */
+    public void loadLazyGraphs(RelativePath path) {
+        List<FileGraph> graphs = lazyGraphs.remove(normalize(path));
+        if (graphs != null) {
+            graphs.forEach(FileGraph::get);
+        }
+    }
+
+    private static Path normalize(RelativePath path) {
+        return path.resolve().getAbsoluteFile().toPath().normalize();
+    }
+
+    private void recordOutputFile(RelativePath path) {
+        if (!FileHelper.isUnderDirectory(pipelineWorkDir.resolve(), path.resolve())) {
+            outputFiles.add(path);
+        }
+    }
+
     public String getPipelineId() {
         return pipelineId;
     }
@@ -165,11 +327,52 @@ public class PipelineState {
         }
 
         public void writeRdf(RelativePath path, Dataset dataset) throws FileAccessException {
+            loadLazyGraphs(path);
             FileAccess.writeRdf(path, dataset, PipelineState.this);
+            recordOutputFile(path);
+        }
+
+        public void writeRdfStream(
+                RelativePath path, Dataset dataset, RDFFormat format, boolean gzip)
+                throws FileAccessException {
+            FileAccess.writeRdfStream(path, dataset, format, gzip, PipelineState.this);
+        }
+
+        public void readRdfStream(RelativePath path, Dataset dataset, Lang lang, boolean gzip)
+                throws FileAccessException {
+            FileAccess.readRdfStream(path, dataset, lang, gzip, PipelineState.this);
+        }
+
+        public void writeRdfStream(RelativePath path, Graph graph, RDFFormat format, boolean gzip)
+                throws FileAccessException {
+            FileAccess.writeRdfStream(path, graph, format, gzip, PipelineState.this);
+        }
+
+        public void readRdfStream(RelativePath path, Graph graph, Lang lang, boolean gzip)
+                throws FileAccessException {
+            FileAccess.readRdfStream(path, graph, lang, gzip, PipelineState.this);
+        }
+
+        public void copy(RelativePath source, RelativePath target) throws FileAccessException {
+            loadLazyGraphs(target);
+            FileAccess.copy(source, target, PipelineState.this);
+            recordOutputFile(target);
+        }
+
+        public void writeRdfPatch(RelativePath path, GraphPatch patch, boolean gzip)
+                throws FileAccessException {
+            FileAccess.writeRdfPatch(path, patch, gzip, PipelineState.this);
+        }
+
+        public void applyRdfPatch(RelativePath path, Graph graph, boolean gzip)
+                throws FileAccessException {
+            FileAccess.applyRdfPatch(path, graph, gzip, PipelineState.this);
         }
 
         public void writeRdf(RelativePath path, Model model) throws FileAccessException {
+            loadLazyGraphs(path);
             FileAccess.writeRdf(path, model, PipelineState.this);
+            recordOutputFile(path);
         }
 
         public String readText(RelativePath path) throws FileAccessException {
@@ -177,10 +380,13 @@ public class PipelineState {
         }
 
         public void writeText(RelativePath path, String content) throws FileAccessException {
+            loadLazyGraphs(path);
             FileAccess.writeText(path, content, PipelineState.this);
+            recordOutputFile(path);
         }
 
         public void delete(RelativePath path) throws FileAccessException {
+            loadLazyGraphs(path);
             FileAccess.delete(path, PipelineState.this);
         }
 
@@ -259,7 +465,7 @@ public class PipelineState {
         }
     }
 
-    private final Map<String, List<Step>> stepDefinitions = new LinkedHashMap<>();
+    private Map<String, List<Step>> stepDefinitions = new LinkedHashMap<>();
 
     public void registerStepDef(String id, List<Step> steps) {
         stepDefinitions.put(id, steps);
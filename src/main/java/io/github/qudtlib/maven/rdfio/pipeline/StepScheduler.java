@@ -0,0 +1,236 @@
+package io.github.qudtlib.maven.rdfio.pipeline;
+
+import io.github.qudtlib.maven.rdfio.common.log.BufferedLog;
+import io.github.qudtlib.maven.rdfio.pipeline.step.Step;
+import io.github.qudtlib.maven.rdfio.pipeline.step.support.StepDependencies;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.jena.query.Dataset;
+import org.apache.maven.plugin.MojoExecutionException;
+
+/**
+ * Executes the steps of a pipeline in order, but allows a step to start before the steps preceding
+ * it have finished if their {@link StepDependencies} do not conflict. Steps that are barriers are
+ * executed only after all preceding steps have finished, and no later step starts before they are
+ * done.
+ *
+ * <p>Each concurrently executed step gets its own fork of the {@link PipelineState} with a {@link
+ * BufferedLog}. The logs are written in pipeline order, so the output looks the same as if the
+ * steps had been executed one after the other.
+ *
+ * <p>With one thread, all steps are executed directly in the calling thread.
+ */
+public class StepScheduler implements AutoCloseable {
+    private final Dataset dataset;
+    private final PipelineState state;
+    private final int threads;
+    private final ExecutorService executor;
+    private final List<ScheduledStep> scheduled = new ArrayList<>();
+
+    private record ScheduledStep(
+            Step step,
+            StepDependencies dependencies,
+            PipelineState state,
+            BufferedLog log,
+            int precedingStepsBefore,
+            Future<?> future) {}
+
+    public StepScheduler(Dataset dataset, PipelineState state, int threads) {
+        this.dataset = dataset;
+        this.state = state;
+        this.threads = Math.max(1, threads);
+        this.executor = this.threads > 1 ? newExecutor(this.threads) : null;
+    }
+
+    private static ExecutorService newExecutor(int threads) {
+        AtomicInteger threadCount = new AtomicInteger();
+        return Executors.newFixedThreadPool(
+                threads,
+                runnable -> {
+                    Thread thread =
+                            new Thread(runnable, "rdfio-pipeline-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    /**
+     * Executes the step, or schedules it for execution as soon as no conflicting step is running.
+     * Failures of steps scheduled earlier are thrown from this method or from {@link #awaitAll()}.
+     */
+    public void execute(Step step) throws MojoExecutionException {
+        execute(step, state.getPreviousStepHash());
+    }
+
+    /**
+     * As {@link #execute(Step)}, and returns the step's hash, calculated from the hash of the
+     * previous step. The hash fingerprints the files the step reads, so it is only calculated once
+     * the steps that may write them have finished.
+     */
+    public String execute(Step step, String previousHash) throws MojoExecutionException {
+        if (executor == null) {
+            String hash = calculateHash(step, previousHash);
+            step.executeAndWrapException(dataset, state);
+            return hash;
+        }
+        StepDependencies dependencies = determineDependencies(step);
+        if (dependencies.isBarrier()) {
+            awaitAll();
+            String hash = calculateHash(step, previousHash);
+            step.executeAndWrapException(dataset, state);
+            return hash;
+        }
+        for (ScheduledStep other : List.copyOf(scheduled)) {
+            if (other.dependencies().conflictsWith(dependencies)) {
+                awaitStep(other);
+            }
+        }
+        String hash = calculateHash(step, previousHash);
+        BufferedLog log = new BufferedLog(state.getLog());
+        PipelineState stepState = state.fork(log);
+        stepState.setReportedGraphChanges(dependencies::mayWriteGraph);
+        int precedingStepsBefore = stepState.getPrecedingSteps().size();
+        Future<?> future =
+                executor.submit(
+                        () -> {
+                            step.executeAndWrapException(dataset, stepState);
+                            return null;
+                        });
+        scheduled.add(
+                new ScheduledStep(
+                        step, dependencies, stepState, log, precedingStepsBefore, future));
+        return hash;
+    }
+
+    /**
+     * Returns the step's dependencies, determined only after the running steps that may change them
+     * have finished: steps like <code>&lt;sparqlUpdate&gt;</code> with a <code>&lt;file&gt;
+     * </code> read the file to find out which graphs they use, and look at the metadata graph to
+     * find out whether they bind new graphs. Waiting for these steps costs nothing, as the step
+     * conflicts with them anyway.
+     */
+    private StepDependencies determineDependencies(Step step) throws MojoExecutionException {
+        StepDependencies dependencies = step.getDependencies(state);
+        while (true) {
+            StepDependencies current = dependencies;
+            Optional<ScheduledStep> writer =
+                    scheduled.stream()
+                            .filter(other -> !other.future().isDone())
+                            .filter(other -> mayChangeDependencies(other.dependencies(), current))
+                            .findFirst();
+            if (writer.isEmpty()) {
+                return step.getDependencies(dataset, state);
+            }
+            awaitStep(writer.get());
+            dependencies = step.getDependencies(state);
+        }
+    }
+
+    /**
+     * Returns true if a step with the <code>running</code> dependencies may write the files or the
+     * metadata graph used to determine the <code>dependencies</code> of another step.
+     */
+    private boolean mayChangeDependencies(StepDependencies running, StepDependencies dependencies) {
+        return dependencies.getReadFiles().stream().anyMatch(running::mayWriteFile)
+                || running.mayWriteGraph(state.getMetadataGraph())
+                        && running.conflictsWith(dependencies);
+    }
+
+    private String calculateHash(Step step, String previousHash) {
+        state.setPreviousStepHash(previousHash);
+        return step.calculateHash(previousHash, state);
+    }
+
+    /** Waits for all scheduled steps to finish and writes their logs. */
+    public void awaitAll() throws MojoExecutionException {
+        for (ScheduledStep step : List.copyOf(scheduled)) {
+            waitQuietly(step);
+        }
+        completeFinishedSteps();
+    }
+
+    private void awaitStep(ScheduledStep step) throws MojoExecutionException {
+        if (!waitQuietly(step)) {
+            // don't start anything else after a failure
+            awaitAll();
+        }
+        completeFinishedSteps();
+    }
+
+    /** Waits for the step to finish, returns false if it failed. */
+    private boolean waitQuietly(ScheduledStep step) throws MojoExecutionException {
+        try {
+            step.future().get();
+            return true;
+        } catch (ExecutionException | CancellationException e) {
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new MojoExecutionException(
+                    "Interrupted while waiting for <%s> step"
+                            .formatted(step.step().getElementName()),
+                    e);
+        }
+    }
+
+    /**
+     * Writes the logs of all finished steps that have no unfinished step before them in the
+     * pipeline. If one of them failed, the remaining steps are cancelled or awaited and the failure
+     * is thrown.
+     */
+    private void completeFinishedSteps() throws MojoExecutionException {
+        while (!scheduled.isEmpty() && scheduled.get(0).future().isDone()) {
+            ScheduledStep step = scheduled.remove(0);
+            step.log().flush();
+            try {
+                step.future().get();
+            } catch (ExecutionException e) {
+                abortScheduledSteps();
+                if (e.getCause() instanceof MojoExecutionException mojoExecutionException) {
+                    throw mojoExecutionException;
+                }
+                throw new MojoExecutionException(
+                        "Error executing <%s> step: %s"
+                                .formatted(step.step().getElementName(), e.getCause().getMessage()),
+                        e.getCause());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new MojoExecutionException("Interrupted while executing pipeline", e);
+            }
+            List<Step> stepPrecedingSteps = step.state().getPrecedingSteps();
+            state.getPrecedingSteps()
+                    .addAll(
+                            stepPrecedingSteps.subList(
+                                    step.precedingStepsBefore(), stepPrecedingSteps.size()));
+        }
+    }
+
+    private void abortScheduledSteps() throws MojoExecutionException {
+        scheduled.forEach(step -> step.future().cancel(false));
+        for (ScheduledStep step : scheduled) {
+            waitQuietly(step);
+            if (!step.future().isCancelled()) {
+                step.log().flush();
+            }
+        }
+        scheduled.clear();
+    }
+
+    @Override
+    public void close() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+}
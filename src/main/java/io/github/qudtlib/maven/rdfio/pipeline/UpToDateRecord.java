@@ -0,0 +1,125 @@
+package io.github.qudtlib.maven.rdfio.pipeline;
+
+import io.github.qudtlib.maven.rdfio.common.file.FileAccessException;
+import io.github.qudtlib.maven.rdfio.common.file.FileFingerprints;
+import io.github.qudtlib.maven.rdfio.common.file.RelativePath;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Record of the last successful full run of a pipeline: the hash of its last step and the
+ * fingerprints of the files it wrote. If the pipeline hash is unchanged and all these files are
+ * still intact, running the pipeline again would produce the same files, so it can be skipped.
+ *
+ * <p>The record is removed before the pipeline runs and written again after it succeeded, so a
+ * failed or interrupted run is never considered up to date. A run resumed at a savepoint is not
+ * recorded, as it does not know which files the skipped steps wrote.
+ */
+public class UpToDateRecord {
+    private static final String FILE_NAME = "up-to-date.txt";
+
+    private final File file;
+    private final File baseDir;
+    private final FileFingerprints fingerprints;
+
+    public UpToDateRecord(PipelineState state) {
+        this.file = state.getPipelineWorkDir().subFile(FILE_NAME).resolve();
+        this.baseDir = state.getBaseDir();
+        this.fingerprints = state.getFileFingerprints();
+    }
+
+    /**
+     * Returns true if the last run ended with the same pipeline hash and all files it wrote still
+     * have the content they had then.
+     */
+    public boolean isUpToDate(String pipelineHash) {
+        if (!file.isFile()) {
+            return false;
+        }
+        List<String> lines;
+        try {
+            lines = Files.readAllLines(file.toPath(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            return false;
+        }
+        if (lines.isEmpty() || !lines.get(0).equals(pipelineHash)) {
+            return false;
+        }
+        for (String line : lines.subList(1, lines.size())) {
+            String[] parts = line.split("\t", 2);
+            if (parts.length != 2) {
+                return false;
+            }
+            File output = new File(baseDir, parts[1]);
+            try {
+                if (!output.isFile() || !fingerprints.fingerprint(output).equals(parts[0])) {
+                    return false;
+                }
+            } catch (FileAccessException e) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /** Removes the record, so the pipeline is not considered up to date until it succeeds. */
+    public void invalidate() {
+        try {
+            Files.deleteIfExists(file.toPath());
+        } catch (IOException e) {
+            throw new FileAccessException("Cannot delete " + file.getAbsolutePath(), e);
+        }
+    }
+
+    /** Records the pipeline hash and the fingerprints of the files the pipeline wrote. */
+    public void record(String pipelineHash, Collection<RelativePath> outputFiles) {
+        StringBuilder content = new StringBuilder(pipelineHash).append("\n");
+        List<RelativePath> sorted =
+                outputFiles.stream()
+                        .sorted(Comparator.comparing(RelativePath::getRelativePath))
+                        .toList();
+        for (RelativePath output : sorted) {
+            File outputFile = output.resolve();
+            if (!outputFile.isFile()) {
+                // removed by a later step: nothing to check next time
+                continue;
+            }
+            content.append(fingerprints.fingerprint(outputFile))
+                    .append("\t")
+                    .append(
+                            baseDir.toPath()
+                                    .toAbsolutePath()
+                                    .relativize(outputFile.toPath().toAbsolutePath()))
+                    .append("\n");
+        }
+        Path target = file.toPath().toAbsolutePath();
+        try {
+            Files.createDirectories(target.getParent());
+            Path tmp = Files.createTempFile(target.getParent(), FILE_NAME, ".tmp");
+            try {
+                Files.writeString(tmp, content, StandardCharsets.UTF_8);
+                try {
+                    Files.move(
+                            tmp,
+                            target,
+                            StandardCopyOption.ATOMIC_MOVE,
+                            StandardCopyOption.REPLACE_EXISTING);
+                } catch (AtomicMoveNotSupportedException e) {
+                    Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING);
+                }
+            } finally {
+                Files.deleteIfExists(tmp);
+            }
+        } catch (IOException e) {
+            throw new FileAccessException("Cannot write " + target, e);
+        }
+    }
+}
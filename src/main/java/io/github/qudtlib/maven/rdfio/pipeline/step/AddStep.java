@@ -2,10 +2,13 @@ package io.github.qudtlib.maven.rdfio.pipeline.step;
 
 import static io.github.qudtlib.maven.rdfio.common.datasetchange.DatasetState.DEFAULT_GRAPH_NAME;
 
+import io.github.qudtlib.maven.rdfio.common.datasetchange.ChangeTrackingDataset;
 import io.github.qudtlib.maven.rdfio.common.file.RelativePath;
 import io.github.qudtlib.maven.rdfio.pipeline.*;
+import io.github.qudtlib.maven.rdfio.pipeline.step.support.FileGraph;
 import io.github.qudtlib.maven.rdfio.pipeline.step.support.InputsComponent;
 import io.github.qudtlib.maven.rdfio.pipeline.step.support.ParsingHelper;
+import io.github.qudtlib.maven.rdfio.pipeline.step.support.StepDependencies;
 import io.github.qudtlib.maven.rdfio.pipeline.support.ConfigurationParseException;
 import io.github.qudtlib.maven.rdfio.pipeline.support.PipelineConfigurationExeception;
 import java.nio.charset.StandardCharsets;
@@ -34,6 +37,8 @@ public class AddStep implements Step {
 
     private String toGraphsPattern;
 
+    private boolean lazy = false;
+
     public String getToGraph() {
         return toGraph;
     }
@@ -50,6 +55,14 @@ public class AddStep implements Step {
         this.toGraphsPattern = toGraphsPattern;
     }
 
+    public boolean isLazy() {
+        return lazy;
+    }
+
+    public void setLazy(boolean lazy) {
+        this.lazy = lazy;
+    }
+
     @Override
     public String getElementName() {
         return "add";
@@ -74,6 +87,7 @@ public class AddStep implements Step {
         ParsingHelper.optionalStringChild(config, "toGraph", step::setToGraph, step::usage);
         ParsingHelper.optionalStringChild(
                 config, "toGraphsPattern", step::setToGraphsPattern, step::usage);
+        ParsingHelper.optionalBooleanChild(config, "lazy", step::setLazy, step::usage);
         if (step.getToGraph() != null) {
             step.setToGraphsPattern(null);
         }
@@ -126,42 +140,63 @@ public class AddStep implements Step {
         } else {
             List<RelativePath> inputFiles = inputsComponent.getAllInputPaths(dataset, state);
             int index = 0;
-            if (!inputFiles.isEmpty()) {
-                for (RelativePath inputPath : inputFiles) {
-                    String inputFilePath = inputPath.getRelativePath();
-                    boolean isBijectiveFileToGraphRel = false;
-                    String targetGraph = null;
-                    if (toGraphResolved != null) {
-                        if (inputFiles.size() == 1) {
-                            isBijectiveFileToGraphRel = true;
-                        }
-                        targetGraph = toGraphResolved;
-                    } else if (getToGraphsPattern() != null) {
-                        String tgp =
-                                state.variables()
-                                        .resolve(
-                                                replaceVariables(
-                                                        getToGraphsPattern(),
-                                                        inputFilePath,
-                                                        inputPath.getName(),
-                                                        index),
-                                                dataset);
-                        if (!tgp.equals(getToGraphsPattern())) {
-                            // the replace did change something - each file gets its own graph
-                            isBijectiveFileToGraphRel = true;
-                        }
-                        targetGraph = tgp;
-                    } else {
-                        targetGraph = null; // will write to default graph
+            List<FileLoad> fileLoads = new ArrayList<>();
+            for (RelativePath inputPath : inputFiles) {
+                String inputFilePath = inputPath.getRelativePath();
+                boolean isBijectiveFileToGraphRel = false;
+                String targetGraph = null;
+                if (toGraphResolved != null) {
+                    if (inputFiles.size() == 1) {
+                        isBijectiveFileToGraphRel = true;
                     }
-                    addInputDescription(
-                            targetGraphToInputsMap,
-                            targetGraph,
-                            "file: " + inputPath.getRelativePath());
-                    PipelineHelper.readFileToGraph(
-                            dataset, state, inputPath, targetGraph, isBijectiveFileToGraphRel);
-                    index++;
+                    targetGraph = toGraphResolved;
+                } else if (getToGraphsPattern() != null) {
+                    String tgp =
+                            state.variables()
+                                    .resolve(
+                                            replaceVariables(
+                                                    getToGraphsPattern(),
+                                                    inputFilePath,
+                                                    inputPath.getName(),
+                                                    index),
+                                            dataset);
+                    if (!tgp.equals(getToGraphsPattern())) {
+                        // the replace did change something - each file gets its own graph
+                        isBijectiveFileToGraphRel = true;
+                    }
+                    targetGraph = tgp;
+                } else {
+                    targetGraph = null; // will write to default graph
                 }
+                addInputDescription(
+                        targetGraphToInputsMap,
+                        targetGraph,
+                        "file: " + inputPath.getRelativePath());
+                FileLoad load = new FileLoad(inputPath, targetGraph, isBijectiveFileToGraphRel);
+                if (!(lazy && addLazily(dataset, state, load))) {
+                    fileLoads.add(load);
+                }
+                index++;
+            }
+            if (fileLoads.size() == 1) {
+                FileLoad load = fileLoads.get(0);
+                PipelineHelper.readFileToGraph(
+                        dataset, state, load.inputPath(), load.targetGraph(), load.bijective());
+            } else if (fileLoads.size() > 1) {
+                // parse concurrently, but add to the dataset in input order
+                FileAccess.readRdfConcurrently(
+                        fileLoads.stream().map(FileLoad::inputPath).toList(),
+                        state,
+                        (parsed, i) -> {
+                            FileLoad load = fileLoads.get(i);
+                            PipelineHelper.addParsedFileToGraph(
+                                    dataset,
+                                    state,
+                                    load.inputPath(),
+                                    parsed,
+                                    load.targetGraph(),
+                                    load.bijective());
+                        });
             }
             List<String> inputGraphs = inputsComponent.getAllInputGraphs(dataset, state);
             if (!inputGraphs.isEmpty()) {
@@ -205,6 +240,37 @@ public class AddStep implements Step {
         state.getPrecedingSteps().add(this);
     }
 
+    private record FileLoad(RelativePath inputPath, String targetGraph, boolean bijective) {}
+
+    /**
+     * Adds the file as a graph that is read when it is first used. Only possible for a named graph
+     * that does not exist yet; returns false if the file has to be read now.
+     */
+    private static boolean addLazily(Dataset dataset, PipelineState state, FileLoad load) {
+        if (load.targetGraph() == null || dataset.containsNamedModel(load.targetGraph())) {
+            return false;
+        }
+        FileGraph fileGraph = new FileGraph(load.inputPath(), state);
+        if (!ChangeTrackingDataset.putNewGraph(dataset, load.targetGraph(), fileGraph)) {
+            return false;
+        }
+        state.addLazyGraph(fileGraph);
+        state.log()
+                .debug(
+                        """
+         Lazily adding
+                file: %s
+          into graph: %s"""
+                                .formatted(load.inputPath().getRelativePath(), load.targetGraph()));
+        if (load.bijective()) {
+            PipelineHelper.bindGraphToFileIfUnbound(
+                    dataset, state, load.inputPath(), load.targetGraph());
+        } else {
+            PipelineHelper.bindGraphToNoFileIfUnbound(dataset, state, load.targetGraph());
+        }
+        return true;
+    }
+
     private static void addInputDescriptions(
             Map<String, Set<String>> targetGraphToInputsMap,
             String targetGraph,
@@ -257,6 +323,9 @@ public class AddStep implements Step {
                         '${path}' is replaced with the whole input file/graph
                         '${index}' is replaced with the 1-based index of the file/graph being loaded
                     - NOTE: no target means adding everything to the default graph
+                    - optionally <lazy>true</lazy>: files added to a new named graph are only read
+                       when a step first uses the graph; <write> copies the file if the graph is
+                       never used
                 Examples:
                 - <add>  <!-- writes to the default graph -->
                         <file>/src/main/resources/myinput.ttl</file>
@@ -274,6 +343,23 @@ public class AddStep implements Step {
                """;
     }
 
+    @Override
+    public StepDependencies getDependencies(PipelineState state) {
+        StepDependencies dependencies =
+                StepDependencies.of()
+                        .readsInputs(inputsComponent, !lazy)
+                        .readsGraph(state.getMetadataGraph())
+                        .writesGraph(state.getMetadataGraph());
+        if (toGraph != null) {
+            dependencies.writesGraph(toGraph);
+        } else if (toGraphsPattern != null) {
+            dependencies.writesGraph(toGraphsPattern);
+        } else {
+            dependencies.writesGraph(DEFAULT_GRAPH_NAME);
+        }
+        return dependencies;
+    }
+
     @Override
     public String calculateHash(String previousHash, PipelineState state) {
         try {
@@ -287,6 +373,9 @@ public class AddStep implements Step {
             if (toGraphsPattern != null) {
                 digest.update(toGraphsPattern.getBytes(StandardCharsets.UTF_8));
             }
+            if (lazy) {
+                digest.update("lazy".getBytes(StandardCharsets.UTF_8));
+            }
             return PipelineHelper.serializeMessageDigest(digest);
         } catch (NoSuchAlgorithmException e) {
             throw new RuntimeException("Failed to calculate hash", e);
@@ -4,6 +4,7 @@ import io.github.qudtlib.maven.rdfio.common.RDFIO;
 import io.github.qudtlib.maven.rdfio.pipeline.Pipeline;
 import io.github.qudtlib.maven.rdfio.pipeline.PipelineHelper;
 import io.github.qudtlib.maven.rdfio.pipeline.PipelineState;
+import io.github.qudtlib.maven.rdfio.pipeline.step.support.ParallelIterations;
 import io.github.qudtlib.maven.rdfio.pipeline.step.support.ParsingHelper;
 import io.github.qudtlib.maven.rdfio.pipeline.support.ConfigurationParseException;
 import java.nio.charset.StandardCharsets;
@@ -30,6 +31,9 @@ import org.codehaus.plexus.util.xml.Xpp3Dom;
  * the injected variables are removed. After the loop, all bindings are restored to their pre-loop
  * state.
  *
+ * <p>With {@code <parallel>N</parallel>}, the body is executed for up to N envs concurrently (see
+ * {@link ParallelIterations}).
+ *
  * <p>The optional {@code id} attribute on each {@code <env>} is used only for log messages and is
  * not automatically injected as a variable — add an explicit {@code <property name="id">} if the
  * body needs it.
@@ -60,6 +64,7 @@ import org.codehaus.plexus.util.xml.Xpp3Dom;
 public class ForEachEnvStep implements Step {
 
     private String message;
+    private int parallel = 1;
     private final List<EnvStep> envs = new ArrayList<>();
     private final List<Step> body = new ArrayList<>();
 
@@ -71,6 +76,14 @@ public class ForEachEnvStep implements Step {
         this.message = message;
     }
 
+    public int getParallel() {
+        return parallel;
+    }
+
+    public void setParallel(int parallel) {
+        this.parallel = parallel;
+    }
+
     public List<EnvStep> getEnvs() {
         return envs;
     }
@@ -103,23 +116,17 @@ public class ForEachEnvStep implements Step {
         if (message != null) {
             state.log().info(message, 1);
         }
+        if (parallel > 1 && envs.size() > 1) {
+            executeParallel(dataset, state);
+            state.getPrecedingSteps().add(this);
+            return;
+        }
         List<Statement> snapshot = snapshotVariables(dataset, state.getMetadataGraph());
         state.incIndentLevel();
         try {
             for (EnvStep env : envs) {
-                String envId = env.getProperties().getOrDefault("id", "(unnamed)");
-                state.log().info("<forEachEnv> env: " + envId);
-                for (Map.Entry<String, String> entry : env.getProperties().entrySet()) {
-                    PipelineHelper.setPipelineVariable(
-                            dataset,
-                            state,
-                            entry.getKey(),
-                            ResourceFactory.createStringLiteral(entry.getValue()));
-                }
                 try {
-                    for (Step step : body) {
-                        step.executeAndWrapException(dataset, state);
-                    }
+                    executeEnv(dataset, state, env);
                 } finally {
                     clearVariables(dataset, state.getMetadataGraph(), env.getProperties());
                 }
@@ -131,6 +138,43 @@ public class ForEachEnvStep implements Step {
         state.getPrecedingSteps().add(this);
     }
 
+    /**
+     * Executes the body for up to {@link #parallel} envs at once, each on its own overlay of the
+     * dataset. The variables set for an env only exist in its overlay, so no snapshot is needed.
+     */
+    private void executeParallel(Dataset dataset, PipelineState state)
+            throws MojoExecutionException {
+        state.incIndentLevel();
+        try {
+            state.log().info("executing up to %d envs in parallel".formatted(parallel));
+            List<ParallelIterations.Iteration> iterations = new ArrayList<>();
+            for (EnvStep env : envs) {
+                iterations.add(
+                        (iterationDataset, iterationState) ->
+                                executeEnv(iterationDataset, iterationState, env));
+            }
+            ParallelIterations.execute(iterations, parallel, dataset, state, false);
+        } finally {
+            state.decIndentLevel();
+        }
+    }
+
+    private void executeEnv(Dataset dataset, PipelineState state, EnvStep env)
+            throws MojoExecutionException {
+        String envId = env.getProperties().getOrDefault("id", "(unnamed)");
+        state.log().info("<forEachEnv> env: " + envId);
+        for (Map.Entry<String, String> entry : env.getProperties().entrySet()) {
+            PipelineHelper.setPipelineVariable(
+                    dataset,
+                    state,
+                    entry.getKey(),
+                    ResourceFactory.createStringLiteral(entry.getValue()));
+        }
+        for (Step step : body) {
+            step.executeAndWrapException(dataset, state);
+        }
+    }
+
     private static List<Statement> snapshotVariables(Dataset dataset, String metadataGraph) {
         Model metaModel = dataset.getNamedModel(metadataGraph);
         return metaModel.listStatements(null, RDFIO.value, (RDFNode) null).toList().stream()
@@ -174,6 +218,9 @@ public class ForEachEnvStep implements Step {
             if (message != null) {
                 digest.update(message.getBytes(StandardCharsets.UTF_8));
             }
+            if (parallel > 1) {
+                digest.update(("parallel" + parallel).getBytes(StandardCharsets.UTF_8));
+            }
             for (EnvStep env : envs) {
                 for (Map.Entry<String, String> entry : env.getProperties().entrySet()) {
                     digest.update(entry.getKey().getBytes(StandardCharsets.UTF_8));
@@ -199,6 +246,12 @@ public class ForEachEnvStep implements Step {
         ForEachEnvStep step = new ForEachEnvStep();
         ParsingHelper.optionalStringChild(
                 config, "message", step::setMessage, ForEachEnvStep::usage);
+        ParsingHelper.optionalIntegerChild(
+                config, "parallel", step::setParallel, ForEachEnvStep::usage);
+        if (step.parallel < 1) {
+            throw new ConfigurationParseException(
+                    config, "<forEachEnv>: <parallel> must be at least 1.\n" + usage());
+        }
 
         for (Xpp3Dom child : config.getChildren()) {
             switch (child.getName()) {
@@ -215,7 +268,7 @@ public class ForEachEnvStep implements Step {
                                         "stepDef"));
                     }
                 }
-                case "message" -> {} // already handled by ParsingHelper above
+                case "message", "parallel" -> {} // already handled by ParsingHelper above
                 default ->
                         throw new ConfigurationParseException(
                                 child,
@@ -243,6 +296,10 @@ public class ForEachEnvStep implements Step {
                 The optional id attribute on <env> is for logging only; to use it in the
                 body, add an explicit <property name="id">...</property>.
                 <savepoint> and <stepDef> are not allowed inside <forEachEnv>.
+                Optionally, <parallel>N</parallel> executes the body for up to N envs
+                concurrently. Each env then sees the dataset as it was before the loop
+                (not the changes made for other envs); the changes are merged in env
+                order afterwards.
                 Example:
                 <forEachEnv>
                     <env id="core">
@@ -1,6 +1,7 @@
 package io.github.qudtlib.maven.rdfio.pipeline.step;
 
 import io.github.qudtlib.maven.rdfio.pipeline.*;
+import io.github.qudtlib.maven.rdfio.pipeline.step.support.ParallelIterations;
 import io.github.qudtlib.maven.rdfio.pipeline.step.support.ParsingHelper;
 import io.github.qudtlib.maven.rdfio.pipeline.step.support.Values;
 import io.github.qudtlib.maven.rdfio.pipeline.support.ConfigurationParseException;
@@ -23,6 +24,8 @@ public class ForeachStep implements Step {
 
     private Values values;
 
+    private int parallel = 1;
+
     private final List<Step> body = new ArrayList<>();
 
     public String getVar() {
@@ -65,6 +68,14 @@ public class ForeachStep implements Step {
         this.indexVar = indexVar;
     }
 
+    public int getParallel() {
+        return parallel;
+    }
+
+    public void setParallel(int parallel) {
+        this.parallel = parallel;
+    }
+
     @Override
     public String getElementName() {
         return "foreach";
@@ -84,27 +95,25 @@ public class ForeachStep implements Step {
         }
         List<RDFNode> graphNames = values.getValues(dataset, state);
         try {
-            int index = 0;
             state.incIndentLevel();
-            for (RDFNode currentValue : graphNames) {
-                index++;
-                state.log().info("<foreach> iteration %d: entering body".formatted(index));
-                PipelineHelper.setPipelineVariable(dataset, state, var, currentValue);
-                state.log().info("variables", 1);
-                state.log().info("%s=%s".formatted(this.var, currentValue), 2);
-                if (this.indexVar != null) {
-                    state.log().info("%s=%s".formatted(this.indexVar, index), 2);
+            if (parallel > 1 && graphNames.size() > 1) {
+                state.log().info("executing up to %d iterations in parallel".formatted(parallel));
+                List<ParallelIterations.Iteration> iterations = new ArrayList<>();
+                for (int i = 0; i < graphNames.size(); i++) {
+                    RDFNode currentValue = graphNames.get(i);
+                    int index = i + 1;
+                    iterations.add(
+                            (iterationDataset, iterationState) ->
+                                    executeIteration(
+                                            iterationDataset, iterationState, currentValue, index));
                 }
-                state.log().info("");
-                PipelineHelper.setPipelineVariable(
-                        dataset,
-                        state,
-                        indexVar,
-                        ResourceFactory.createTypedLiteral(Integer.toString(index)));
-                for (Step step : body) {
-                    step.executeAndWrapException(dataset, state);
+                ParallelIterations.execute(iterations, parallel, dataset, state, true);
+            } else {
+                int index = 0;
+                for (RDFNode currentValue : graphNames) {
+                    index++;
+                    executeIteration(dataset, state, currentValue, index);
                 }
-                state.log().info("<foreach> iteration %d: end of body".formatted(index));
             }
         } finally {
             state.decIndentLevel();
@@ -112,6 +121,28 @@ public class ForeachStep implements Step {
         state.getPrecedingSteps().add(this);
     }
 
+    private void executeIteration(
+            Dataset dataset, PipelineState state, RDFNode currentValue, int index)
+            throws MojoExecutionException {
+        state.log().info("<foreach> iteration %d: entering body".formatted(index));
+        PipelineHelper.setPipelineVariable(dataset, state, var, currentValue);
+        state.log().info("variables", 1);
+        state.log().info("%s=%s".formatted(this.var, currentValue), 2);
+        if (this.indexVar != null) {
+            state.log().info("%s=%s".formatted(this.indexVar, index), 2);
+        }
+        state.log().info("");
+        PipelineHelper.setPipelineVariable(
+                dataset,
+                state,
+                indexVar,
+                ResourceFactory.createTypedLiteral(Integer.toString(index)));
+        for (Step step : body) {
+            step.executeAndWrapException(dataset, state);
+        }
+        state.log().info("<foreach> iteration %d: end of body".formatted(index));
+    }
+
     @Override
     public String calculateHash(String previousHash, PipelineState state) {
         try {
@@ -124,6 +155,9 @@ public class ForeachStep implements Step {
             if (values != null) {
                 values.updateHash(digest, state);
             }
+            if (parallel > 1) {
+                digest.update(("parallel" + parallel).getBytes(StandardCharsets.UTF_8));
+            }
             String subPreviousHash = "";
             for (Step subStep : body) {
                 subPreviousHash = subStep.calculateHash(subPreviousHash, state);
@@ -152,6 +186,15 @@ public class ForeachStep implements Step {
         ParsingHelper.optionalStringChild(config, "message", step::setMessage, step::usage);
         ParsingHelper.requiredDomChild(
                 config, "values", Values::parse, step::setValues, step::usage);
+        ParsingHelper.optionalIntegerChild(config, "parallel", step::setParallel, step::usage);
+        if (step.getParallel() < 1) {
+            throw new ConfigurationParseException(
+                    config,
+                    """
+                            Foreach step: <parallel> must be at least 1.
+                            %s"""
+                            .formatted(step.usage()));
+        }
 
         Xpp3Dom bodyDom = config.getChild("body");
         if (bodyDom == null || bodyDom.getChildren().length == 0) {
@@ -177,6 +220,10 @@ public class ForeachStep implements Step {
         return """
                             Foreach step configuration is missing.
                             Usage: Provide a <foreach> element with <var>, <values>, and <body>.
+                            Optionally, <parallel>N</parallel> executes up to N iterations
+                            concurrently. Each iteration then sees the dataset as it was before
+                            the loop (not the changes of other iterations); the changes are
+                            merged in iteration order afterwards.
                             Example:
                             <foreach>
                                 <var>fileGraph</var>
@@ -17,6 +17,12 @@ public class SavepointStep implements Step {
 
     private boolean enabled = true;
 
+    private boolean delta = false;
+
+    private int maxDeltaChain = SavepointCache.DEFAULT_MAX_DELTA_CHAIN;
+
+    private boolean automatic = false;
+
     public String getId() {
         return id;
     }
@@ -33,6 +39,35 @@ public class SavepointStep implements Step {
         this.enabled = enabled;
     }
 
+    public boolean isDelta() {
+        return delta;
+    }
+
+    public void setDelta(boolean delta) {
+        this.delta = delta;
+    }
+
+    public int getMaxDeltaChain() {
+        return maxDeltaChain;
+    }
+
+    public void setMaxDeltaChain(int maxDeltaChain) {
+        this.maxDeltaChain = maxDeltaChain;
+    }
+
+    /**
+     * Automatic savepoints are placed by the pipeline (see {@link
+     * io.github.qudtlib.maven.rdfio.pipeline.AutoSavepoints}). Their hash is the hash of the step
+     * before them, so adding or removing them does not change the hashes of later steps.
+     */
+    public boolean isAutomatic() {
+        return automatic;
+    }
+
+    public void setAutomatic(boolean automatic) {
+        this.automatic = automatic;
+    }
+
     public boolean isValid(PipelineState state, String currentHash) throws MojoExecutionException {
         if (!enabled) {
             return false;
@@ -73,13 +108,16 @@ public class SavepointStep implements Step {
             }
         } else {
             state.log().info("saving savepoint data", 1);
-            cache.save(id, dataset, currentHash, state);
+            cache.saveInBackground(id, dataset, currentHash, delta ? maxDeltaChain : 0, state);
             state.getPrecedingSteps().add(this);
         }
     }
 
     @Override
     public String calculateHash(String previousHash, PipelineState state) {
+        if (automatic) {
+            return previousHash;
+        }
         try {
             MessageDigest digest = MessageDigest.getInstance("MD5");
             digest.update(previousHash.getBytes(StandardCharsets.UTF_8));
@@ -101,11 +139,13 @@ public class SavepointStep implements Step {
                     config,
                     """
                             Savepoint step configuration is missing.
-                            Usage: Provide a <savepoint> element with a required <id> and optional <enabled>.
+                            Usage: Provide a <savepoint> element with a required <id> and optional <enabled>, <delta> and <maxDeltaChain>.
                             Example:
                             <savepoint>
                                 <id>sp001</id>
                                 <enabled>true</enabled>
+                                <delta>true</delta>
+                                <maxDeltaChain>5</maxDeltaChain>
                             </savepoint>""");
         }
 
@@ -127,6 +167,32 @@ public class SavepointStep implements Step {
                         || enabledDom.getValue() == null
                         || Boolean.parseBoolean(enabledDom.getValue().trim()));
 
+        Xpp3Dom deltaDom = config.getChild("delta");
+        step.setDelta(
+                deltaDom != null
+                        && deltaDom.getValue() != null
+                        && Boolean.parseBoolean(deltaDom.getValue().trim()));
+
+        Xpp3Dom maxDeltaChainDom = config.getChild("maxDeltaChain");
+        if (maxDeltaChainDom != null && maxDeltaChainDom.getValue() != null) {
+            int maxDeltaChain;
+            try {
+                maxDeltaChain = Integer.parseInt(maxDeltaChainDom.getValue().trim());
+            } catch (NumberFormatException e) {
+                maxDeltaChain = 0;
+            }
+            if (maxDeltaChain < 1) {
+                throw new ConfigurationParseException(
+                        config,
+                        """
+                                Savepoint step requires <maxDeltaChain> to be a positive integer, but was '%s'.
+                                Usage: Specify how many delta savepoints may follow each other before the full dataset is saved again.
+                                Example: <maxDeltaChain>5</maxDeltaChain>"""
+                                .formatted(maxDeltaChainDom.getValue()));
+            }
+            step.setMaxDeltaChain(maxDeltaChain);
+        }
+
         return step;
     }
 }
@@ -1,5 +1,7 @@
 package io.github.qudtlib.maven.rdfio.pipeline.step;
 
+import static io.github.qudtlib.maven.rdfio.common.datasetchange.DatasetState.DEFAULT_GRAPH_NAME;
+
 import io.github.qudtlib.maven.rdfio.common.file.FileHelper;
 import io.github.qudtlib.maven.rdfio.common.file.RelativePath;
 import io.github.qudtlib.maven.rdfio.pipeline.FileAccess;
@@ -8,6 +10,7 @@ import io.github.qudtlib.maven.rdfio.pipeline.PipelineState;
 import io.github.qudtlib.maven.rdfio.pipeline.step.support.Inferred;
 import io.github.qudtlib.maven.rdfio.pipeline.step.support.InputsComponent;
 import io.github.qudtlib.maven.rdfio.pipeline.step.support.ParsingHelper;
+import io.github.qudtlib.maven.rdfio.pipeline.step.support.StepDependencies;
 import io.github.qudtlib.maven.rdfio.pipeline.support.ConfigurationParseException;
 import io.github.qudtlib.maven.rdfio.pipeline.support.PipelineConfigurationExeception;
 import io.github.qudtlib.maven.rdfio.pipeline.support.VariableResolver;
@@ -355,6 +358,38 @@ public class ShaclInferStep implements Step {
         return dataModel;
     }
 
+    @Override
+    public StepDependencies getDependencies(PipelineState state) {
+        StepDependencies dependencies =
+                StepDependencies.of()
+                        .readsInputs(shapes)
+                        .readsInputs(data)
+                        .readsGraph(state.getShaclFunctionsGraph())
+                        .readsGraph(state.getMetadataGraph());
+        if (iterationOutputFilePattern != null) {
+            dependencies.writesFile(iterationOutputFilePattern);
+        }
+        if (inferred != null) {
+            if (inferred.getGraph() != null) {
+                dependencies.writesGraph(inferred.getGraph());
+                dependencies.writesGraph(state.getMetadataGraph());
+            }
+            if (inferred.getFile() != null) {
+                dependencies.writesFile(inferred.getFile());
+            }
+            if (inferred.getGraph() == null && inferred.getFile() == null) {
+                dependencies.writesGraph(DEFAULT_GRAPH_NAME);
+            }
+        }
+        return dependencies;
+    }
+
+    @Override
+    public boolean isDeterministic(PipelineState state) {
+        // the files written in each iteration are named using variables
+        return iterationOutputFilePattern == null;
+    }
+
     @Override
     public String calculateHash(String previousHash, PipelineState state) {
         try {
@@ -1,5 +1,7 @@
 package io.github.qudtlib.maven.rdfio.pipeline.step;
 
+import static io.github.qudtlib.maven.rdfio.common.datasetchange.DatasetState.DEFAULT_GRAPH_NAME;
+
 import io.github.qudtlib.maven.rdfio.common.file.FileHelper;
 import io.github.qudtlib.maven.rdfio.common.file.RelativePath;
 import io.github.qudtlib.maven.rdfio.common.file.ShaclHelper;
@@ -9,6 +11,7 @@ import io.github.qudtlib.maven.rdfio.pipeline.PipelineState;
 import io.github.qudtlib.maven.rdfio.pipeline.step.support.InputsComponent;
 import io.github.qudtlib.maven.rdfio.pipeline.step.support.ParsingHelper;
 import io.github.qudtlib.maven.rdfio.pipeline.step.support.ResultSeverityConfig;
+import io.github.qudtlib.maven.rdfio.pipeline.step.support.StepDependencies;
 import io.github.qudtlib.maven.rdfio.pipeline.step.support.ValidationReportComponent;
 import io.github.qudtlib.maven.rdfio.pipeline.support.ConfigurationParseException;
 import io.github.qudtlib.maven.rdfio.pipeline.support.PipelineConfigurationExeception;
@@ -421,6 +424,30 @@ public class ShaclValidateStep implements Step {
         return dataModel;
     }
 
+    @Override
+    public StepDependencies getDependencies(PipelineState state) {
+        StepDependencies dependencies =
+                StepDependencies.of()
+                        .readsInputs(shapes)
+                        .readsInputs(data)
+                        .readsGraph(state.getShaclFunctionsGraph())
+                        .readsGraph(state.getMetadataGraph());
+        if (validationReportComponent != null) {
+            if (validationReportComponent.getGraph() != null) {
+                dependencies.writesGraph(validationReportComponent.getGraph());
+                dependencies.writesGraph(state.getMetadataGraph());
+            }
+            if (validationReportComponent.getFile() != null) {
+                dependencies.writesFile(validationReportComponent.getFile());
+            }
+            if (validationReportComponent.getGraph() == null
+                    && validationReportComponent.getFile() == null) {
+                dependencies.writesGraph(DEFAULT_GRAPH_NAME);
+            }
+        }
+        return dependencies;
+    }
+
     @Override
     public String calculateHash(String previousHash, PipelineState state) {
         try {
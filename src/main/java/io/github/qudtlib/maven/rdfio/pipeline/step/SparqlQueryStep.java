@@ -9,6 +9,8 @@ import io.github.qudtlib.maven.rdfio.common.sparql.SparqlHelper;
 import io.github.qudtlib.maven.rdfio.pipeline.PipelineHelper;
 import io.github.qudtlib.maven.rdfio.pipeline.PipelineState;
 import io.github.qudtlib.maven.rdfio.pipeline.step.support.ParsingHelper;
+import io.github.qudtlib.maven.rdfio.pipeline.step.support.SparqlDependencies;
+import io.github.qudtlib.maven.rdfio.pipeline.step.support.StepDependencies;
 import io.github.qudtlib.maven.rdfio.pipeline.support.ConfigurationParseException;
 import java.nio.charset.StandardCharsets;
 import java.security.MessageDigest;
@@ -216,6 +218,35 @@ public class SparqlQueryStep implements Step {
         }
     }
 
+    @Override
+    public StepDependencies getDependencies(PipelineState state) {
+        String sparqlString = readStaticSparql(state);
+        StepDependencies dependencies =
+                SparqlDependencies.ofQuery(sparqlString).readsGraph(state.getMetadataGraph());
+        if (this.file != null) {
+            dependencies.readsFile(this.file);
+        }
+        if (toGraph != null) {
+            dependencies.writesGraph(toGraph);
+            dependencies.writesGraph(state.getMetadataGraph());
+        }
+        if (toFile != null) {
+            dependencies.writesFile(toFile);
+        }
+        return dependencies;
+    }
+
+    @Override
+    public boolean isDeterministic(PipelineState state) {
+        return (toGraph != null || toFile != null)
+                && SparqlDependencies.isDeterministic(readStaticSparql(state));
+    }
+
+    /** The SPARQL string, if it is known before the step is executed. */
+    private String readStaticSparql(PipelineState state) {
+        return SparqlDependencies.readStaticSparql(this.sparql, this.file, state);
+    }
+
     @Override
     public String calculateHash(String previousHash, PipelineState state) {
         try {
@@ -229,6 +260,8 @@ public class SparqlQueryStep implements Step {
                 digest.update(file.getBytes(StandardCharsets.UTF_8));
                 RdfFileProcessor.updateHashWithFiles(
                         List.of(FileHelper.resolveRelativeUnixPath(state.getBaseDir(), file)),
+                        state.getBaseDir(),
+                        state.getFileFingerprints(),
                         digest);
             }
             if (toFile != null) {
@@ -1,5 +1,6 @@
 package io.github.qudtlib.maven.rdfio.pipeline.step;
 
+import io.github.qudtlib.maven.rdfio.common.datasetchange.DatasetState;
 import io.github.qudtlib.maven.rdfio.common.file.FileHelper;
 import io.github.qudtlib.maven.rdfio.common.file.RdfFileProcessor;
 import io.github.qudtlib.maven.rdfio.common.file.RelativePath;
@@ -7,12 +8,15 @@ import io.github.qudtlib.maven.rdfio.common.sparql.SparqlHelper;
 import io.github.qudtlib.maven.rdfio.pipeline.PipelineHelper;
 import io.github.qudtlib.maven.rdfio.pipeline.PipelineState;
 import io.github.qudtlib.maven.rdfio.pipeline.step.support.ParsingHelper;
+import io.github.qudtlib.maven.rdfio.pipeline.step.support.SparqlDependencies;
+import io.github.qudtlib.maven.rdfio.pipeline.step.support.StepDependencies;
 import io.github.qudtlib.maven.rdfio.pipeline.support.ConfigurationParseException;
 import io.github.qudtlib.maven.rdfio.pipeline.support.VariableResolver;
 import java.nio.charset.StandardCharsets;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.util.List;
+import java.util.function.Predicate;
 import org.apache.jena.query.Dataset;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.codehaus.plexus.util.xml.Xpp3Dom;
@@ -92,6 +96,53 @@ public class SparqlUpdateStep implements Step {
         }
     }
 
+    @Override
+    public StepDependencies getDependencies(PipelineState state) {
+        // graphs created by the update are bound in the metadata graph
+        return getDependencies(state, graph -> true);
+    }
+
+    /**
+     * As {@link #getDependencies(PipelineState)}, but the metadata graph is only written if the
+     * update may create a graph that is not bound yet.
+     */
+    @Override
+    public StepDependencies getDependencies(Dataset dataset, PipelineState state) {
+        return getDependencies(
+                state,
+                graph ->
+                        !graph.equals(DatasetState.DEFAULT_GRAPH_NAME)
+                                && PipelineHelper.isGraphUnbound(dataset, state, graph));
+    }
+
+    private StepDependencies getDependencies(PipelineState state, Predicate<String> isUnbound) {
+        String sparqlString = readStaticSparql(state);
+        StepDependencies dependencies =
+                SparqlDependencies.ofUpdate(sparqlString).readsGraph(state.getMetadataGraph());
+        if (dependencies.getWrittenGraphs().stream()
+                .anyMatch(
+                        graph ->
+                                graph.contains("*")
+                                        || graph.contains("?")
+                                        || isUnbound.test(graph))) {
+            dependencies.writesGraph(state.getMetadataGraph());
+        }
+        if (this.file != null) {
+            dependencies.readsFile(this.file);
+        }
+        return dependencies;
+    }
+
+    @Override
+    public boolean isDeterministic(PipelineState state) {
+        return SparqlDependencies.isDeterministic(readStaticSparql(state));
+    }
+
+    /** The SPARQL string, if it is known before the step is executed. */
+    private String readStaticSparql(PipelineState state) {
+        return SparqlDependencies.readStaticSparql(this.sparql, this.file, state);
+    }
+
     @Override
     public String calculateHash(String previousHash, PipelineState state) {
         try {
@@ -105,6 +156,8 @@ public class SparqlUpdateStep implements Step {
                 digest.update(file.getBytes(StandardCharsets.UTF_8));
                 RdfFileProcessor.updateHashWithFiles(
                         List.of(FileHelper.resolveRelativeUnixPath(state.getBaseDir(), file)),
+                        state.getBaseDir(),
+                        state.getFileFingerprints(),
                         digest);
             }
             return PipelineHelper.serializeMessageDigest(digest);
@@ -4,6 +4,9 @@ import io.github.qudtlib.maven.rdfio.common.TimeHelper;
 import io.github.qudtlib.maven.rdfio.common.datasetchange.DatasetDifference;
 import io.github.qudtlib.maven.rdfio.common.datasetchange.DatasetState;
 import io.github.qudtlib.maven.rdfio.pipeline.PipelineState;
+import io.github.qudtlib.maven.rdfio.pipeline.step.support.StepDependencies;
+import io.github.qudtlib.maven.rdfio.pipeline.step.support.StepMeasurement;
+import io.github.qudtlib.maven.rdfio.pipeline.step.support.StepResultCache;
 import org.apache.jena.query.Dataset;
 import org.apache.maven.plugin.MojoExecutionException;
 
@@ -23,10 +26,26 @@ public interface Step {
             DatasetState stateBefore = new DatasetState(dataset);
             state.log().info("");
             state.log().info("Executing <%s> step ".formatted(getElementName()));
-            execute(dataset, state);
+            if (state.isMemoizeSteps() && isDeterministic(state)) {
+                state.getStepResultCache().execute(this, dataset, state);
+            } else {
+                execute(dataset, state);
+            }
             DatasetState stateAfter = new DatasetState(dataset);
+            state.recordStepMeasurement(
+                    this,
+                    new StepMeasurement(
+                            System.currentTimeMillis() - start,
+                            stateAfter.getGraphSizes().values().stream()
+                                    .mapToLong(Long::longValue)
+                                    .sum()));
             state.log().info("Dataset changes:", 1);
-            state.log().info(DatasetDifference.of(stateBefore, stateAfter).formatForChange(), 2);
+            state.log()
+                    .info(
+                            DatasetDifference.of(stateBefore, stateAfter)
+                                    .restrictTo(state.getReportedGraphChanges())
+                                    .formatForChange(),
+                            2);
             state.log()
                     .info(
                             "duration: "
@@ -53,4 +72,43 @@ public interface Step {
      * @return A string representing the step's hash.
      */
     String calculateHash(String previousHash, PipelineState state);
+
+    /**
+     * Returns the graphs and files the step reads and writes, as far as they can be determined
+     * before the step is executed. Steps that don't override this method are barriers: they are
+     * never executed concurrently with any other step.
+     *
+     * @param state
+     * @return the step's dependencies
+     */
+    default StepDependencies getDependencies(PipelineState state) {
+        return StepDependencies.barrier();
+    }
+
+    /**
+     * As {@link #getDependencies(PipelineState)}, but may narrow the dependencies down using the
+     * dataset as it is when the step is scheduled. Only called once the steps that may write the
+     * graphs and files the step reads have finished.
+     *
+     * @param dataset
+     * @param state
+     * @return the step's dependencies
+     */
+    default StepDependencies getDependencies(Dataset dataset, PipelineState state) {
+        return getDependencies(state);
+    }
+
+    /**
+     * Returns true if everything the step does - changing the dataset and writing files - depends
+     * only on its configuration and the graphs and files reported by {@link
+     * #getDependencies(PipelineState)}, so that its result can be stored and reused (see {@link
+     * StepResultCache}). Steps whose only effect is logging, or that use random values or the
+     * current time, are not deterministic.
+     *
+     * @param state
+     * @return true if the step's result can be memoized
+     */
+    default boolean isDeterministic(PipelineState state) {
+        return false;
+    }
 }
@@ -2,10 +2,14 @@ package io.github.qudtlib.maven.rdfio.pipeline.step;
 
 import static io.github.qudtlib.maven.rdfio.common.datasetchange.DatasetState.DEFAULT_GRAPH_NAME;
 
+import io.github.qudtlib.maven.rdfio.common.file.Compression;
+import io.github.qudtlib.maven.rdfio.common.file.RdfLoader;
 import io.github.qudtlib.maven.rdfio.common.file.RelativePath;
 import io.github.qudtlib.maven.rdfio.pipeline.*;
+import io.github.qudtlib.maven.rdfio.pipeline.step.support.FileGraph;
 import io.github.qudtlib.maven.rdfio.pipeline.step.support.GraphSelection;
 import io.github.qudtlib.maven.rdfio.pipeline.step.support.ParsingHelper;
+import io.github.qudtlib.maven.rdfio.pipeline.step.support.StepDependencies;
 import io.github.qudtlib.maven.rdfio.pipeline.support.ConfigurationParseException;
 import java.nio.charset.StandardCharsets;
 import java.security.MessageDigest;
@@ -13,12 +17,16 @@ import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import org.apache.jena.graph.Graph;
 import org.apache.jena.query.Dataset;
 import org.apache.jena.query.DatasetFactory;
 import org.apache.jena.rdf.model.Model;
 import org.apache.jena.rdf.model.ModelFactory;
 import org.apache.jena.riot.Lang;
 import org.apache.jena.riot.RDFLanguages;
+import org.apache.jena.shared.PrefixMapping;
 import org.apache.jena.sparql.graph.PrefixMappingMem;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.codehaus.plexus.util.xml.Xpp3Dom;
@@ -92,7 +100,7 @@ public class WriteStep implements Step {
         } else {
             RelativePath outputPath =
                     state.files().make(state.variables().resolve(this.toFile, dataset));
-            Lang outputLang = RDFLanguages.resourceNameToLang(outputPath.getName(), Lang.TTL);
+            Lang outputLang = RdfLoader.lang(outputPath.getName(), Lang.TTL);
             List<String> graphNames = null;
             if (RDFLanguages.isQuads(outputLang)) {
                 state.files().createParentFolder(outputPath);
@@ -108,6 +116,13 @@ public class WriteStep implements Step {
                     }
                 }
                 state.files().writeRdf(outputPath, dsToWrite);
+            } else if (allGraphs.size() == 1
+                    && writeUnloadedFileGraph(
+                            dataset,
+                            state,
+                            state.variables().resolve(allGraphs, dataset).get(0),
+                            outputPath)) {
+                graphNames = state.variables().resolve(allGraphs, dataset);
             } else {
                 state.files().createParentFolder(outputPath);
                 Model modelToWrite = ModelFactory.createDefaultModel();
@@ -132,15 +147,25 @@ public class WriteStep implements Step {
         state.getPrecedingSteps().add(this);
     }
 
-    private void copyNamespaceMappings(Dataset dataset, Model modelToWrite) {
+    private static void copyNamespaceMappings(Dataset dataset, Model modelToWrite) {
+        modelToWrite.setNsPrefixes(getNamespaceMappings(dataset));
+    }
+
+    /**
+     * Returns the prefixes of all named graphs. The prefixes of a lazily added file are only known
+     * once it has been read, so graphs that have not been read yet are left out.
+     */
+    private static PrefixMapping getNamespaceMappings(Dataset dataset) {
         Iterator<String> it = dataset.listNames();
         PrefixMappingMem pm = new PrefixMappingMem();
         while (it.hasNext()) {
             String graphName = it.next();
-            Model graph = dataset.getNamedModel(graphName);
-            pm.setNsPrefixes(graph);
+            Graph graph = dataset.getNamedModel(graphName).getGraph();
+            if (FileGraph.unloadedFileGraph(graph).isEmpty()) {
+                pm.setNsPrefixes(graph.getPrefixMapping());
+            }
         }
-        modelToWrite.setNsPrefixes(pm);
+        return pm;
     }
 
     private void writeOneFilePerGraph(
@@ -166,6 +191,9 @@ public class WriteStep implements Step {
                                     "    -> %s".formatted(outputFileStr)),
                             1);
             RelativePath outputPath = state.files().make(outputFileStr);
+            if (writeUnloadedFileGraph(dataset, state, graph, outputPath)) {
+                continue;
+            }
             state.files().createParentFolder(outputPath);
             Model model = dataset.getNamedModel(graph);
             copyNamespaceMappings(dataset, model);
@@ -173,6 +201,54 @@ public class WriteStep implements Step {
         }
     }
 
+    /**
+     * If the graph was added lazily and has not been used since, its file is copied to the output
+     * file instead of writing the graph, provided both are in the same format and the other graphs
+     * have no prefixes that would be added to the output. Returns false if the graph has to be
+     * written.
+     */
+    private static boolean writeUnloadedFileGraph(
+            Dataset dataset, PipelineState state, String graph, RelativePath outputPath) {
+        Optional<FileGraph> fileGraph =
+                FileGraph.unloadedFileGraph(dataset.getNamedModel(graph).getGraph());
+        if (fileGraph.isEmpty()) {
+            return false;
+        }
+        RelativePath source = fileGraph.get().getPath();
+        if (!sameFormat(source.getName(), outputPath.getName())
+                || getNamespaceMappings(dataset).numPrefixes() > 0) {
+            return false;
+        }
+        state.files().createParentFolder(outputPath);
+        state.files().copy(source, outputPath);
+        return true;
+    }
+
+    private static boolean sameFormat(String sourceName, String outputName) {
+        return Compression.of(sourceName) == Compression.of(outputName)
+                && Objects.equals(
+                        RdfLoader.lang(sourceName, Lang.TTL), RdfLoader.lang(outputName, Lang.TTL));
+    }
+
+    @Override
+    public StepDependencies getDependencies(PipelineState state) {
+        StepDependencies dependencies =
+                StepDependencies.of().readsGraphs(graphs).readsGraph(state.getMetadataGraph());
+        if (graphSelection != null) {
+            dependencies.readsGraphs(graphSelection.getInclude());
+        }
+        if (graphs.isEmpty() && graphSelection == null) {
+            dependencies.readsGraph(DEFAULT_GRAPH_NAME);
+        }
+        if (toFile != null) {
+            dependencies.writesFile(toFile);
+        } else {
+            // files are looked up in the metadata graph at execution time
+            dependencies.writesFile(StepDependencies.ANY_FILE);
+        }
+        return dependencies;
+    }
+
     @Override
     public String calculateHash(String previousHash, PipelineState state) {
         try {
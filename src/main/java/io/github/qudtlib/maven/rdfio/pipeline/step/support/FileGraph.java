@@ -0,0 +1,67 @@
+package io.github.qudtlib.maven.rdfio.pipeline.step.support;
+
+import io.github.qudtlib.maven.rdfio.common.file.RelativePath;
+import io.github.qudtlib.maven.rdfio.pipeline.PipelineState;
+import java.util.Optional;
+import org.apache.jena.graph.Graph;
+import org.apache.jena.graph.impl.WrappedGraph;
+import org.apache.jena.rdf.model.ModelFactory;
+import org.apache.jena.sparql.graph.GraphFactory;
+import org.apache.jena.sparql.graph.GraphWrapper;
+
+/**
+ * A graph added from an RDF file with <code>&lt;add&gt;&lt;lazy&gt;true&lt;/lazy&gt;</code>, which
+ * is read from the file when it is first used. Until then, <code>&lt;write&gt;</code> copies the
+ * file instead of writing the graph. If the pipeline overwrites or deletes the file, the graph is
+ * read first (see {@link PipelineState#addLazyGraph(FileGraph)}).
+ *
+ * <p>Creating the graph only records the file. Its size, hash and prefixes are not known until it
+ * is read. The file is read with the pipeline's root state (see {@link PipelineState#getRoot()}),
+ * as the step that added the graph may have finished long before, and its log with it.
+ */
+public class FileGraph extends GraphWrapper {
+    private final RelativePath path;
+    private final PipelineState state;
+    private volatile Graph graph = null;
+
+    public FileGraph(RelativePath path, PipelineState state) {
+        super(null);
+        this.path = path;
+        this.state = state.getRoot();
+    }
+
+    public RelativePath getPath() {
+        return path;
+    }
+
+    public boolean isLoaded() {
+        return graph != null;
+    }
+
+    @Override
+    public Graph get() {
+        Graph loaded = graph;
+        if (loaded != null) {
+            return loaded;
+        }
+        synchronized (this) {
+            if (graph == null) {
+                state.log().debug("Reading lazily added file %s".formatted(path.getRelativePath()));
+                Graph newGraph = GraphFactory.createDefaultGraph();
+                state.files().readRdf(path, ModelFactory.createModelForGraph(newGraph));
+                graph = newGraph;
+            }
+            return graph;
+        }
+    }
+
+    /** Returns the file graph wrapped by the dataset's graph, if it has not been read yet. */
+    public static Optional<FileGraph> unloadedFileGraph(Graph graph) {
+        if (graph instanceof WrappedGraph wrappedGraph
+                && wrappedGraph.getWrapped() instanceof FileGraph fileGraph
+                && !fileGraph.isLoaded()) {
+            return Optional.of(fileGraph);
+        }
+        return Optional.empty();
+    }
+}
@@ -146,16 +146,16 @@ public class InputsComponent<T extends Step> implements StepComponent<T> {
 
     public void updateHash(MessageDigest digest, PipelineState state) {
         RdfFileProcessor.updateHashWithFiles(
-                RdfFileProcessor.resolveFiles(files, fileSelection, state.getBaseDir()), digest);
+                RdfFileProcessor.resolveFiles(files, fileSelection, state.getBaseDir()),
+                state.getBaseDir(),
+                state.getFileFingerprints(),
+                digest,
+                state.isSemanticHashing());
         if (fileSelection != null) {
+            // the selected files' contents have been added above
             for (String include : fileSelection.getInclude()) {
                 digest.update(include.getBytes(StandardCharsets.UTF_8));
             }
-            List<RelativePath> paths = getAllInputPathsWithoutResolvingVariables(state);
-            for (RelativePath path : paths) {
-                String content = state.files().readText(path);
-                digest.update(content.getBytes(StandardCharsets.UTF_8));
-            }
             for (String exclude : fileSelection.getExclude()) {
                 digest.update(exclude.getBytes(StandardCharsets.UTF_8));
             }
@@ -0,0 +1,179 @@
+package io.github.qudtlib.maven.rdfio.pipeline.step.support;
+
+import io.github.qudtlib.maven.rdfio.common.RDFIO;
+import io.github.qudtlib.maven.rdfio.common.datasetchange.ChangeTrackingDataset;
+import io.github.qudtlib.maven.rdfio.common.datasetchange.OverlayGraph;
+import io.github.qudtlib.maven.rdfio.common.log.BufferedLog;
+import io.github.qudtlib.maven.rdfio.pipeline.PipelineState;
+import io.github.qudtlib.maven.rdfio.pipeline.step.Step;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.jena.graph.Graph;
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.Triple;
+import org.apache.jena.query.Dataset;
+import org.apache.maven.plugin.MojoExecutionException;
+
+/**
+ * Executes the iterations of a loop step ({@code <foreach>}, {@code <forEachEnv>}) concurrently.
+ *
+ * <p>Each iteration works on its own overlay of the dataset (see {@link
+ * ChangeTrackingDataset#createOverlay(Dataset)}): it sees the dataset as it was before the loop,
+ * plus its own changes - including its own pipeline variables - but none of the changes made by
+ * other iterations. When all iterations have finished, their changes are merged into the dataset in
+ * iteration order, so the result does not depend on which iteration finished first. Log output is
+ * written in iteration order, too.
+ */
+public class ParallelIterations {
+
+    @FunctionalInterface
+    public interface Iteration {
+        void execute(Dataset dataset, PipelineState state) throws MojoExecutionException;
+    }
+
+    /**
+     * Executes the iterations using up to <code>parallelism</code> threads.
+     *
+     * @param keepVariables if true, the pipeline variables set by the last iteration are kept in
+     *     the metadata graph, like after a sequential loop. Otherwise variables set in iterations
+     *     are discarded.
+     */
+    public static void execute(
+            List<Iteration> iterations,
+            int parallelism,
+            Dataset dataset,
+            PipelineState state,
+            boolean keepVariables)
+            throws MojoExecutionException {
+        if (iterations.isEmpty()) {
+            return;
+        }
+        ExecutorService executor = newExecutor(Math.min(parallelism, iterations.size()));
+        try {
+            List<Dataset> overlays = new ArrayList<>();
+            List<PipelineState> iterationStates = new ArrayList<>();
+            List<BufferedLog> logs = new ArrayList<>();
+            List<Future<?>> futures = new ArrayList<>();
+            for (Iteration iteration : iterations) {
+                Dataset overlay = ChangeTrackingDataset.createOverlay(dataset);
+                BufferedLog log = new BufferedLog(state.getLog());
+                PipelineState iterationState = state.fork(log);
+                overlays.add(overlay);
+                iterationStates.add(iterationState);
+                logs.add(log);
+                futures.add(
+                        executor.submit(
+                                () -> {
+                                    iteration.execute(overlay, iterationState);
+                                    return null;
+                                }));
+            }
+            int precedingStepsBefore = state.getPrecedingSteps().size();
+            for (int i = 0; i < futures.size(); i++) {
+                awaitIteration(futures, logs, i);
+                List<Step> iterationSteps = iterationStates.get(i).getPrecedingSteps();
+                state.getPrecedingSteps()
+                        .addAll(
+                                iterationSteps.subList(
+                                        precedingStepsBefore, iterationSteps.size()));
+            }
+            for (Dataset overlay : overlays) {
+                mergeVariables(overlay, dataset, state.getMetadataGraph(), keepVariables);
+                ChangeTrackingDataset.mergeOverlay(overlay, dataset);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static ExecutorService newExecutor(int threads) {
+        AtomicInteger threadCount = new AtomicInteger();
+        return Executors.newFixedThreadPool(
+                threads,
+                runnable -> {
+                    Thread thread =
+                            new Thread(
+                                    runnable, "rdfio-iteration-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    private static void awaitIteration(List<Future<?>> futures, List<BufferedLog> logs, int index)
+            throws MojoExecutionException {
+        try {
+            futures.get(index).get();
+            logs.get(index).flush();
+        } catch (ExecutionException e) {
+            logs.get(index).flush();
+            futures.forEach(future -> future.cancel(false));
+            for (int i = index + 1; i < futures.size(); i++) {
+                try {
+                    futures.get(i).get();
+                    logs.get(i).flush();
+                } catch (ExecutionException
+                        | CancellationException
+                        | InterruptedException ignored) {
+                    // the first failure is reported
+                }
+            }
+            if (e.getCause() instanceof MojoExecutionException mojoExecutionException) {
+                throw mojoExecutionException;
+            }
+            throw new MojoExecutionException(
+                    "Error in iteration %d: %s".formatted(index + 1, e.getCause().getMessage()),
+                    e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new MojoExecutionException("Interrupted while waiting for iterations", e);
+        }
+    }
+
+    /**
+     * Pipeline variables are values in the metadata graph that are replaced, not added, so they
+     * cannot be merged like other triples: they are removed from the overlay and, if <code>
+     * keepVariables</code> is true, set to the iteration's values.
+     */
+    private static void mergeVariables(
+            Dataset overlay, Dataset dataset, String metadataGraph, boolean keepVariables) {
+        OverlayGraph metadata = ChangeTrackingDataset.getOverlayGraphs(overlay).get(metadataGraph);
+        if (metadata == null) {
+            return;
+        }
+        List<Triple> addedValues = findVariableValues(metadata.getAdditions());
+        List<Triple> deletedValues = findVariableValues(metadata.getDeletions());
+        if (keepVariables) {
+            Set<Node> changedVariables = new LinkedHashSet<>();
+            addedValues.forEach(t -> changedVariables.add(t.getSubject()));
+            deletedValues.forEach(t -> changedVariables.add(t.getSubject()));
+            Graph targetGraph = dataset.getNamedModel(metadataGraph).getGraph();
+            Node value = RDFIO.value.asNode();
+            for (Node variable : changedVariables) {
+                List<Triple> iterationValues = metadata.find(variable, value, Node.ANY).toList();
+                targetGraph.remove(variable, value, Node.ANY);
+                iterationValues.forEach(targetGraph::add);
+            }
+        }
+        addedValues.forEach(metadata.getAdditions()::delete);
+        deletedValues.forEach(metadata.getDeletions()::delete);
+    }
+
+    private static List<Triple> findVariableValues(Graph graph) {
+        return graph.find(Node.ANY, RDFIO.value.asNode(), Node.ANY)
+                .filterKeep(
+                        t ->
+                                t.getSubject().isURI()
+                                        && t.getSubject()
+                                                .getURI()
+                                                .startsWith(RDFIO.VARIABLE_PREFIX))
+                .toList();
+    }
+}
@@ -210,6 +210,26 @@ public class ParsingHelper {
         booleanChildren(config, name, valueSetter, usageSupplier, 0, 1);
     }
 
+    public static void optionalIntegerChild(
+            Xpp3Dom config,
+            String name,
+            Consumer<Integer> valueSetter,
+            Supplier<String> usageSupplier) {
+        optionalStringChild(
+                config,
+                name,
+                value -> {
+                    try {
+                        valueSetter.accept(Integer.parseInt(value.trim()));
+                    } catch (NumberFormatException e) {
+                        throw new IllegalArgumentException(
+                                "Value of <%s> must be an integer, but was '%s'\n%s"
+                                        .formatted(name, value, usageSupplier.get()));
+                    }
+                },
+                usageSupplier);
+    }
+
     private static void throwCountExceptions(
             String name, Supplier<String> usageSupplier, int minCount, int maxCount, int count)
             throws ConfigurationParseException {
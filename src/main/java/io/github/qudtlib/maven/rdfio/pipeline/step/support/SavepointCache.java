@@ -1,20 +1,158 @@
 package io.github.qudtlib.maven.rdfio.pipeline.step.support;
 
+import static io.github.qudtlib.maven.rdfio.common.datasetchange.DatasetState.DEFAULT_GRAPH_NAME;
+
+import io.github.qudtlib.maven.rdfio.common.datasetchange.ChangeTrackingDataset;
+import io.github.qudtlib.maven.rdfio.common.datasetchange.ChangeTrackingGraph;
+import io.github.qudtlib.maven.rdfio.common.datasetchange.DatasetState;
+import io.github.qudtlib.maven.rdfio.common.datasetchange.GraphPatch;
+import io.github.qudtlib.maven.rdfio.common.file.FileAccessException;
 import io.github.qudtlib.maven.rdfio.common.file.RelativePath;
 import io.github.qudtlib.maven.rdfio.pipeline.PipelineHelper;
 import io.github.qudtlib.maven.rdfio.pipeline.PipelineState;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.apache.jena.graph.Graph;
+import org.apache.jena.graph.impl.WrappedGraph;
 import org.apache.jena.query.Dataset;
+import org.apache.jena.sparql.graph.GraphFactory;
 
+/**
+ * Stores the dataset of each savepoint in a directory of its own, with one file per graph and a
+ * manifest listing the graphs with their sizes, hashes and files.
+ *
+ * <p>Graphs are written in parallel. When a savepoint is loaded, the named graphs are not read
+ * until they are used, so resuming a pipeline only costs the graphs its remaining steps need.
+ * Graphs that are saved again without having been used are copied instead of being read.
+ *
+ * <p>A delta savepoint only stores what changed since the previous savepoint of the pipeline run:
+ * unchanged graphs refer to the previous savepoint's files, and a changed graph is stored as an RDF
+ * Patch that is applied to them, unless the patch would be larger than the graph or the chain of
+ * patches would become longer than allowed.
+ *
+ * <p>Savepoints can be saved in the background from a snapshot of the dataset, so the pipeline does
+ * not have to wait for them to be written. The snapshot does not copy the graphs: they are frozen,
+ * and the pipeline's changes are recorded in overlays until the savepoint has been written. The
+ * hash file is written last, so a savepoint only becomes valid once all of its files are complete.
+ *
+ * <p>If a {@link SavepointStore} is set, saved savepoints are also added to it, and a savepoint
+ * that is not valid in the build directory is restored from it if the store contains a savepoint
+ * with the expected hash.
+ */
 public class SavepointCache {
     public static final String HASH_FILE_NAME = "hash.txt";
-    public static final String DATASET_FILE_NAME = "dataset.trig";
+    public static final String MANIFEST_FILE_NAME = "manifest.txt";
+    public static final int DEFAULT_MAX_DELTA_CHAIN = 5;
+    private static final String DEFAULT_GRAPH_FILE_NAME = "default";
+    private static final String GRAPH_FILE_NAME = "graph-%05d";
+    private static final String PATCH_EXTENSION = ".patch";
+    private static final String GZIP_EXTENSION = ".gz";
+
+    /** File name of savepoints that stored the whole dataset in a single file. */
+    private static final String DATASET_FILE_NAME = "dataset";
+
     private final RelativePath baseDir;
+    private SavepointFormat format = SavepointFormat.DEFAULT;
+    private volatile LastSavepoint lastSavepoint = null;
+    private volatile SavepointStore store = null;
+    private ExecutorService backgroundWriter = null;
+    private Future<?> pendingSave = null;
+    private final SavepointCosts costs = new SavepointCosts();
+
+    /**
+     * The savepoint saved or loaded last, with the modification stamps its graphs had (see {@link
+     * ChangeTrackingGraph#getModificationStamp()}). A graph whose stamp is still the same has not
+     * changed since.
+     */
+    private record LastSavepoint(String id, Map<String, Long> stamps) {}
+
+    /**
+     * A graph of a savepoint. The files are given as <code>savepointId/fileName</code>: the first
+     * one contains the graph, the others are patches to apply to it. Size and hash are the graph's
+     * tracked values, used to report changes without reading the graph; they do not tell whether
+     * the graph has changed.
+     */
+    private record ManifestEntry(List<String> files, long size, int hash, String graphName) {
+        /** Files without a savepoint id belong to <code>savepointId</code>. */
+        static ManifestEntry parse(String line, String savepointId) {
+            String[] parts = line.split("\t", 4);
+            if (parts.length != 4) {
+                throw new FileAccessException("Invalid savepoint manifest entry: " + line);
+            }
+            return new ManifestEntry(
+                    Arrays.stream(parts[0].split("\\|"))
+                            .map(file -> file.contains("/") ? file : savepointId + "/" + file)
+                            .toList(),
+                    Long.parseLong(parts[1]),
+                    Integer.parseInt(parts[2]),
+                    parts[3]);
+        }
+
+        String format() {
+            return String.join(
+                    "\t",
+                    String.join("|", files),
+                    Long.toString(size),
+                    Integer.toString(hash),
+                    graphName);
+        }
+
+        int patchCount() {
+            return files.size() - 1;
+        }
+    }
 
     public SavepointCache(RelativePath baseDir) {
         this.baseDir = baseDir;
     }
 
+    public SavepointFormat getFormat() {
+        return format;
+    }
+
+    public void setFormat(SavepointFormat format) {
+        this.format = Objects.requireNonNull(format, "format cannot be null");
+    }
+
+    public SavepointStore getStore() {
+        return store;
+    }
+
+    /** Sets the store shared by builds, or <code>null</code> to keep savepoints locally only. */
+    public void setStore(SavepointStore store) {
+        this.store = store;
+    }
+
+    /** How long writing and loading savepoints took in this run. */
+    public SavepointCosts getCosts() {
+        return costs;
+    }
+
+    /** The savepoint saved or loaded last, which delta savepoints are based on. */
+    public String getLastSavepointId() {
+        LastSavepoint last = lastSavepoint;
+        return last == null ? null : last.id();
+    }
+
     public boolean isValid(String id, String expectedHash, PipelineState state) {
         if (id == null) {
             return false;
@@ -25,43 +163,648 @@ public class SavepointCache {
         if (state == null) {
             throw new IllegalArgumentException("state cannot be null");
         }
+        awaitPendingSave();
+        if (isValidLocally(id, expectedHash, state)) {
+            return true;
+        }
+        return store != null
+                && restore(id, expectedHash, state)
+                && isValidLocally(id, expectedHash, state);
+    }
+
+    private boolean isValidLocally(String id, String expectedHash, PipelineState state) {
         RelativePath savepointDir = getSavepointDir(id);
         RelativePath hashFile = getHashFile(savepointDir);
         if (!savepointDir.exists() || !hashFile.exists()) {
             return false;
         }
         String storedHash = state.files().readText(hashFile).trim();
-        return storedHash.equals(expectedHash);
+        if (!storedHash.equals(expectedHash)) {
+            return false;
+        }
+        // a delta savepoint is useless if a savepoint it refers to has been removed
+        RelativePath manifestFile = getManifestFile(savepointDir);
+        return !manifestFile.exists()
+                || readManifest(id, state).stream()
+                        .flatMap(entry -> entry.files().stream())
+                        .allMatch(file -> resolveFile(file).exists());
     }
 
+    /**
+     * Loads the savepoint's dataset. The default graph is read immediately, the named graphs
+     * replace the dataset's graphs of the same name and are read when they are first used.
+     * Savepoints written in another format than the current one are loaded, too, so changing the
+     * format does not invalidate existing savepoints.
+     */
     public void load(String id, Dataset dataset, PipelineState state) {
         Objects.requireNonNull(id, "cannot load savepoint: id is null");
         Objects.requireNonNull(dataset, "cannot load savepoint into dataset: dataset is null");
-        RelativePath datasetFile = getDatasetFile(getSavepointDir(id));
-        if (datasetFile.exists()) {
-            PipelineHelper.clearDataset(dataset);
-            state.files().readRdf(datasetFile, dataset);
+        awaitPendingSave();
+        RelativePath savepointDir = getSavepointDir(id);
+        RelativePath manifestFile = getManifestFile(savepointDir);
+        if (!manifestFile.exists()) {
+            loadDatasetFile(savepointDir, dataset, state);
+            return;
+        }
+        for (ManifestEntry entry : readManifest(id, state)) {
+            List<RelativePath> files = entry.files().stream().map(this::resolveFile).toList();
+            if (entry.graphName().equals(DEFAULT_GRAPH_NAME)) {
+                long start = System.currentTimeMillis();
+                readGraph(files, dataset.getDefaultModel().getGraph(), state);
+                costs.recordLoad(System.currentTimeMillis() - start, entry.size());
+            } else {
+                ChangeTrackingDataset.putGraph(
+                        dataset,
+                        entry.graphName(),
+                        new SavepointGraph(files, costs, state),
+                        entry.size(),
+                        entry.hash());
+            }
+        }
+        lastSavepoint = new LastSavepoint(id, modificationStamps(dataset));
+    }
+
+    private void loadDatasetFile(RelativePath savepointDir, Dataset dataset, PipelineState state) {
+        Optional<SavepointFormat> storedFormat =
+                Stream.concat(Stream.of(format), Arrays.stream(SavepointFormat.values()))
+                        .filter(f -> getDatasetFile(savepointDir, f).exists())
+                        .findFirst();
+        if (storedFormat.isPresent()) {
+            SavepointFormat f = storedFormat.get();
+            state.files()
+                    .readRdfStream(
+                            getDatasetFile(savepointDir, f), dataset, f.getLang(), f.isGzip());
+        }
+    }
+
+    /** Reads a graph file and applies the patches following it. */
+    static void readGraph(List<RelativePath> files, Graph graph, PipelineState state) {
+        RelativePath graphFile = files.get(0);
+        SavepointFormat graphFormat = formatOf(graphFile.getName());
+        state.files().readRdfStream(graphFile, graph, graphFormat.getLang(), graphFormat.isGzip());
+        for (RelativePath patchFile : files.subList(1, files.size())) {
+            state.files()
+                    .applyRdfPatch(patchFile, graph, patchFile.getName().endsWith(GZIP_EXTENSION));
         }
     }
 
     public void save(String id, Dataset dataset, String hash, PipelineState state) {
+        save(id, dataset, hash, 0, state);
+    }
+
+    /**
+     * Saves a snapshot of the dataset in the background, like {@link #save(String, Dataset, String,
+     * int, PipelineState)}, and returns as soon as the snapshot has been taken. A save that is
+     * still pending is waited for first, as are the other operations of the cache.
+     */
+    public void saveInBackground(
+            String id, Dataset dataset, String hash, int maxDeltaChain, PipelineState state) {
+        Objects.requireNonNull(id, "cannot save savepoint: id is null");
+        Objects.requireNonNull(hash, "cannot save savepoint: hash is null");
+        awaitPendingSave();
+        Map<String, Long> stamps = modificationStamps(dataset);
+        List<ChangeTrackingGraph> frozenGraphs = new ArrayList<>();
+        Dataset snapshot = snapshot(dataset, frozenGraphs, state);
+        synchronized (this) {
+            if (backgroundWriter == null) {
+                backgroundWriter =
+                        Executors.newSingleThreadExecutor(
+                                runnable -> {
+                                    Thread thread = new Thread(runnable, "rdfio-savepoint-writer");
+                                    thread.setDaemon(true);
+                                    return thread;
+                                });
+            }
+            pendingSave =
+                    backgroundWriter.submit(
+                            () -> {
+                                try {
+                                    write(id, snapshot, stamps, hash, maxDeltaChain, state);
+                                } finally {
+                                    frozenGraphs.forEach(ChangeTrackingGraph::release);
+                                }
+                            });
+        }
+    }
+
+    /**
+     * Waits until the savepoint being saved in the background, if any, has been written, and
+     * rethrows the exception if saving it failed.
+     */
+    public void awaitPendingSave() {
+        Future<?> save;
+        synchronized (this) {
+            save = pendingSave;
+            pendingSave = null;
+        }
+        if (save == null) {
+            return;
+        }
+        try {
+            save.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new FileAccessException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new FileAccessException("Interrupted while waiting for savepoint", e);
+        }
+    }
+
+    /**
+     * Takes a snapshot of the dataset, keeping the tracked sizes and hashes of its graphs. Change
+     * tracking graphs are frozen rather than copied (see {@link ChangeTrackingGraph#freeze()}) and
+     * added to <code>frozenGraphs</code>, so they can be released once the snapshot has been
+     * written; other graphs are copied. Graphs of a savepoint that have not been read yet are read
+     * from the savepoint's files when needed.
+     */
+    private static Dataset snapshot(
+            Dataset dataset, List<ChangeTrackingGraph> frozenGraphs, PipelineState state) {
+        DatasetState datasetState = new DatasetState(dataset);
+        Dataset snapshot =
+                ChangeTrackingDataset.create(
+                        freeze(dataset.getDefaultModel().getGraph(), frozenGraphs),
+                        datasetState.getGraphSize(DEFAULT_GRAPH_NAME),
+                        Objects.requireNonNullElse(
+                                datasetState.getGraphHash(DEFAULT_GRAPH_NAME), 0));
+        snapshot.getPrefixMapping().setNsPrefixes(dataset.getPrefixMapping());
+        for (String graphName : datasetState.getGraphNames()) {
+            if (graphName.equals(DEFAULT_GRAPH_NAME)) {
+                continue;
+            }
+            Graph graph = dataset.getNamedModel(graphName).getGraph();
+            // reading the graph for the snapshot is part of writing the savepoint
+            Graph frozen =
+                    unloadedSavepointGraph(graph)
+                            .<Graph>map(g -> new SavepointGraph(g.getFiles(), null, state))
+                            .orElseGet(() -> freeze(graph, frozenGraphs));
+            if (!datasetState.isGraphSizeKnown(graphName)) {
+                ChangeTrackingDataset.putNewGraph(snapshot, graphName, frozen);
+                continue;
+            }
+            ChangeTrackingDataset.putGraph(
+                    snapshot,
+                    graphName,
+                    frozen,
+                    datasetState.getGraphSize(graphName),
+                    Objects.requireNonNullElse(datasetState.getGraphHash(graphName), 0));
+        }
+        return snapshot;
+    }
+
+    private static Graph freeze(Graph graph, List<ChangeTrackingGraph> frozenGraphs) {
+        if (graph instanceof ChangeTrackingGraph trackingGraph) {
+            Graph frozen = trackingGraph.freeze();
+            frozenGraphs.add(trackingGraph);
+            return frozen;
+        }
+        Graph copy = GraphFactory.createDefaultGraph();
+        copyGraph(graph, copy);
+        return copy;
+    }
+
+    private static void copyGraph(Graph source, Graph target) {
+        target.getPrefixMapping().setNsPrefixes(source.getPrefixMapping());
+        source.find().forEachRemaining(target::add);
+    }
+
+    /**
+     * Saves the dataset. If <code>maxDeltaChain</code> is greater than 0, only the changes since
+     * the previous savepoint are stored, as long as no graph has to be read from more than <code>
+     * maxDeltaChain</code> patches.
+     */
+    public void save(
+            String id, Dataset dataset, String hash, int maxDeltaChain, PipelineState state) {
         Objects.requireNonNull(id, "cannot save savepoint: id is null");
         Objects.requireNonNull(dataset, "cannot save savepoint into dataset: dataset is null");
         Objects.requireNonNull(hash, "cannot save savepoint: hash is null");
+        awaitPendingSave();
+        write(id, dataset, modificationStamps(dataset), hash, maxDeltaChain, state);
+    }
+
+    /** Returns the modification stamps of the dataset's change tracking graphs. */
+    private static Map<String, Long> modificationStamps(Dataset dataset) {
+        Map<String, Long> stamps = new HashMap<>();
+        if (dataset.getDefaultModel().getGraph() instanceof ChangeTrackingGraph trackingGraph) {
+            stamps.put(DEFAULT_GRAPH_NAME, trackingGraph.getModificationStamp());
+        }
+        for (String graphName : PipelineHelper.getGraphList(dataset)) {
+            if (dataset.getNamedModel(graphName).getGraph()
+                    instanceof ChangeTrackingGraph trackingGraph) {
+                stamps.put(graphName, trackingGraph.getModificationStamp());
+            }
+        }
+        return stamps;
+    }
+
+    /**
+     * Writes the dataset.
+     *
+     * @param stamps the modification stamps of the graphs when the dataset's contents were taken
+     */
+    private void write(
+            String id,
+            Dataset dataset,
+            Map<String, Long> stamps,
+            String hash,
+            int maxDeltaChain,
+            PipelineState state) {
+        long start = System.currentTimeMillis();
         RelativePath savepointDir = getSavepointDir(id);
         state.files().mkdirs(savepointDir);
         RelativePath hashFile = getHashFile(savepointDir);
-        RelativePath datasetFile = getDatasetFile(savepointDir);
-        state.files().writeRdf(datasetFile, dataset);
-        state.files().writeText(hashFile, hash);
+        // remove the hash first, so an interrupted save leaves an invalid savepoint
+        if (hashFile.exists()) {
+            state.files().delete(hashFile);
+        }
+        Map<String, ManifestEntry> baseEntries = Map.of();
+        LastSavepoint base = lastSavepoint;
+        String baseId = base == null ? null : base.id();
+        if (maxDeltaChain > 0
+                && baseId != null
+                && !baseId.equals(id)
+                && getManifestFile(baseId).exists()) {
+            baseEntries =
+                    readManifest(baseId, state).stream()
+                            .collect(
+                                    Collectors.toMap(
+                                            ManifestEntry::graphName, Function.identity()));
+            // the files of this savepoint are about to be replaced, so they cannot be a base
+            if (baseEntries.values().stream()
+                    .flatMap(entry -> entry.files().stream())
+                    .anyMatch(file -> isInDir(resolveFile(file), savepointDir))) {
+                baseEntries = Map.of();
+            }
+        }
+        DatasetState datasetState = new DatasetState(dataset);
+        List<String> graphNames =
+                datasetState.getGraphNames().stream()
+                        .filter(name -> !name.equals(DEFAULT_GRAPH_NAME))
+                        .sorted()
+                        .collect(Collectors.toList());
+        graphNames.add(0, DEFAULT_GRAPH_NAME);
+        List<Callable<ManifestEntry>> writes = new ArrayList<>();
+        for (int i = 0; i < graphNames.size(); i++) {
+            String graphName = graphNames.get(i);
+            Graph graph =
+                    graphName.equals(DEFAULT_GRAPH_NAME)
+                            ? dataset.getDefaultModel().getGraph()
+                            : dataset.getNamedModel(graphName).getGraph();
+            // the files of this savepoint are about to be replaced
+            unloadedSavepointGraph(graph)
+                    .filter(g -> g.getFiles().stream().anyMatch(f -> isInDir(f, savepointDir)))
+                    .ifPresent(SavepointGraph::get);
+            String fileName = i == 0 ? DEFAULT_GRAPH_FILE_NAME : GRAPH_FILE_NAME.formatted(i);
+            ManifestEntry baseEntry = baseEntries.get(graphName);
+            Long stamp = stamps.get(graphName);
+            boolean unchanged =
+                    baseEntry != null
+                            && stamp != null
+                            && stamp.equals(base.stamps().get(graphName));
+            long graphSize;
+            int graphHash;
+            if (datasetState.isGraphSizeKnown(graphName)) {
+                graphSize = datasetState.getGraphSize(graphName);
+                graphHash = Objects.requireNonNullElse(datasetState.getGraphHash(graphName), 0);
+            } else if (unchanged) {
+                graphSize = baseEntry.size();
+                graphHash = baseEntry.hash();
+            } else {
+                // the graph is written anyway, so it is read to determine them
+                ChangeTrackingGraph trackingGraph = (ChangeTrackingGraph) graph;
+                graphSize = trackingGraph.getTrackedSize();
+                graphHash = trackingGraph.getTrackedHash();
+            }
+            ManifestEntry entry =
+                    new ManifestEntry(
+                            List.of(id + "/" + fileName), graphSize, graphHash, graphName);
+            writes.add(() -> writeGraph(entry, baseEntry, unchanged, graph, maxDeltaChain, state));
+        }
+        invalidateDependents(id, state);
+        deleteFiles(id, state);
+        List<ManifestEntry> entries = runInParallel(writes);
+        state.files()
+                .writeText(
+                        getManifestFile(savepointDir),
+                        entries.stream()
+                                .map(ManifestEntry::format)
+                                .collect(Collectors.joining("\n", "", "\n")));
+        writeHashFile(savepointDir, hash, state);
+        costs.recordWrite(
+                System.currentTimeMillis() - start,
+                entries.stream().mapToLong(ManifestEntry::size).sum());
+        lastSavepoint = new LastSavepoint(id, stamps);
+        if (store != null) {
+            publish(entries, hash);
+        }
+    }
+
+    /** Writes the hash file, which makes the savepoint valid in a single step. */
+    private static void writeHashFile(RelativePath savepointDir, String hash, PipelineState state) {
+        RelativePath hashFile = getHashFile(savepointDir);
+        RelativePath newHashFile = savepointDir.subFile(HASH_FILE_NAME + ".new");
+        state.files().writeText(newHashFile, hash);
+        try {
+            Files.move(
+                    newHashFile.resolve().toPath(),
+                    hashFile.resolve().toPath(),
+                    StandardCopyOption.ATOMIC_MOVE,
+                    StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            throw new FileAccessException("Cannot write savepoint hash file " + hashFile, e);
+        }
+    }
+
+    /** Adds the savepoint's files and manifest to the store. */
+    private void publish(List<ManifestEntry> entries, String hash) {
+        try {
+            StringBuilder manifest = new StringBuilder();
+            for (ManifestEntry entry : entries) {
+                List<String> objectNames = new ArrayList<>();
+                for (String file : entry.files()) {
+                    objectNames.add(store.putFile(resolveFile(file).resolve().toPath()));
+                }
+                manifest.append(withFiles(entry, objectNames).format()).append('\n');
+            }
+            store.putSavepoint(hash, manifest.toString());
+        } catch (IOException e) {
+            // the store only saves time, failing to write it must not fail the build
+        }
+    }
+
+    /**
+     * Copies the savepoint with the given hash from the store to the build directory. The files are
+     * linked instead of copied where the file system allows it.
+     */
+    private boolean restore(String id, String hash, PipelineState state) {
+        try {
+            Optional<String> manifest = store.getSavepoint(hash);
+            if (manifest.isEmpty()) {
+                return false;
+            }
+            RelativePath savepointDir = getSavepointDir(id);
+            RelativePath hashFile = getHashFile(savepointDir);
+            if (hashFile.exists()) {
+                state.files().delete(hashFile);
+            }
+            invalidateDependents(id, state);
+            deleteFiles(id, state);
+            state.files().mkdirs(savepointDir);
+            // the store's file names are used in the build directory, too
+            List<ManifestEntry> entries =
+                    manifest.get()
+                            .lines()
+                            .filter(line -> !line.isBlank())
+                            .map(line -> ManifestEntry.parse(line, id))
+                            .toList();
+            for (ManifestEntry entry : entries) {
+                for (String file : entry.files()) {
+                    Path target = resolveFile(file).resolve().toPath();
+                    Path source = store.getFile(target.getFileName().toString());
+                    Files.deleteIfExists(target);
+                    try {
+                        Files.createLink(target, source);
+                    } catch (IOException | UnsupportedOperationException e) {
+                        Files.copy(source, target);
+                    }
+                }
+            }
+            state.files().writeText(getManifestFile(savepointDir), manifest.get());
+            writeHashFile(savepointDir, hash, state);
+            state.log()
+                    .info("restored savepoint %s from %s".formatted(id, store.getDirectory()), 1);
+            return true;
+        } catch (IOException | FileAccessException e) {
+            // the store only saves time, the savepoint is computed again
+            return false;
+        }
+    }
+
+    /**
+     * Writes the graph, or a patch against the base savepoint's version of it, and returns the
+     * manifest entry for the files that make up the graph.
+     *
+     * @param entry the manifest entry for the graph, with the file name without extension
+     * @param baseEntry the base savepoint's entry for the graph, or <code>null</code>
+     * @param unchanged whether the graph is known not to have changed since the base savepoint
+     */
+    private ManifestEntry writeGraph(
+            ManifestEntry entry,
+            ManifestEntry baseEntry,
+            boolean unchanged,
+            Graph graph,
+            int maxDeltaChain,
+            PipelineState state) {
+        String file = entry.files().get(0);
+        Optional<SavepointGraph> unloaded = unloadedSavepointGraph(graph);
+        if (baseEntry != null) {
+            if (unchanged) {
+                return withFiles(entry, baseEntry.files());
+            }
+            if (baseEntry.patchCount() < maxDeltaChain) {
+                Graph baseGraph = GraphFactory.createDefaultGraph();
+                readGraph(
+                        baseEntry.files().stream().map(this::resolveFile).toList(),
+                        baseGraph,
+                        state);
+                GraphPatch patch = GraphPatch.diff(baseGraph, graph);
+                if (patch.size() == 0) {
+                    return withFiles(entry, baseEntry.files());
+                }
+                if (patch.size() < entry.size()) {
+                    String patchFile =
+                            file + PATCH_EXTENSION + (format.isGzip() ? GZIP_EXTENSION : "");
+                    state.files().writeRdfPatch(resolveFile(patchFile), patch, format.isGzip());
+                    List<String> files = new ArrayList<>(baseEntry.files());
+                    files.add(patchFile);
+                    return withFiles(entry, files);
+                }
+            }
+        } else if (maxDeltaChain > 0
+                && unloaded.isPresent()
+                && unloaded.get().getFiles().size() - 1 <= maxDeltaChain) {
+            // the graph has not changed since it was loaded from another savepoint
+            return withFiles(
+                    entry, unloaded.get().getFiles().stream().map(this::toFileReference).toList());
+        }
+        String graphFile = file + format.getFileExtension();
+        RelativePath graphPath = resolveFile(graphFile);
+        if (unloaded.isPresent()
+                && unloaded.get().getFiles().size() == 1
+                && formatOf(unloaded.get().getFiles().get(0).getName()) == format) {
+            try {
+                Files.copy(
+                        unloaded.get().getFiles().get(0).resolve().toPath(),
+                        graphPath.resolve().toPath(),
+                        StandardCopyOption.REPLACE_EXISTING);
+                return withFiles(entry, List.of(graphFile));
+            } catch (IOException e) {
+                // fall back to writing the graph
+            }
+        }
+        state.files().writeRdfStream(graphPath, graph, format.getRdfFormat(), format.isGzip());
+        return withFiles(entry, List.of(graphFile));
+    }
+
+    private static ManifestEntry withFiles(ManifestEntry entry, List<String> files) {
+        return new ManifestEntry(files, entry.size(), entry.hash(), entry.graphName());
+    }
+
+    private static Optional<SavepointGraph> unloadedSavepointGraph(Graph graph) {
+        if (graph instanceof WrappedGraph wrappedGraph
+                && wrappedGraph.getWrapped() instanceof SavepointGraph savepointGraph
+                && !savepointGraph.isLoaded()) {
+            return Optional.of(savepointGraph);
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Deletes the files written by a previous save of the savepoint, in any format. Files of other
+     * savepoints it referred to are kept.
+     */
+    private void deleteFiles(String id, PipelineState state) {
+        RelativePath savepointDir = getSavepointDir(id);
+        RelativePath manifestFile = getManifestFile(savepointDir);
+        if (manifestFile.exists()) {
+            for (ManifestEntry entry : readManifest(id, state)) {
+                for (String file : entry.files()) {
+                    RelativePath graphFile = resolveFile(file);
+                    if (isInDir(graphFile, savepointDir) && graphFile.exists()) {
+                        state.files().delete(graphFile);
+                    }
+                }
+            }
+            state.files().delete(manifestFile);
+        }
+        for (SavepointFormat f : SavepointFormat.values()) {
+            if (getDatasetFile(savepointDir, f).exists()) {
+                state.files().delete(getDatasetFile(savepointDir, f));
+            }
+        }
+    }
+
+    /**
+     * Removes the hash files of the delta savepoints that refer to files of the savepoint, as these
+     * files are about to be replaced under the same names.
+     */
+    private void invalidateDependents(String id, PipelineState state) {
+        File[] savepointDirs = baseDir.resolve().listFiles(File::isDirectory);
+        if (savepointDirs == null) {
+            return;
+        }
+        String prefix = id + "/";
+        for (File dir : savepointDirs) {
+            String otherId = dir.getName();
+            if (otherId.equals(id)
+                    || !getManifestFile(otherId).exists()
+                    || !getHashFile(otherId).exists()) {
+                continue;
+            }
+            List<ManifestEntry> entries;
+            try {
+                entries = readManifest(otherId, state);
+            } catch (FileAccessException e) {
+                entries = List.of();
+            }
+            if (entries.stream()
+                    .flatMap(entry -> entry.files().stream())
+                    .anyMatch(file -> file.startsWith(prefix))) {
+                state.files().delete(getHashFile(otherId));
+            }
+        }
+    }
+
+    private List<ManifestEntry> readManifest(String id, PipelineState state) {
+        return state.files()
+                .readText(getManifestFile(id))
+                .lines()
+                .filter(line -> !line.isBlank())
+                .map(line -> ManifestEntry.parse(line, id))
+                .toList();
+    }
+
+    /** Resolves a file reference of the form <code>savepointId/fileName</code>. */
+    private RelativePath resolveFile(String file) {
+        int slash = file.lastIndexOf('/');
+        return getSavepointDir(file.substring(0, slash)).subFile(file.substring(slash + 1));
+    }
+
+    private String toFileReference(RelativePath file) {
+        String path = file.getRelativePath();
+        String dir = path.substring(0, path.length() - file.getName().length() - 1);
+        return dir.substring(baseDir.getRelativePath().length() + 1) + "/" + file.getName();
+    }
+
+    private static boolean isInDir(RelativePath file, RelativePath dir) {
+        return file.equals(dir.subFile(file.getName()));
+    }
+
+    private static SavepointFormat formatOf(String fileName) {
+        return Arrays.stream(SavepointFormat.values())
+                .filter(f -> fileName.endsWith(f.getFileExtension()))
+                .findFirst()
+                .orElseThrow(
+                        () ->
+                                new FileAccessException(
+                                        "Unknown savepoint file format: " + fileName));
+    }
+
+    private static <T> List<T> runInParallel(List<Callable<T>> tasks) {
+        int threads = Math.min(tasks.size(), Runtime.getRuntime().availableProcessors());
+        if (threads <= 1) {
+            List<T> results = new ArrayList<>();
+            for (Callable<T> task : tasks) {
+                try {
+                    results.add(task.call());
+                } catch (RuntimeException e) {
+                    throw e;
+                } catch (Exception e) {
+                    throw new FileAccessException(e);
+                }
+            }
+            return results;
+        }
+        AtomicInteger threadCount = new AtomicInteger();
+        ExecutorService executor =
+                Executors.newFixedThreadPool(
+                        threads,
+                        runnable -> {
+                            Thread thread =
+                                    new Thread(
+                                            runnable,
+                                            "rdfio-savepoint-" + threadCount.incrementAndGet());
+                            thread.setDaemon(true);
+                            return thread;
+                        });
+        try {
+            List<Future<T>> futures = tasks.stream().map(executor::submit).toList();
+            List<T> results = new ArrayList<>();
+            for (Future<T> future : futures) {
+                results.add(future.get());
+            }
+            return results;
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new FileAccessException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new FileAccessException("Interrupted while writing savepoint", e);
+        } finally {
+            executor.shutdownNow();
+        }
     }
 
     public RelativePath getHashFile(String savepointId) {
         return getHashFile(getSavepointDir(savepointId));
     }
 
-    public RelativePath getDatasetFile(String savepointId) {
-        return getDatasetFile(getSavepointDir(savepointId));
+    public RelativePath getManifestFile(String savepointId) {
+        return getManifestFile(getSavepointDir(savepointId));
     }
 
     public RelativePath getBaseDir() {
@@ -76,7 +819,11 @@ public class SavepointCache {
         return savepointDir.subFile(HASH_FILE_NAME);
     }
 
-    private static RelativePath getDatasetFile(RelativePath savepointDir) {
-        return savepointDir.subFile(DATASET_FILE_NAME);
+    private static RelativePath getManifestFile(RelativePath savepointDir) {
+        return savepointDir.subFile(MANIFEST_FILE_NAME);
+    }
+
+    private static RelativePath getDatasetFile(RelativePath savepointDir, SavepointFormat format) {
+        return savepointDir.subFile(DATASET_FILE_NAME + format.getFileExtension());
     }
 }
@@ -0,0 +1,53 @@
+package io.github.qudtlib.maven.rdfio.pipeline.step.support;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * How long writing and loading savepoints took in this run, and how many triples the datasets and
+ * graphs involved had. Used for estimating the cost of a savepoint when placing automatic
+ * savepoints.
+ */
+public class SavepointCosts {
+    /**
+     * The total duration of some savepoint operations and the total number of triples involved.
+     *
+     * @param durationMillis the duration in milliseconds
+     * @param triples the number of triples
+     */
+    public record Measurement(long durationMillis, long triples) {
+        public double millisPerTriple() {
+            return (double) durationMillis / triples;
+        }
+    }
+
+    private final AtomicLong writeMillis = new AtomicLong();
+    private final AtomicLong writtenTriples = new AtomicLong();
+    private final AtomicLong loadMillis = new AtomicLong();
+    private final AtomicLong loadedTriples = new AtomicLong();
+
+    /** Records that a savepoint of a dataset with <code>triples</code> triples was written. */
+    void recordWrite(long durationMillis, long triples) {
+        writeMillis.addAndGet(durationMillis);
+        writtenTriples.addAndGet(triples);
+    }
+
+    /** Records that a graph of a savepoint with <code>triples</code> triples was loaded. */
+    void recordLoad(long durationMillis, long triples) {
+        loadMillis.addAndGet(durationMillis);
+        loadedTriples.addAndGet(triples);
+    }
+
+    /** The savepoints written in this run, or null if none was written. */
+    public Measurement getWrites() {
+        return measurement(writeMillis, writtenTriples);
+    }
+
+    /** The savepoint graphs loaded in this run, or null if none was loaded. */
+    public Measurement getLoads() {
+        return measurement(loadMillis, loadedTriples);
+    }
+
+    private static Measurement measurement(AtomicLong millis, AtomicLong triples) {
+        return triples.get() > 0 ? new Measurement(millis.get(), triples.get()) : null;
+    }
+}
@@ -0,0 +1,71 @@
+package io.github.qudtlib.maven.rdfio.pipeline.step.support;
+
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.stream.Collectors;
+import org.apache.jena.riot.Lang;
+import org.apache.jena.riot.RDFFormat;
+
+/**
+ * The file format used for storing the dataset of a savepoint. All formats are written and read as
+ * a stream of quads. The binary formats are much faster than TriG, which is mainly useful for
+ * looking at the data when debugging a pipeline.
+ */
+public enum SavepointFormat {
+    THRIFT("thrift", ".rt", Lang.RDFTHRIFT, RDFFormat.RDF_THRIFT, false),
+    THRIFT_GZIP("thrift-gzip", ".rt.gz", Lang.RDFTHRIFT, RDFFormat.RDF_THRIFT, true),
+    TRIG("trig", ".trig", Lang.TRIG, RDFFormat.TRIG_BLOCKS, false);
+
+    public static final SavepointFormat DEFAULT = THRIFT;
+
+    private final String name;
+    private final String fileExtension;
+    private final Lang lang;
+    private final RDFFormat rdfFormat;
+    private final boolean gzip;
+
+    SavepointFormat(
+            String name, String fileExtension, Lang lang, RDFFormat rdfFormat, boolean gzip) {
+        this.name = name;
+        this.fileExtension = fileExtension;
+        this.lang = lang;
+        this.rdfFormat = rdfFormat;
+        this.gzip = gzip;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getFileExtension() {
+        return fileExtension;
+    }
+
+    public Lang getLang() {
+        return lang;
+    }
+
+    public RDFFormat getRdfFormat() {
+        return rdfFormat;
+    }
+
+    public boolean isGzip() {
+        return gzip;
+    }
+
+    public static SavepointFormat forName(String name) {
+        String normalized = name.trim().toLowerCase(Locale.ROOT);
+        return Arrays.stream(values())
+                .filter(f -> f.name.equals(normalized))
+                .findFirst()
+                .orElseThrow(
+                        () ->
+                                new IllegalArgumentException(
+                                        "Unknown savepoint format '%s', expected one of %s"
+                                                .formatted(name, names())));
+    }
+
+    public static String names() {
+        return Arrays.stream(values()).map(f -> f.name).collect(Collectors.joining(", "));
+    }
+}
@@ -0,0 +1,57 @@
+package io.github.qudtlib.maven.rdfio.pipeline.step.support;
+
+import io.github.qudtlib.maven.rdfio.common.file.RelativePath;
+import io.github.qudtlib.maven.rdfio.pipeline.PipelineState;
+import java.util.List;
+import org.apache.jena.graph.Graph;
+import org.apache.jena.sparql.graph.GraphFactory;
+import org.apache.jena.sparql.graph.GraphWrapper;
+
+/**
+ * A graph of a savepoint that is read from its files when it is first used: a full copy of the
+ * graph, followed by the patches of delta savepoints. Until then, the files can be reused by
+ * another savepoint instead of being read and written again.
+ *
+ * <p>Loading the graph is recorded in the {@link SavepointCosts}, if given.
+ */
+class SavepointGraph extends GraphWrapper {
+    private final List<RelativePath> files;
+    private final SavepointCosts costs;
+    private final PipelineState state;
+    private volatile Graph graph = null;
+
+    SavepointGraph(List<RelativePath> files, SavepointCosts costs, PipelineState state) {
+        super(null);
+        this.files = List.copyOf(files);
+        this.costs = costs;
+        this.state = state;
+    }
+
+    List<RelativePath> getFiles() {
+        return files;
+    }
+
+    boolean isLoaded() {
+        return graph != null;
+    }
+
+    @Override
+    public Graph get() {
+        Graph loaded = graph;
+        if (loaded != null) {
+            return loaded;
+        }
+        synchronized (this) {
+            if (graph == null) {
+                long start = System.currentTimeMillis();
+                Graph newGraph = GraphFactory.createDefaultGraph();
+                SavepointCache.readGraph(files, newGraph, state);
+                if (costs != null) {
+                    costs.recordLoad(System.currentTimeMillis() - start, newGraph.size());
+                }
+                graph = newGraph;
+            }
+            return graph;
+        }
+    }
+}
@@ -0,0 +1,302 @@
+package io.github.qudtlib.maven.rdfio.pipeline.step.support;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * A directory outside the build directory in which savepoints are kept across <code>mvn clean
+ * </code>, clones and worktrees, so that any pipeline reaching a savepoint with the same hash can
+ * reuse it.
+ *
+ * <p>The graph and patch files of the savepoints are stored under the SHA-256 hash of their
+ * content, so identical graphs are only stored once, no matter how many savepoints and pipelines
+ * contain them. Each savepoint is a manifest named after the savepoint's hash that lists these
+ * files. Files no savepoint refers to, left by failed or repeated publishing, are removed, and when
+ * the store grows beyond its maximum size, the least recently used savepoints are removed, along
+ * with the files no other savepoint refers to.
+ *
+ * <p>All files are written atomically, so several builds can use the same store.
+ */
+public class SavepointStore {
+    public static final long DEFAULT_MAX_SIZE_MB = 10 * 1024;
+    private static final String OBJECTS_DIR = "objects";
+    private static final String SAVEPOINTS_DIR = "savepoints";
+    private static final String MANIFEST_SUFFIX = ".txt";
+    private static final String TEMP_FILE_PREFIX = "savepoint";
+    private static final String TEMP_FILE_SUFFIX = ".tmp";
+
+    /**
+     * How long files no savepoint refers to are kept, because another build may still be about to
+     * write the manifest referring to them.
+     */
+    static final long ORPHAN_GRACE_PERIOD_MILLIS = 60 * 60 * 1000;
+
+    private final Path directory;
+    private final long maxSizeBytes;
+
+    public SavepointStore(Path directory, long maxSizeBytes) {
+        this.directory = directory;
+        this.maxSizeBytes = maxSizeBytes;
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    public long getMaxSizeBytes() {
+        return maxSizeBytes;
+    }
+
+    /**
+     * Adds a file to the store, unless a file with the same content is stored already, and returns
+     * its name in the store. The name keeps the file's extension, so the format can still be told
+     * from it.
+     */
+    public String putFile(Path file) throws IOException {
+        String fileName = file.getFileName().toString();
+        int dot = fileName.indexOf('.');
+        String extension = dot < 0 ? "" : fileName.substring(dot);
+        Path tmp = createTempFile(directory.resolve(OBJECTS_DIR));
+        try {
+            MessageDigest digest = sha256();
+            try (InputStream in = new DigestInputStream(Files.newInputStream(file), digest);
+                    OutputStream out = Files.newOutputStream(tmp)) {
+                in.transferTo(out);
+            }
+            String objectName = HexFormat.of().formatHex(digest.digest()) + extension;
+            Path object = objectPath(objectName);
+            if (Files.exists(object)) {
+                touch(object);
+            } else {
+                Files.createDirectories(object.getParent());
+                moveAtomically(tmp, object);
+            }
+            return objectName;
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    /** The path of a file added with {@link #putFile(Path)}. */
+    public Path getFile(String objectName) {
+        return objectPath(objectName);
+    }
+
+    /**
+     * Stores the manifest of the savepoint with the given hash, referring to files added with
+     * {@link #putFile(Path)}, and removes the least recently used savepoints if the store has
+     * become too large.
+     */
+    public void putSavepoint(String hash, String manifest) throws IOException {
+        Path manifestFile = manifestPath(hash);
+        Files.createDirectories(manifestFile.getParent());
+        Path tmp = createTempFile(manifestFile.getParent());
+        try {
+            Files.writeString(tmp, manifest, StandardCharsets.UTF_8);
+            moveAtomically(tmp, manifestFile);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+        evict(manifestFile);
+    }
+
+    /**
+     * Returns the manifest of the savepoint with the given hash, if it is stored and all files it
+     * refers to are present, and marks the savepoint as recently used. Manifests have one line per
+     * graph, starting with the names of its files, separated by <code>|</code>, and a tab.
+     */
+    public Optional<String> getSavepoint(String hash) throws IOException {
+        Path manifestFile = manifestPath(hash);
+        if (!Files.isRegularFile(manifestFile)) {
+            return Optional.empty();
+        }
+        String manifest;
+        try {
+            manifest = Files.readString(manifestFile, StandardCharsets.UTF_8);
+        } catch (NoSuchFileException e) {
+            // evicted by another build in the meantime
+            return Optional.empty();
+        }
+        if (!referencedObjects(manifest).stream().allMatch(name -> Files.exists(getFile(name)))) {
+            return Optional.empty();
+        }
+        touch(manifestFile);
+        return Optional.of(manifest);
+    }
+
+    /**
+     * Removes the files no savepoint refers to and the temporary files left by killed builds, then
+     * the least recently used savepoints, except <code>keep</code>, until the store is no larger
+     * than its maximum size, along with the files no remaining savepoint refers to.
+     *
+     * <p>Unreferenced files younger than {@link #ORPHAN_GRACE_PERIOD_MILLIS} may belong to a
+     * savepoint another build is just publishing, so they are neither removed nor counted.
+     */
+    private void evict(Path keep) throws IOException {
+        List<Path> manifests = new ArrayList<>();
+        Path savepointsDir = directory.resolve(SAVEPOINTS_DIR);
+        long orphanedBefore = System.currentTimeMillis() - ORPHAN_GRACE_PERIOD_MILLIS;
+        if (Files.isDirectory(savepointsDir)) {
+            try (Stream<Path> files = Files.list(savepointsDir)) {
+                for (Path file : files.toList()) {
+                    if (file.toString().endsWith(MANIFEST_SUFFIX)) {
+                        manifests.add(file);
+                    } else if (isTempFile(file) && isOlderThan(file, orphanedBefore)) {
+                        Files.deleteIfExists(file);
+                    }
+                }
+            }
+        }
+        manifests.sort(Comparator.comparing(SavepointStore::lastModified));
+        Map<Path, Set<String>> references = new HashMap<>();
+        for (Path manifest : manifests) {
+            try {
+                references.put(
+                        manifest,
+                        referencedObjects(Files.readString(manifest, StandardCharsets.UTF_8)));
+            } catch (IOException e) {
+                // removed by another build
+                references.put(manifest, Set.of());
+            }
+        }
+        Set<String> referenced =
+                references.values().stream().flatMap(Set::stream).collect(Collectors.toSet());
+        Map<String, Long> objectSizes = new HashMap<>();
+        Path objectsDir = directory.resolve(OBJECTS_DIR);
+        if (Files.isDirectory(objectsDir)) {
+            try (Stream<Path> files = Files.walk(objectsDir)) {
+                for (Path file : files.filter(Files::isRegularFile).toList()) {
+                    String objectName = file.getFileName().toString();
+                    if (isTempFile(file) || !referenced.contains(objectName)) {
+                        if (isOlderThan(file, orphanedBefore)) {
+                            Files.deleteIfExists(file);
+                        }
+                    } else {
+                        objectSizes.put(objectName, size(file));
+                    }
+                }
+            }
+        }
+        long totalSize = objectSizes.values().stream().mapToLong(Long::longValue).sum();
+        for (Path manifest : manifests) {
+            if (totalSize <= maxSizeBytes) {
+                break;
+            }
+            if (manifest.equals(keep)) {
+                continue;
+            }
+            Files.deleteIfExists(manifest);
+            Set<String> removed = references.remove(manifest);
+            Set<String> stillReferenced =
+                    references.values().stream().flatMap(Set::stream).collect(Collectors.toSet());
+            for (String objectName : removed) {
+                if (!stillReferenced.contains(objectName) && objectSizes.containsKey(objectName)) {
+                    Files.deleteIfExists(objectPath(objectName));
+                    totalSize -= objectSizes.remove(objectName);
+                }
+            }
+        }
+    }
+
+    private static boolean isTempFile(Path file) {
+        String fileName = file.getFileName().toString();
+        return fileName.startsWith(TEMP_FILE_PREFIX) && fileName.endsWith(TEMP_FILE_SUFFIX);
+    }
+
+    private static boolean isOlderThan(Path file, long millis) {
+        return lastModified(file).toMillis() < millis;
+    }
+
+    private static Set<String> referencedObjects(String manifest) {
+        Set<String> objectNames = new HashSet<>();
+        manifest.lines()
+                .filter(line -> !line.isBlank())
+                .forEach(line -> objectNames.addAll(List.of(line.split("\t", 2)[0].split("\\|"))));
+        return objectNames;
+    }
+
+    private Path objectPath(String objectName) {
+        return directory
+                .resolve(OBJECTS_DIR)
+                .resolve(objectName.substring(0, 2))
+                .resolve(objectName);
+    }
+
+    private Path manifestPath(String hash) {
+        return directory.resolve(SAVEPOINTS_DIR).resolve(hash + MANIFEST_SUFFIX);
+    }
+
+    private static Path createTempFile(Path dir) throws IOException {
+        Files.createDirectories(dir);
+        return Files.createTempFile(dir, TEMP_FILE_PREFIX, TEMP_FILE_SUFFIX);
+    }
+
+    private static void moveAtomically(Path source, Path target) throws IOException {
+        try {
+            Files.move(
+                    source,
+                    target,
+                    StandardCopyOption.ATOMIC_MOVE,
+                    StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+        } catch (FileAlreadyExistsException e) {
+            // written by another build in the meantime
+        }
+    }
+
+    private static void touch(Path file) {
+        try {
+            Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+        } catch (IOException e) {
+            // only affects the order of eviction
+        }
+    }
+
+    private static long size(Path file) {
+        try {
+            return Files.size(file);
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    private static FileTime lastModified(Path file) {
+        try {
+            return Files.getLastModifiedTime(file);
+        } catch (IOException e) {
+            return FileTime.fromMillis(0);
+        }
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
@@ -0,0 +1,219 @@
+package io.github.qudtlib.maven.rdfio.pipeline.step.support;
+
+import static io.github.qudtlib.maven.rdfio.common.datasetchange.DatasetState.DEFAULT_GRAPH_NAME;
+
+import io.github.qudtlib.maven.rdfio.common.file.RelativePath;
+import io.github.qudtlib.maven.rdfio.pipeline.PipelineState;
+import java.util.List;
+import java.util.regex.Pattern;
+import org.apache.jena.graph.Node;
+import org.apache.jena.query.Query;
+import org.apache.jena.query.QueryFactory;
+import org.apache.jena.query.QueryParseException;
+import org.apache.jena.sparql.core.Quad;
+import org.apache.jena.sparql.expr.Expr;
+import org.apache.jena.sparql.expr.ExprFunction;
+import org.apache.jena.sparql.expr.ExprFunctionOp;
+import org.apache.jena.sparql.modify.request.*;
+import org.apache.jena.sparql.syntax.*;
+import org.apache.jena.update.Update;
+import org.apache.jena.update.UpdateFactory;
+import org.apache.jena.update.UpdateRequest;
+
+/**
+ * Determines the graphs read and written by a SPARQL query or update. Only works for SPARQL strings
+ * that parse on their own, i.e. that contain no unresolved variables and declare all prefixes they
+ * use - for all others, {@link StepDependencies#barrier()} is returned.
+ */
+public class SparqlDependencies {
+    private static final Pattern NON_DETERMINISTIC =
+            Pattern.compile(
+                    "\\b(RAND|NOW|UUID|STRUUID|BNODE)\\s*\\(|\\bSERVICE\\b",
+                    Pattern.CASE_INSENSITIVE);
+
+    public static StepDependencies ofQuery(String sparql) {
+        if (!isAnalyzable(sparql)) {
+            return StepDependencies.barrier();
+        }
+        try {
+            Query query = QueryFactory.create(sparql);
+            StepDependencies dependencies = StepDependencies.of();
+            List<String> defaultGraphs =
+                    query.getGraphURIs().isEmpty()
+                            ? List.of(DEFAULT_GRAPH_NAME)
+                            : query.getGraphURIs();
+            if (query.getQueryPattern() == null) {
+                dependencies.readsGraphs(defaultGraphs);
+            } else {
+                addReads(query.getQueryPattern(), defaultGraphs, dependencies);
+            }
+            return dependencies;
+        } catch (QueryParseException e) {
+            return StepDependencies.barrier();
+        }
+    }
+
+    public static StepDependencies ofUpdate(String sparql) {
+        if (!isAnalyzable(sparql)) {
+            return StepDependencies.barrier();
+        }
+        try {
+            UpdateRequest request = UpdateFactory.create(sparql);
+            StepDependencies dependencies = StepDependencies.of();
+            for (Update update : request.getOperations()) {
+                if (!addUpdate(update, dependencies)) {
+                    return StepDependencies.barrier();
+                }
+            }
+            return dependencies;
+        } catch (QueryParseException e) {
+            return StepDependencies.barrier();
+        }
+    }
+
+    /**
+     * Returns true if the SPARQL string produces the same result whenever it is executed on the
+     * same data, i.e. if it does not use random values, the current time, new blank nodes or remote
+     * services.
+     */
+    public static boolean isDeterministic(String sparql) {
+        return sparql != null && !NON_DETERMINISTIC.matcher(sparql).find();
+    }
+
+    /**
+     * Returns the SPARQL string of a step configured with either an inline <code>sparql</code> or a
+     * <code>file</code>, if it is known before the step is executed, i.e. if the file's path
+     * contains no variables and the file exists.
+     */
+    public static String readStaticSparql(String sparql, String file, PipelineState state) {
+        if (sparql != null || file == null || file.contains("${")) {
+            return sparql;
+        }
+        RelativePath sparqlFile = state.files().make(file);
+        return state.files().exists(sparqlFile) ? state.files().readText(sparqlFile) : null;
+    }
+
+    private static boolean isAnalyzable(String sparql) {
+        return sparql != null && !sparql.contains("${");
+    }
+
+    private static boolean addUpdate(Update update, StepDependencies dependencies) {
+        if (update instanceof UpdateData data) {
+            data.getQuads().forEach(q -> dependencies.writesGraph(graphName(q.getGraph(), null)));
+        } else if (update instanceof UpdateDeleteWhere deleteWhere) {
+            for (Quad quad : deleteWhere.getQuads()) {
+                dependencies.readsGraph(graphName(quad.getGraph(), null));
+                dependencies.writesGraph(graphName(quad.getGraph(), null));
+            }
+        } else if (update instanceof UpdateModify modify) {
+            Node with = modify.getWithIRI();
+            for (Quad quad : modify.getDeleteQuads()) {
+                dependencies.writesGraph(graphName(quad.getGraph(), with));
+            }
+            for (Quad quad : modify.getInsertQuads()) {
+                dependencies.writesGraph(graphName(quad.getGraph(), with));
+            }
+            List<String> defaultGraphs;
+            if (!modify.getUsing().isEmpty()) {
+                defaultGraphs = modify.getUsing().stream().map(Node::getURI).toList();
+            } else {
+                defaultGraphs = List.of(graphName(Quad.defaultGraphNodeGenerated, with));
+            }
+            addReads(modify.getWherePattern(), defaultGraphs, dependencies);
+        } else if (update instanceof UpdateDropClear dropClear) {
+            addTarget(dropClear.getTarget(), dependencies, false);
+        } else if (update instanceof UpdateBinaryOp binaryOp) {
+            addTarget(binaryOp.getSrc(), dependencies, true);
+            addTarget(binaryOp.getDest(), dependencies, false);
+            if (!(update instanceof UpdateAdd)) {
+                // MOVE and COPY also change the source
+                addTarget(binaryOp.getSrc(), dependencies, false);
+            }
+        } else if (update instanceof UpdateCreate create) {
+            dependencies.writesGraph(graphName(create.getGraph(), null));
+        } else {
+            // LOAD reads from outside the pipeline, anything else is unknown
+            return false;
+        }
+        return true;
+    }
+
+    private static void addTarget(Target target, StepDependencies dependencies, boolean read) {
+        String graph;
+        if (target.isDefault()) {
+            graph = DEFAULT_GRAPH_NAME;
+        } else if (target.isOneNamedGraph()) {
+            graph = graphName(target.getGraph(), null);
+        } else {
+            graph = StepDependencies.ANY_GRAPH;
+        }
+        if (read) {
+            dependencies.readsGraph(graph);
+        } else {
+            dependencies.writesGraph(graph);
+        }
+    }
+
+    private static String graphName(Node graphNode, Node with) {
+        if (graphNode == null || Quad.isDefaultGraph(graphNode)) {
+            if (with != null) {
+                return graphName(with, null);
+            }
+            return DEFAULT_GRAPH_NAME;
+        }
+        if (graphNode.isURI()) {
+            return graphNode.getURI();
+        }
+        return StepDependencies.ANY_GRAPH;
+    }
+
+    /**
+     * Adds the graphs read by the pattern. Triple patterns outside of a <code>GRAPH</code> block
+     * read the <code>defaultGraphs</code>.
+     */
+    private static void addReads(
+            Element element, List<String> defaultGraphs, StepDependencies dependencies) {
+        if (element == null) {
+            return;
+        }
+        if (element instanceof ElementGroup group) {
+            group.getElements().forEach(e -> addReads(e, defaultGraphs, dependencies));
+        } else if (element instanceof ElementUnion union) {
+            union.getElements().forEach(e -> addReads(e, defaultGraphs, dependencies));
+        } else if (element instanceof ElementOptional optional) {
+            addReads(optional.getOptionalElement(), defaultGraphs, dependencies);
+        } else if (element instanceof ElementMinus minus) {
+            addReads(minus.getMinusElement(), defaultGraphs, dependencies);
+        } else if (element instanceof ElementLateral lateral) {
+            addReads(lateral.getLateralElement(), defaultGraphs, dependencies);
+        } else if (element instanceof ElementExists exists) {
+            addReads(exists.getElement(), defaultGraphs, dependencies);
+        } else if (element instanceof ElementNotExists notExists) {
+            addReads(notExists.getElement(), defaultGraphs, dependencies);
+        } else if (element instanceof ElementNamedGraph namedGraph) {
+            String graph = graphName(namedGraph.getGraphNameNode(), null);
+            addReads(namedGraph.getElement(), List.of(graph), dependencies);
+        } else if (element instanceof ElementPathBlock || element instanceof ElementTriplesBlock) {
+            dependencies.readsGraphs(defaultGraphs);
+        } else if (element instanceof ElementFilter filter) {
+            addReads(filter.getExpr(), defaultGraphs, dependencies);
+        } else if (element instanceof ElementBind bind) {
+            addReads(bind.getExpr(), defaultGraphs, dependencies);
+        } else if (element instanceof ElementAssign assign) {
+            addReads(assign.getExpr(), defaultGraphs, dependencies);
+        } else if (element instanceof ElementSubQuery subQuery) {
+            addReads(subQuery.getQuery().getQueryPattern(), defaultGraphs, dependencies);
+        } else if (!(element instanceof ElementData)) {
+            dependencies.readsGraph(StepDependencies.ANY_GRAPH);
+        }
+    }
+
+    private static void addReads(
+            Expr expr, List<String> defaultGraphs, StepDependencies dependencies) {
+        if (expr instanceof ExprFunctionOp functionOp) {
+            addReads(functionOp.getElement(), defaultGraphs, dependencies);
+        } else if (expr instanceof ExprFunction function) {
+            function.getArgs().forEach(arg -> addReads(arg, defaultGraphs, dependencies));
+        }
+    }
+}
@@ -0,0 +1,246 @@
+package io.github.qudtlib.maven.rdfio.pipeline.step.support;
+
+import static io.github.qudtlib.maven.rdfio.common.datasetchange.DatasetState.DEFAULT_GRAPH_NAME;
+
+import io.github.qudtlib.maven.rdfio.pipeline.PipelineHelper;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Pattern;
+import org.apache.tools.ant.types.selectors.SelectorUtils;
+
+/**
+ * The graphs and files a step reads and writes, as far as they can be determined from the step's
+ * configuration. Two steps that do not conflict can be executed concurrently.
+ *
+ * <p>Graph names may contain the wildcards '*' and '?' (as in {@link GraphSelection}), file paths
+ * are relative to the pipeline's baseDir and may be ant-style patterns (as in {@code <files>}).
+ * Variable references (<code>${...}</code>) cannot be resolved before the step is executed, so they
+ * are treated as wildcards. A step whose effects cannot be determined at all is a barrier: it
+ * conflicts with every other step.
+ */
+public class StepDependencies {
+    public static final String ANY_GRAPH = "*";
+    public static final String ANY_FILE = "**";
+    private static final Pattern VARIABLE = Pattern.compile("\\$\\{[^}]*}");
+
+    private final boolean barrier;
+    private final Set<String> readGraphs = new HashSet<>();
+    private final Set<String> writtenGraphs = new HashSet<>();
+    private final Set<String> readFiles = new HashSet<>();
+    private final Set<String> writtenFiles = new HashSet<>();
+    private final List<InputsComponent<?>> parsedInputs = new ArrayList<>();
+
+    private StepDependencies(boolean barrier) {
+        this.barrier = barrier;
+    }
+
+    /** Dependencies of a step whose effects cannot be determined. */
+    public static StepDependencies barrier() {
+        return new StepDependencies(true);
+    }
+
+    /** Empty dependencies, to be filled using the <code>reads*</code> and <code>writes*</code>. */
+    public static StepDependencies of() {
+        return new StepDependencies(false);
+    }
+
+    public boolean isBarrier() {
+        return barrier;
+    }
+
+    public Set<String> getReadGraphs() {
+        return Collections.unmodifiableSet(readGraphs);
+    }
+
+    public Set<String> getWrittenGraphs() {
+        return Collections.unmodifiableSet(writtenGraphs);
+    }
+
+    public Set<String> getReadFiles() {
+        return Collections.unmodifiableSet(readFiles);
+    }
+
+    public Set<String> getWrittenFiles() {
+        return Collections.unmodifiableSet(writtenFiles);
+    }
+
+    /** The inputs whose RDF files the step parses when it is executed. */
+    public List<InputsComponent<?>> getParsedInputs() {
+        return Collections.unmodifiableList(parsedInputs);
+    }
+
+    public StepDependencies readsGraph(String graph) {
+        readGraphs.add(toGraphPattern(graph));
+        return this;
+    }
+
+    public StepDependencies readsGraphs(Collection<String> graphs) {
+        graphs.forEach(this::readsGraph);
+        return this;
+    }
+
+    public StepDependencies writesGraph(String graph) {
+        writtenGraphs.add(toGraphPattern(graph));
+        return this;
+    }
+
+    public StepDependencies readsFile(String file) {
+        readFiles.add(toFilePattern(file));
+        return this;
+    }
+
+    public StepDependencies readsFiles(Collection<String> files) {
+        files.forEach(this::readsFile);
+        return this;
+    }
+
+    public StepDependencies writesFile(String file) {
+        writtenFiles.add(toFilePattern(file));
+        return this;
+    }
+
+    /**
+     * Adds the graphs and files read by the inputs component. Steps read the default graph if no
+     * inputs are configured.
+     */
+    public StepDependencies readsInputs(InputsComponent<?> inputs) {
+        return readsInputs(inputs, true);
+    }
+
+    /**
+     * As {@link #readsInputs(InputsComponent)}; <code>parsed</code> is false if the step does not
+     * parse the input files when it is executed, so there is no point in parsing them in advance.
+     */
+    public StepDependencies readsInputs(InputsComponent<?> inputs, boolean parsed) {
+        if (inputs == null || inputs.hasNoInputs()) {
+            return readsGraph(DEFAULT_GRAPH_NAME);
+        }
+        if (parsed) {
+            parsedInputs.add(inputs);
+        }
+        readsFiles(inputs.getFiles());
+        if (inputs.getFileSelection() != null) {
+            readsFiles(inputs.getFileSelection().getInclude());
+        }
+        readsGraphs(inputs.getGraphs());
+        if (inputs.getGraphSelection() != null) {
+            readsGraphs(inputs.getGraphSelection().getInclude());
+        }
+        return this;
+    }
+
+    /**
+     * Returns true if the two steps must not be executed concurrently, i.e. if either is a barrier
+     * or one of them may write a graph or file the other one reads or writes.
+     */
+    public boolean conflictsWith(StepDependencies other) {
+        if (this.barrier || other.barrier) {
+            return true;
+        }
+        return writesAnyOf(this.writtenGraphs, other.readGraphs, other.writtenGraphs, false)
+                || writesAnyOf(other.writtenGraphs, this.readGraphs, this.writtenGraphs, false)
+                || writesAnyOf(this.writtenFiles, other.readFiles, other.writtenFiles, true)
+                || writesAnyOf(other.writtenFiles, this.readFiles, this.writtenFiles, true);
+    }
+
+    /** Returns true if the step may change the specified graph. */
+    public boolean mayWriteGraph(String graphName) {
+        return barrier
+                || writtenGraphs.stream().anyMatch(pattern -> overlaps(pattern, graphName, false));
+    }
+
+    /**
+     * Returns true if one of the files the step is known to write matches the path. The files
+     * written by a barrier are unknown, so this is always false for a barrier.
+     */
+    public boolean mayWriteFile(String file) {
+        String path = toFilePattern(file);
+        return writtenFiles.stream().anyMatch(pattern -> overlaps(pattern, path, true));
+    }
+
+    private static boolean writesAnyOf(
+            Set<String> written, Set<String> read, Set<String> otherWritten, boolean files) {
+        for (String w : written) {
+            for (String r : read) {
+                if (overlaps(w, r, files)) {
+                    return true;
+                }
+            }
+            for (String ow : otherWritten) {
+                if (overlaps(w, ow, files)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns true if there may be a graph name (or file path) matched by both patterns. If both
+     * are patterns, we only compare the literal prefixes - which may report overlaps where there
+     * are none, but never misses one.
+     */
+    static boolean overlaps(String left, String right, boolean files) {
+        boolean leftIsPattern = isPattern(left);
+        boolean rightIsPattern = isPattern(right);
+        if (!leftIsPattern && !rightIsPattern) {
+            return left.equals(right);
+        }
+        if (leftIsPattern && rightIsPattern) {
+            String leftPrefix = literalPrefix(left);
+            String rightPrefix = literalPrefix(right);
+            return leftPrefix.startsWith(rightPrefix) || rightPrefix.startsWith(leftPrefix);
+        }
+        String pattern = leftIsPattern ? left : right;
+        String name = leftIsPattern ? right : left;
+        if (files) {
+            return SelectorUtils.matchPath(pattern, name);
+        }
+        return Pattern.compile(PipelineHelper.wildcardToRegex(pattern)).matcher(name).matches();
+    }
+
+    private static boolean isPattern(String nameOrPattern) {
+        return nameOrPattern.indexOf('*') >= 0 || nameOrPattern.indexOf('?') >= 0;
+    }
+
+    private static String literalPrefix(String pattern) {
+        int star = pattern.indexOf('*');
+        int questionMark = pattern.indexOf('?');
+        int end = pattern.length();
+        if (star >= 0) {
+            end = star;
+        }
+        if (questionMark >= 0) {
+            end = Math.min(end, questionMark);
+        }
+        return pattern.substring(0, end);
+    }
+
+    private static String toGraphPattern(String graph) {
+        if (graph == null) {
+            return ANY_GRAPH;
+        }
+        return VARIABLE.matcher(graph.trim()).replaceAll("*");
+    }
+
+    private static String toFilePattern(String file) {
+        if (file == null) {
+            return ANY_FILE;
+        }
+        String path = file.trim().replace('\\', '/');
+        while (path.startsWith("./")) {
+            path = path.substring(2);
+        }
+        int variableStart = path.indexOf("${");
+        if (variableStart >= 0) {
+            // a variable may contain path separators: anything below the last fixed directory
+            int lastSlash = path.lastIndexOf('/', variableStart);
+            return path.substring(0, lastSlash + 1) + ANY_FILE;
+        }
+        return path;
+    }
+}
@@ -0,0 +1,9 @@
+package io.github.qudtlib.maven.rdfio.pipeline.step.support;
+
+/**
+ * How long a step took, and the number of triples in the dataset after it.
+ *
+ * @param durationMillis the step's duration in milliseconds
+ * @param datasetSize the number of triples in all graphs of the dataset after the step
+ */
+public record StepMeasurement(long durationMillis, long datasetSize) {}
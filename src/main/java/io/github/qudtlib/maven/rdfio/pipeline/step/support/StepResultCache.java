@@ -0,0 +1,380 @@
+package io.github.qudtlib.maven.rdfio.pipeline.step.support;
+
+import static io.github.qudtlib.maven.rdfio.common.datasetchange.DatasetState.DEFAULT_GRAPH_NAME;
+
+import io.github.qudtlib.maven.rdfio.common.datasetchange.ChangeTrackingDataset;
+import io.github.qudtlib.maven.rdfio.common.datasetchange.ChangeTrackingGraph;
+import io.github.qudtlib.maven.rdfio.common.datasetchange.GraphPatch;
+import io.github.qudtlib.maven.rdfio.common.datasetchange.OverlayGraph;
+import io.github.qudtlib.maven.rdfio.common.file.FileAccessException;
+import io.github.qudtlib.maven.rdfio.common.file.RelativePath;
+import io.github.qudtlib.maven.rdfio.common.file.SemanticHash;
+import io.github.qudtlib.maven.rdfio.pipeline.PipelineHelper;
+import io.github.qudtlib.maven.rdfio.pipeline.PipelineState;
+import io.github.qudtlib.maven.rdfio.pipeline.step.Step;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+import org.apache.jena.graph.Graph;
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.NodeFactory;
+import org.apache.jena.graph.Triple;
+import org.apache.jena.query.Dataset;
+import org.apache.jena.sparql.core.DatasetGraph;
+import org.apache.maven.plugin.MojoExecutionException;
+
+/**
+ * Memoized results of deterministic steps (see {@link Step#isDeterministic(PipelineState)}).
+ *
+ * <p>The result of a step is the change it makes to the dataset, stored as one RDF Patch per
+ * changed graph, and copies of the files it writes. It is stored under a key made of the step's
+ * hash (its configuration and the files it reads) and the {@link SemanticHash}es of the graphs it
+ * reads or writes - the patches only reproduce the result on the same prior content - but not of
+ * any other graph, so a result is reused even if earlier steps changed graphs the step does not
+ * depend on. This includes the metadata graph, which holds the pipeline variables and file bindings
+ * many steps read. Each version of a graph is only hashed once.
+ *
+ * <p>To record the changes, the step is executed on an overlay of the dataset (see {@link
+ * ChangeTrackingDataset#createOverlay(Dataset)}), which is merged into the dataset afterwards.
+ * Results that contain blank nodes are not stored, as they could not be told apart from the blank
+ * nodes in the dataset when the result is reused.
+ */
+public class StepResultCache {
+    public static final int DEFAULT_MAX_ENTRIES = 256;
+    private static final String MANIFEST = "manifest.txt";
+    private static final String GRAPH_ENTRY = "graph";
+    private static final String FILE_ENTRY = "file";
+
+    private final RelativePath directory;
+    private int maxEntries = DEFAULT_MAX_ENTRIES;
+
+    /**
+     * The semantic hash of each graph, with the modification stamp the graph had when it was hashed
+     * (see {@link ChangeTrackingGraph#getModificationStamp()}), so each version of a graph is only
+     * hashed once.
+     */
+    private final Map<String, StampedHash> semanticHashes = new ConcurrentHashMap<>();
+
+    private record StampedHash(long stamp, String hash) {}
+
+    private record ManifestEntry(String type, String storedFile, String target) {
+        static ManifestEntry parse(String line) {
+            String[] parts = line.split("\t", 3);
+            if (parts.length != 3) {
+                throw new IllegalArgumentException("Invalid step result manifest line: " + line);
+            }
+            return new ManifestEntry(parts[0], parts[1], parts[2]);
+        }
+
+        String format() {
+            return type + "\t" + storedFile + "\t" + target;
+        }
+    }
+
+    public StepResultCache(RelativePath directory) {
+        this.directory = directory;
+    }
+
+    public RelativePath getDirectory() {
+        return directory;
+    }
+
+    public int getMaxEntries() {
+        return maxEntries;
+    }
+
+    public void setMaxEntries(int maxEntries) {
+        this.maxEntries = maxEntries;
+    }
+
+    /**
+     * Executes the step, or applies its stored result if it has been executed with the same inputs
+     * before. Falls back to executing the step directly if its inputs cannot be determined.
+     */
+    public void execute(Step step, Dataset dataset, PipelineState state)
+            throws MojoExecutionException {
+        StepDependencies dependencies = step.getDependencies(state);
+        if (dependencies.isBarrier()
+                || Stream.concat(
+                                dependencies.getReadFiles().stream(),
+                                dependencies.getWrittenFiles().stream())
+                        .anyMatch(StepResultCache::isPattern)) {
+            step.execute(dataset, state);
+            return;
+        }
+        String key = calculateKey(step, dependencies, dataset, state);
+        RelativePath entryDir = directory.subDir(key);
+        if (state.isAllowLoadingFromSavepoint() && apply(entryDir, dataset, state)) {
+            state.log().info("Reused the result of an earlier execution with the same inputs", 1);
+            state.getPrecedingSteps().add(step);
+            return;
+        }
+        Dataset overlay = ChangeTrackingDataset.createOverlay(dataset);
+        step.execute(overlay, state);
+        Map<String, OverlayGraph> overlayGraphs = ChangeTrackingDataset.getOverlayGraphs(overlay);
+        ChangeTrackingDataset.mergeOverlay(overlay, dataset);
+        if (overlayGraphs.values().stream().anyMatch(StepResultCache::hasBlankNodes)) {
+            state.log()
+                    .debug(
+                            "Not storing the result of <%s> step: it contains blank nodes"
+                                    .formatted(step.getElementName()));
+            return;
+        }
+        store(entryDir, overlayGraphs, dependencies.getWrittenFiles(), state);
+        evict();
+    }
+
+    /**
+     * The key of the step's result: its hash, combined with the names and content of all graphs it
+     * reads or writes.
+     */
+    private String calculateKey(
+            Step step, StepDependencies dependencies, Dataset dataset, PipelineState state) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+        digest.update(step.calculateHash("", state).getBytes(StandardCharsets.UTF_8));
+        DatasetGraph datasetGraph = dataset.asDatasetGraph();
+        List<String> graphNames = PipelineHelper.getGraphList(dataset);
+        graphNames.add(DEFAULT_GRAPH_NAME);
+        TreeSet<String> usedGraphs = new TreeSet<>();
+        Stream.concat(
+                        dependencies.getReadGraphs().stream(),
+                        dependencies.getWrittenGraphs().stream())
+                .forEach(
+                        pattern ->
+                                graphNames.stream()
+                                        .filter(
+                                                name ->
+                                                        StepDependencies.overlaps(
+                                                                pattern, name, false))
+                                        .forEach(usedGraphs::add));
+        for (String graphName : usedGraphs) {
+            Graph graph =
+                    graphName.equals(DEFAULT_GRAPH_NAME)
+                            ? datasetGraph.getDefaultGraph()
+                            : datasetGraph.getGraph(NodeFactory.createURI(graphName));
+            digest.update(graphName.getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            digest.update(semanticHash(graphName, graph).getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    private String semanticHash(String graphName, Graph graph) {
+        if (!(graph instanceof ChangeTrackingGraph trackingGraph)) {
+            return SemanticHash.of(graph);
+        }
+        long stamp = trackingGraph.getModificationStamp();
+        StampedHash known = semanticHashes.get(graphName);
+        if (known != null && known.stamp() == stamp) {
+            return known.hash();
+        }
+        String hash = SemanticHash.of(graph);
+        if (trackingGraph.getModificationStamp() == stamp) {
+            semanticHashes.put(graphName, new StampedHash(stamp, hash));
+        }
+        return hash;
+    }
+
+    /** Applies the stored result to the dataset, returns false if there is none. */
+    private boolean apply(RelativePath entryDir, Dataset dataset, PipelineState state) {
+        Path manifest = entryDir.subFile(MANIFEST).resolve().toPath();
+        if (!Files.isRegularFile(manifest)) {
+            return false;
+        }
+        List<ManifestEntry> entries = new ArrayList<>();
+        try {
+            for (String line : Files.readAllLines(manifest, StandardCharsets.UTF_8)) {
+                if (!line.isBlank()) {
+                    entries.add(ManifestEntry.parse(line));
+                }
+            }
+        } catch (IOException | IllegalArgumentException e) {
+            state.log().debug("Cannot read step result manifest %s".formatted(manifest));
+            return false;
+        }
+        if (!entries.stream()
+                .allMatch(entry -> entryDir.subFile(entry.storedFile()).resolve().isFile())) {
+            return false;
+        }
+        DatasetGraph datasetGraph = dataset.asDatasetGraph();
+        for (ManifestEntry entry : entries) {
+            RelativePath storedFile = entryDir.subFile(entry.storedFile());
+            if (entry.type().equals(GRAPH_ENTRY)) {
+                Graph graph =
+                        entry.target().equals(DEFAULT_GRAPH_NAME)
+                                ? datasetGraph.getDefaultGraph()
+                                : datasetGraph.getGraph(NodeFactory.createURI(entry.target()));
+                state.files().applyRdfPatch(storedFile, graph, false);
+            } else {
+                RelativePath target = state.files().make(entry.target());
+                state.loadLazyGraphs(target);
+                copy(storedFile.resolve().toPath(), target.resolve().toPath());
+                state.getOutputFiles().add(target);
+            }
+        }
+        touch(manifest);
+        return true;
+    }
+
+    private void store(
+            RelativePath entryDir,
+            Map<String, OverlayGraph> overlayGraphs,
+            Iterable<String> writtenFiles,
+            PipelineState state) {
+        Path dir = entryDir.resolve().toPath();
+        deleteDirectory(dir);
+        try {
+            Files.createDirectories(dir);
+        } catch (IOException e) {
+            throw new FileAccessException("Cannot create " + dir, e);
+        }
+        List<ManifestEntry> entries = new ArrayList<>();
+        int index = 0;
+        for (Map.Entry<String, OverlayGraph> overlayGraph : overlayGraphs.entrySet()) {
+            if (!overlayGraph.getValue().hasChanges()) {
+                continue;
+            }
+            String storedFile = "graph-%d.rdfp".formatted(index++);
+            state.files()
+                    .writeRdfPatch(
+                            entryDir.subFile(storedFile),
+                            GraphPatch.of(
+                                    overlayGraph.getValue().getAdditions(),
+                                    overlayGraph.getValue().getDeletions()),
+                            false);
+            entries.add(new ManifestEntry(GRAPH_ENTRY, storedFile, overlayGraph.getKey()));
+        }
+        for (String writtenFile : writtenFiles) {
+            Path source = state.files().make(writtenFile).resolve().toPath();
+            if (!Files.isRegularFile(source)) {
+                continue;
+            }
+            String storedFile = "file-%d".formatted(index++);
+            copy(source, dir.resolve(storedFile));
+            entries.add(new ManifestEntry(FILE_ENTRY, storedFile, writtenFile));
+        }
+        // the manifest is written last, so incomplete results are never used
+        StringBuilder content = new StringBuilder();
+        entries.forEach(entry -> content.append(entry.format()).append("\n"));
+        writeAtomically(dir.resolve(MANIFEST), content.toString());
+    }
+
+    /** Removes the least recently used results beyond the maximum number of entries. */
+    private void evict() {
+        Path dir = directory.resolve().toPath();
+        List<Path> entryDirs;
+        try (Stream<Path> paths = Files.list(dir)) {
+            entryDirs =
+                    paths.filter(Files::isDirectory)
+                            .sorted(
+                                    Comparator.comparing(
+                                            (Path entryDir) ->
+                                                    lastModified(entryDir.resolve(MANIFEST))))
+                            .toList();
+        } catch (IOException e) {
+            return;
+        }
+        for (int i = 0; i < entryDirs.size() - maxEntries; i++) {
+            deleteDirectory(entryDirs.get(i));
+        }
+    }
+
+    private static boolean hasBlankNodes(OverlayGraph overlayGraph) {
+        return Stream.of(overlayGraph.getAdditions(), overlayGraph.getDeletions())
+                .flatMap(graph -> graph.find().toList().stream())
+                .anyMatch(StepResultCache::hasBlankNode);
+    }
+
+    private static boolean hasBlankNode(Triple triple) {
+        return Stream.of(triple.getSubject(), triple.getObject()).anyMatch(Node::isBlank);
+    }
+
+    private static boolean isPattern(String file) {
+        return file.contains("*") || file.contains("?");
+    }
+
+    private static void copy(Path source, Path target) {
+        try {
+            Files.createDirectories(target.toAbsolutePath().getParent());
+            Files.copy(source, target, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            throw new FileAccessException("Cannot copy %s to %s".formatted(source, target), e);
+        }
+    }
+
+    private static void writeAtomically(Path target, String content) {
+        try {
+            Files.createDirectories(target.toAbsolutePath().getParent());
+            Path tmp =
+                    Files.createTempFile(
+                            target.toAbsolutePath().getParent(),
+                            target.getFileName().toString(),
+                            ".tmp");
+            try {
+                Files.writeString(tmp, content, StandardCharsets.UTF_8);
+                try {
+                    Files.move(
+                            tmp,
+                            target,
+                            StandardCopyOption.ATOMIC_MOVE,
+                            StandardCopyOption.REPLACE_EXISTING);
+                } catch (AtomicMoveNotSupportedException e) {
+                    Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING);
+                }
+            } finally {
+                Files.deleteIfExists(tmp);
+            }
+        } catch (IOException e) {
+            throw new FileAccessException("Cannot write " + target, e);
+        }
+    }
+
+    private static void deleteDirectory(Path dir) {
+        if (!Files.exists(dir)) {
+            return;
+        }
+        try (Stream<Path> paths = Files.walk(dir)) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                Files.deleteIfExists(path);
+            }
+        } catch (IOException e) {
+            throw new FileAccessException("Cannot delete " + dir, e);
+        }
+    }
+
+    private static void touch(Path file) {
+        try {
+            Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+        } catch (IOException e) {
+            // only affects the order of eviction
+        }
+    }
+
+    private static FileTime lastModified(Path file) {
+        try {
+            return Files.getLastModifiedTime(file);
+        } catch (IOException e) {
+            return FileTime.fromMillis(0);
+        }
+    }
+}
@@ -0,0 +1,166 @@
+package io.github.qudtlib.maven.rdfio.product;
+
+import io.github.qudtlib.maven.rdfio.common.file.FileAccessException;
+import io.github.qudtlib.maven.rdfio.common.file.FileFingerprints;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Stamp file of a product of the <code>make</code> goal: for each output file made in the last
+ * builds, the hash of the inputs it was made from and the fingerprint it had when it was written.
+ * An output whose inputs have the same hash and that still has that fingerprint is up to date and
+ * does not have to be made again.
+ *
+ * <p>The first line of the stamp file holds the hash of the product's configuration (including its
+ * filters). If the configuration changed, all stamps are discarded. Each further line is <code>
+ * input hash\toutput fingerprint\toutput file</code>.
+ *
+ * <p>The stamps of different outputs can be checked and recorded concurrently.
+ */
+public class ProductStamps {
+    private record Stamp(String inputHash, String outputFingerprint) {}
+
+    private final File file;
+    private final File baseDir;
+    private final String configurationHash;
+    private final FileFingerprints fingerprints;
+    private final Map<String, Stamp> previous = new HashMap<>();
+    private final Map<String, Stamp> current = new ConcurrentSkipListMap<>();
+
+    /**
+     * Reads the stamps in <code>file</code> that were recorded with the same configuration hash.
+     * Output file paths are relative to <code>baseDir</code>. Files are fingerprinted with <code>
+     * fingerprints</code>.
+     */
+    public ProductStamps(
+            File file, File baseDir, String configurationHash, FileFingerprints fingerprints) {
+        this.file = file;
+        this.baseDir = baseDir;
+        this.configurationHash = configurationHash;
+        this.fingerprints = fingerprints;
+        if (!file.isFile()) {
+            return;
+        }
+        try {
+            List<String> lines = Files.readAllLines(file.toPath(), StandardCharsets.UTF_8);
+            if (lines.isEmpty() || !lines.get(0).equals(configurationHash)) {
+                return;
+            }
+            for (String line : lines.subList(1, lines.size())) {
+                String[] parts = line.split("\t", 3);
+                if (parts.length == 3) {
+                    previous.put(parts[2], new Stamp(parts[0], parts[1]));
+                }
+            }
+        } catch (IOException e) {
+            // without stamps, all outputs are made again
+        }
+    }
+
+    /**
+     * Returns the hash of the given input files, each loaded into the graph it is paired with.
+     *
+     * @param graphsAndFiles pairs of graph name and input file, relative to the base directory
+     */
+    public String inputHash(List<Map.Entry<String, String>> graphsAndFiles) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("MD5");
+            graphsAndFiles.stream()
+                    .map(
+                            graphAndFile ->
+                                    graphAndFile.getKey()
+                                            + "\t"
+                                            + graphAndFile.getValue()
+                                            + "\t"
+                                            + fingerprints.fingerprint(
+                                                    new File(baseDir, graphAndFile.getValue()))
+                                            + "\n")
+                    .sorted()
+                    .forEach(line -> digest.update(line.getBytes(StandardCharsets.UTF_8)));
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException("Failed to calculate hash", e);
+        }
+    }
+
+    /**
+     * Returns true if <code>outputFile</code> was made from inputs with the same hash and is
+     * unchanged since. Its stamp is then kept in the stamp file.
+     */
+    public boolean isUpToDate(String outputFile, String inputHash) {
+        Stamp stamp = previous.get(outputFile);
+        if (stamp == null || !stamp.inputHash().equals(inputHash)) {
+            return false;
+        }
+        File output = new File(baseDir, outputFile);
+        try {
+            if (!output.isFile()
+                    || !fingerprints.fingerprint(output).equals(stamp.outputFingerprint())) {
+                return false;
+            }
+        } catch (FileAccessException e) {
+            return false;
+        }
+        current.put(outputFile, stamp);
+        return true;
+    }
+
+    /** Records that <code>outputFile</code> has just been made from inputs with the given hash. */
+    public void record(String outputFile, String inputHash) {
+        File output = new File(baseDir, outputFile);
+        if (output.isFile()) {
+            current.put(outputFile, new Stamp(inputHash, fingerprints.fingerprint(output)));
+        }
+    }
+
+    /**
+     * Writes the stamps of the outputs that were made or found up to date. Stamps of outputs that
+     * were not considered, e.g. because their input file was removed, are dropped.
+     */
+    public void write() {
+        StringBuilder content = new StringBuilder(configurationHash).append("\n");
+        current.forEach(
+                (outputFile, stamp) ->
+                        content.append(stamp.inputHash())
+                                .append("\t")
+                                .append(stamp.outputFingerprint())
+                                .append("\t")
+                                .append(outputFile)
+                                .append("\n"));
+        Path target = file.toPath().toAbsolutePath();
+        try {
+            Files.createDirectories(target.getParent());
+            Path tmp =
+                    Files.createTempFile(
+                            target.getParent(), target.getFileName().toString(), ".tmp");
+            try {
+                Files.writeString(tmp, content, StandardCharsets.UTF_8);
+                try {
+                    Files.move(
+                            tmp,
+                            target,
+                            StandardCopyOption.ATOMIC_MOVE,
+                            StandardCopyOption.REPLACE_EXISTING);
+                } catch (AtomicMoveNotSupportedException e) {
+                    Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING);
+                }
+            } finally {
+                Files.deleteIfExists(tmp);
+            }
+        } catch (IOException e) {
+            throw new FileAccessException("Cannot write " + target, e);
+        }
+    }
+}
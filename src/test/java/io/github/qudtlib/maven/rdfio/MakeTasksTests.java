@@ -0,0 +1,109 @@
+package io.github.qudtlib.maven.rdfio;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import io.github.qudtlib.maven.rdfio.common.log.StdoutLog;
+import io.github.qudtlib.maven.rdfio.common.log.ThreadRoutingLog;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.junit.jupiter.api.Test;
+
+public class MakeTasksTests {
+    private final List<String> lines = Collections.synchronizedList(new ArrayList<>());
+    private final ThreadRoutingLog log =
+            new ThreadRoutingLog(
+                    new StdoutLog() {
+                        @Override
+                        public void info(CharSequence content) {
+                            lines.add(content.toString());
+                        }
+                    });
+
+    @Test
+    void testOutputIsWrittenInSubmissionOrder() throws Exception {
+        List<String> expected = new ArrayList<>();
+        try (MakeTasks tasks = new MakeTasks(4, log)) {
+            assertTrue(tasks.isConcurrent());
+            for (int i = 0; i < 8; i++) {
+                int index = i;
+                log.info("submitting " + i);
+                expected.add("submitting " + i);
+                tasks.submit(
+                        () -> {
+                            // later tasks finish first
+                            sleep(40 - index * 5);
+                            log.info("task " + index);
+                        });
+                expected.add("task " + i);
+            }
+            log.info("all submitted");
+            expected.add("all submitted");
+            tasks.awaitAll();
+        }
+        assertEquals(expected, lines);
+    }
+
+    @Test
+    void testFirstFailureIsThrownAfterAllOutput() throws Exception {
+        try (MakeTasks tasks = new MakeTasks(2, log)) {
+            tasks.submit(() -> log.info("task 0"));
+            tasks.submit(
+                    () -> {
+                        throw new MojoExecutionException("task 1 failed");
+                    });
+            MojoExecutionException e = assertThrows(MojoExecutionException.class, tasks::awaitAll);
+            assertEquals("task 1 failed", e.getMessage());
+        }
+        assertEquals(List.of("task 0"), lines);
+    }
+
+    @Test
+    void testCloseWaitsForRunningTasksAfterFailure() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        AtomicBoolean finished = new AtomicBoolean();
+        try (MakeTasks tasks = new MakeTasks(2, log)) {
+            tasks.submit(
+                    () -> {
+                        try {
+                            started.await();
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                        }
+                        throw new MojoExecutionException("task 0 failed");
+                    });
+            tasks.submit(
+                    () -> {
+                        started.countDown();
+                        // keeps running when interrupted, like a task writing a file
+                        long end = System.nanoTime() + 200_000_000L;
+                        while (System.nanoTime() < end) {
+                            Thread.onSpinWait();
+                        }
+                        finished.set(true);
+                    });
+            assertThrows(MojoExecutionException.class, tasks::awaitAll);
+        }
+        assertTrue(finished.get(), "close() should return only after all tasks have stopped");
+    }
+
+    @Test
+    void testSingleThreadRunsTasksImmediately() throws Exception {
+        try (MakeTasks tasks = new MakeTasks(1, log)) {
+            assertFalse(tasks.isConcurrent());
+            tasks.submit(() -> log.info("task"));
+            assertEquals(List.of("task"), lines);
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
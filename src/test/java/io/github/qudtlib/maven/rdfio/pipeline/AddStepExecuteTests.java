@@ -3,11 +3,18 @@ package io.github.qudtlib.maven.rdfio.pipeline;
 import static org.junit.jupiter.api.Assertions.*;
 
 import io.github.qudtlib.maven.rdfio.common.RDFIO;
+import io.github.qudtlib.maven.rdfio.common.datasetchange.ChangeTrackingDataset;
+import io.github.qudtlib.maven.rdfio.common.datasetchange.DatasetState;
 import io.github.qudtlib.maven.rdfio.common.file.RelativePath;
+import io.github.qudtlib.maven.rdfio.common.log.BufferedLog;
+import io.github.qudtlib.maven.rdfio.common.log.StdoutLog;
 import io.github.qudtlib.maven.rdfio.pipeline.step.AddStep;
+import io.github.qudtlib.maven.rdfio.pipeline.step.support.FileGraph;
 import io.github.qudtlib.maven.rdfio.pipeline.support.PipelineConfigurationExeception;
 import java.io.File;
 import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
 import org.apache.jena.query.Dataset;
 import org.apache.jena.query.DatasetFactory;
 import org.apache.jena.rdf.model.Model;
@@ -175,6 +182,44 @@ public class AddStepExecuteTests {
                 "Metadata should NOT map the first file to the target graph");
     }
 
+    @Test
+    void testExecuteMultipleFilesToGraphsPattern() throws Exception {
+        RelativePath secondRdfFile = new RelativePath(baseDir, "src/test/resources/data2.ttl");
+        Files.write(
+                secondRdfFile.resolve().toPath(),
+                "<http://example.org/s2> <http://example.org/p2> <http://example.org/o2> ."
+                        .getBytes());
+
+        String xmlConfig =
+                """
+                <add>
+                    <file>%s</file>
+                    <file>src/test/resources/data2.ttl</file>
+                    <toGraphsPattern>test:graph:${name}</toGraphsPattern>
+                </add>
+                """
+                        .formatted(TEST_RDF_FILE);
+        AddStep step = AddStep.parse(Xpp3DomBuilder.build(new java.io.StringReader(xmlConfig)));
+
+        step.execute(dataset, state);
+
+        assertEquals(1, dataset.getNamedModel("test:graph:data.ttl").size());
+        assertTrue(
+                dataset.getNamedModel("test:graph:data2.ttl")
+                        .contains(
+                                ResourceFactory.createResource("http://example.org/s2"),
+                                ResourceFactory.createProperty("http://example.org/p2"),
+                                ResourceFactory.createResource("http://example.org/o2")),
+                "Each file should be loaded into its own graph");
+        Model metaModel = dataset.getNamedModel(state.getMetadataGraph());
+        assertTrue(
+                metaModel.contains(
+                        secondRdfFile.getRelativePathAsResource(),
+                        RDFIO.loadsInto,
+                        ResourceFactory.createResource("test:graph:data2.ttl")),
+                "Metadata should map each file to its graph");
+    }
+
     @Test
     void testExecuteMissingToGraph() throws Exception {
         // Arrange: Configure AddStep without toGraph
@@ -351,4 +396,86 @@ public class AddStepExecuteTests {
                         ResourceFactory.createResource(EXPECTED_OBJECT)),
                 "Target graph should contain the new triple from the file");
     }
+
+    @Test
+    void testExecuteLazyReadsFileWhenGraphIsUsed() throws Exception {
+        String xmlConfig =
+                """
+                <add>
+                    <file>%s</file>
+                    <toGraph>test:graph</toGraph>
+                    <lazy>true</lazy>
+                </add>
+                """
+                        .formatted(TEST_RDF_FILE);
+        AddStep step = AddStep.parse(Xpp3DomBuilder.build(new java.io.StringReader(xmlConfig)));
+        assertTrue(step.isLazy());
+        Dataset trackingDataset = ChangeTrackingDataset.create();
+
+        step.execute(trackingDataset, state);
+
+        Model targetModel = trackingDataset.getNamedModel("test:graph");
+        FileGraph fileGraph =
+                FileGraph.unloadedFileGraph(targetModel.getGraph())
+                        .orElseThrow(() -> new AssertionError("Graph should not be read yet"));
+        assertFalse(
+                new DatasetState(trackingDataset).isGraphSizeKnown("test:graph"),
+                "Size should not be known before the graph is read");
+        assertTrue(
+                targetModel.contains(
+                        ResourceFactory.createResource(EXPECTED_SUBJECT),
+                        ResourceFactory.createProperty(EXPECTED_PREDICATE),
+                        ResourceFactory.createResource(EXPECTED_OBJECT)),
+                "Target graph should contain the triple from the file");
+        assertTrue(fileGraph.isLoaded(), "Graph should be read when it is used");
+        assertEquals(1, targetModel.size());
+        assertEquals(1, new DatasetState(trackingDataset).getGraphSize("test:graph"));
+        assertTrue(
+                trackingDataset
+                        .getNamedModel(state.getMetadataGraph())
+                        .contains(
+                                new RelativePath(baseDir, TEST_RDF_FILE)
+                                        .getRelativePathAsResource(),
+                                RDFIO.loadsInto,
+                                ResourceFactory.createResource("test:graph")),
+                "Metadata graph should bind the file to the graph");
+    }
+
+    @Test
+    void testLazyGraphIsReadWithALogThatIsStillWritten() throws Exception {
+        List<String> debugLines = new ArrayList<>();
+        PipelineState rootState =
+                new PipelineState(
+                        "test-pipeline",
+                        baseDir,
+                        new RelativePath(baseDir, "pipelines"),
+                        new StdoutLog() {
+                            @Override
+                            public boolean isDebugEnabled() {
+                                return true;
+                            }
+
+                            @Override
+                            public void debug(CharSequence content) {
+                                debugLines.add(content.toString());
+                            }
+                        },
+                        null,
+                        null);
+        BufferedLog stepLog = new BufferedLog(rootState.getLog());
+        AddStep step = new AddStep();
+        step.getInputsComponent().addFile(TEST_RDF_FILE);
+        step.setToGraph("test:graph");
+        step.setLazy(true);
+        Dataset trackingDataset = ChangeTrackingDataset.create();
+        step.execute(trackingDataset, rootState.fork(stepLog));
+        // the step has finished and its output has been written
+        stepLog.flush();
+        debugLines.clear();
+
+        assertEquals(1, trackingDataset.getNamedModel("test:graph").size());
+        assertTrue(
+                debugLines.stream().anyMatch(line -> line.contains("Reading lazily added file")),
+                "Reading the file should be logged");
+    }
 }
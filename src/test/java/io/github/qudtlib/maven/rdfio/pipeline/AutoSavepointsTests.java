@@ -0,0 +1,165 @@
+package io.github.qudtlib.maven.rdfio.pipeline;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import io.github.qudtlib.maven.rdfio.common.datasetchange.ChangeTrackingDataset;
+import io.github.qudtlib.maven.rdfio.common.file.RelativePath;
+import io.github.qudtlib.maven.rdfio.common.log.StdoutLog;
+import io.github.qudtlib.maven.rdfio.pipeline.step.SavepointStep;
+import io.github.qudtlib.maven.rdfio.pipeline.step.SparqlUpdateStep;
+import io.github.qudtlib.maven.rdfio.pipeline.step.Step;
+import io.github.qudtlib.maven.rdfio.pipeline.step.support.SavepointCosts.Measurement;
+import io.github.qudtlib.maven.rdfio.pipeline.step.support.StepMeasurement;
+import io.github.qudtlib.maven.rdfio.pipeline.support.ConfigurationParseException;
+import java.io.File;
+import java.io.StringReader;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Map;
+import org.apache.jena.graph.Graph;
+import org.apache.jena.graph.NodeFactory;
+import org.apache.jena.query.Dataset;
+import org.codehaus.plexus.util.xml.Xpp3DomBuilder;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class AutoSavepointsTests {
+    private PipelineState state;
+    private List<Step> steps;
+
+    @BeforeEach
+    void setUp() {
+        File baseDir = new File(".");
+        state =
+                new PipelineState(
+                        "auto-savepoints",
+                        baseDir,
+                        new RelativePath(baseDir, "target")
+                                .subDir("test-output")
+                                .subDir("auto-savepoints"),
+                        new StdoutLog(),
+                        null,
+                        null);
+        state.getPipelineWorkDir().subFile("step-statistics.txt").resolve().delete();
+        steps = List.of(makeStep(), makeStep(), makeStep(), makeStep());
+    }
+
+    private static Step makeStep() {
+        SparqlUpdateStep step = new SparqlUpdateStep();
+        step.setSparql("INSERT DATA { <http://example.org/s> <http://example.org/p> 1 }");
+        return step;
+    }
+
+    private void recordRun(long... durations) {
+        for (int i = 0; i < durations.length; i++) {
+            state.recordStepMeasurement(steps.get(i), new StepMeasurement(durations[i], 1000));
+        }
+        new AutoSavepoints().recordStatistics(steps, state);
+    }
+
+    private static List<String> savepointIds(List<Step> steps) {
+        return steps.stream()
+                .filter(step -> step instanceof SavepointStep)
+                .map(step -> ((SavepointStep) step).getId())
+                .toList();
+    }
+
+    @Test
+    void testNoSavepointsWithoutMeasurements() {
+        assertEquals(steps, new AutoSavepoints().placeSavepoints(steps, state));
+    }
+
+    @Test
+    void testSavepointIsPlacedAfterExpensiveSteps() {
+        recordRun(10, 5000, 10, 10);
+        List<Step> placed = new AutoSavepoints().placeSavepoints(steps, state);
+        assertEquals(List.of("auto002"), savepointIds(placed));
+        assertSame(steps.get(1), placed.get(1));
+        assertTrue(((SavepointStep) placed.get(2)).isAutomatic());
+    }
+
+    @Test
+    void testNumberOfSavepointsIsLimited() {
+        recordRun(3000, 10, 8000, 5000);
+        AutoSavepoints autoSavepoints = new AutoSavepoints();
+        autoSavepoints.setMaxSavepoints(2);
+        assertEquals(
+                List.of("auto003", "auto004"),
+                savepointIds(autoSavepoints.placeSavepoints(steps, state)));
+        autoSavepoints.setCostRatio(100);
+        assertEquals(
+                List.of("auto003"), savepointIds(autoSavepoints.placeSavepoints(steps, state)));
+    }
+
+    @Test
+    void testDurationsAreAveragedOverRuns() {
+        recordRun(10, 5000, 10, 10);
+        recordRun(10, 10, 10, 10);
+        // (5000 + 10) / 2 is still expensive
+        assertEquals(
+                List.of("auto002"),
+                savepointIds(new AutoSavepoints().placeSavepoints(steps, state)));
+    }
+
+    @Test
+    void testMeasuredSavepointCostIsUsed() throws Exception {
+        recordRun(10, 5000, 10, 10);
+        File statistics = state.getPipelineWorkDir().subFile("step-statistics.txt").resolve();
+        // writing and (presumably) loading 1000 triples take 1600 ms: 5000 ms are not enough
+        Files.writeString(
+                statistics.toPath(), "savepoint-writes\t800\t1000\n", StandardOpenOption.APPEND);
+        assertEquals(List.of(), savepointIds(new AutoSavepoints().placeSavepoints(steps, state)));
+        // loading is faster: 900 ms
+        Files.writeString(
+                statistics.toPath(), "savepoint-loads\t100\t1000\n", StandardOpenOption.APPEND);
+        assertEquals(
+                List.of("auto002"),
+                savepointIds(new AutoSavepoints().placeSavepoints(steps, state)));
+    }
+
+    @Test
+    void testSavepointCostIsRecorded() {
+        Dataset dataset = ChangeTrackingDataset.create();
+        Graph graph = dataset.getDefaultModel().getGraph();
+        for (int i = 0; i < 100; i++) {
+            graph.add(
+                    NodeFactory.createURI("http://example.org/s" + i),
+                    NodeFactory.createURI("http://example.org/p"),
+                    NodeFactory.createURI("http://example.org/o"));
+        }
+        state.getSavepointCache().save("auto-savepoints-cost", dataset, "hash", state);
+        recordRun(10, 10, 10, 10);
+        Map<String, Measurement> costs = AutoSavepoints.readSavepointCosts(state);
+        assertEquals(100, costs.get(AutoSavepoints.SAVEPOINT_WRITES).triples());
+        assertNull(costs.get(AutoSavepoints.SAVEPOINT_LOADS));
+    }
+
+    @Test
+    void testAutomaticSavepointDoesNotChangeHashes() {
+        SavepointStep savepoint = new SavepointStep();
+        savepoint.setId("auto001");
+        savepoint.setAutomatic(true);
+        assertEquals("previous", savepoint.calculateHash("previous", state));
+        savepoint.setAutomatic(false);
+        assertNotEquals("previous", savepoint.calculateHash("previous", state));
+    }
+
+    @Test
+    void testParse() throws Exception {
+        AutoSavepoints autoSavepoints =
+                AutoSavepoints.parse(
+                        Xpp3DomBuilder.build(
+                                new StringReader(
+                                        "<autoSavepoints><costRatio>2.5</costRatio><maxSavepoints>1</maxSavepoints></autoSavepoints>")));
+        assertEquals(2.5, autoSavepoints.getCostRatio());
+        assertEquals(1, autoSavepoints.getMaxSavepoints());
+        assertThrows(
+                ConfigurationParseException.class,
+                () ->
+                        AutoSavepoints.parse(
+                                Xpp3DomBuilder.build(
+                                        new StringReader(
+                                                "<autoSavepoints><costRatio>0</costRatio></autoSavepoints>"))));
+    }
+}
@@ -0,0 +1,95 @@
+package io.github.qudtlib.maven.rdfio.pipeline;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import io.github.qudtlib.maven.rdfio.common.file.Compression;
+import io.github.qudtlib.maven.rdfio.common.file.ParallelGzipOutputStream;
+import io.github.qudtlib.maven.rdfio.common.file.RdfLoader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.zip.GZIPInputStream;
+import org.apache.jena.graph.Graph;
+import org.apache.jena.graph.NodeFactory;
+import org.apache.jena.riot.Lang;
+import org.apache.jena.sparql.core.DatasetGraph;
+import org.apache.jena.sparql.core.DatasetGraphFactory;
+import org.apache.jena.sparql.graph.GraphFactory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class CompressionTests {
+    private File dir;
+
+    @BeforeEach
+    void setUp() {
+        dir = new File("target/test-output/compression");
+        dir.mkdirs();
+    }
+
+    @Test
+    void testLanguageIsDetectedFromInnerExtension() {
+        assertEquals(Compression.GZIP, Compression.of("vocab.ttl.gz"));
+        assertEquals(Compression.BZIP2, Compression.of("dump.nq.bz2"));
+        assertEquals(Compression.NONE, Compression.of("vocab.ttl"));
+        assertEquals(Lang.TTL, RdfLoader.lang("vocab.ttl.gz", null));
+        assertEquals(Lang.NQUADS, RdfLoader.lang("dump.nq.bz2", null));
+        assertEquals(Lang.TRIG, RdfLoader.lang("data.gz", Lang.TRIG));
+    }
+
+    @Test
+    void testCompressedFilesAreWrittenAndReadByName() throws Exception {
+        File turtle = new File(dir, "vocab.ttl.gz");
+        try (OutputStream out = Compression.openOutputStream(turtle)) {
+            out.write(
+                    "@prefix ex: <http://example.org/> . ex:s ex:p 1, 2 ."
+                            .getBytes(StandardCharsets.UTF_8));
+        }
+        Graph graph = GraphFactory.createDefaultGraph();
+        RdfLoader.read(turtle, graph);
+        assertEquals(2, graph.size());
+
+        File quads = new File(dir, "dump.nq.bz2");
+        try (OutputStream out = Compression.openOutputStream(quads)) {
+            out.write(
+                    "<http://example.org/s> <http://example.org/p> \"o\" <http://example.org/g> .\n"
+                            .getBytes(StandardCharsets.UTF_8));
+        }
+        DatasetGraph dataset = DatasetGraphFactory.create();
+        RdfLoader.read(quads, dataset);
+        assertEquals(1, dataset.getGraph(NodeFactory.createURI("http://example.org/g")).size());
+    }
+
+    @Test
+    void testParallelGzipOutputIsOneGzipStream() throws Exception {
+        byte[] data = new byte[100_000];
+        Random random = new Random(42);
+        for (int i = 0; i < data.length; i++) {
+            // compressible, but not trivially
+            data[i] = (byte) ('a' + random.nextInt(8));
+        }
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        try (OutputStream out = new ParallelGzipOutputStream(compressed, 4, 4096)) {
+            out.write(data, 0, 10);
+            out.write(data[10]);
+            out.write(data, 11, data.length - 11);
+        }
+        assertArrayEquals(data, gunzip(compressed.toByteArray()));
+    }
+
+    @Test
+    void testEmptyParallelGzipOutputIsValid() throws Exception {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        new ParallelGzipOutputStream(compressed, 4).close();
+        assertEquals(0, gunzip(compressed.toByteArray()).length);
+    }
+
+    private static byte[] gunzip(byte[] compressed) throws Exception {
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(compressed))) {
+            return in.readAllBytes();
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package io.github.qudtlib.maven.rdfio.pipeline;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import io.github.qudtlib.maven.rdfio.common.file.ConcurrentRdfReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.rdf.model.ModelFactory;
+import org.apache.jena.rdf.model.ResourceFactory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class ConcurrentRdfReaderTests {
+    private File dir;
+
+    @BeforeEach
+    void setUp() {
+        dir = new File("target/test-output/concurrent-rdf-reader");
+        dir.mkdirs();
+    }
+
+    private List<File> writeFiles(int count) throws Exception {
+        List<File> files = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            File file = new File(dir, "file" + i + ".ttl");
+            Files.writeString(
+                    file.toPath(),
+                    """
+                    @prefix ex: <http://example.org/> .
+                    ex:s ex:p %d .
+                    [] ex:index %d .
+                    """
+                            .formatted(i, i));
+            files.add(file);
+        }
+        return files;
+    }
+
+    @Test
+    void testModelsAreReturnedInFileOrder() throws Exception {
+        List<File> files = writeFiles(20);
+        List<Model> models = ConcurrentRdfReader.read(files, 4);
+        assertEquals(20, models.size());
+        for (int i = 0; i < models.size(); i++) {
+            assertTrue(
+                    models.get(i)
+                            .contains(
+                                    ResourceFactory.createResource("http://example.org/s"),
+                                    ResourceFactory.createProperty("http://example.org/p"),
+                                    ResourceFactory.createTypedLiteral(i)));
+            assertEquals("http://example.org/", models.get(i).getNsPrefixURI("ex"));
+        }
+    }
+
+    @Test
+    void testFilesAreNotParsedFarAhead() throws Exception {
+        List<File> files = writeFiles(20);
+        List<Integer> indexes = new ArrayList<>();
+        ConcurrentRdfReader.read(
+                files,
+                2,
+                (model, index) -> {
+                    if (index == 0) {
+                        // at most twice the number of threads are parsed ahead
+                        for (int i = 5; i < files.size(); i++) {
+                            try {
+                                Files.writeString(
+                                        files.get(i).toPath(),
+                                        "<http://example.org/s> <http://example.org/p> %d ."
+                                                .formatted(i + 100));
+                            } catch (IOException e) {
+                                throw new UncheckedIOException(e);
+                            }
+                        }
+                    }
+                    if (index >= 5) {
+                        assertTrue(
+                                model.contains(
+                                        ResourceFactory.createResource("http://example.org/s"),
+                                        ResourceFactory.createProperty("http://example.org/p"),
+                                        ResourceFactory.createTypedLiteral(index + 100)),
+                                "file " + index + " should be parsed after file 0 was passed on");
+                    }
+                    indexes.add(index);
+                });
+        assertEquals(IntStream.range(0, 20).boxed().toList(), indexes);
+    }
+
+    @Test
+    void testBlankNodesOfDifferentFilesAreDistinct() throws Exception {
+        Model merged = ModelFactory.createDefaultModel();
+        ConcurrentRdfReader.read(writeFiles(10), 4).forEach(merged::add);
+        assertEquals(
+                10,
+                merged.listSubjectsWithProperty(
+                                ResourceFactory.createProperty("http://example.org/index"))
+                        .toList()
+                        .size());
+    }
+
+    @Test
+    void testParseErrorNamesFile() throws Exception {
+        List<File> files = writeFiles(3);
+        File broken = new File(dir, "broken.ttl");
+        Files.writeString(broken.toPath(), "this is not turtle");
+        files.add(1, broken);
+        IOException e = assertThrows(IOException.class, () -> ConcurrentRdfReader.read(files, 4));
+        assertTrue(e.getMessage().contains("broken.ttl"), e.getMessage());
+    }
+}
@@ -0,0 +1,149 @@
+package io.github.qudtlib.maven.rdfio.pipeline;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import io.github.qudtlib.maven.rdfio.common.datasetchange.ChangeTrackingDataset;
+import io.github.qudtlib.maven.rdfio.common.datasetchange.ChangeTrackingGraph;
+import io.github.qudtlib.maven.rdfio.common.datasetchange.DatasetDifference;
+import io.github.qudtlib.maven.rdfio.common.datasetchange.DatasetState;
+import io.github.qudtlib.maven.rdfio.common.sparql.SparqlHelper;
+import java.util.List;
+import org.apache.jena.graph.Graph;
+import org.apache.jena.graph.NodeFactory;
+import org.apache.jena.query.Dataset;
+import org.apache.jena.query.DatasetFactory;
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.rdf.model.ModelFactory;
+import org.apache.jena.rdf.model.Property;
+import org.apache.jena.rdf.model.Resource;
+import org.apache.jena.rdf.model.ResourceFactory;
+import org.apache.jena.rdf.model.StmtIterator;
+import org.apache.jena.update.UpdateAction;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class DatasetChangeTrackingTests {
+    private static final Resource S = ResourceFactory.createResource("http://example.org/s");
+    private static final Property P = ResourceFactory.createProperty("http://example.org/p");
+
+    private Dataset dataset;
+
+    @BeforeEach
+    void setUp() {
+        dataset = ChangeTrackingDataset.create();
+    }
+
+    @Test
+    void testGraphsAreTracked() {
+        assertInstanceOf(ChangeTrackingGraph.class, dataset.getDefaultModel().getGraph());
+        assertInstanceOf(ChangeTrackingGraph.class, dataset.getNamedModel("test:g").getGraph());
+    }
+
+    @Test
+    void testTrackedStateMatchesScannedState() {
+        Model g1 = dataset.getNamedModel("test:g1");
+        g1.add(S, P, "a");
+        g1.add(S, P, "a"); // duplicate, must not count
+        g1.add(S, P, "b");
+        dataset.getDefaultModel().add(S, P, "c");
+        Model other = ModelFactory.createDefaultModel();
+        other.add(S, P, "x");
+        other.add(S, P, "a");
+        g1.add(other);
+        dataset.addNamedModel("test:g2", other);
+        UpdateAction.parseExecute(
+                """
+                INSERT DATA { GRAPH <test:g3> { <http://example.org/s> <http://example.org/p> "u" } } ;
+                DELETE DATA { GRAPH <test:g1> { <http://example.org/s> <http://example.org/p> "b" } }
+                """,
+                dataset);
+        g1.remove(S, P, ResourceFactory.createPlainLiteral("nonexistent"));
+        dataset.getNamedModel("test:g2").removeAll(S, null, null);
+        assertStateMatchesCopy();
+        assertEquals(2, new DatasetState(dataset).getGraphSize("test:g1"));
+    }
+
+    @Test
+    void testIteratorRemoveIsTracked() {
+        Model g1 = dataset.getNamedModel("test:g1");
+        g1.add(S, P, "a");
+        g1.add(S, P, "b");
+        StmtIterator it = g1.listStatements();
+        it.next();
+        it.remove();
+        it.close();
+        assertEquals(1, new DatasetState(dataset).getGraphSize("test:g1"));
+        assertStateMatchesCopy();
+    }
+
+    @Test
+    void testClearResetsState() {
+        Model g1 = dataset.getNamedModel("test:g1");
+        g1.add(S, P, "a");
+        DatasetState before = new DatasetState(dataset);
+        g1.removeAll();
+        g1.add(S, P, "a");
+        DatasetState after = new DatasetState(dataset);
+        assertFalse(DatasetDifference.of(before, after).isDifferent());
+        g1.removeAll();
+        assertEquals(0, ((ChangeTrackingGraph) g1.getGraph()).getTrackedSize());
+        assertEquals(0, ((ChangeTrackingGraph) g1.getGraph()).getTrackedHash());
+    }
+
+    @Test
+    void testNewGraphCanBePutAfterRemovingGraph() {
+        dataset.getNamedModel("test:g1").add(S, P, "a");
+        Graph graph = ModelFactory.createDefaultModel().add(S, P, "b").getGraph();
+        assertFalse(ChangeTrackingDataset.putNewGraph(dataset, "test:g1", graph));
+        UpdateAction.parseExecute("DROP GRAPH <test:g1>", dataset);
+        assertTrue(ChangeTrackingDataset.putNewGraph(dataset, "test:g1", graph));
+        assertTrue(dataset.getNamedModel("test:g1").contains(S, P, "b"));
+        assertFalse(dataset.getNamedModel("test:g1").contains(S, P, "a"));
+        assertEquals(List.of("test:g1"), PipelineHelper.getGraphList(dataset));
+    }
+
+    private void assertStateMatchesCopy() {
+        Dataset copy = DatasetFactory.create();
+        for (String name : PipelineHelper.getGraphList(dataset)) {
+            copy.getNamedModel(name).add(dataset.getNamedModel(name));
+        }
+        copy.getDefaultModel().add(dataset.getDefaultModel());
+        DatasetState tracked = new DatasetState(dataset);
+        DatasetState scanned = new DatasetState(copy);
+        assertEquals(scanned.getGraphSizes(), tracked.getGraphSizes());
+        assertEquals(scanned.getGraphHashes(), tracked.getGraphHashes());
+        assertEquals(List.of("none"), DatasetDifference.of(scanned, tracked).formatForChange());
+    }
+
+    @Test
+    void testFrozenGraphIsNotChangedUntilReleased() {
+        ChangeTrackingGraph graph =
+                (ChangeTrackingGraph) dataset.getNamedModel("test:g1").getGraph();
+        graph.add(S.asNode(), P.asNode(), NodeFactory.createLiteral("a"));
+        Graph frozen = graph.freeze();
+        graph.add(S.asNode(), P.asNode(), NodeFactory.createLiteral("b"));
+        assertEquals(2, graph.size());
+        assertEquals(1, frozen.size(), "the frozen graph should not be changed");
+        graph.release();
+        assertEquals(1, frozen.size(), "changes should be recorded until the next change");
+        graph.add(S.asNode(), P.asNode(), NodeFactory.createLiteral("c"));
+        assertSame(frozen, graph.getWrapped(), "the overlay should be merged once released");
+        assertEquals(3, frozen.size());
+    }
+
+    @Test
+    void testPrefixesAreChangedWhileHoldingTheGraphLock() throws Exception {
+        Model g1 = dataset.getNamedModel("test:g1");
+        g1.add(S, P, "a");
+        Thread writer = new Thread(() -> g1.setNsPrefix("ex", "http://example.org/"));
+        synchronized (g1.getGraph()) {
+            writer.start();
+            writer.join(200);
+            assertTrue(writer.isAlive(), "prefixes should not change while the graph is locked");
+        }
+        writer.join();
+        assertTrue(
+                SparqlHelper.addPrefixes("ASK {}", dataset)
+                        .contains("PREFIX ex: <http://example.org/>"));
+    }
+}
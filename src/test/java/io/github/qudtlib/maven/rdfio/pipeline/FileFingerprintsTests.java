@@ -0,0 +1,174 @@
+package io.github.qudtlib.maven.rdfio.pipeline;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import io.github.qudtlib.maven.rdfio.common.file.FileFingerprints;
+import io.github.qudtlib.maven.rdfio.common.file.RdfLoader;
+import io.github.qudtlib.maven.rdfio.common.file.SemanticHash;
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+import org.apache.jena.sparql.core.DatasetGraph;
+import org.apache.jena.sparql.core.DatasetGraphFactory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class FileFingerprintsTests {
+    private static final FileTime AN_HOUR_AGO =
+            FileTime.fromMillis(System.currentTimeMillis() - 3_600_000);
+
+    private File dir;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        dir = new File("target/test-output/file-fingerprints");
+        if (dir.exists()) {
+            try (Stream<Path> paths = Files.walk(dir.toPath())) {
+                paths.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+            }
+        }
+        dir.mkdirs();
+    }
+
+    private File writeFile(String name, String content, FileTime lastModified) throws Exception {
+        File file = new File(dir, name);
+        Files.writeString(file.toPath(), content);
+        Files.setLastModifiedTime(file.toPath(), lastModified);
+        return file;
+    }
+
+    @Test
+    void testUnmodifiedFileIsNotReadAgain() throws Exception {
+        FileFingerprints fingerprints = new FileFingerprints();
+        File file = writeFile("a.ttl", "<a> <b> <c> .", AN_HOUR_AGO);
+        String fingerprint = fingerprints.fingerprint(file);
+        assertEquals(fingerprint, fingerprints.fingerprint(file));
+        assertEquals(1, fingerprints.getReads());
+
+        // same size and modification time: the file is assumed to be unchanged
+        writeFile("a.ttl", "<x> <y> <z> .", AN_HOUR_AGO);
+        assertEquals(fingerprint, fingerprints.fingerprint(file));
+        assertEquals(1, fingerprints.getReads());
+
+        writeFile("a.ttl", "<x> <y> <z> .", FileTime.fromMillis(AN_HOUR_AGO.toMillis() + 1000));
+        assertNotEquals(fingerprint, fingerprints.fingerprint(file));
+        assertEquals(2, fingerprints.getReads());
+    }
+
+    @Test
+    void testRecentlyModifiedFileIsReadAgain() throws Exception {
+        FileFingerprints fingerprints = new FileFingerprints();
+        File file =
+                writeFile(
+                        "a.ttl", "<a> <b> <c> .", FileTime.fromMillis(System.currentTimeMillis()));
+        fingerprints.fingerprint(file);
+        fingerprints.fingerprint(file);
+        assertEquals(
+                2,
+                fingerprints.getReads(),
+                "the file may be modified again without changing its modification time");
+    }
+
+    @Test
+    void testSemanticFingerprintIgnoresFormatting() throws Exception {
+        FileFingerprints fingerprints = new FileFingerprints();
+        File original =
+                writeFile(
+                        "original.ttl",
+                        """
+                        @prefix ex: <http://example.org/> .
+                        ex:s ex:p ex:o ;
+                            ex:list ( ex:a ex:b ) ;
+                            ex:q [ ex:r "literal"@en ] .
+                        """,
+                        AN_HOUR_AGO);
+        File reformatted =
+                writeFile(
+                        "reformatted.ttl",
+                        """
+                        @prefix x: <http://example.org/> .
+                        _:n x:r "literal"@en .
+                        x:s x:q _:n .
+                        x:s x:list _:l1 .
+                        _:l2 <http://www.w3.org/1999/02/22-rdf-syntax-ns#first> x:b .
+                        _:l1 <http://www.w3.org/1999/02/22-rdf-syntax-ns#rest> _:l2 .
+                        _:l1 <http://www.w3.org/1999/02/22-rdf-syntax-ns#first> x:a .
+                        _:l2 <http://www.w3.org/1999/02/22-rdf-syntax-ns#rest> <http://www.w3.org/1999/02/22-rdf-syntax-ns#nil> .
+                        x:s x:p x:o .
+                        """,
+                        AN_HOUR_AGO);
+        File changed =
+                writeFile(
+                        "changed.ttl",
+                        """
+                        @prefix ex: <http://example.org/> .
+                        ex:s ex:p ex:o ;
+                            ex:list ( ex:b ex:a ) ;
+                            ex:q [ ex:r "literal"@en ] .
+                        """,
+                        AN_HOUR_AGO);
+
+        assertNotEquals(fingerprints.fingerprint(original), fingerprints.fingerprint(reformatted));
+        assertEquals(
+                fingerprints.fingerprint(original, true),
+                fingerprints.fingerprint(reformatted, true));
+        assertNotEquals(
+                fingerprints.fingerprint(original, true), fingerprints.fingerprint(changed, true));
+    }
+
+    @Test
+    void testFingerprintsArePersisted() throws Exception {
+        File persistentFile = new File(dir, "fingerprints.txt");
+        List<File> files =
+                List.of(
+                        writeFile("a.ttl", "<a> <b> <c> .", AN_HOUR_AGO),
+                        writeFile("b.ttl", "<d> <e> <f> .", AN_HOUR_AGO));
+        FileFingerprints fingerprints = new FileFingerprints(persistentFile);
+        fingerprints.fingerprintAll(files, false);
+        assertEquals(2, fingerprints.getReads());
+        fingerprints.persist();
+        assertTrue(persistentFile.isFile());
+
+        FileFingerprints reloaded = new FileFingerprints(persistentFile);
+        assertEquals(fingerprints.fingerprint(files.get(0)), reloaded.fingerprint(files.get(0)));
+        assertEquals(fingerprints.fingerprint(files.get(1)), reloaded.fingerprint(files.get(1)));
+        assertEquals(0, reloaded.getReads());
+    }
+
+    @Test
+    void testFingerprintsArePersistedPerFile() throws Exception {
+        File firstFile = new File(dir, "first/fingerprints.txt");
+        File secondFile = new File(dir, "second/fingerprints.txt");
+        File a = writeFile("a.ttl", "<a> <b> <c> .", AN_HOUR_AGO);
+        File b = writeFile("b.ttl", "<d> <e> <f> .", AN_HOUR_AGO);
+        FileFingerprints first = new FileFingerprints(firstFile);
+        FileFingerprints second = new FileFingerprints(secondFile);
+        first.fingerprint(a);
+        second.fingerprint(b);
+        second.persist();
+        first.persist();
+
+        List<String> firstLines = Files.readAllLines(firstFile.toPath());
+        List<String> secondLines = Files.readAllLines(secondFile.toPath());
+        assertEquals(1, firstLines.size());
+        assertTrue(firstLines.get(0).endsWith(a.getName()));
+        assertEquals(1, secondLines.size());
+        assertTrue(secondLines.get(0).endsWith(b.getName()));
+    }
+
+    @Test
+    void testSemanticFingerprintDoesNotDependOnTheFileLocation() throws Exception {
+        FileFingerprints fingerprints = new FileFingerprints();
+        File file = writeFile("relative.ttl", "<a> <b> <c> .", AN_HOUR_AGO);
+        new File(dir, "sub").mkdirs();
+        File moved = writeFile("sub/relative.ttl", "<a> <b> <c> .", AN_HOUR_AGO);
+        DatasetGraph loaded = DatasetGraphFactory.create();
+        RdfLoader.read(file, loaded);
+        assertEquals(SemanticHash.of(loaded), fingerprints.fingerprint(file, true));
+        assertEquals(fingerprints.fingerprint(file, true), fingerprints.fingerprint(moved, true));
+    }
+}
@@ -180,4 +180,44 @@ public class ForEachEnvStepExecuteTests {
         step.execute(dataset, state);
         assertTrue(state.getPrecedingSteps().contains(step), "Step should be in precedingSteps");
     }
+
+    @Test
+    void testParallelBodyExecutesOncePerEnvAndRestoresVariables() throws Exception {
+        PipelineHelper.setPipelineVariable(
+                dataset, state, "suffix", ResourceFactory.createStringLiteral("-before"));
+        String xml =
+                """
+                <forEachEnv>
+                    <parallel>2</parallel>
+                    <env id="alpha"><property name="suffix">-alpha</property></env>
+                    <env id="beta"><property name="suffix">-beta</property></env>
+                    <env id="gamma"><property name="suffix">-gamma</property></env>
+                    <body>
+                        <sparqlUpdate>
+                            <sparql><![CDATA[
+                                INSERT DATA { GRAPH <result${suffix}:graph> { <urn:s> <urn:p> "${suffix}" } }
+                            ]]></sparql>
+                        </sparqlUpdate>
+                    </body>
+                </forEachEnv>
+                """;
+        ForEachEnvStep step = parseStep(xml);
+        assertEquals(2, step.getParallel());
+
+        step.execute(dataset, state);
+
+        for (String suffix : new String[] {"-alpha", "-beta", "-gamma"}) {
+            assertTrue(
+                    dataset.getNamedModel("result" + suffix + ":graph")
+                            .contains(
+                                    ResourceFactory.createResource("urn:s"),
+                                    ResourceFactory.createProperty("urn:p"),
+                                    suffix),
+                    "graph for " + suffix + " should contain its own value");
+        }
+        QuerySolutionMap bindings =
+                SparqlHelper.extractVariableBindings(dataset, state.getMetadataGraph());
+        assertEquals("-before", bindings.get("suffix").asLiteral().getString());
+        assertTrue(state.getPrecedingSteps().contains(step));
+    }
 }
@@ -128,4 +128,22 @@ public class ForEachEnvStepParseTests {
         assertThrows(
                 ConfigurationParseException.class, () -> ForEachEnvStep.parse(buildConfig(xml)));
     }
+
+    @Test
+    void testInvalidParallelThrows() throws Exception {
+        String xml =
+                """
+                <forEachEnv>
+                    <parallel>0</parallel>
+                    <env id="core"><property name="x">y</property></env>
+                    <body>
+                        <sparqlUpdate>
+                            <sparql>INSERT DATA { &lt;urn:s&gt; &lt;urn:p&gt; &lt;urn:o&gt; }</sparql>
+                        </sparqlUpdate>
+                    </body>
+                </forEachEnv>
+                """;
+        assertThrows(
+                ConfigurationParseException.class, () -> ForEachEnvStep.parse(buildConfig(xml)));
+    }
 }
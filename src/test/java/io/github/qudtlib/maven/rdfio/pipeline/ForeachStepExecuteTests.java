@@ -5,6 +5,7 @@ import static org.junit.jupiter.api.Assertions.*;
 import io.github.qudtlib.maven.rdfio.common.RDFIO;
 import io.github.qudtlib.maven.rdfio.common.file.RelativePath;
 import io.github.qudtlib.maven.rdfio.common.log.StdoutLog;
+import io.github.qudtlib.maven.rdfio.common.sparql.SparqlHelper;
 import io.github.qudtlib.maven.rdfio.pipeline.step.AddStep;
 import io.github.qudtlib.maven.rdfio.pipeline.step.ForeachStep;
 import io.github.qudtlib.maven.rdfio.pipeline.step.SparqlUpdateStep;
@@ -12,8 +13,12 @@ import io.github.qudtlib.maven.rdfio.pipeline.step.support.GraphSelection;
 import io.github.qudtlib.maven.rdfio.pipeline.step.support.Values;
 import java.io.File;
 import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
 import org.apache.jena.query.Dataset;
 import org.apache.jena.query.DatasetFactory;
+import org.apache.jena.query.QuerySolutionMap;
 import org.apache.jena.rdf.model.Model;
 import org.apache.jena.rdf.model.ResourceFactory;
 import org.apache.jena.rdf.model.Statement;
@@ -396,4 +401,92 @@ public class ForeachStepExecuteTests {
                 state.getPrecedingSteps().contains(outerStep),
                 "Outer step should be added to preceding steps");
     }
+
+    @Test
+    void testParallelExecutionMatchesSequentialExecution() throws Exception {
+        Dataset sequential = DatasetFactory.create();
+        Dataset parallel = DatasetFactory.create();
+        for (Dataset ds : List.of(sequential, parallel)) {
+            for (int i = 1; i <= 5; i++) {
+                ds.getNamedModel("test:graph" + i)
+                        .add(
+                                ResourceFactory.createResource("http://example.org/s" + i),
+                                ResourceFactory.createProperty(EXPECTED_PREDICATE),
+                                ResourceFactory.createResource(EXPECTED_OBJECT));
+            }
+        }
+        createCopyingForeachStep(1).execute(sequential, state);
+        createCopyingForeachStep(3).execute(parallel, state);
+
+        List<String> graphNames = new ArrayList<>();
+        sequential.listNames().forEachRemaining(graphNames::add);
+        List<String> parallelGraphNames = new ArrayList<>();
+        parallel.listNames().forEachRemaining(parallelGraphNames::add);
+        assertEquals(Set.copyOf(graphNames), Set.copyOf(parallelGraphNames));
+        for (String graphName : graphNames) {
+            assertTrue(
+                    sequential
+                            .getNamedModel(graphName)
+                            .isIsomorphicWith(parallel.getNamedModel(graphName)),
+                    "Graph " + graphName + " should be the same after parallel execution");
+        }
+        assertEquals(5, parallel.getNamedModel("processed:graph").size());
+        QuerySolutionMap bindings =
+                SparqlHelper.extractVariableBindings(parallel, state.getMetadataGraph());
+        assertEquals(5, bindings.get("index").asLiteral().getInt());
+    }
+
+    @Test
+    void testParallelIterationsDoNotSeeEachOthersChanges() throws Exception {
+        dataset.getNamedModel("test:graph1").add(DEFAULT_STATEMENT);
+        dataset.getNamedModel("test:graph2").add(DEFAULT_STATEMENT);
+
+        ForeachStep step = new ForeachStep();
+        step.setVar("graph");
+        step.setParallel(2);
+        GraphSelection graphs = new GraphSelection();
+        graphs.addInclude("test:*");
+        Values values = new Values();
+        values.setGraphs(graphs);
+        step.setValues(values);
+        SparqlUpdateStep bodyStep = new SparqlUpdateStep();
+        // only inserts if no other iteration has inserted before
+        bodyStep.setSparql(
+                """
+                INSERT { GRAPH <shared:graph> { <http://example.org/s> <http://example.org/seen> ?graph } }
+                WHERE { FILTER NOT EXISTS { GRAPH <shared:graph> { ?s ?p ?o } } }
+                """);
+        step.addBodyStep(bodyStep);
+
+        step.execute(dataset, state);
+
+        Model shared = dataset.getNamedModel("shared:graph");
+        assertEquals(2, shared.size(), "each iteration should see the shared graph empty");
+        assertTrue(state.getPrecedingSteps().contains(step));
+    }
+
+    private ForeachStep createCopyingForeachStep(int parallel) {
+        ForeachStep step = new ForeachStep();
+        step.setVar("graph");
+        step.setIndexVar("index");
+        step.setParallel(parallel);
+        GraphSelection graphs = new GraphSelection();
+        graphs.addInclude("test:*");
+        Values values = new Values();
+        values.setGraphs(graphs);
+        step.setValues(values);
+        AddStep addStep = new AddStep();
+        addStep.getInputsComponent().addGraph("${graph}");
+        addStep.setToGraph("processed:graph");
+        step.addBodyStep(addStep);
+        SparqlUpdateStep sparqlStep = new SparqlUpdateStep();
+        sparqlStep.setSparql(
+                """
+                DELETE { GRAPH ?graph { ?s ?p ?o } }
+                INSERT { GRAPH ?graph { ?s <http://example.org/index> ?index } }
+                WHERE { GRAPH ?graph { ?s ?p ?o } }
+                """);
+        step.addBodyStep(sparqlStep);
+        return step;
+    }
 }
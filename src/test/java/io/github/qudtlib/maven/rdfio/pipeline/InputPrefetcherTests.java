@@ -0,0 +1,128 @@
+package io.github.qudtlib.maven.rdfio.pipeline;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import io.github.qudtlib.maven.rdfio.common.file.ParsedGraphCache;
+import io.github.qudtlib.maven.rdfio.common.file.RelativePath;
+import io.github.qudtlib.maven.rdfio.pipeline.step.AddStep;
+import io.github.qudtlib.maven.rdfio.pipeline.step.ClearStep;
+import io.github.qudtlib.maven.rdfio.pipeline.step.Step;
+import io.github.qudtlib.maven.rdfio.pipeline.step.WriteStep;
+import java.io.File;
+import java.nio.file.Files;
+import java.util.List;
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.rdf.model.ModelFactory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class InputPrefetcherTests {
+    private PipelineState state;
+    private File baseDir;
+
+    @BeforeEach
+    void setUp() {
+        baseDir = new File(".");
+        state =
+                new PipelineState(
+                        "test-pipeline",
+                        baseDir,
+                        new RelativePath(baseDir, "target").subDir("rdfio").subDir("pipelines"),
+                        null,
+                        null,
+                        null);
+    }
+
+    private static AddStep add(String file, String toGraph, boolean lazy) {
+        AddStep add = new AddStep();
+        add.getInputsComponent().addFile(file);
+        add.setToGraph(toGraph);
+        add.setLazy(lazy);
+        return add;
+    }
+
+    @Test
+    void testOnlyFilesParsedByStepsAndNotWrittenBeforeArePrefetched() {
+        WriteStep write = new WriteStep();
+        write.addGraph("test:a");
+        write.setToFile("target/test-output/prefetch/written.ttl");
+        List<Step> steps =
+                List.of(
+                        add("src/test/resources/data.ttl", "test:a", false),
+                        write,
+                        add("target/test-output/prefetch/written.ttl", "test:b", false),
+                        add("src/test/resources/lazy.ttl", "test:c", true),
+                        add("src/test/resources/${name}.ttl", "test:d", false),
+                        add("src/test/resources/data.ttl", "test:e", false));
+        try (InputPrefetcher prefetcher = new InputPrefetcher(state)) {
+            List<File> files = prefetcher.getPrefetchableFiles(steps);
+            assertEquals(
+                    List.of(new RelativePath(baseDir, "src/test/resources/data.ttl").resolve()),
+                    files);
+        }
+    }
+
+    @Test
+    void testFilesWrittenByTheFirstStepAreNotPrefetched() {
+        WriteStep write = new WriteStep();
+        write.addGraph("test:a");
+        write.setToFile("target/test-output/prefetch/written-first.ttl");
+        List<Step> steps =
+                List.of(
+                        write,
+                        add("target/test-output/prefetch/written-first.ttl", "test:b", false),
+                        add("src/test/resources/data.ttl", "test:c", false));
+        try (InputPrefetcher prefetcher = new InputPrefetcher(state)) {
+            assertEquals(
+                    List.of(new RelativePath(baseDir, "src/test/resources/data.ttl").resolve()),
+                    prefetcher.getPrefetchableFiles(steps));
+        }
+    }
+
+    @Test
+    void testPrefetchingStopsAtBarrier() {
+        ClearStep barrier = new ClearStep();
+        List<Step> steps =
+                List.of(
+                        add("src/test/resources/data.ttl", "test:a", false),
+                        add("src/test/resources/data.ttl", "test:b", false),
+                        barrier,
+                        add("src/test/resources/data2.ttl", "test:c", false));
+        try (InputPrefetcher prefetcher = new InputPrefetcher(state)) {
+            assertTrue(prefetcher.isBarrier(barrier));
+            assertEquals(
+                    List.of(new RelativePath(baseDir, "src/test/resources/data.ttl").resolve()),
+                    prefetcher.getPrefetchableFiles(steps));
+        }
+    }
+
+    @Test
+    void testPrefetchedFileIsReadFromCache() throws Exception {
+        RelativePath path = new RelativePath(baseDir, "target/test-output/prefetch/prefetched.ttl");
+        File file = path.resolve();
+        file.getParentFile().mkdirs();
+        // unique content, so the file is not cached by another test
+        Files.writeString(
+                file.toPath(),
+                "<http://example.org/s> <http://example.org/p> %d .".formatted(System.nanoTime()));
+        ParsedGraphCache cache = ParsedGraphCache.getInstance();
+        long prefetchesBefore = cache.getPrefetches();
+        long prefetchHitsBefore = cache.getPrefetchHits();
+        try (InputPrefetcher prefetcher = new InputPrefetcher(state)) {
+            prefetcher.prefetch(
+                    List.of(
+                            add("src/test/resources/data.ttl", "test:a", false),
+                            add(path.getRelativePath(), "test:b", false)));
+            long deadline = System.currentTimeMillis() + 10_000;
+            while (cache.getPrefetches() == prefetchesBefore
+                    && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+        }
+        assertEquals(prefetchesBefore + 1, cache.getPrefetches());
+        Model model = ModelFactory.createDefaultModel();
+        state.files().readRdf(path, model);
+        assertEquals(1, model.size());
+        assertEquals(prefetchHitsBefore + 1, cache.getPrefetchHits());
+    }
+}
@@ -0,0 +1,82 @@
+package io.github.qudtlib.maven.rdfio.pipeline;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import io.github.qudtlib.maven.rdfio.common.file.NodeDictionary;
+import io.github.qudtlib.maven.rdfio.common.file.RdfLoader;
+import java.io.File;
+import java.nio.file.Files;
+import org.apache.jena.graph.Graph;
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.NodeFactory;
+import org.apache.jena.graph.Triple;
+import org.apache.jena.sparql.graph.GraphFactory;
+import org.junit.jupiter.api.Test;
+
+public class NodeDictionaryTests {
+
+    @Test
+    void testEqualTermsOfDifferentFilesShareOneNode() throws Exception {
+        File dir = new File("target/test-output/node-dictionary");
+        dir.mkdirs();
+        File first = new File(dir, "first.ttl");
+        File second = new File(dir, "second.nt");
+        Files.writeString(
+                first.toPath(),
+                "@prefix ex: <http://example.org/> . ex:s ex:p \"shared literal\" .");
+        Files.writeString(
+                second.toPath(),
+                "<http://example.org/s> <http://example.org/q> \"shared literal\" .\n");
+        Graph firstGraph = GraphFactory.createDefaultGraph();
+        Graph secondGraph = GraphFactory.createDefaultGraph();
+        RdfLoader.read(first, firstGraph);
+        RdfLoader.read(second, secondGraph);
+        Triple a = firstGraph.find().next();
+        Triple b = secondGraph.find().next();
+        assertSame(a.getSubject(), b.getSubject());
+        assertSame(a.getObject(), b.getObject());
+    }
+
+    @Test
+    void testBlankNodesAreNotInterned() {
+        NodeDictionary dictionary = new NodeDictionary(10);
+        Node blank = NodeFactory.createBlankNode();
+        assertSame(blank, dictionary.intern(blank));
+        assertEquals(0, dictionary.size());
+    }
+
+    @Test
+    void testFullDictionaryOnlyLooksUp() {
+        NodeDictionary dictionary = new NodeDictionary(1);
+        Node a = NodeFactory.createURI("http://example.org/a");
+        Node b = NodeFactory.createURI("http://example.org/b");
+        assertSame(a, dictionary.intern(a));
+        assertSame(a, dictionary.intern(NodeFactory.createURI("http://example.org/a")));
+        Node otherB = NodeFactory.createURI("http://example.org/b");
+        assertSame(b, dictionary.intern(b));
+        assertSame(otherB, dictionary.intern(otherB));
+        assertEquals(1, dictionary.size());
+        assertEquals(1, dictionary.getHits());
+    }
+
+    @Test
+    void testDisabledDictionaryReturnsNodes() {
+        NodeDictionary dictionary = new NodeDictionary(0);
+        Node a = NodeFactory.createURI("http://example.org/a");
+        assertSame(a, dictionary.intern(a));
+        assertFalse(dictionary.isEnabled());
+    }
+
+    @Test
+    void testDictionaryIsClearedWhenLastExecutionEnds() {
+        NodeDictionary dictionary = new NodeDictionary(10);
+        dictionary.configure(null);
+        dictionary.configure(1L);
+        assertEquals(10, dictionary.getMaxNodes(), "a running execution keeps the higher limit");
+        dictionary.intern(NodeFactory.createURI("http://example.org/a"));
+        dictionary.release();
+        assertEquals(1, dictionary.size(), "the other execution may still be parsing");
+        dictionary.release();
+        assertEquals(0, dictionary.size());
+    }
+}
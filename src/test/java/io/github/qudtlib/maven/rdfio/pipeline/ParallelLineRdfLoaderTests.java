@@ -0,0 +1,138 @@
+package io.github.qudtlib.maven.rdfio.pipeline;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import io.github.qudtlib.maven.rdfio.common.file.ParallelLineRdfLoader;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import org.apache.jena.graph.Graph;
+import org.apache.jena.graph.NodeFactory;
+import org.apache.jena.graph.Triple;
+import org.apache.jena.riot.Lang;
+import org.apache.jena.riot.RDFDataMgr;
+import org.apache.jena.riot.RiotException;
+import org.apache.jena.riot.system.StreamRDF;
+import org.apache.jena.riot.system.StreamRDFLib;
+import org.apache.jena.riot.system.StreamRDFWrapper;
+import org.apache.jena.sparql.core.DatasetGraph;
+import org.apache.jena.sparql.core.DatasetGraphFactory;
+import org.apache.jena.sparql.graph.GraphFactory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class ParallelLineRdfLoaderTests {
+    private File dir;
+
+    @BeforeEach
+    void setUp() {
+        dir = new File("target/test-output/parallel-line-rdf-loader");
+        dir.mkdirs();
+    }
+
+    private File writeNTriples(int count) throws Exception {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            sb.append("<http://example.org/s%d> <http://example.org/p> \"%d\" .\n".formatted(i, i));
+            // the same blank node is used throughout the file
+            sb.append("_:b0 <http://example.org/index> \"%d\" .\n".formatted(i));
+        }
+        File file = new File(dir, "data.nt");
+        Files.writeString(file.toPath(), sb.toString());
+        return file;
+    }
+
+    @Test
+    void testChunksAreParsedLikeTheWholeFile() throws Exception {
+        File file = writeNTriples(200);
+        Graph expected = GraphFactory.createDefaultGraph();
+        RDFDataMgr.read(expected, file.getPath());
+        Graph graph = GraphFactory.createDefaultGraph();
+        ParallelLineRdfLoader.read(file, Lang.NTRIPLES, StreamRDFLib.graph(graph), 4, 100);
+        assertEquals(400, graph.size());
+        assertTrue(expected.isIsomorphicWith(graph));
+        assertEquals(
+                1,
+                graph.find(null, NodeFactory.createURI("http://example.org/index"), null)
+                        .mapWith(t -> t.getSubject())
+                        .toSet()
+                        .size());
+    }
+
+    @Test
+    void testChunksAreNotParsedFarAhead() throws Exception {
+        File file = writeNTriples(200);
+        Graph graph = GraphFactory.createDefaultGraph();
+        StreamRDF target =
+                new StreamRDFWrapper(StreamRDFLib.graph(graph)) {
+                    private boolean changed = false;
+
+                    @Override
+                    public void triple(Triple triple) {
+                        if (!changed) {
+                            // change the last line, which is parsed later
+                            changed = true;
+                            try (RandomAccessFile out = new RandomAccessFile(file, "rw")) {
+                                out.seek(file.length() - 7);
+                                out.write("999".getBytes(StandardCharsets.US_ASCII));
+                            } catch (IOException e) {
+                                throw new UncheckedIOException(e);
+                            }
+                        }
+                        super.triple(triple);
+                    }
+                };
+        ParallelLineRdfLoader.read(file, Lang.NTRIPLES, target, 1, 100);
+        assertEquals(400, graph.size());
+        assertTrue(
+                graph.contains(
+                        null,
+                        NodeFactory.createURI("http://example.org/index"),
+                        NodeFactory.createLiteral("999")));
+    }
+
+    @Test
+    void testNQuadsAreReadIntoTheirGraphs() throws Exception {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 100; i++) {
+            sb.append(
+                    "<http://example.org/s%d> <http://example.org/p> \"%d\" <http://example.org/g%d> .\n"
+                            .formatted(i, i, i % 2));
+        }
+        File file = new File(dir, "data.nq");
+        Files.writeString(file.toPath(), sb.toString());
+        DatasetGraph dataset = DatasetGraphFactory.create();
+        ParallelLineRdfLoader.read(file, Lang.NQUADS, StreamRDFLib.dataset(dataset), 4, 128);
+        assertEquals(50, dataset.getGraph(NodeFactory.createURI("http://example.org/g0")).size());
+        assertEquals(50, dataset.getGraph(NodeFactory.createURI("http://example.org/g1")).size());
+    }
+
+    @Test
+    void testParseErrorNamesFileAndChunk() throws Exception {
+        File file = new File(dir, "broken.nt");
+        Files.writeString(
+                file.toPath(),
+                "<http://example.org/s> <http://example.org/p> \"o\" .\nthis is not n-triples\n");
+        RiotException e =
+                assertThrows(
+                        RiotException.class,
+                        () ->
+                                ParallelLineRdfLoader.read(
+                                        file,
+                                        Lang.NTRIPLES,
+                                        StreamRDFLib.graph(GraphFactory.createDefaultGraph()),
+                                        2,
+                                        10));
+        assertTrue(e.getMessage().contains("broken.nt"), e.getMessage());
+    }
+
+    @Test
+    void testOnlyLargeLineBasedFilesAreApplicable() throws Exception {
+        File file = writeNTriples(10);
+        assertFalse(ParallelLineRdfLoader.isApplicable(file, Lang.NTRIPLES, 4));
+        assertFalse(ParallelLineRdfLoader.isApplicable(file, Lang.TTL, 4));
+    }
+}
@@ -0,0 +1,199 @@
+package io.github.qudtlib.maven.rdfio.pipeline;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import io.github.qudtlib.maven.rdfio.common.file.ParsedGraphCache;
+import java.io.File;
+import java.nio.file.Files;
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.rdf.model.ModelFactory;
+import org.apache.jena.rdf.model.RDFNode;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class ParsedGraphCacheTests {
+    private File dir;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        dir = new File("target/test-output/parsed-graph-cache");
+        dir.mkdirs();
+    }
+
+    private File writeFile(String name, String content) throws Exception {
+        File file = new File(dir, name);
+        Files.writeString(file.toPath(), content);
+        return file;
+    }
+
+    @Test
+    void testSecondReadIsServedFromCache() throws Exception {
+        File file =
+                writeFile(
+                        "cached.ttl",
+                        """
+                        @prefix ex: <http://example.org/> .
+                        ex:s ex:p ex:o .
+                        ex:s ex:p ex:o2 .
+                        """);
+        ParsedGraphCache cache = new ParsedGraphCache(1000);
+        Model first = ModelFactory.createDefaultModel();
+        cache.read(file, first);
+        Model second = ModelFactory.createDefaultModel();
+        cache.read(file, second);
+        assertEquals(1, cache.getMisses());
+        assertEquals(1, cache.getHits());
+        assertEquals(2, cache.getCachedTriples());
+        assertTrue(first.isIsomorphicWith(second));
+        assertEquals("http://example.org/", second.getNsPrefixURI("ex"));
+        // changing the copy does not change the cache
+        second.removeAll();
+        Model third = ModelFactory.createDefaultModel();
+        cache.read(file, third);
+        assertEquals(2, third.size());
+    }
+
+    @Test
+    void testChangedFileIsParsedAgain() throws Exception {
+        File file = writeFile("changing.ttl", "<http://example.org/s> <http://example.org/p> 1 .");
+        ParsedGraphCache cache = new ParsedGraphCache(1000);
+        cache.read(file, ModelFactory.createDefaultModel());
+        writeFile(
+                "changing.ttl",
+                "<http://example.org/s> <http://example.org/p> 1, 2 .\n"
+                        + "<http://example.org/s> <http://example.org/p> 3 .");
+        file.setLastModified(file.lastModified() + 2000);
+        Model model = ModelFactory.createDefaultModel();
+        cache.read(file, model);
+        assertEquals(3, model.size());
+        assertEquals(2, cache.getMisses());
+        assertEquals(3, cache.getCachedTriples());
+    }
+
+    @Test
+    void testBlankNodesAreFreshForEachRead() throws Exception {
+        File file =
+                writeFile(
+                        "blank.ttl",
+                        "<http://example.org/s> <http://example.org/p> [ <http://example.org/q> 1 ] .");
+        ParsedGraphCache cache = new ParsedGraphCache(1000);
+        Model model = ModelFactory.createDefaultModel();
+        cache.read(file, model);
+        cache.read(file, model);
+        assertEquals(4, model.size(), "each read should add its own blank node");
+        assertEquals(
+                2, model.listObjects().filterKeep(RDFNode::isAnon).toList().size(), "blank nodes");
+    }
+
+    @Test
+    void testLeastRecentlyUsedFilesAreEvicted() throws Exception {
+        File a = writeFile("a.ttl", "<http://example.org/a> <http://example.org/p> 1, 2 .");
+        File b = writeFile("b.ttl", "<http://example.org/b> <http://example.org/p> 1, 2 .");
+        File big =
+                writeFile(
+                        "big.ttl", "<http://example.org/c> <http://example.org/p> 1, 2, 3, 4, 5 .");
+        ParsedGraphCache cache = new ParsedGraphCache(4);
+        cache.read(a, ModelFactory.createDefaultModel());
+        cache.read(b, ModelFactory.createDefaultModel());
+        cache.read(a, ModelFactory.createDefaultModel());
+        assertEquals(1, cache.getHits());
+        cache.read(big, ModelFactory.createDefaultModel());
+        assertEquals(4, cache.getCachedTriples(), "files larger than the cache are not cached");
+        cache.setMaxTriples(2);
+        cache.read(a, ModelFactory.createDefaultModel());
+        assertEquals(2, cache.getHits(), "a was used more recently than b");
+        cache.read(b, ModelFactory.createDefaultModel());
+        assertEquals(2, cache.getHits());
+        assertEquals(2, cache.getCachedTriples());
+    }
+
+    @Test
+    void testPrefetchedFileIsReadFromCache() throws Exception {
+        File file =
+                writeFile("prefetched.ttl", "<http://example.org/s> <http://example.org/p> 1, 2 .");
+        ParsedGraphCache cache = new ParsedGraphCache(1000);
+        assertTrue(cache.prefetch(file));
+        assertFalse(cache.prefetch(file), "a cached file is not prefetched again");
+        Model model = ModelFactory.createDefaultModel();
+        cache.read(file, model);
+        assertEquals(2, model.size());
+        assertEquals(1, cache.getHits());
+        assertEquals(0, cache.getMisses());
+        assertEquals(1, cache.getPrefetches());
+        assertEquals(1, cache.getPrefetchHits());
+    }
+
+    @Test
+    void testPrefetchedTriplesAreLimitedByBudget() throws Exception {
+        File a =
+                writeFile("prefetch-a.ttl", "<http://example.org/a> <http://example.org/p> 1, 2 .");
+        File b =
+                writeFile("prefetch-b.ttl", "<http://example.org/b> <http://example.org/p> 1, 2 .");
+        ParsedGraphCache cache = new ParsedGraphCache(1000);
+        cache.setMaxPrefetchedTriples(3);
+        assertTrue(cache.prefetch(a));
+        assertFalse(cache.prefetch(b), "b does not fit into the remaining budget");
+        assertEquals(2, cache.getCachedTriples());
+        // reading a releases its part of the budget
+        cache.read(a, ModelFactory.createDefaultModel());
+        cache.awaitPrefetchBudget();
+        assertTrue(cache.prefetch(b));
+        cache.setMaxPrefetchedTriples(0);
+        assertFalse(cache.isPrefetchEnabled());
+    }
+
+    @Test
+    void testFileLargerThanCacheIsParsedIntoTarget() throws Exception {
+        File file =
+                writeFile(
+                        "large.ttl",
+                        """
+                        @prefix ex: <http://example.org/> .
+                        ex:s ex:p 1, 2, 3 .
+                        ex:s ex:q [ ex:r 4 ] .
+                        """);
+        ParsedGraphCache cache = new ParsedGraphCache(2);
+        assertFalse(cache.prefetch(file), "a file larger than the cache is not prefetched");
+        for (int i = 0; i < 2; i++) {
+            Model model = ModelFactory.createDefaultModel();
+            cache.read(file, model);
+            assertEquals(5, model.size());
+            assertEquals("http://example.org/", model.getNsPrefixURI("ex"));
+        }
+        assertEquals(0, cache.getCachedTriples());
+        assertEquals(2, cache.getMisses());
+        cache.setMaxTriples(10);
+        cache.read(file, ModelFactory.createDefaultModel());
+        assertEquals(5, cache.getCachedTriples(), "raising the limit makes the file cacheable");
+    }
+
+    @Test
+    void testReadsWithDisabledCacheAreNotCounted() throws Exception {
+        File file = writeFile("disabled.ttl", "<http://example.org/s> <http://example.org/p> 1 .");
+        ParsedGraphCache cache = new ParsedGraphCache(0);
+        Model model = ModelFactory.createDefaultModel();
+        cache.read(file, model);
+        assertEquals(1, model.size());
+        assertEquals(0, cache.getHits());
+        assertEquals(0, cache.getMisses());
+    }
+
+    @Test
+    void testRunningExecutionKeepsItsSettings() {
+        File directory = new File(dir, "persistent");
+        ParsedGraphCache cache = new ParsedGraphCache(1000);
+        cache.configure(2000L, 100L, directory, 10);
+        cache.configure(10L, 0L, null, 10);
+        assertEquals(2000, cache.getMaxTriples());
+        assertEquals(100, cache.getMaxPrefetchedTriples());
+        assertNotNull(cache.getPersistentCache());
+        cache.release();
+        cache.release();
+
+        cache.configure(10L, 0L, null, 10);
+        assertEquals(10, cache.getMaxTriples(), "no other execution is running");
+        assertEquals(0, cache.getMaxPrefetchedTriples());
+        assertNull(cache.getPersistentCache());
+        cache.release();
+    }
+}
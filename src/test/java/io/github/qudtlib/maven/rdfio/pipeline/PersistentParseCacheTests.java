@@ -0,0 +1,120 @@
+package io.github.qudtlib.maven.rdfio.pipeline;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import io.github.qudtlib.maven.rdfio.common.file.PersistentParseCache;
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+import org.apache.jena.graph.Graph;
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.rdf.model.ModelFactory;
+import org.apache.jena.riot.RDFDataMgr;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class PersistentParseCacheTests {
+    private static final String TURTLE =
+            """
+            @prefix ex: <http://example.org/> .
+            ex:s ex:p ex:o ;
+                ex:q [ ex:r "literal"@en ] .
+            """;
+
+    private File dir;
+    private File cacheDir;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        dir = new File("target/test-output/persistent-parse-cache");
+        cacheDir = new File(dir, "cache");
+        if (dir.exists()) {
+            try (Stream<Path> paths = Files.walk(dir.toPath())) {
+                paths.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+            }
+        }
+        dir.mkdirs();
+    }
+
+    private File writeFile(String name, String content) throws Exception {
+        File file = new File(dir, name);
+        Files.writeString(file.toPath(), content);
+        return file;
+    }
+
+    private List<Path> cacheEntries() throws Exception {
+        try (Stream<Path> paths = Files.walk(cacheDir.toPath())) {
+            return paths.filter(Files::isRegularFile).toList();
+        }
+    }
+
+    @Test
+    void testParsedGraphIsStoredAndReused() throws Exception {
+        File file = writeFile("data.ttl", TURTLE);
+        Graph parsed = new PersistentParseCache(cacheDir).parse(file);
+        List<Path> entries = cacheEntries();
+        assertEquals(1, entries.size());
+        assertTrue(entries.get(0).toString().endsWith(".rt"));
+
+        Graph cached = new PersistentParseCache(cacheDir).parse(file);
+        Model expected = RDFDataMgr.loadModel(file.getPath());
+        assertTrue(expected.getGraph().isIsomorphicWith(parsed));
+        assertTrue(expected.getGraph().isIsomorphicWith(cached));
+        assertEquals("http://example.org/", cached.getPrefixMapping().getNsPrefixURI("ex"));
+    }
+
+    @Test
+    void testEntriesAreContentAddressed() throws Exception {
+        PersistentParseCache cache = new PersistentParseCache(cacheDir);
+        cache.parse(writeFile("a.ttl", TURTLE));
+        cache.parse(writeFile("b.ttl", TURTLE));
+        assertEquals(1, cacheEntries().size(), "identical files share an entry");
+        File changed = writeFile("a.ttl", TURTLE + "ex:s ex:p ex:o2 .\n");
+        Graph graph = cache.parse(changed);
+        assertEquals(4, graph.size());
+        assertEquals(2, cacheEntries().size());
+    }
+
+    @Test
+    void testDamagedEntryIsReplaced() throws Exception {
+        File file = writeFile("data.ttl", TURTLE);
+        PersistentParseCache cache = new PersistentParseCache(cacheDir);
+        cache.parse(file);
+        Path entry = cacheEntries().get(0);
+        Files.writeString(entry, "not thrift");
+        Graph graph = cache.parse(file);
+        Model expected = ModelFactory.createDefaultModel();
+        RDFDataMgr.read(expected, file.getPath());
+        assertTrue(expected.getGraph().isIsomorphicWith(graph));
+        assertNotEquals("not thrift".length(), Files.size(entry), "entry should be rewritten");
+    }
+
+    @Test
+    void testLeastRecentlyUsedEntriesAreEvicted() throws Exception {
+        File a = writeFile("a.ttl", TURTLE);
+        new PersistentParseCache(cacheDir).parse(a);
+        Path entryOfA = cacheEntries().get(0);
+        Files.setLastModifiedTime(entryOfA, FileTime.fromMillis(0));
+        PersistentParseCache cache = new PersistentParseCache(cacheDir, Files.size(entryOfA));
+        cache.parse(writeFile("b.ttl", TURTLE + "ex:s ex:p ex:o2 .\n"));
+        List<Path> entries = cacheEntries();
+        assertEquals(1, entries.size());
+        assertNotEquals(entryOfA, entries.get(0), "the older entry should be removed");
+    }
+
+    @Test
+    void testEntriesStoredSinceListingAreCountedForEviction() throws Exception {
+        File a = writeFile("a.ttl", TURTLE);
+        new PersistentParseCache(cacheDir).parse(a);
+        long entrySize = Files.size(cacheEntries().get(0));
+        PersistentParseCache cache = new PersistentParseCache(cacheDir, entrySize * 5 / 2);
+        cache.parse(writeFile("b.ttl", TURTLE + "ex:s ex:p ex:o2 .\n"));
+        assertEquals(2, cacheEntries().size());
+        cache.parse(writeFile("c.ttl", TURTLE + "ex:s ex:p ex:o3 .\n"));
+        assertEquals(2, cacheEntries().size(), "the third entry exceeds the maximum size");
+    }
+}
@@ -5,6 +5,7 @@ import static org.junit.jupiter.api.Assertions.*;
 import io.github.qudtlib.maven.rdfio.common.RDFIO;
 import io.github.qudtlib.maven.rdfio.common.file.FileHelper;
 import io.github.qudtlib.maven.rdfio.common.file.FileSelection;
+import io.github.qudtlib.maven.rdfio.common.file.NodeDictionary;
 import io.github.qudtlib.maven.rdfio.common.file.RelativePath;
 import io.github.qudtlib.maven.rdfio.common.log.StdoutLog;
 import io.github.qudtlib.maven.rdfio.common.sparql.SparqlHelper;
@@ -17,11 +18,13 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.List;
+import org.apache.jena.graph.NodeFactory;
 import org.apache.jena.query.*;
 import org.apache.jena.rdf.model.Model;
 import org.apache.jena.rdf.model.ModelFactory;
 import org.apache.jena.rdf.model.ResourceFactory;
 import org.apache.maven.plugin.MojoExecutionException;
+import org.codehaus.plexus.util.FileUtils;
 import org.codehaus.plexus.util.xml.Xpp3DomBuilder;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -427,17 +430,19 @@ public class PipelineStepsTests {
 
         String hash = step.calculateHash("", state);
         step.execute(dataset, state);
+        // savepoints are written in the background
+        state.getSavepointCache().awaitPendingSave();
 
         RelativePath hashPath = state.getSavepointCache().getHashFile("sp001");
-        RelativePath datasetPath = state.getSavepointCache().getDatasetFile("sp001");
+        RelativePath manifestPath = state.getSavepointCache().getManifestFile("sp001");
         assertTrue(hashPath.exists(), "hash.txt should exist");
-        assertTrue(datasetPath.exists(), "dataset.trig should exist");
+        assertTrue(manifestPath.exists(), "manifest.txt should exist");
 
         String storedHash = state.files().readText(hashPath);
         assertEquals(hash, storedHash, "Stored hash should match computed hash");
 
         Dataset loadedDataset = DatasetFactory.create();
-        state.files().readRdf(datasetPath, loadedDataset);
+        state.getSavepointCache().load("sp001", loadedDataset, state);
         Model loadedModel = loadedDataset.getNamedModel("test:graph");
         System.out.println(PipelineHelper.datasetToPrettyTrig(dataset));
         assertTrue(
@@ -452,6 +457,7 @@ public class PipelineStepsTests {
         PipelineHelper.clearDataset(dataset);
         step.execute(dataset, state);
         assertTrue(dataset.isEmpty(), "Dataset should be empty after invalid savepoint");
+        state.getSavepointCache().awaitPendingSave();
         String newStoredHash = state.files().readText(hashPath);
         assertEquals(newHash, newStoredHash, "New stored hash should match new computed hash");
     }
@@ -494,6 +500,7 @@ public class PipelineStepsTests {
         step.setId("sp001");
         step.setEnabled(true);
         step.execute(dataset, state);
+        state.getSavepointCache().awaitPendingSave();
 
         RelativePath hashFile = state.getSavepointCache().getHashFile("sp001");
         state.files().writeText(hashFile, "invalid-hash");
@@ -669,8 +676,7 @@ public class PipelineStepsTests {
         mojo.execute();
         pipeline.setForceRun(false);
         Dataset loadedDataset = DatasetFactory.create();
-        RelativePath datasetPath = state.getSavepointCache().getDatasetFile("sp002");
-        state.files().readRdf(datasetPath, loadedDataset);
+        state.getSavepointCache().load("sp002", loadedDataset, state);
         Model loadedModel = loadedDataset.getNamedModel("test:graph");
         assertTrue(
                 loadedModel.contains(
@@ -688,6 +694,123 @@ public class PipelineStepsTests {
         // have this test as a smoke test.
     }
 
+    private PipelineMojo makeUpToDateMojo(String outputFile) throws Exception {
+        PipelineMojo mojo = new PipelineMojo();
+        mojo.setBaseDir(baseDir);
+        mojo.setWorkBaseDir(new File("target"));
+        mojo.setConfiguration(
+                Xpp3DomBuilder.build(
+                        new StringReader(
+                                """
+                                <configuration>
+                                    <pipeline>
+                                        <id>up-to-date-pipeline</id>
+                                        <steps>
+                                            <add>
+                                                <file>src/test/resources/data.ttl</file>
+                                                <toGraph>test:graph</toGraph>
+                                            </add>
+                                            <write>
+                                                <graph>test:graph</graph>
+                                                <toFile>%s</toFile>
+                                            </write>
+                                        </steps>
+                                    </pipeline>
+                                </configuration>
+                                """
+                                        .formatted(outputFile))));
+        mojo.parseConfiguration();
+        return mojo;
+    }
+
+    @Test
+    void testPipelineMojoSkipsUpToDatePipeline() throws Exception {
+        String outputFile = "target/test-output/up-to-date/output.ttl";
+        File output = new File(baseDir, outputFile);
+        output.delete();
+        makeUpToDateMojo(outputFile).execute();
+        assertTrue(output.isFile());
+
+        long anHourAgo = System.currentTimeMillis() - 3_600_000;
+        output.setLastModified(anHourAgo);
+        makeUpToDateMojo(outputFile).execute();
+        assertEquals(
+                anHourAgo / 1000,
+                output.lastModified() / 1000,
+                "the output is intact, so the pipeline should have been skipped");
+
+        output.delete();
+        makeUpToDateMojo(outputFile).execute();
+        assertTrue(output.isFile(), "the output is missing, so the pipeline should have run");
+    }
+
+    @Test
+    void testNodeDictionaryIsClearedAfterPipeline() throws Exception {
+        new File(baseDir, "target/test-output/node-dictionary/output.ttl").delete();
+        NodeDictionary.getInstance().intern(NodeFactory.createURI("http://example.org/before"));
+        makeUpToDateMojo("target/test-output/node-dictionary/output.ttl").execute();
+        assertEquals(0, NodeDictionary.getInstance().size());
+    }
+
+    @Test
+    void testResumedRunIsNotRecordedAsUpToDate() throws Exception {
+        File first = new File(baseDir, "target/test-output/up-to-date-resumed/first.ttl");
+        File second = new File(baseDir, "target/test-output/up-to-date-resumed/second.ttl");
+        first.delete();
+        second.delete();
+        FileUtils.deleteDirectory(
+                new File(baseDir, "target/rdfio/pipelines/up-to-date-resumed-pipeline"));
+        makeResumableMojo().execute();
+        assertTrue(first.isFile() && second.isFile());
+
+        // resumes at the savepoint, so only the second file is written again
+        Files.writeString(second.toPath(), "");
+        makeResumableMojo().execute();
+        assertTrue(second.length() > 0);
+
+        first.delete();
+        long anHourAgo = System.currentTimeMillis() - 3_600_000;
+        second.setLastModified(anHourAgo);
+        makeResumableMojo().execute();
+        assertNotEquals(
+                anHourAgo / 1000,
+                second.lastModified() / 1000,
+                "the resumed run did not record the first file, so the pipeline should have run");
+    }
+
+    private PipelineMojo makeResumableMojo() throws Exception {
+        PipelineMojo mojo = new PipelineMojo();
+        mojo.setBaseDir(baseDir);
+        mojo.setWorkBaseDir(new File("target"));
+        mojo.setConfiguration(
+                Xpp3DomBuilder.build(
+                        new StringReader(
+                                """
+                                <configuration>
+                                    <pipeline>
+                                        <id>up-to-date-resumed-pipeline</id>
+                                        <steps>
+                                            <add>
+                                                <file>src/test/resources/data.ttl</file>
+                                                <toGraph>test:graph</toGraph>
+                                            </add>
+                                            <write>
+                                                <graph>test:graph</graph>
+                                                <toFile>target/test-output/up-to-date-resumed/first.ttl</toFile>
+                                            </write>
+                                            <savepoint><id>sp</id></savepoint>
+                                            <write>
+                                                <graph>test:graph</graph>
+                                                <toFile>target/test-output/up-to-date-resumed/second.ttl</toFile>
+                                            </write>
+                                        </steps>
+                                    </pipeline>
+                                </configuration>
+                                """)));
+        mojo.parseConfiguration();
+        return mojo;
+    }
+
     @Test
     void testSparqlHelperSelectQuery() throws MojoExecutionException {
         Model metaModel = dataset.getNamedModel(state.getMetadataGraph());
@@ -832,8 +955,8 @@ public class PipelineStepsTests {
         mojo.execute();
 
         // Verify savepoint created
-        RelativePath datasetPath = state.getSavepointCache().getDatasetFile("sp001");
-        assertTrue(datasetPath.exists(), "Savepoint dataset.trig should exist");
+        RelativePath manifestPath = state.getSavepointCache().getManifestFile("sp001");
+        assertTrue(manifestPath.exists(), "Savepoint manifest.txt should exist");
 
         // Modify input file
         String modifiedContent =
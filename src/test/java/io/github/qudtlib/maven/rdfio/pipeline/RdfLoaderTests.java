@@ -0,0 +1,63 @@
+package io.github.qudtlib.maven.rdfio.pipeline;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import io.github.qudtlib.maven.rdfio.common.file.RdfLoader;
+import java.io.File;
+import java.nio.file.Files;
+import org.apache.jena.graph.Graph;
+import org.apache.jena.graph.NodeFactory;
+import org.apache.jena.riot.RiotException;
+import org.apache.jena.sparql.core.DatasetGraph;
+import org.apache.jena.sparql.core.DatasetGraphFactory;
+import org.apache.jena.sparql.graph.GraphFactory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class RdfLoaderTests {
+    private File dir;
+
+    @BeforeEach
+    void setUp() {
+        dir = new File("target/test-output/rdf-loader");
+        dir.mkdirs();
+    }
+
+    @Test
+    void testReadGraphCountsBytesAndTriples() throws Exception {
+        File file = new File(dir, "data.ttl");
+        Files.writeString(
+                file.toPath(),
+                """
+                @prefix ex: <http://example.org/> .
+                ex:s ex:p 1, 2, 3 .
+                """);
+        long bytesBefore = RdfLoader.getBytesRead();
+        long triplesBefore = RdfLoader.getTriplesRead();
+        Graph graph = GraphFactory.createDefaultGraph();
+        RdfLoader.read(file, graph);
+        assertEquals(3, graph.size());
+        assertEquals("http://example.org/", graph.getPrefixMapping().getNsPrefixURI("ex"));
+        assertEquals(file.length(), RdfLoader.getBytesRead() - bytesBefore);
+        assertEquals(3, RdfLoader.getTriplesRead() - triplesBefore);
+    }
+
+    @Test
+    void testReadDatasetUsesFileExtension() throws Exception {
+        File file = new File(dir, "data.nq");
+        Files.writeString(
+                file.toPath(),
+                "<http://example.org/s> <http://example.org/p> \"o\" <http://example.org/g> .\n");
+        DatasetGraph dataset = DatasetGraphFactory.create();
+        RdfLoader.read(file, dataset);
+        assertEquals(1, dataset.getGraph(NodeFactory.createURI("http://example.org/g")).size());
+    }
+
+    @Test
+    void testParseErrorIsThrown() throws Exception {
+        File file = new File(dir, "broken.ttl");
+        Files.writeString(file.toPath(), "this is not turtle");
+        assertThrows(
+                RiotException.class, () -> RdfLoader.read(file, GraphFactory.createDefaultGraph()));
+    }
+}
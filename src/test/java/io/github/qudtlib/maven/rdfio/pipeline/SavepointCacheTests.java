@@ -0,0 +1,461 @@
+package io.github.qudtlib.maven.rdfio.pipeline;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import io.github.qudtlib.maven.rdfio.common.datasetchange.ChangeTrackingDataset;
+import io.github.qudtlib.maven.rdfio.common.datasetchange.ChangeTrackingGraph;
+import io.github.qudtlib.maven.rdfio.common.datasetchange.DatasetState;
+import io.github.qudtlib.maven.rdfio.common.datasetchange.GraphPatch;
+import io.github.qudtlib.maven.rdfio.common.file.RelativePath;
+import io.github.qudtlib.maven.rdfio.common.log.StdoutLog;
+import io.github.qudtlib.maven.rdfio.pipeline.step.AddStep;
+import io.github.qudtlib.maven.rdfio.pipeline.step.SparqlUpdateStep;
+import io.github.qudtlib.maven.rdfio.pipeline.step.support.SavepointCache;
+import io.github.qudtlib.maven.rdfio.pipeline.step.support.SavepointFormat;
+import io.github.qudtlib.maven.rdfio.pipeline.step.support.SavepointStore;
+import io.github.qudtlib.maven.rdfio.pipeline.support.ConfigurationParseException;
+import io.github.qudtlib.maven.rdfio.pipeline.support.PipelineConfigurationExeception;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+import org.apache.jena.graph.Graph;
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.NodeFactory;
+import org.apache.jena.graph.Triple;
+import org.apache.jena.query.Dataset;
+import org.apache.jena.query.DatasetFactory;
+import org.apache.jena.riot.Lang;
+import org.apache.jena.riot.RDFDataMgr;
+import org.apache.jena.sparql.graph.GraphFactory;
+import org.apache.jena.sparql.util.IsoMatcher;
+import org.codehaus.plexus.util.xml.Xpp3DomBuilder;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+public class SavepointCacheTests {
+    private static final String TRIG =
+            """
+            @prefix ex: <http://example.org/> .
+            ex:s ex:p ex:o .
+            ex:graph1 {
+                ex:s ex:p "literal"@en, 42 ;
+                    ex:q [ ex:r ex:o ] .
+            }
+            ex:graph2 {
+                ex:a ex:b ex:c .
+            }
+            """;
+
+    private PipelineState state;
+    private Dataset dataset;
+
+    @BeforeEach
+    void setUp() {
+        File baseDir = new File(".");
+        RelativePath workBaseDir = new RelativePath(baseDir, "target");
+        state =
+                new PipelineState(
+                        "savepoint-cache-test",
+                        baseDir,
+                        workBaseDir.subDir("rdfio").subDir("pipelines"),
+                        new StdoutLog(),
+                        null,
+                        null);
+        dataset = DatasetFactory.create();
+        RDFDataMgr.read(dataset, new StringReader(TRIG), null, Lang.TRIG);
+    }
+
+    @ParameterizedTest
+    @EnumSource(SavepointFormat.class)
+    void testSaveAndLoadRoundTrip(SavepointFormat format) {
+        SavepointCache cache = state.getSavepointCache();
+        cache.setFormat(format);
+        String id = "round-trip-" + format.getName();
+        cache.save(id, dataset, "hash", state);
+        assertTrue(cache.isValid(id, "hash", state));
+        assertTrue(cache.getManifestFile(id).exists());
+        assertTrue(
+                cache.getSavepointDir(id)
+                        .subFile("graph-00001" + format.getFileExtension())
+                        .exists());
+
+        Dataset loaded = DatasetFactory.create();
+        cache.load(id, loaded, state);
+        assertTrue(IsoMatcher.isomorphic(dataset.asDatasetGraph(), loaded.asDatasetGraph()));
+        assertEquals(
+                "http://example.org/",
+                loaded.getDefaultModel().getNsPrefixURI("ex"),
+                "prefixes should be kept");
+    }
+
+    @Test
+    void testSavepointWrittenInOtherFormatIsLoaded() {
+        SavepointCache cache = state.getSavepointCache();
+        cache.setFormat(SavepointFormat.TRIG);
+        cache.save("other-format", dataset, "hash", state);
+        cache.setFormat(SavepointFormat.THRIFT_GZIP);
+        Dataset loaded = DatasetFactory.create();
+        cache.load("other-format", loaded, state);
+        assertTrue(IsoMatcher.isomorphic(dataset.asDatasetGraph(), loaded.asDatasetGraph()));
+
+        cache.save("other-format", dataset, "hash", state);
+        RelativePath savepointDir = cache.getSavepointDir("other-format");
+        assertTrue(savepointDir.subFile("default.rt.gz").exists());
+        assertFalse(
+                savepointDir.subFile("default.trig").exists(),
+                "files of other formats should be removed");
+    }
+
+    @Test
+    void testNamedGraphsAreLoadedLazily() {
+        SavepointCache cache = state.getSavepointCache();
+        cache.save("lazy", dataset, "hash", state);
+        Dataset loaded = ChangeTrackingDataset.create();
+        cache.load("lazy", loaded, state);
+        // graph2 is stored in the second graph file
+        state.files().delete(cache.getSavepointDir("lazy").subFile("graph-00002.rt"));
+        DatasetState loadedState = new DatasetState(loaded);
+        assertEquals(new DatasetState(dataset).getGraphSizes(), loadedState.getGraphSizes());
+        assertEquals(new DatasetState(dataset).getGraphHashes(), loadedState.getGraphHashes());
+        assertTrue(
+                loaded.getNamedModel("http://example.org/graph1")
+                        .isIsomorphicWith(dataset.getNamedModel("http://example.org/graph1")));
+        assertThrows(
+                PipelineConfigurationExeception.class,
+                () -> loaded.getNamedModel("http://example.org/graph2").listStatements().toList());
+    }
+
+    @Test
+    void testUnusedGraphsAreCopiedToNextSavepoint() {
+        SavepointCache cache = state.getSavepointCache();
+        cache.save("copy-from", dataset, "hash", state);
+        Dataset loaded = ChangeTrackingDataset.create();
+        cache.load("copy-from", loaded, state);
+        loaded.getNamedModel("http://example.org/graph2")
+                .getGraph()
+                .add(
+                        NodeFactory.createURI("http://example.org/x"),
+                        NodeFactory.createURI("http://example.org/y"),
+                        NodeFactory.createURI("http://example.org/z"));
+        cache.save("copy-to", loaded, "hash2", state);
+        Dataset reloaded = DatasetFactory.create();
+        cache.load("copy-to", reloaded, state);
+        assertTrue(IsoMatcher.isomorphic(loaded.asDatasetGraph(), reloaded.asDatasetGraph()));
+        assertEquals(2, reloaded.getNamedModel("http://example.org/graph2").size());
+    }
+
+    @Test
+    void testGraphPatchRoundTrip() throws Exception {
+        Graph base = dataset.getNamedModel("http://example.org/graph1").getGraph();
+        Graph target = GraphFactory.createDefaultGraph();
+        base.find().forEachRemaining(target::add);
+        Node blank = base.find(null, ex("q"), null).next().getObject();
+        target.delete(blank, ex("r"), ex("o"));
+        target.add(blank, ex("r"), NodeFactory.createLiteral("changed", "de"));
+        target.add(ex("x"), ex("y"), NodeFactory.createBlankNode());
+        GraphPatch patch = GraphPatch.diff(base, target);
+        assertEquals(3, patch.size());
+
+        StringWriter out = new StringWriter();
+        patch.write(out);
+        Graph patched = GraphFactory.createDefaultGraph();
+        base.find().forEachRemaining(patched::add);
+        GraphPatch.apply(
+                new ByteArrayInputStream(out.toString().getBytes(StandardCharsets.UTF_8)), patched);
+        assertTrue(patched.isIsomorphicWith(target));
+        assertTrue(patched.contains(blank, ex("r"), Node.ANY), "blank nodes should be kept");
+    }
+
+    @Test
+    void testDeltaSavepointStoresPatch() {
+        SavepointCache cache = state.getSavepointCache();
+        cache.save("delta-base", dataset, "hash", state);
+        Dataset changed = DatasetFactory.create();
+        dataset.asDatasetGraph().find().forEachRemaining(changed.asDatasetGraph()::add);
+        changed.getNamedModel("http://example.org/graph1")
+                .getGraph()
+                .add(ex("x"), ex("y"), ex("z"));
+        cache.save("delta-1", changed, "hash1", SavepointCache.DEFAULT_MAX_DELTA_CHAIN, state);
+
+        RelativePath deltaDir = cache.getSavepointDir("delta-1");
+        assertTrue(deltaDir.subFile("graph-00001.patch").exists());
+        assertFalse(deltaDir.subFile("graph-00001.rt").exists());
+        assertFalse(
+                deltaDir.subFile("graph-00002.rt").exists(),
+                "unchanged graphs should refer to the base savepoint's files");
+        assertTrue(cache.isValid("delta-1", "hash1", state));
+
+        Dataset loaded = DatasetFactory.create();
+        cache.load("delta-1", loaded, state);
+        assertTrue(IsoMatcher.isomorphic(changed.asDatasetGraph(), loaded.asDatasetGraph()));
+
+        state.files().delete(cache.getSavepointDir("delta-base").subFile("graph-00002.rt"));
+        assertFalse(
+                cache.isValid("delta-1", "hash1", state),
+                "a delta savepoint is invalid if its base is gone");
+    }
+
+    @Test
+    void testDeltaSavepointIsInvalidatedWhenBaseIsSavedAgain() {
+        SavepointCache cache = state.getSavepointCache();
+        cache.save("resaved-base", dataset, "hashA", state);
+        Dataset original = DatasetFactory.create();
+        dataset.asDatasetGraph().find().forEachRemaining(original.asDatasetGraph()::add);
+        Graph graph1 = dataset.getNamedModel("http://example.org/graph1").getGraph();
+        graph1.add(ex("x"), ex("y"), ex("z"));
+        cache.save(
+                "resaved-delta", dataset, "hashB", SavepointCache.DEFAULT_MAX_DELTA_CHAIN, state);
+        assertTrue(cache.isValid("resaved-delta", "hashB", state));
+
+        Dataset other = DatasetFactory.create();
+        other.getNamedModel("http://example.org/graph1").getGraph().add(ex("a"), ex("b"), ex("c"));
+        other.getNamedModel("http://example.org/graph2").getGraph().add(ex("d"), ex("e"), ex("f"));
+        cache.save("resaved-base", other, "hashA2", state);
+
+        assertFalse(
+                cache.isValid("resaved-delta", "hashB", state),
+                "a delta savepoint is invalid once its base has been saved again");
+        cache.save("resaved-base", original, "hashA", state);
+        assertFalse(cache.isValid("resaved-delta", "hashB", state));
+    }
+
+    @Test
+    void testDeltaSavepointStoresChangeWithSameSizeAndHash() {
+        Dataset live = ChangeTrackingDataset.create();
+        Graph graph = live.getNamedModel("http://example.org/graph1").getGraph();
+        Triple before = Triple.create(ex("Aa"), ex("p"), ex("o"));
+        Triple after = Triple.create(ex("BB"), ex("p"), ex("o"));
+        assertEquals(before.hashCode(), after.hashCode(), "the triples' hashes should collide");
+        graph.add(before);
+        SavepointCache cache = state.getSavepointCache();
+        cache.save("collision-base", live, "hash", state);
+        graph.delete(before);
+        graph.add(after);
+        cache.save("collision-1", live, "hash1", SavepointCache.DEFAULT_MAX_DELTA_CHAIN, state);
+
+        Dataset loaded = DatasetFactory.create();
+        cache.load("collision-1", loaded, state);
+        Graph loadedGraph = loaded.getNamedModel("http://example.org/graph1").getGraph();
+        assertTrue(loadedGraph.contains(after));
+        assertFalse(loadedGraph.contains(before));
+    }
+
+    @Test
+    void testDeltaChainIsCompacted() {
+        SavepointCache cache = state.getSavepointCache();
+        cache.save("chain-0", dataset, "hash", state);
+        Graph graph1 = dataset.getNamedModel("http://example.org/graph1").getGraph();
+        for (int i = 1; i <= 3; i++) {
+            graph1.add(ex("x" + i), ex("y"), ex("z"));
+            cache.save("chain-" + i, dataset, "hash" + i, 2, state);
+        }
+        assertTrue(cache.getSavepointDir("chain-2").subFile("graph-00001.patch").exists());
+        assertTrue(
+                cache.getSavepointDir("chain-3").subFile("graph-00001.rt").exists(),
+                "the graph should be saved in full once the chain is too long");
+        Dataset loaded = DatasetFactory.create();
+        cache.load("chain-3", loaded, state);
+        assertTrue(IsoMatcher.isomorphic(dataset.asDatasetGraph(), loaded.asDatasetGraph()));
+    }
+
+    @Test
+    void testSaveInBackgroundWritesSnapshot() {
+        SavepointCache cache = state.getSavepointCache();
+        Dataset live = ChangeTrackingDataset.create();
+        dataset.asDatasetGraph().find().forEachRemaining(live.asDatasetGraph()::add);
+        cache.saveInBackground("background", live, "hash", 0, state);
+        live.getNamedModel("http://example.org/graph2").getGraph().add(ex("x"), ex("y"), ex("z"));
+        live.getDefaultModel().getGraph().clear();
+        cache.awaitPendingSave();
+
+        assertTrue(cache.isValid("background", "hash", state));
+        assertFalse(cache.getSavepointDir("background").subFile("hash.txt.new").exists());
+        Dataset loaded = DatasetFactory.create();
+        cache.load("background", loaded, state);
+        assertTrue(
+                IsoMatcher.isomorphic(dataset.asDatasetGraph(), loaded.asDatasetGraph()),
+                "changes after the savepoint should not be saved");
+    }
+
+    @Test
+    void testSaveInBackgroundFreezesGraphs() {
+        SavepointCache cache = state.getSavepointCache();
+        Dataset live = ChangeTrackingDataset.create();
+        dataset.asDatasetGraph().find().forEachRemaining(live.asDatasetGraph()::add);
+        ChangeTrackingGraph graph2 =
+                (ChangeTrackingGraph) live.getNamedModel("http://example.org/graph2").getGraph();
+        Graph content = graph2.getWrapped();
+        cache.saveInBackground("frozen-1", live, "hash", 0, state);
+        cache.awaitPendingSave();
+        // the overlay is only merged with the next change
+        assertNotSame(content, graph2.getWrapped(), "the graph should be frozen for the save");
+        graph2.add(ex("x"), ex("y"), ex("z"));
+        graph2.delete(ex("a"), ex("b"), ex("c"));
+        assertSame(content, graph2.getWrapped(), "the overlay should be merged once released");
+        assertTrue(content.contains(ex("x"), ex("y"), ex("z")));
+        assertFalse(content.contains(ex("a"), ex("b"), ex("c")));
+
+        cache.saveInBackground("frozen-2", live, "hash2", 0, state);
+        graph2.add(ex("x2"), ex("y"), ex("z"));
+        cache.awaitPendingSave();
+        Dataset loaded = DatasetFactory.create();
+        cache.load("frozen-2", loaded, state);
+        Graph loadedGraph2 = loaded.getNamedModel("http://example.org/graph2").getGraph();
+        assertEquals(1, loadedGraph2.size());
+        assertTrue(loadedGraph2.contains(ex("x"), ex("y"), ex("z")));
+        assertEquals(2, graph2.size());
+    }
+
+    @Test
+    void testSavepointIsRestoredFromStore(@TempDir Path storeDir) throws Exception {
+        SavepointCache cache = state.getSavepointCache();
+        cache.setStore(new SavepointStore(storeDir, Long.MAX_VALUE));
+        cache.save("stored-1", dataset, "stored-hash", state);
+        cache.save("stored-2", dataset, "stored-hash-2", state);
+        try (Stream<Path> files = Files.walk(storeDir.resolve("objects"))) {
+            assertEquals(
+                    3,
+                    files.filter(Files::isRegularFile).count(),
+                    "identical graphs should be stored once");
+        }
+
+        deleteRecursively(cache.getSavepointDir("stored-1").resolve().toPath());
+        assertFalse(cache.isValid("stored-1", "other-hash", state));
+        assertTrue(cache.isValid("stored-1", "stored-hash", state));
+        Dataset loaded = DatasetFactory.create();
+        cache.load("stored-1", loaded, state);
+        assertTrue(IsoMatcher.isomorphic(dataset.asDatasetGraph(), loaded.asDatasetGraph()));
+    }
+
+    @Test
+    void testSavepointIsRestoredInOtherCheckout(@TempDir Path storeDir, @TempDir Path checkouts)
+            throws Exception {
+        SavepointStore store = new SavepointStore(storeDir, Long.MAX_VALUE);
+        List<String> hashes = new ArrayList<>();
+        List<PipelineState> states = new ArrayList<>();
+        for (String checkout : List.of("first", "second")) {
+            Path checkoutDir = Files.createDirectories(checkouts.resolve(checkout));
+            Files.writeString(checkoutDir.resolve("data.ttl"), "<urn:s> <urn:p> <urn:o> .");
+            Files.writeString(
+                    checkoutDir.resolve("update.rq"),
+                    "INSERT DATA { GRAPH <test:g> { <urn:s> <urn:p> 1 } }");
+            File baseDir = checkoutDir.toFile();
+            PipelineState checkoutState =
+                    new PipelineState(
+                            "checkout-test",
+                            baseDir,
+                            new RelativePath(baseDir, "target").subDir("rdfio").subDir("pipelines"),
+                            new StdoutLog(),
+                            null,
+                            null);
+            checkoutState.getSavepointCache().setStore(store);
+            AddStep add = new AddStep();
+            add.getInputsComponent().addFile("data.ttl");
+            SparqlUpdateStep update = new SparqlUpdateStep();
+            update.setFile("update.rq");
+            hashes.add(update.calculateHash(add.calculateHash("", checkoutState), checkoutState));
+            states.add(checkoutState);
+        }
+        assertEquals(hashes.get(0), hashes.get(1), "the hashes should not depend on the checkout");
+
+        states.get(0).getSavepointCache().save("sp", dataset, hashes.get(0), states.get(0));
+        SavepointCache otherCache = states.get(1).getSavepointCache();
+        assertTrue(otherCache.isValid("sp", hashes.get(1), states.get(1)));
+        Dataset loaded = DatasetFactory.create();
+        otherCache.load("sp", loaded, states.get(1));
+        assertTrue(IsoMatcher.isomorphic(dataset.asDatasetGraph(), loaded.asDatasetGraph()));
+    }
+
+    @Test
+    void testStoreEvictsLeastRecentlyUsedSavepoints(@TempDir Path storeDir) throws Exception {
+        SavepointCache cache = state.getSavepointCache();
+        cache.setStore(new SavepointStore(storeDir, 1));
+        cache.save("evicted-1", dataset, "evicted-hash-1", state);
+        dataset.getDefaultModel().getGraph().add(ex("x"), ex("y"), ex("z"));
+        cache.save("evicted-2", dataset, "evicted-hash-2", state);
+
+        assertFalse(Files.exists(storeDir.resolve("savepoints").resolve("evicted-hash-1.txt")));
+        assertTrue(Files.exists(storeDir.resolve("savepoints").resolve("evicted-hash-2.txt")));
+        SavepointStore store = new SavepointStore(storeDir, 1);
+        assertTrue(store.getSavepoint("evicted-hash-1").isEmpty());
+        assertTrue(
+                store.getSavepoint("evicted-hash-2").isPresent(),
+                "the files of the remaining savepoint should be kept");
+    }
+
+    @Test
+    void testStoreRemovesOrphanedFilesBeforeEvicting(@TempDir Path storeDir) throws Exception {
+        SavepointStore store = new SavepointStore(storeDir, 1000);
+        Path small1 = Files.writeString(storeDir.resolve("small1.ttl"), "<urn:a> <urn:b> 1 .");
+        Path small2 = Files.writeString(storeDir.resolve("small2.ttl"), "<urn:a> <urn:b> 2 .");
+        Path large = Files.writeString(storeDir.resolve("large.ttl"), "#".repeat(2000));
+        store.putSavepoint("older", store.putFile(small1) + "\tdefault\n");
+        Path orphan = store.getFile(store.putFile(large));
+        Path staleTmp = Files.createTempFile(storeDir.resolve("objects"), "savepoint", ".tmp");
+        FileTime longAgo = FileTime.fromMillis(System.currentTimeMillis() - 2 * 60 * 60 * 1000);
+        Files.setLastModifiedTime(orphan, longAgo);
+        Files.setLastModifiedTime(staleTmp, longAgo);
+
+        store.putSavepoint("newer", store.putFile(small2) + "\tdefault\n");
+
+        assertFalse(Files.exists(orphan));
+        assertFalse(Files.exists(staleTmp));
+        assertTrue(
+                store.getSavepoint("older").isPresent(),
+                "orphaned files should not cause savepoints to be evicted");
+        assertTrue(store.getSavepoint("newer").isPresent());
+    }
+
+    private static void deleteRecursively(Path dir) throws Exception {
+        try (Stream<Path> files = Files.walk(dir)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    private static Node ex(String localName) {
+        return NodeFactory.createURI("http://example.org/" + localName);
+    }
+
+    @Test
+    void testParseSavepointFormat() throws Exception {
+        Pipeline pipeline =
+                Pipeline.parse(
+                        Xpp3DomBuilder.build(
+                                new StringReader(
+                                        """
+                                        <pipeline>
+                                            <id>test</id>
+                                            <savepointFormat>thrift-gzip</savepointFormat>
+                                        </pipeline>""")),
+                        new File("."),
+                        null);
+        assertEquals(SavepointFormat.THRIFT_GZIP, pipeline.getSavepointFormat());
+        assertThrows(
+                ConfigurationParseException.class,
+                () ->
+                        Pipeline.parse(
+                                Xpp3DomBuilder.build(
+                                        new StringReader(
+                                                """
+                                                <pipeline>
+                                                    <id>test</id>
+                                                    <savepointFormat>nquads</savepointFormat>
+                                                </pipeline>""")),
+                                new File("."),
+                                null));
+    }
+}
@@ -67,6 +67,44 @@ public class SavepointStepParseTest {
         assertTrue(step.isEnabled(), "Savepoint enabled should be true");
     }
 
+    @Test
+    public void testParseDeltaSavepoint()
+            throws MojoExecutionException, XmlPullParserException, IOException {
+        String xml =
+                """
+                <savepoint>
+                    <id>sp004</id>
+                    <delta>true</delta>
+                    <maxDeltaChain>3</maxDeltaChain>
+                </savepoint>
+                """;
+        SavepointStep step = SavepointStep.parse(Xpp3DomBuilder.build(new StringReader(xml)));
+
+        assertTrue(step.isDelta(), "Savepoint should be a delta savepoint");
+        assertEquals(3, step.getMaxDeltaChain(), "maxDeltaChain should match");
+        assertFalse(
+                SavepointStep.parse(Xpp3DomBuilder_build("<savepoint><id>sp005</id></savepoint>"))
+                        .isDelta(),
+                "Savepoint should not be a delta savepoint by default");
+    }
+
+    @Test
+    public void testParseInvalidMaxDeltaChain() {
+        Xpp3Dom config =
+                Xpp3DomBuilder_build(
+                        """
+                        <savepoint>
+                            <id>sp006</id>
+                            <delta>true</delta>
+                            <maxDeltaChain>0</maxDeltaChain>
+                        </savepoint>
+                        """);
+
+        Exception exception =
+                assertThrows(ConfigurationParseException.class, () -> SavepointStep.parse(config));
+        assertTrue(exception.getMessage().contains("<maxDeltaChain>"));
+    }
+
     @Test
     public void testParseNullConfig() {
         Exception exception =
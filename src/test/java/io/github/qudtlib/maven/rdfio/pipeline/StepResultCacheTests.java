@@ -0,0 +1,169 @@
+package io.github.qudtlib.maven.rdfio.pipeline;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import io.github.qudtlib.maven.rdfio.common.datasetchange.ChangeTrackingDataset;
+import io.github.qudtlib.maven.rdfio.common.file.RelativePath;
+import io.github.qudtlib.maven.rdfio.common.log.StdoutLog;
+import io.github.qudtlib.maven.rdfio.pipeline.step.SparqlUpdateStep;
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+import org.apache.jena.query.Dataset;
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.rdf.model.ResourceFactory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class StepResultCacheTests {
+    private static final String REUSED = "Reused the result of an earlier execution";
+
+    private PipelineState state;
+    private final List<String> logLines = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() throws Exception {
+        File baseDir = new File(".");
+        RelativePath pipelinesDir =
+                new RelativePath(baseDir, "target").subDir("test-output").subDir("step-results");
+        File dir = pipelinesDir.resolve();
+        if (dir.exists()) {
+            try (Stream<Path> paths = Files.walk(dir.toPath())) {
+                paths.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+            }
+        }
+        state =
+                new PipelineState(
+                        "memoize",
+                        baseDir,
+                        pipelinesDir,
+                        new StdoutLog() {
+                            @Override
+                            public void info(CharSequence content) {
+                                logLines.add(content.toString());
+                            }
+                        },
+                        null,
+                        null);
+        state.setMemoizeSteps(true);
+    }
+
+    private static Dataset makeDataset(String inputObject, String unrelatedObject) {
+        Dataset dataset = ChangeTrackingDataset.create();
+        dataset.getNamedModel("test:in")
+                .add(
+                        ResourceFactory.createResource("http://example.org/s"),
+                        ResourceFactory.createProperty("http://example.org/p"),
+                        ResourceFactory.createResource(inputObject));
+        dataset.getNamedModel("test:unrelated")
+                .add(
+                        ResourceFactory.createResource("http://example.org/s"),
+                        ResourceFactory.createProperty("http://example.org/p"),
+                        ResourceFactory.createResource(unrelatedObject));
+        return dataset;
+    }
+
+    private static SparqlUpdateStep makeStep() {
+        SparqlUpdateStep step = new SparqlUpdateStep();
+        step.setSparql(
+                """
+                INSERT { GRAPH <test:out> { ?s <http://example.org/q> ?o } }
+                WHERE { GRAPH <test:in> { ?s <http://example.org/p> ?o } }
+                """);
+        return step;
+    }
+
+    private boolean execute(Dataset dataset) throws Exception {
+        logLines.clear();
+        makeStep().executeAndWrapException(dataset, state);
+        return logLines.stream().anyMatch(line -> line.contains(REUSED));
+    }
+
+    private static boolean hasOutput(Dataset dataset, String object) {
+        Model out = dataset.getNamedModel("test:out");
+        return out.contains(
+                ResourceFactory.createResource("http://example.org/s"),
+                ResourceFactory.createProperty("http://example.org/q"),
+                ResourceFactory.createResource(object));
+    }
+
+    @Test
+    void testResultIsReusedIfOnlyUnrelatedGraphsChanged() throws Exception {
+        Dataset first = makeDataset("http://example.org/o1", "http://example.org/u1");
+        assertFalse(execute(first));
+        assertTrue(hasOutput(first, "http://example.org/o1"));
+
+        Dataset second = makeDataset("http://example.org/o1", "http://example.org/u2");
+        assertTrue(execute(second), "only an unrelated graph changed, the result should be reused");
+        assertTrue(hasOutput(second, "http://example.org/o1"));
+        assertEquals(1, second.getNamedModel("test:out").size());
+    }
+
+    @Test
+    void testResultIsNotReusedIfInputGraphChanged() throws Exception {
+        assertFalse(execute(makeDataset("http://example.org/o1", "http://example.org/u1")));
+
+        Dataset changed = makeDataset("http://example.org/o2", "http://example.org/u1");
+        assertFalse(execute(changed), "the input graph changed, the step should be executed");
+        assertTrue(hasOutput(changed, "http://example.org/o2"));
+        assertFalse(hasOutput(changed, "http://example.org/o1"));
+    }
+
+    @Test
+    void testInputGraphIsHashedAgainAfterChange() throws Exception {
+        Dataset dataset = makeDataset("http://example.org/o1", "http://example.org/u1");
+        assertFalse(execute(dataset));
+        dataset.getNamedModel("test:in")
+                .add(
+                        ResourceFactory.createResource("http://example.org/s"),
+                        ResourceFactory.createProperty("http://example.org/p"),
+                        ResourceFactory.createResource("http://example.org/o2"));
+        assertFalse(execute(dataset), "the input graph changed, the step should be executed");
+        assertTrue(hasOutput(dataset, "http://example.org/o2"));
+    }
+
+    @Test
+    void testResultIsNotReusedIfOutputGraphChanged() throws Exception {
+        Dataset first = makeDataset("http://example.org/o1", "http://example.org/u1");
+        first.getNamedModel("test:out")
+                .add(
+                        ResourceFactory.createResource("http://example.org/s"),
+                        ResourceFactory.createProperty("http://example.org/q"),
+                        ResourceFactory.createResource("http://example.org/o1"));
+        // the triple is already there, so the step does not change the dataset
+        assertFalse(execute(first));
+
+        Dataset second = makeDataset("http://example.org/o1", "http://example.org/u1");
+        assertFalse(
+                execute(second),
+                "the output graph's prior content changed, the step should be executed");
+        assertTrue(hasOutput(second, "http://example.org/o1"));
+    }
+
+    @Test
+    void testResultIsNotReusedIfVariableChanged() throws Exception {
+        Dataset first = makeDataset("http://example.org/o1", "http://example.org/u1");
+        // "Aa" and "BB" have the same String.hashCode()
+        PipelineHelper.setPipelineVariable(
+                first, state, "x", ResourceFactory.createStringLiteral("Aa"));
+        assertFalse(execute(first));
+
+        Dataset second = makeDataset("http://example.org/o1", "http://example.org/u1");
+        PipelineHelper.setPipelineVariable(
+                second, state, "x", ResourceFactory.createStringLiteral("BB"));
+        assertFalse(execute(second), "a variable changed, the step should be executed");
+    }
+
+    @Test
+    void testResultIsNotReusedWhenForced() throws Exception {
+        assertFalse(execute(makeDataset("http://example.org/o1", "http://example.org/u1")));
+        state.setAllowLoadingFromSavepoint(false);
+        Dataset dataset = makeDataset("http://example.org/o1", "http://example.org/u1");
+        assertFalse(execute(dataset));
+        assertTrue(hasOutput(dataset, "http://example.org/o1"));
+    }
+}
@@ -0,0 +1,264 @@
+package io.github.qudtlib.maven.rdfio.pipeline;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import io.github.qudtlib.maven.rdfio.common.datasetchange.ChangeTrackingDataset;
+import io.github.qudtlib.maven.rdfio.common.datasetchange.DatasetState;
+import io.github.qudtlib.maven.rdfio.common.file.RelativePath;
+import io.github.qudtlib.maven.rdfio.common.log.StdoutLog;
+import io.github.qudtlib.maven.rdfio.pipeline.step.*;
+import io.github.qudtlib.maven.rdfio.pipeline.step.support.SparqlDependencies;
+import io.github.qudtlib.maven.rdfio.pipeline.step.support.StepDependencies;
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import org.apache.jena.query.Dataset;
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.rdf.model.ModelFactory;
+import org.apache.jena.rdf.model.ResourceFactory;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class StepSchedulerTests {
+    private Dataset dataset;
+    private PipelineState state;
+    private File baseDir;
+
+    @BeforeEach
+    void setUp() {
+        dataset = ChangeTrackingDataset.create();
+        baseDir = new File(".");
+        state =
+                new PipelineState(
+                        "test-pipeline",
+                        baseDir,
+                        new RelativePath(baseDir, "target").subDir("rdfio").subDir("pipelines"),
+                        new StdoutLog(),
+                        null,
+                        null);
+        state.files().mkdirs(state.files().make("target/test-output/scheduler"));
+    }
+
+    @Test
+    void testGraphAndFileConflicts() {
+        StepDependencies writeG1 = StepDependencies.of().writesGraph("test:g1");
+        StepDependencies readG1 = StepDependencies.of().readsGraph("test:g1");
+        StepDependencies readG2 = StepDependencies.of().readsGraph("test:g2");
+        StepDependencies readPattern = StepDependencies.of().readsGraph("test:g*");
+        StepDependencies readVariable = StepDependencies.of().readsGraph("test:${name}");
+        assertTrue(writeG1.conflictsWith(readG1));
+        assertFalse(writeG1.conflictsWith(readG2));
+        assertTrue(writeG1.conflictsWith(readPattern));
+        assertTrue(readVariable.conflictsWith(writeG1));
+        assertFalse(readG1.conflictsWith(readG1));
+        StepDependencies writeOut = StepDependencies.of().writesFile("target/out/a.ttl");
+        assertTrue(writeOut.conflictsWith(StepDependencies.of().readsFile("target/**/*.ttl")));
+        assertFalse(writeOut.conflictsWith(StepDependencies.of().readsFile("src/**/*.ttl")));
+        assertFalse(writeOut.conflictsWith(StepDependencies.of().writesFile("target/out/b.ttl")));
+        assertTrue(writeOut.conflictsWith(StepDependencies.of().writesFile("target/${name}.ttl")));
+        assertTrue(StepDependencies.barrier().conflictsWith(StepDependencies.of()));
+    }
+
+    @Test
+    void testSparqlDependencies() {
+        StepDependencies update =
+                SparqlDependencies.ofUpdate(
+                        """
+                        INSERT { GRAPH <test:out> { ?s ?p ?o } }
+                        WHERE { GRAPH <test:in> { ?s ?p ?o }
+                                FILTER NOT EXISTS { GRAPH <test:other> { ?s ?p ?o } } }
+                        """);
+        assertFalse(update.isBarrier());
+        assertTrue(update.mayWriteGraph("test:out"));
+        assertFalse(update.mayWriteGraph("test:in"));
+        assertTrue(update.getReadGraphs().containsAll(List.of("test:in", "test:other")));
+        StepDependencies defaultGraphUpdate =
+                SparqlDependencies.ofUpdate("DELETE WHERE { ?s ?p ?o }");
+        assertTrue(defaultGraphUpdate.mayWriteGraph(DatasetState.DEFAULT_GRAPH_NAME));
+        assertFalse(defaultGraphUpdate.mayWriteGraph("test:in"));
+        assertTrue(
+                SparqlDependencies.ofUpdate("INSERT { GRAPH ?g { ?s ?p ?o } } WHERE { ?s ?p ?o }")
+                        .mayWriteGraph("test:anything"));
+        assertTrue(SparqlDependencies.ofUpdate("CLEAR GRAPH <${graph}>").isBarrier());
+        assertTrue(SparqlDependencies.ofUpdate("LOAD <http://example.org/x>").isBarrier());
+        StepDependencies query =
+                SparqlDependencies.ofQuery("SELECT * FROM <test:a> WHERE { ?s ?p ?o }");
+        assertEquals(List.of("test:a"), List.copyOf(query.getReadGraphs()));
+    }
+
+    @Test
+    void testUnscopedSparqlUpdateIsBarrier() {
+        SparqlUpdateStep step = new SparqlUpdateStep();
+        step.setSparql("INSERT { ?s a ex:Thing } WHERE { ?s ?p ?o }");
+        assertTrue(step.getDependencies(state).isBarrier());
+        assertTrue(new ClearStep().getDependencies(state).isBarrier());
+    }
+
+    @Test
+    void testSparqlUpdateBindsOnlyUnboundGraphs() {
+        dataset.addNamedModel("test:g1", ModelFactory.createDefaultModel());
+        dataset.addNamedModel("test:g2", ModelFactory.createDefaultModel());
+        PipelineHelper.bindGraphToNoFileIfUnbound(dataset, state, "test:g1");
+        PipelineHelper.bindGraphToNoFileIfUnbound(dataset, state, "test:g2");
+        SparqlUpdateStep updateG1 = new SparqlUpdateStep();
+        updateG1.setSparql("INSERT DATA { GRAPH <test:g1> { <test:s> <test:p> 1 } }");
+        SparqlUpdateStep updateG2 = new SparqlUpdateStep();
+        updateG2.setSparql("INSERT DATA { GRAPH <test:g2> { <test:s> <test:p> 2 } }");
+        SparqlUpdateStep updateNew = new SparqlUpdateStep();
+        updateNew.setSparql("INSERT DATA { GRAPH <test:new> { <test:s> <test:p> 3 } }");
+        StepDependencies g1 = updateG1.getDependencies(dataset, state);
+        StepDependencies g2 = updateG2.getDependencies(dataset, state);
+        assertFalse(g1.mayWriteGraph(state.getMetadataGraph()));
+        assertFalse(g1.conflictsWith(g2));
+        assertTrue(updateG1.getDependencies(state).mayWriteGraph(state.getMetadataGraph()));
+        assertTrue(
+                updateNew.getDependencies(dataset, state).mayWriteGraph(state.getMetadataGraph()));
+    }
+
+    @Test
+    void testDependenciesAreDeterminedAfterSparqlFileIsWritten() throws Exception {
+        String file = "target/test-output/scheduler/update.rq";
+        Path path = state.files().make(file).resolve().toPath();
+        Files.writeString(path, "INSERT DATA { GRAPH <test:a> { <test:s> <test:p> 1 } }");
+        Step writeSparql =
+                new Step() {
+                    @Override
+                    public String getElementName() {
+                        return "writeSparql";
+                    }
+
+                    @Override
+                    public void execute(Dataset dataset, PipelineState state) {
+                        try {
+                            Thread.sleep(200);
+                            Files.writeString(
+                                    path, "INSERT DATA { GRAPH <test:b> { <test:s> <test:p> 2 } }");
+                        } catch (Exception e) {
+                            throw new RuntimeException(e);
+                        }
+                    }
+
+                    @Override
+                    public String calculateHash(String previousHash, PipelineState state) {
+                        return previousHash;
+                    }
+
+                    @Override
+                    public StepDependencies getDependencies(PipelineState state) {
+                        return StepDependencies.of().writesFile(file);
+                    }
+                };
+        List<StepDependencies> scheduledDependencies = new ArrayList<>();
+        SparqlUpdateStep update =
+                new SparqlUpdateStep() {
+                    @Override
+                    public StepDependencies getDependencies(Dataset dataset, PipelineState state) {
+                        StepDependencies dependencies = super.getDependencies(dataset, state);
+                        scheduledDependencies.add(dependencies);
+                        return dependencies;
+                    }
+                };
+        update.setFile(file);
+        try (StepScheduler scheduler = new StepScheduler(dataset, state, 2)) {
+            scheduler.execute(writeSparql);
+            scheduler.execute(update);
+            scheduler.awaitAll();
+        }
+        StepDependencies dependencies = scheduledDependencies.get(scheduledDependencies.size() - 1);
+        assertTrue(dependencies.mayWriteGraph("test:b"));
+        assertFalse(dependencies.mayWriteGraph("test:a"));
+        assertTrue(dataset.containsNamedModel("test:b"));
+    }
+
+    @Test
+    void testConcurrentStepsProduceSameResults() throws MojoExecutionException {
+        List<Step> steps = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            Model model = ModelFactory.createDefaultModel();
+            model.add(
+                    ResourceFactory.createResource("http://example.org/s" + i),
+                    ResourceFactory.createProperty("http://example.org/p"),
+                    "o" + i);
+            dataset.addNamedModel("test:g" + i, model);
+            WriteStep write = new WriteStep();
+            write.addGraph("test:g" + i);
+            write.setToFile("target/test-output/scheduler/out-" + i + ".ttl");
+            steps.add(write);
+            SparqlQueryStep query = new SparqlQueryStep();
+            query.setSparql(
+                    "CONSTRUCT { ?s ?p ?o } WHERE { GRAPH <test:g%d> { ?s ?p ?o } }".formatted(i));
+            query.setToFile("target/test-output/scheduler/query-" + i + ".ttl");
+            steps.add(query);
+        }
+        try (StepScheduler scheduler = new StepScheduler(dataset, state, 4)) {
+            for (Step step : steps) {
+                scheduler.execute(step);
+            }
+            scheduler.awaitAll();
+        }
+        assertEquals(steps, state.getPrecedingSteps());
+        for (int i = 0; i < 6; i++) {
+            Model written = ModelFactory.createDefaultModel();
+            state.files()
+                    .readRdf(
+                            state.files().make("target/test-output/scheduler/out-" + i + ".ttl"),
+                            written);
+            assertTrue(written.isIsomorphicWith(dataset.getNamedModel("test:g" + i)));
+            Model queried = ModelFactory.createDefaultModel();
+            state.files()
+                    .readRdf(
+                            state.files().make("target/test-output/scheduler/query-" + i + ".ttl"),
+                            queried);
+            assertTrue(queried.isIsomorphicWith(dataset.getNamedModel("test:g" + i)));
+        }
+    }
+
+    @Test
+    void testFailureIsThrown() {
+        WriteStep ok = new WriteStep();
+        ok.setToFile("target/test-output/scheduler/ok.ttl");
+        WriteStep failing = new WriteStep();
+        failing.addGraph("test:doesNotExist");
+        assertThrows(
+                MojoExecutionException.class,
+                () -> {
+                    try (StepScheduler scheduler = new StepScheduler(dataset, state, 2)) {
+                        scheduler.execute(ok);
+                        scheduler.execute(failing);
+                        scheduler.awaitAll();
+                    }
+                });
+        assertEquals(List.of(ok), state.getPrecedingSteps());
+    }
+
+    @Test
+    void testHashIsCalculatedAfterConflictingStepsFinished() throws Exception {
+        String file = "target/test-output/scheduler/rewritten.ttl";
+        Files.writeString(
+                state.files().make(file).resolve().toPath(),
+                "<http://example.org/old> <http://example.org/p> 1 .");
+        Model model = ModelFactory.createDefaultModel();
+        model.add(
+                ResourceFactory.createResource("http://example.org/new"),
+                ResourceFactory.createProperty("http://example.org/p"),
+                "o");
+        dataset.addNamedModel("test:written", model);
+        WriteStep write = new WriteStep();
+        write.addGraph("test:written");
+        write.setToFile(file);
+        AddStep add = new AddStep();
+        add.getInputsComponent().addFile(file);
+        add.setToGraph("test:read");
+        String addHash;
+        try (StepScheduler scheduler = new StepScheduler(dataset, state, 2)) {
+            String writeHash = scheduler.execute(write, "");
+            addHash = scheduler.execute(add, writeHash);
+            scheduler.awaitAll();
+            // the hash of <add> fingerprints the file as written by <write>
+            assertEquals(add.calculateHash(writeHash, state), addHash);
+        }
+    }
+}
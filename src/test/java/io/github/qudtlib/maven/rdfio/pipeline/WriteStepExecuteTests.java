@@ -3,13 +3,17 @@ package io.github.qudtlib.maven.rdfio.pipeline;
 import static org.junit.jupiter.api.Assertions.*;
 
 import io.github.qudtlib.maven.rdfio.common.RDFIO;
+import io.github.qudtlib.maven.rdfio.common.datasetchange.ChangeTrackingDataset;
 import io.github.qudtlib.maven.rdfio.common.file.RelativePath;
 import io.github.qudtlib.maven.rdfio.common.file.RelativePathException;
+import io.github.qudtlib.maven.rdfio.pipeline.step.AddStep;
 import io.github.qudtlib.maven.rdfio.pipeline.step.WriteStep;
+import io.github.qudtlib.maven.rdfio.pipeline.step.support.FileGraph;
 import io.github.qudtlib.maven.rdfio.pipeline.support.ConfigurationParseException;
 import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import org.apache.jena.query.Dataset;
 import org.apache.jena.query.DatasetFactory;
 import org.apache.jena.rdf.model.Model;
@@ -424,6 +428,142 @@ public class WriteStepExecuteTests {
                 "Written model should contain the expected triple");
     }
 
+    @Test
+    void testWriteStepCopiesLazilyAddedFile() throws Exception {
+        // the comment would be lost if the graph were written instead of copying the file
+        String content =
+                """
+                # lazily added
+                @prefix ex: <http://example.org/> .
+
+                ex:s ex:p ex:o .
+                """;
+        RelativePath inputFile = testOutputBase.subFile("lazy-input.ttl");
+        Files.writeString(inputFile.resolve().toPath(), content);
+        Dataset trackingDataset = ChangeTrackingDataset.create();
+        AddStep.parse(
+                        buildConfig(
+                                """
+                                <add>
+                                    <file>target/test-output/lazy-input.ttl</file>
+                                    <toGraph>test:lazy</toGraph>
+                                    <lazy>true</lazy>
+                                </add>
+                                """))
+                .execute(trackingDataset, state);
+        WriteStep step =
+                WriteStep.parse(
+                        buildConfig(
+                                """
+                                <write>
+                                    <graph>test:lazy</graph>
+                                    <toFile>target/test-output/lazy-output.ttl</toFile>
+                                </write>
+                                """));
+
+        step.execute(trackingDataset, state);
+
+        File outputFile = testOutputBase.subFile("lazy-output.ttl").resolve();
+        assertEquals(content, Files.readString(outputFile.toPath()));
+        assertTrue(
+                FileGraph.unloadedFileGraph(trackingDataset.getNamedModel("test:lazy").getGraph())
+                        .isPresent(),
+                "Writing should not read the lazily added file");
+    }
+
+    @Test
+    void testWriteStepAddsPrefixesOfOtherGraphsToLazilyAddedFile() throws Exception {
+        RelativePath inputFile = testOutputBase.subFile("lazy-input.ttl");
+        Files.writeString(
+                inputFile.resolve().toPath(),
+                """
+                @prefix ex: <http://example.org/> .
+
+                ex:s ex:p ex:o .
+                """);
+        Dataset trackingDataset = ChangeTrackingDataset.create();
+        Model other = trackingDataset.getNamedModel("test:other");
+        other.setNsPrefix("other", "http://example.org/other/");
+        other.add(
+                ResourceFactory.createResource("http://example.org/other/s"),
+                ResourceFactory.createProperty("http://example.org/other/p"),
+                ResourceFactory.createResource("http://example.org/other/o"));
+        AddStep.parse(
+                        buildConfig(
+                                """
+                                <add>
+                                    <file>target/test-output/lazy-input.ttl</file>
+                                    <toGraph>test:lazy</toGraph>
+                                    <lazy>true</lazy>
+                                </add>
+                                """))
+                .execute(trackingDataset, state);
+        WriteStep step =
+                WriteStep.parse(
+                        buildConfig(
+                                """
+                                <write>
+                                    <graph>test:lazy</graph>
+                                    <toFile>target/test-output/lazy-output.ttl</toFile>
+                                </write>
+                                """));
+
+        step.execute(trackingDataset, state);
+
+        Model written = ModelFactory.createDefaultModel();
+        state.files().readRdf(testOutputBase.subFile("lazy-output.ttl"), written);
+        assertEquals("http://example.org/", written.getNsPrefixURI("ex"));
+        assertEquals("http://example.org/other/", written.getNsPrefixURI("other"));
+        assertEquals(1, written.size());
+    }
+
+    @Test
+    void testOverwritingLazilyAddedFileKeepsTheGraph() throws Exception {
+        RelativePath inputFile = testOutputBase.subFile("lazy-input.ttl");
+        Files.writeString(
+                inputFile.resolve().toPath(),
+                """
+                @prefix ex: <http://example.org/> .
+
+                ex:s ex:p ex:o .
+                """);
+        Dataset trackingDataset = ChangeTrackingDataset.create();
+        trackingDataset
+                .getNamedModel("test:other")
+                .add(
+                        ResourceFactory.createResource("http://example.org/other/s"),
+                        ResourceFactory.createProperty("http://example.org/other/p"),
+                        ResourceFactory.createResource("http://example.org/other/o"));
+        AddStep.parse(
+                        buildConfig(
+                                """
+                                <add>
+                                    <file>target/test-output/lazy-input.ttl</file>
+                                    <toGraph>test:lazy</toGraph>
+                                    <lazy>true</lazy>
+                                </add>
+                                """))
+                .execute(trackingDataset, state);
+        WriteStep.parse(
+                        buildConfig(
+                                """
+                                <write>
+                                    <graph>test:other</graph>
+                                    <toFile>target/test-output/lazy-input.ttl</toFile>
+                                </write>
+                                """))
+                .execute(trackingDataset, state);
+
+        Model lazy = trackingDataset.getNamedModel("test:lazy");
+        assertEquals(1, lazy.size());
+        assertTrue(
+                lazy.contains(
+                        ResourceFactory.createResource("http://example.org/s"),
+                        ResourceFactory.createProperty("http://example.org/p"),
+                        ResourceFactory.createResource("http://example.org/o")),
+                "The graph should have the file's content from before it was overwritten");
+    }
+
     private Xpp3Dom buildConfig(String xml) throws Exception {
         return Xpp3DomBuilder.build(
                 new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8)),
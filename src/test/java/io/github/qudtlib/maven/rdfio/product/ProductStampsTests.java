@@ -0,0 +1,89 @@
+package io.github.qudtlib.maven.rdfio.product;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import io.github.qudtlib.maven.rdfio.common.file.FileFingerprints;
+import java.io.File;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class ProductStampsTests {
+    private static final String DIR = "target/test-output/product-stamps";
+    private static final String INPUT = DIR + "/input.ttl";
+    private static final String OUTPUT = DIR + "/output.ttl";
+
+    private final File baseDir = new File(".");
+    private final File stampFile = new File(baseDir, DIR + "/stamps.txt");
+
+    @BeforeEach
+    void setUp() throws Exception {
+        Files.createDirectories(new File(baseDir, DIR).toPath());
+        Files.writeString(
+                new File(baseDir, INPUT).toPath(),
+                "<http://example.org/s> <http://example.org/p> 1 .\n");
+        Files.writeString(
+                new File(baseDir, OUTPUT).toPath(),
+                "<http://example.org/s> <http://example.org/p> 1 .\n");
+        stampFile.delete();
+    }
+
+    private ProductStamps stamps(String configurationHash) {
+        return new ProductStamps(stampFile, baseDir, configurationHash, new FileFingerprints());
+    }
+
+    private static List<Map.Entry<String, String>> inputs() {
+        return List.of(Map.entry("rdfio:default", INPUT));
+    }
+
+    private void recordOutput() {
+        ProductStamps stamps = stamps("config");
+        assertFalse(stamps.isUpToDate(OUTPUT, stamps.inputHash(inputs())));
+        stamps.record(OUTPUT, stamps.inputHash(inputs()));
+        stamps.write();
+    }
+
+    @Test
+    void testUnchangedOutputIsUpToDate() {
+        recordOutput();
+        ProductStamps stamps = stamps("config");
+        assertTrue(stamps.isUpToDate(OUTPUT, stamps.inputHash(inputs())));
+        stamps.write();
+        ProductStamps again = stamps("config");
+        assertTrue(
+                again.isUpToDate(OUTPUT, again.inputHash(inputs())),
+                "stamps found up to date must be kept");
+    }
+
+    @Test
+    void testChangedInputIsNotUpToDate() throws Exception {
+        recordOutput();
+        Files.writeString(
+                new File(baseDir, INPUT).toPath(),
+                "<http://example.org/s> <http://example.org/p> 2 .\n");
+        ProductStamps stamps = stamps("config");
+        assertFalse(stamps.isUpToDate(OUTPUT, stamps.inputHash(inputs())));
+    }
+
+    @Test
+    void testChangedOrMissingOutputIsNotUpToDate() throws Exception {
+        recordOutput();
+        Files.writeString(new File(baseDir, OUTPUT).toPath(), "# edited\n");
+        ProductStamps stamps = stamps("config");
+        assertFalse(stamps.isUpToDate(OUTPUT, stamps.inputHash(inputs())));
+
+        recordOutput();
+        new File(baseDir, OUTPUT).delete();
+        stamps = stamps("config");
+        assertFalse(stamps.isUpToDate(OUTPUT, stamps.inputHash(inputs())));
+    }
+
+    @Test
+    void testChangedConfigurationDiscardsStamps() {
+        recordOutput();
+        ProductStamps stamps = stamps("other config");
+        assertFalse(stamps.isUpToDate(OUTPUT, stamps.inputHash(inputs())));
+    }
+}